@@ -16,6 +16,7 @@ cp -f methanol-jackson-flux/README.md docs/adapters/jackson_flux.md
 cp -f methanol-jaxb/README.md docs/adapters/jaxb.md
 cp -f methanol-protobuf/README.md docs/adapters/protobuf.md
 cp -f methanol-brotli/README.md docs/brotli.md
+cp -f methanol-zstd/README.md docs/zstd.md
 cp -f methanol-benchmarks/README.md docs/benchmarks.md
 cp -f CHANGELOG.md docs/CHANGELOG.md
 cp -f CONTRIBUTING.md docs/CONTRIBUTING.md
@@ -34,6 +35,7 @@ cp -rf build/docs/javadoc/* site/$JAVADOC_SITE_PATH
 # Remove copied files, which is desirable when the script is run locally
 rm -rf docs/adapters
 rm -f docs/brotli.md
+rm -f docs/zstd.md
 rm -f docs/benchmarks.md
 rm -f docs/CHANGELOG.md
 rm -f docs/CONTRIBUTING.md
@@ -101,6 +101,12 @@ public class BrotliDecoderBenchmark extends ClientServerLifecycle {
         });
   }
 
+  /** Runs the same benchmarks with the pure-Java decoder instead of the native one. */
+  @Fork(
+      value = 1,
+      jvmArgsAppend = "-Dcom.github.mizosoft.methanol.brotli.forceJavaDecoder=true")
+  public static class JavaDecoder extends BrotliDecoderBenchmark {}
+
   // use supplier due to deadlock in pre JDK13 when mapper blocks on input (BrotliInputStream::new
   // does)
   private static Supplier<InputStream> wrapBrotli(InputStream in) {
@@ -58,7 +58,6 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 @OutputTimeUnit(TimeUnit.SECONDS)
 @BenchmarkMode(Mode.Throughput)
 public class DeflateDecoderBenchmark extends ClientServerLifecycle {
-
   @Benchmark
   public byte[] readBytesInflaterInputStream() throws Exception {
     return client
@@ -96,6 +95,12 @@ public class DeflateDecoderBenchmark extends ClientServerLifecycle {
         });
   }
 
+  /** Runs the same benchmarks with decoders writing into direct buffers. */
+  @Fork(
+      value = 1,
+      jvmArgsAppend = "-Dcom.github.mizosoft.methanol.decoder.AsyncBodyDecoder.directBuffers=true")
+  public static class DirectBuffers extends DeflateDecoderBenchmark {}
+
   public static void main(String[] args) throws RunnerException {
     var builder =
         new OptionsBuilder()
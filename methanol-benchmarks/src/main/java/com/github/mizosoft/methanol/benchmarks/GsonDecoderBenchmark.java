@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import static com.github.mizosoft.methanol.benchmarks.BenchmarkUtils.ARRAY_OF_OBJECTS;
+import static com.github.mizosoft.methanol.testutils.TestUtils.load;
+
+import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.adapter.gson.GsonAdapterFactory;
+import com.github.mizosoft.methanol.testutils.TestUtils;
+import com.google.gson.Gson;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class GsonDecoderBenchmark extends ClientServerLifecycle {
+
+  @Param({"BUFFERED", "INCREMENTAL"})
+  private @MonotonicNonNull DecodingMode mode;
+
+  private @MonotonicNonNull ExecutorService decodingExecutor;
+  private @MonotonicNonNull Decoder decoder;
+
+  @Setup
+  public void setupDecoder() {
+    decodingExecutor = Executors.newCachedThreadPool();
+    decoder = mode.createDecoder(new Gson(), decodingExecutor);
+  }
+
+  @TearDown
+  public void tearDownDecoder() {
+    TestUtils.shutdown(decodingExecutor);
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> decodeJson() throws Exception {
+    return client
+        .send(defaultGet, info -> decoder.toObject(ARRAY_OF_OBJECTS, MediaType.APPLICATION_JSON))
+        .body();
+  }
+
+  @Override
+  public void configureServer(MockWebServer server) {
+    var body = new Buffer().write(load(GsonDecoderBenchmark.class, "/payload/json_utf8.json"));
+    server.setDispatcher(
+        new Dispatcher() {
+          @NotNull
+          @Override
+          public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+            return new MockResponse().setBody(body.clone());
+          }
+        });
+  }
+
+  public enum DecodingMode {
+    BUFFERED {
+      @Override
+      Decoder createDecoder(Gson gson, ExecutorService executor) {
+        return GsonAdapterFactory.createDecoder(gson);
+      }
+    },
+    INCREMENTAL {
+      @Override
+      Decoder createDecoder(Gson gson, ExecutorService executor) {
+        return GsonAdapterFactory.createDecoder(gson, executor);
+      }
+    };
+
+    abstract Decoder createDecoder(Gson gson, ExecutorService executor);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(GsonDecoderBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+}
@@ -112,6 +112,12 @@ public class GzipDecoderBenchmark extends ClientServerLifecycle {
     };
   }
 
+  /** Runs the same benchmarks with decoders writing into direct buffers. */
+  @Fork(
+      value = 1,
+      jvmArgsAppend = "-Dcom.github.mizosoft.methanol.decoder.AsyncBodyDecoder.directBuffers=true")
+  public static class DirectBuffers extends GzipDecoderBenchmark {}
+
   public static void main(String[] args) throws RunnerException {
     var builder =
         new OptionsBuilder()
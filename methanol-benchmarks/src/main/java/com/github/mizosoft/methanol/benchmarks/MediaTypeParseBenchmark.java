@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import com.github.mizosoft.methanol.MediaType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class MediaTypeParseBenchmark {
+  @Param({"REPEATED", "DISTINCT"})
+  private @MonotonicNonNull Values values;
+
+  private @MonotonicNonNull List<String> strings;
+  private int index;
+
+  @Setup
+  public void setUpStrings() {
+    strings = values.strings();
+  }
+
+  @Benchmark
+  public MediaType parse() {
+    var strings = this.strings;
+    int i = index;
+    index = i + 1 < strings.size() ? i + 1 : 0;
+    return MediaType.parse(strings.get(i));
+  }
+
+  public enum Values {
+    /** A handful of typical {@code Content-Type} values, which are served from the parse cache. */
+    REPEATED {
+      @Override
+      List<String> strings() {
+        return List.of(
+            "application/json",
+            "application/json; charset=utf-8",
+            "application/json;charset=UTF-8",
+            "application/xml",
+            "application/x-protobuf",
+            "application/octet-stream",
+            "text/plain",
+            "text/plain; charset=utf-8",
+            "text/html; charset=UTF-8",
+            "text/xml; charset=ISO-8859-1",
+            "image/png",
+            "application/problem+json");
+      }
+    },
+    /** More distinct values than the parse cache holds, so nearly each one is parsed anew. */
+    DISTINCT {
+      @Override
+      List<String> strings() {
+        return IntStream.range(0, 16 * 1024)
+            .mapToObj(i -> "application/json; charset=utf-8; v=" + i)
+            .collect(Collectors.toUnmodifiableList());
+      }
+    };
+
+    abstract List<String> strings();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(MediaTypeParseBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.adapter.protobuf.ProtobufAdapterFactory;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.util.concurrent.TimeUnit;
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class ProtobufDecoderBenchmark extends ClientServerLifecycle {
+  private static final int FIELD_COUNT = 2048;
+
+  private static final Decoder DECODER = ProtobufAdapterFactory.createDecoder();
+
+  @Param({"BUFFERS", "BYTE_ARRAY"})
+  private @MonotonicNonNull DecodingMode mode;
+
+  @Benchmark
+  public Struct decodeProtobuf() throws Exception {
+    return client.send(defaultGet, info -> mode.createSubscriber()).body();
+  }
+
+  @Override
+  public void configureServer(MockWebServer server) {
+    var body = new Buffer().write(createMessage().toByteArray());
+    server.setDispatcher(
+        new Dispatcher() {
+          @NotNull
+          @Override
+          public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+            return new MockResponse().setBody(body.clone());
+          }
+        });
+  }
+
+  private static Struct createMessage() {
+    var builder = Struct.newBuilder();
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      var list =
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setNumberValue(i))
+              .addValues(Value.newBuilder().setStringValue("value_" + i))
+              .addValues(Value.newBuilder().setBoolValue(i % 2 == 0));
+      builder.putFields("field_" + i, Value.newBuilder().setListValue(list).build());
+    }
+    return builder.build();
+  }
+
+  public enum DecodingMode {
+    /** Parses the message directly from the received buffers. */
+    BUFFERS {
+      @Override
+      BodySubscriber<Struct> createSubscriber() {
+        return DECODER.toObject(TypeRef.from(Struct.class), null);
+      }
+    },
+    /** Collects the body into a byte array then parses the message from it. */
+    BYTE_ARRAY {
+      @Override
+      BodySubscriber<Struct> createSubscriber() {
+        return BodySubscribers.mapping(
+            BodySubscribers.ofByteArray(),
+            bytes -> {
+              try {
+                return Struct.newBuilder().mergeFrom(bytes).build();
+              } catch (InvalidProtocolBufferException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+      }
+    };
+
+    abstract BodySubscriber<Struct> createSubscriber();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(ProtobufDecoderBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+}
@@ -19,6 +19,7 @@ open module methanol.blackbox {
   requires methanol.adapter.protobuf;
   requires methanol.adapter.jaxb;
   requires methanol.brotli;
+  requires methanol.zstd;
   requires methanol.testutils;
   requires com.google.protobuf;
   requires static org.checkerframework.checker.qual;
@@ -55,6 +55,7 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.github.mizosoft.methanol.BodyDecoder;
 import com.github.mizosoft.methanol.HttpReadTimeoutException;
 import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.Methanol;
 import com.github.mizosoft.methanol.MoreBodyPublishers;
 import com.github.mizosoft.methanol.MultipartBodyPublisher;
 import com.github.mizosoft.methanol.MultipartBodyPublisher.Part;
@@ -175,12 +176,14 @@ class IntegrationTests {
         "gzip", "H4sIAAAAAAAAAAvKL04tVkgsSlUoSk3R4QrLzM9JLYEIJOWUpupweSpk5BekKuRWKpSkFgNlChKLi4GCRamJOTmVELmSjNRKhZR8APk5jwRLAAAA",
         "deflate", "eJwLyi9OLVZILEpVKEpN0eEKy8zPSS2BCCTllKbqcHkqZOQXpCrkViqUpBYDZQoSi4uBgkWpiTk5lRC5kozUSoWUfADV9hoM",
         "br", "G0oAgIyUq+1omSRlpW7rK2n013L4gqBcPovgkAP2L7As4eaBQLABJ9oyDOFfbZk54qgCr956gL4JUBefr6J90wYuSdm+PwU=",
+        "zstd", "KLUv/SBL9QEA8sMMEcDrME3IxY6LbcDq++h13NIDadx+tiGSL4dTJcq6+nVLvsrjcOAMyx4TjQPmy1/Eek0RAgD7OV4aJhM=",
         "badzip", "");
 
     lotsOfTextEncodings = Map.of(
         "gzip", load(cls, "/payload/alice.gz"),
         "deflate", load(cls, "/payload/alice.zz"),
         "br", load(cls, "/payload/alice.br"),
+        "zstd", load(cls, "/payload/alice.zst"),
         "badzip", new byte[0]);
 
     var mapper = new JsonMapper();
@@ -266,6 +269,20 @@ class IntegrationTests {
     assertDecodesLarge("br");
   }
 
+  @Test
+  void decoding_zstd() throws Exception {
+    assertDecodesSmall("zstd");
+    assertDecodesLarge("zstd");
+  }
+
+  @Test
+  void autoAcceptEncoding_advertisesZstd() throws Exception {
+    server.enqueue(new MockResponse());
+    Methanol.create().send(MutableRequest.GET(server.url("/").uri()), discarding());
+    var sentRequest = server.takeRequest();
+    assertTrue(sentRequest.getHeader("Accept-Encoding").contains("zstd"));
+  }
+
   @Test
   void decoding_concatenatedGzip() throws Exception {
     var firstMember = lotsOfTextEncodings.get("gzip");
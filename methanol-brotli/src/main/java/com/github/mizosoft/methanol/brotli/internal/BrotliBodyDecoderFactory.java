@@ -24,24 +24,49 @@ package com.github.mizosoft.methanol.brotli.internal;
 
 import com.github.mizosoft.methanol.BodyDecoder;
 import com.github.mizosoft.methanol.decoder.AsyncBodyDecoder;
+import com.github.mizosoft.methanol.decoder.AsyncDecoder;
 import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.util.concurrent.Executor;
 
-/** {@code BodyDecoder.Factory} provider for brotli encoding. */
+/**
+ * {@code BodyDecoder.Factory} provider for brotli encoding. Decoders use the native brotli library
+ * if it can be loaded on the current machine, falling back to the pure-Java {@code org.brotli.dec}
+ * decoder otherwise. The latter can also be forced by setting the system property {@code
+ * com.github.mizosoft.methanol.brotli.forceJavaDecoder} to {@code true}. Note that the pure-Java
+ * decoder buffers the whole compressed body before decoding it.
+ */
 public final class BrotliBodyDecoderFactory implements BodyDecoder.Factory {
+  private static final Logger logger = System.getLogger(BrotliBodyDecoderFactory.class.getName());
 
   static final String BROTLI_ENCODING = "br";
 
+  private static final String FORCE_JAVA_DECODER_PROP =
+      "com.github.mizosoft.methanol.brotli.forceJavaDecoder";
+
+  private final boolean nativeLoaded;
+
   /**
    * Creates a new {@code BrotliBodyDecoderFactory}. Meant to be called by the {@code ServiceLoader}
    * class.
-   *
-   * @throws IOException if the native brotli library cannot be loaded
-   * @throws UnsupportedOperationException if the current machine is not recognized
    */
-  public BrotliBodyDecoderFactory() throws IOException {
-    BrotliLoader.instance().ensureLoaded();
+  public BrotliBodyDecoderFactory() {
+    this.nativeLoaded = !Boolean.getBoolean(FORCE_JAVA_DECODER_PROP) && tryLoadNative();
+  }
+
+  private static boolean tryLoadNative() {
+    try {
+      BrotliLoader.instance().ensureLoaded();
+      return true;
+    } catch (IOException | UnsupportedOperationException | UnsatisfiedLinkError e) {
+      logger.log(
+          Level.INFO,
+          "couldn't load native brotli library, falling back to the pure-Java decoder",
+          e);
+      return false;
+    }
   }
 
   @Override
@@ -51,11 +76,15 @@ public final class BrotliBodyDecoderFactory implements BodyDecoder.Factory {
 
   @Override
   public <T> BodyDecoder<T> create(BodySubscriber<T> downstream) {
-    return new AsyncBodyDecoder<>(new BrotliDecoder(), downstream);
+    return new AsyncBodyDecoder<>(newDecoder(), downstream);
   }
 
   @Override
   public <T> BodyDecoder<T> create(BodySubscriber<T> downstream, Executor executor) {
-    return new AsyncBodyDecoder<>(new BrotliDecoder(), downstream, executor);
+    return new AsyncBodyDecoder<>(newDecoder(), downstream, executor);
+  }
+
+  private AsyncDecoder newDecoder() {
+    return nativeLoaded ? new BrotliDecoder() : new JavaBrotliDecoder();
   }
 }
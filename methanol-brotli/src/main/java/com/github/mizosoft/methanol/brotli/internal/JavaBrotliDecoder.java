@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.brotli.internal;
+
+import com.github.mizosoft.methanol.decoder.AsyncDecoder;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.brotli.dec.BrotliInputStream;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@code AsyncDecoder} for brotli that uses the pure-Java {@code org.brotli.dec} decoder. It is
+ * used when the native brotli library can't be loaded on the current machine.
+ *
+ * <p>{@code org.brotli.dec} is a pull-based decoder that treats running out of input as the end of
+ * the stream, and can't be resumed when more input is available. There's also no telling how much
+ * input it needs to produce its next output (e.g. a metadata block can be arbitrarily large). The
+ * decoder thus leaves the input buffered in the source and decodes it all in one go when the source
+ * is final. This means the whole compressed body is held in memory, which is the price of not
+ * having the native decoder.
+ */
+final class JavaBrotliDecoder implements AsyncDecoder {
+  private static final int OUTPUT_CHUNK_SIZE = 4 * 1024;
+
+  private final SourceInputStream input = new SourceInputStream();
+  private final byte[] outputChunk = new byte[OUTPUT_CHUNK_SIZE];
+  private @MonotonicNonNull BrotliInputStream brotliIn;
+  private boolean finished;
+
+  JavaBrotliDecoder() {} // package-private
+
+  @Override
+  public String encoding() {
+    return BrotliBodyDecoderFactory.BROTLI_ENCODING;
+  }
+
+  @Override
+  public void decode(ByteSource source, ByteSink sink) throws IOException {
+    if (!source.finalSource()) {
+      return; // Wait for the whole stream
+    }
+
+    input.source = source;
+    try {
+      while (!finished) {
+        decodeChunk(source, sink);
+      }
+    } finally {
+      input.source = null;
+    }
+
+    if (source.hasRemaining()) {
+      throw new IOException("brotli stream finished prematurely");
+    }
+  }
+
+  private void decodeChunk(ByteSource source, ByteSink sink) throws IOException {
+    int read;
+    try {
+      var in = brotliIn;
+      if (in == null) {
+        in = new BrotliInputStream(input); // Reads the stream header
+        brotliIn = in;
+      }
+      read = in.read(outputChunk, 0, outputChunk.length);
+    } catch (IOException e) {
+      if (isTrailingInputError(e)) {
+        throw new IOException("brotli stream finished prematurely", e);
+      } else if (!input.exhausted) {
+        throw new IOException("corrupt brotli stream", e);
+      } else {
+        var eof = new EOFException("unexpected end of brotli stream");
+        eof.initCause(e);
+        throw eof;
+      }
+    }
+
+    if (read >= 0) {
+      sink.pushBytes(ByteBuffer.wrap(outputChunk, 0, read));
+    } else {
+      finished = true;
+    }
+  }
+
+  private static boolean isTrailingInputError(IOException e) {
+    // org.brotli.dec doesn't otherwise distinguish this error from stream corruption
+    var cause = e.getCause();
+    return cause != null && "Unused bytes after end".equals(cause.getMessage());
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release as the decoder lives entirely on the heap
+  }
+
+  /** An {@code InputStream} over the source of the current decode round. */
+  private static final class SourceInputStream extends InputStream {
+    @Nullable ByteSource source;
+
+    /** Whether the decoder has asked for input after the source was exhausted. */
+    boolean exhausted;
+
+    SourceInputStream() {}
+
+    @Override
+    public int read() {
+      var buffer = new byte[1];
+      return read(buffer, 0, 1) > 0 ? buffer[0] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      var currentSource = source;
+      if (len == 0) {
+        return 0;
+      }
+      if (currentSource == null || !currentSource.hasRemaining()) {
+        exhausted = true;
+        return -1;
+      }
+
+      var in = currentSource.currentSource();
+      int read = Math.min(in.remaining(), len);
+      in.get(b, off, read);
+      return read;
+    }
+  }
+}
@@ -27,6 +27,7 @@
  */
 module methanol.brotli {
   requires methanol;
+  requires dec; // org.brotli.dec
   requires static org.checkerframework.checker.qual;
 
   provides com.github.mizosoft.methanol.BodyDecoder.Factory with
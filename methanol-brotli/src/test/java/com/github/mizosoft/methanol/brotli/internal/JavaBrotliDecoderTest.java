@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.brotli.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mizosoft.methanol.testutils.dec.Decode;
+import com.github.mizosoft.methanol.testutils.dec.Decode.BuffSizeOption;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import org.brotli.dec.BrotliInputStream;
+import org.junit.jupiter.api.Test;
+
+class JavaBrotliDecoderTest {
+
+  private static final String GOOD = "ocAXACEazuXPqLgaOX42Jj+EdAT91430gPT27km/6WbK3kTpTWJBJkmAeWoBWebW3oK/qHGuI8e6WIjsH5Qqmrt4ByakvCwb73IT2E7OA3MDpxszTNgAn1xJrzB3qoFjKUOWYBi+VYYbqmhiWlHmHtjbjdVfy3jnR9rs6X7PuzmVyW93/LLKaujeyU6O/8yJu4RSPpCDX8afTBrKXY6Vh/5ZqGfsC9oJGm3XX+klIwK/5sMFqil13dFUJH/xZhMm/JyLMb+HN6gerSzhhBGBAbNBkYaDVHKTZyy28+4XjDnIaY83AkYLSCJ7BIUq0b90zmwYPG4A";
+  private static final String BAD = "ocAXACEazuXPqLgaOX42Jj+EdAT91430gPT27km/6WbK3kTpTWJBJkmAeWoBWebW3oK/qHGuI8e6WIjsH5Qqmrt4ByakvCwb73IT2E7OA3MDpxszTNgAn1xJrzB3qoFjKUOWYBi+VYYbqmhiWlHmHtjbjdVfy3jnR9rs0D/xwqbv7QEf2rLKaujeyU6O/8yJu4RSPpCDX8afTBrKXY6Vh/5ZqGfsC9oJGm3XX+klIwK/5sMFqil13dFUJH/xZhMm/JyLMb+HN6gerSzhhBGBAbNBkYaDVHKTZyy28+4XjDnIaY83AkYLSCJ7BIUq0b90zmwYPG4A";
+
+  private static final Base64.Decoder BASE64_DEC = Base64.getDecoder();
+
+  @Test
+  void correctEncoding() {
+    try (var dec = new JavaBrotliDecoder()) {
+      assertEquals("br", dec.encoding()); // Sanity check
+    }
+  }
+
+  @Test
+  void decodesGoodStream() throws IOException {
+    byte[] goodStream = BASE64_DEC.decode(GOOD);
+    for (var so : BuffSizeOption.values()) {
+      byte[] decoded = Decode.decode(new JavaBrotliDecoder(), goodStream, so);
+      assertArrayEquals(brotli(goodStream), decoded);
+    }
+  }
+
+  /** Decodes a stream that spans many source buffers. */
+  @Test
+  void decodesLargeStream() throws IOException {
+    var data = new byte[256 * 1024];
+    new Random(69).nextBytes(data);
+    byte[] stream = uncompressedBrotli(data);
+    assertArrayEquals(data, brotli(stream)); // Sanity check
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(data, Decode.decode(new JavaBrotliDecoder(), stream, so));
+    }
+  }
+
+  /** Decodes a stream that needs far more input than its window size to produce any output. */
+  @Test
+  void decodesStreamWithLargeMetadata() throws IOException {
+    var data = new byte[4 * 1024];
+    new Random(69).nextBytes(data);
+    byte[] stream = uncompressedBrotli(data, 512 * 1024);
+    assertArrayEquals(data, brotli(stream)); // Sanity check
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(data, Decode.decode(new JavaBrotliDecoder(), stream, so));
+    }
+  }
+
+  @Test
+  void throwsOnBadStream() {
+    byte[] badStream = BASE64_DEC.decode(BAD);
+    for (var so : BuffSizeOption.values()) {
+      assertThrows(IOException.class, () -> Decode.decode(new JavaBrotliDecoder(), badStream, so));
+    }
+  }
+
+  @Test
+  void throwsOnOverflow() {
+    byte[] goodStream = BASE64_DEC.decode(GOOD);
+    byte[] overflowedStream = Arrays.copyOfRange(goodStream, 0, goodStream.length + 2);
+    for (var so : BuffSizeOption.values()) {
+      var t = assertThrows(IOException.class,
+          () -> Decode.decode(new JavaBrotliDecoder(), overflowedStream, so));
+      var msg = t.getMessage();
+      assertTrue(msg.equals("corrupt brotli stream") ||
+          msg.equals("brotli stream finished prematurely"));
+    }
+  }
+
+  @Test
+  void throwsOnUnderflow() {
+    byte[] goodStream = BASE64_DEC.decode(GOOD);
+    byte[] underflowedStream = Arrays.copyOfRange(goodStream, 0, goodStream.length - 2);
+    for (var so : BuffSizeOption.values()) {
+      assertThrows(EOFException.class,
+          () -> Decode.decode(new JavaBrotliDecoder(), underflowedStream, so));
+    }
+  }
+
+  private static byte[] brotli(byte[] compressed) {
+    try {
+      return new BrotliInputStream(new ByteArrayInputStream(compressed)).readAllBytes();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  private static byte[] uncompressedBrotli(byte[] data) {
+    return uncompressedBrotli(data, 0);
+  }
+
+  /**
+   * Wraps the given data in uncompressed meta-blocks, optionally preceded by a metadata meta-block
+   * of the given size (see sections 9.2 and 9.3 of RFC 7932).
+   */
+  private static byte[] uncompressedBrotli(byte[] data, int metadataSize) {
+    var writer = new BitWriter();
+    writer.writeBits(0, 1); // WBITS = 16
+    if (metadataSize > 0) {
+      writer.writeBits(0, 1); // ISLAST
+      writer.writeBits(3, 2); // MNIBBLES = 0
+      writer.writeBits(0, 1); // Reserved
+      writer.writeBits(3, 2); // MSKIPBYTES
+      writer.writeBits(metadataSize - 1, 24); // MSKIPLEN - 1
+      writer.alignToByte();
+      writer.out.write(new byte[metadataSize], 0, metadataSize);
+    }
+    int metaBlockSize = 4 * 1024;
+    for (int i = 0; i < data.length; i += metaBlockSize) {
+      int length = Math.min(metaBlockSize, data.length - i);
+      writer.writeBits(0, 1); // ISLAST
+      writer.writeBits(0, 2); // MNIBBLES = 4
+      writer.writeBits(length - 1, 16); // MLEN - 1
+      writer.writeBits(1, 1); // ISUNCOMPRESSED
+      writer.alignToByte();
+      writer.out.write(data, i, length);
+    }
+    writer.writeBits(1, 1); // ISLAST
+    writer.writeBits(1, 1); // ISLASTEMPTY
+    writer.alignToByte();
+    return writer.out.toByteArray();
+  }
+
+  private static final class BitWriter {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private int bits;
+    private int bitCount;
+
+    BitWriter() {}
+
+    void writeBits(int value, int count) {
+      for (int i = 0; i < count; i++) {
+        bits |= ((value >>> i) & 1) << bitCount++;
+        if (bitCount == Byte.SIZE) {
+          alignToByte();
+        }
+      }
+    }
+
+    void alignToByte() {
+      if (bitCount > 0) {
+        out.write(bits);
+        bits = 0;
+        bitCount = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the elements of a top-level JSON array, reading each element only when it's
+ * requested. The reader is closed once the array and whatever follows it are consumed, so an
+ * iterator that is run to exhaustion releases the body without the stream being closed.
+ */
+final class ArrayElementIterator<T> implements Iterator<T> {
+  private final JsonReader reader;
+  private final TypeAdapter<T> elementAdapter;
+  private boolean started;
+  private boolean finished;
+
+  ArrayElementIterator(JsonReader reader, TypeAdapter<T> elementAdapter) {
+    this.reader = reader;
+    this.elementAdapter = elementAdapter;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (finished) {
+      return false;
+    }
+    try {
+      if (!started) {
+        started = true;
+        reader.beginArray();
+      }
+      if (reader.peek() == JsonToken.END_ARRAY) {
+        finished = true;
+        try (reader) {
+          reader.endArray();
+          if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("unexpected content after JSON array");
+          }
+        }
+      }
+      return !finished;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return elementAdapter.read(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 package com.github.mizosoft.methanol.adapter.gson;
 
+import static com.github.mizosoft.methanol.internal.adapter.ElementStreams.streamElementType;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter;
@@ -29,6 +30,7 @@ import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.MoreBodySubscribers;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.github.mizosoft.methanol.internal.adapter.ElementStreams;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonWriter;
@@ -39,12 +41,16 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.channels.Channels;
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 abstract class GsonAdapter extends AbstractBodyAdapter {
@@ -97,10 +103,29 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
     }
   }
 
+  /**
+   * Decodes JSON responses. In addition to types supported by Gson, {@code Stream<T>} is supported
+   * for responses that are JSON arrays. Such a stream decodes each element as it's consumed,
+   * reading no more of the response body than needed for the element. The stream is returned as
+   * soon as the response headers are received. The response body is released once the whole array
+   * is read, but a stream that may stop short of that, as with a short-circuiting operation or a
+   * failure, must be closed (e.g. with try-with-resources).
+   */
   static final class Decoder extends GsonAdapter implements BodyAdapter.Decoder {
+    private static final int READ_BUFFER_SIZE = 256;
 
-    Decoder(Gson gson) {
+    /** The executor on which bodies are decoded incrementally, or {@code null} to buffer them. */
+    private final @Nullable Executor executor;
+
+    Decoder(Gson gson, @Nullable Executor executor) {
       super(gson);
+      this.executor = executor;
+    }
+
+    @Override
+    public boolean supportsType(TypeRef<?> type) {
+      var elementType = streamElementType(type);
+      return super.supportsType(elementType != null ? TypeRef.from(elementType) : type);
     }
 
     @Override
@@ -108,8 +133,32 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<T>)
+                BodySubscribers.mapping(
+                    MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
+                    reader -> streamElements(elementType, reader));
+        return subscriber;
+      }
+
       TypeAdapter<T> adapter = getAdapter(type);
       Charset charset = charsetOrUtf8(mediaType);
+      var executor = this.executor;
+      if (executor != null) {
+        // Decode from a reader that's fed as the body is received, blocking an executor thread
+        // for input. ofByteChannel() only buffers a bounded number of pending batches. The body
+        // is derived once so that the channel is never read by more than one thread.
+        var channelSubscriber = MoreBodySubscribers.ofByteChannel();
+        var body =
+            channelSubscriber
+                .getBody()
+                .thenApplyAsync(
+                    channel -> readFully(Channels.newReader(channel, charset), adapter), executor);
+        return MoreBodySubscribers.fromAsyncSubscriber(channelSubscriber, __ -> body);
+      }
       return BodySubscribers.mapping(
           BodySubscribers.ofByteArray(),
           bytes ->
@@ -123,12 +172,52 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<Supplier<T>>)
+                (BodySubscriber<?>)
+                    BodySubscribers.<Reader, Supplier<Stream<?>>>mapping(
+                        MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
+                        reader -> () -> streamElements(elementType, reader));
+        return subscriber;
+      }
+
       TypeAdapter<T> adapter = getAdapter(type);
       return BodySubscribers.mapping(
           MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
           in -> () -> toJsonUnchecked(in, adapter));
     }
 
+    /**
+     * Returns a stream that lazily decodes the elements of the JSON array read from the given
+     * reader. The reader isn't read from till the stream's first element is requested.
+     */
+    private Stream<?> streamElements(Type elementType, Reader reader) {
+      var elementAdapter = getAdapter(TypeRef.from(elementType));
+      var jsonReader = gson.newJsonReader(reader);
+      return ElementStreams.toStream(
+          new ArrayElementIterator<>(jsonReader, elementAdapter), jsonReader);
+    }
+
+    /**
+     * Reads a value from the given reader, then consumes what's left of the reader so the
+     * connection can be reused. The reader is closed when done, or if reading fails.
+     */
+    private <T> T readFully(Reader reader, TypeAdapter<T> adapter) {
+      try (reader) {
+        T value = adapter.read(gson.newJsonReader(reader));
+        var sink = new char[READ_BUFFER_SIZE];
+        while (reader.read(sink) != -1) {
+          // Discard trailing content (typically whitespace)
+        }
+        return value;
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
     private <T> T toJsonUnchecked(Reader in, TypeAdapter<T> adapter) {
       try {
         return adapter.read(gson.newJsonReader(in));
@@ -22,10 +22,13 @@
 
 package com.github.mizosoft.methanol.adapter.gson;
 
+import static java.util.Objects.requireNonNull;
+
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
 import com.google.gson.Gson;
+import java.util.concurrent.Executor;
 
 /** Provides {@link BodyAdapter} implementations for the JSON format using Gson. */
 public class GsonAdapterFactory {
@@ -49,6 +52,19 @@ public class GsonAdapterFactory {
 
   /** Returns a {@code Decoder} that uses the given {@code Gson} instance. */
   public static Decoder createDecoder(Gson gson) {
-    return new GsonAdapter.Decoder(gson);
+    return new GsonAdapter.Decoder(gson, null);
+  }
+
+  /**
+   * Returns a {@code Decoder} that uses the given {@code Gson} instance and decodes response bodies
+   * incrementally on the given executor. Unlike a decoder returned by {@link #createDecoder(Gson)},
+   * which buffers the whole body before decoding it, the returned decoder parses the body while
+   * it's being received. This keeps memory bounded and overlaps decoding with network transfer,
+   * at the cost of occupying an executor thread for each response being decoded. The executor
+   * should thus be one that tolerates blocking tasks, such as a cached thread pool or an executor
+   * that runs each task in a virtual thread.
+   */
+  public static Decoder createDecoder(Gson gson, Executor executor) {
+    return new GsonAdapter.Decoder(gson, requireNonNull(executor));
   }
 }
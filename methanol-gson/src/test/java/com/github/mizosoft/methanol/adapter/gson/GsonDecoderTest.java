@@ -25,13 +25,24 @@ package com.github.mizosoft.methanol.adapter.gson;
 import static com.github.mizosoft.methanol.adapter.gson.GsonAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
 import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.testutils.TestException;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.stream.MalformedJsonException;
+import java.io.StringReader;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 class GsonDecoderTest {
@@ -122,6 +133,84 @@ class GsonDecoderTest {
         .withCauseInstanceOf(MalformedJsonException.class);
   }
 
+  @Test
+  void deserializeStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("[{\"x\":1, \"y\":2}, {\"x\":3, \"y\":4}]")
+        .completedBody()
+        .satisfies(
+            stream -> assertThat(stream).containsExactly(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void deserializeEmptyStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("[]")
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).isEmpty());
+  }
+
+  @Test
+  void deserializeStreamIncrementally() throws Exception {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // The stream is available before any of the body is received
+      var stream = subscriber.getBody().toCompletableFuture().get(20, TimeUnit.SECONDS);
+      var iterator = stream.iterator();
+
+      // Elements are available as soon as they're received
+      publisher.submit(List.of(UTF_8.encode("[{\"x\":1, \"y\":2},")));
+      assertThat(CompletableFuture.supplyAsync(iterator::next))
+          .succeedsWithin(Duration.ofSeconds(20))
+          .isEqualTo(new Point(1, 2));
+
+      publisher.submit(List.of(UTF_8.encode("{\"x\":3, \"y\":4}]")));
+      publisher.close();
+      assertThat(iterator.next()).isEqualTo(new Point(3, 4));
+      assertThat(iterator.hasNext()).isFalse();
+      stream.close();
+    }
+  }
+
+  @Test
+  void exhaustedStreamReleasesBody() {
+    var gson = new Gson();
+    var source = new CloseRecordingReader("[{\"x\":1, \"y\":2}] \n");
+    var iterator =
+        new ArrayElementIterator<>(gson.newJsonReader(source), gson.getAdapter(Point.class));
+    assertThat(iterator.next()).isEqualTo(new Point(1, 2));
+    assertThat(source.closed).isFalse();
+    assertThat(iterator.hasNext()).isFalse();
+    assertThat(source.closed).isTrue();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  void deserializeStreamWithTrailingContent() {
+    var gson = new Gson();
+    var source = new CloseRecordingReader("[{\"x\":1, \"y\":2}] {}");
+    var iterator =
+        new ArrayElementIterator<>(gson.newJsonReader(source), gson.getAdapter(Point.class));
+    assertThat(iterator.next()).isEqualTo(new Point(1, 2));
+    assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(iterator::hasNext);
+    assertThat(source.closed).isTrue();
+  }
+
+  @Test
+  void deserializeStreamFromNonArray() {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(List.of(UTF_8.encode("{\"x\":1, \"y\":2}")));
+    }
+    var stream = subscriber.getBody().toCompletableFuture().join();
+    assertThatExceptionOfType(IllegalStateException.class).isThrownBy(stream::count);
+  }
+
   @Test
   void deserializeWithError() {
     verifyThat(createDecoder())
@@ -137,4 +226,18 @@ class GsonDecoderTest {
         .withMediaType("text/plain")
         .isNotSupported();
   }
+
+  private static final class CloseRecordingReader extends StringReader {
+    volatile boolean closed;
+
+    CloseRecordingReader(String s) {
+      super(s);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      super.close();
+    }
+  }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.gson;
+
+import static com.github.mizosoft.methanol.adapter.gson.GsonAdapterFactory.createDecoder;
+import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.testutils.TestException;
+import com.github.mizosoft.methanol.testutils.TestUtils;
+import com.google.gson.Gson;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GsonIncrementalDecoderTest {
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    TestUtils.shutdown(executor);
+  }
+
+  @Test
+  void deserialize() {
+    verifyThat(createDecoder(new Gson(), executor))
+        .converting(Point.class)
+        .withBody("{\"x\":1, \"y\":2}")
+        .succeedsWith(new Point(1, 2));
+  }
+
+  @Test
+  void deserializeWithUtf16() {
+    verifyThat(createDecoder(new Gson(), executor))
+        .converting(Point.class)
+        .withMediaType("application/json; charset=utf-16")
+        .withBody("{\"x\":1, \"y\":2}", UTF_16)
+        .succeedsWith(new Point(1, 2));
+  }
+
+  @Test
+  void deserializeWithGenerics() {
+    verifyThat(createDecoder(new Gson(), executor))
+        .converting(new TypeRef<List<Point>>() {})
+        .withBody("[{\"x\":1, \"y\":2}, {\"x\":3, \"y\":4}]")
+        .succeedsWith(List.of(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void deserializeWhileBodyIsReceived() {
+    var subscriber =
+        createDecoder(new Gson(), executor).toObject(new TypeRef<List<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(List.of(UTF_8.encode("[{\"x\":1, \"y\":2}, ")));
+      publisher.submit(List.of(UTF_8.encode("{\"x\":3, \"y\":4}")));
+      assertThat(subscriber.getBody()).isNotDone();
+
+      publisher.submit(List.of(UTF_8.encode("]  ")));
+    }
+    assertThat(subscriber.getBody())
+        .succeedsWithin(Duration.ofSeconds(20))
+        .isEqualTo(List.of(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void deserializeBadJson() {
+    verifyThat(createDecoder(new Gson(), executor))
+        .converting(Point.class)
+        .withBody("{x:\"1\", y:\"2\"") // Missing enclosing bracket
+        .failsWith(UncheckedIOException.class)
+        .withCauseInstanceOf(MalformedJsonException.class);
+  }
+
+  @Test
+  void deserializeWithError() {
+    verifyThat(createDecoder(new Gson(), executor))
+        .converting(Point.class)
+        .withFailure(new TestException())
+        .failsWith(UncheckedIOException.class)
+        .withRootCauseInstanceOf(TestException.class);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Iterates over the elements of a top-level JSON array, binding each element only when it's
+ * requested. The parser is closed once the array and whatever follows it are consumed, so an
+ * iterator that is run to exhaustion releases the body without the stream being closed.
+ */
+final class ArrayElementIterator<T> implements Iterator<T> {
+  private final JsonParser parser;
+  private final ObjectReader elementReader;
+  private boolean started;
+  private @Nullable JsonToken nextToken;
+
+  ArrayElementIterator(JsonParser parser, ObjectReader elementReader) {
+    this.parser = parser;
+    this.elementReader = elementReader;
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      if (!started) {
+        started = true;
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+          throw new JsonParseException(parser, "expected a JSON array");
+        }
+      }
+      if (nextToken == null) {
+        nextToken = parser.nextToken();
+        if (nextToken == null) {
+          throw new JsonParseException(parser, "unexpected end of JSON array");
+        }
+        if (nextToken == JsonToken.END_ARRAY) {
+          finish();
+        }
+      }
+      return nextToken != JsonToken.END_ARRAY;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    nextToken = null;
+    try {
+      return elementReader.readValue(parser);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Drains what's left after the array (normally nothing but whitespace) and closes the parser. */
+  private void finish() throws IOException {
+    try (parser) {
+      if (parser.nextToken() != null) {
+        throw new JsonParseException(parser, "unexpected content after JSON array");
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 package com.github.mizosoft.methanol.adapter.jackson;
 
+import static com.github.mizosoft.methanol.internal.adapter.ElementStreams.streamElementType;
 import static java.util.Objects.requireNonNull;
 
 import com.fasterxml.jackson.core.JsonParser;
@@ -33,19 +34,23 @@ import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.MoreBodySubscribers;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.github.mizosoft.methanol.adapter.jackson.internal.ChunkedOutputStream;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonAdapterUtils;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonSubscriber;
-import java.io.ByteArrayOutputStream;
+import com.github.mizosoft.methanol.internal.adapter.ElementStreams;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.lang.reflect.Type;
 import java.net.http.HttpRequest.BodyPublisher;
-import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 abstract class JacksonAdapter extends AbstractBodyAdapter {
@@ -74,18 +79,34 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       requireSupport(object.getClass());
       requireCompatibleOrNull(mediaType);
       ObjectWriter objWriter = mapper.writerFor(object.getClass());
-      ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
-      try (Writer writer = new OutputStreamWriter(outBuffer, charsetOrUtf8(mediaType))) {
-        objWriter.writeValue(writer, object);
+      Charset charset = charsetOrUtf8(mediaType);
+      ChunkedOutputStream output = new ChunkedOutputStream();
+      try {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+          // Let the generator write UTF-8 bytes directly, skipping a char encoding pass
+          objWriter.writeValue(output, object);
+        } else {
+          try (Writer writer = new OutputStreamWriter(output, charset)) {
+            objWriter.writeValue(writer, object);
+          }
+        }
       } catch (JsonProcessingException e) {
         throw new UncheckedIOException(e);
       } catch (IOException ioe) {
         throw new AssertionError(ioe); // writing to a memory buffer
       }
-      return attachMediaType(BodyPublishers.ofByteArray(outBuffer.toByteArray()), mediaType);
+      return attachMediaType(output.toBodyPublisher(), mediaType);
     }
   }
 
+  /**
+   * Decodes JSON responses. In addition to types supported by the mapper, {@code Stream<T>} is
+   * supported for responses that are JSON arrays. Such a stream decodes each element as it's
+   * consumed, reading no more of the response body than needed for the element. The stream is
+   * returned as soon as the response headers are received. The response body is released once the
+   * whole array is read, but a stream that may stop short of that, as with a short-circuiting
+   * operation or a failure, must be closed (e.g. with try-with-resources).
+   */
   static final class Decoder extends JacksonAdapter implements BodyAdapter.Decoder {
 
     Decoder(ObjectMapper mapper) {
@@ -94,7 +115,9 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
 
     @Override
     public boolean supportsType(TypeRef<?> type) {
-      return mapper.canDeserialize(mapper.constructType(type.type()));
+      var elementType = streamElementType(type);
+      return mapper.canDeserialize(
+          mapper.constructType(elementType != null ? elementType : type.type()));
     }
 
     @Override
@@ -102,6 +125,17 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<T>)
+                BodySubscribers.mapping(
+                    MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
+                    reader -> streamElements(elementType, reader));
+        return subscriber;
+      }
+
       JsonParser asyncParser;
       try {
         asyncParser = mapper.getFactory().createNonBlockingByteArrayParser();
@@ -120,11 +154,36 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<Supplier<T>>)
+                (BodySubscriber<?>)
+                    BodySubscribers.<Reader, Supplier<Stream<?>>>mapping(
+                        MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
+                        reader -> () -> streamElements(elementType, reader));
+        return subscriber;
+      }
       return BodySubscribers.mapping(
           MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
           reader -> () -> readValueUnchecked(type, reader));
     }
 
+    /**
+     * Returns a stream that lazily decodes the elements of the JSON array read from the given
+     * reader. The reader isn't read from till the stream's first element is requested.
+     */
+    private Stream<?> streamElements(Type elementType, Reader reader) {
+      try {
+        var parser = mapper.getFactory().createParser(reader);
+        var elementReader = mapper.readerFor(mapper.constructType(elementType));
+        return ElementStreams.toStream(new ArrayElementIterator<>(parser, elementReader), parser);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
     private <T> T readValueUnchecked(TypeRef<T> type, byte[] body) {
       try {
         JsonParser parser = mapper.getFactory().createParser(body);
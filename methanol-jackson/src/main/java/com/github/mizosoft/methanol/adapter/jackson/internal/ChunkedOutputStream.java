@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import java.io.OutputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow.Subscriber;
+
+/**
+ * An {@code OutputStream} that keeps written bytes in a list of chunks, which are published as they
+ * are by the {@code BodyPublisher} returned from {@link #toBodyPublisher()}. Chunks start small and
+ * grow up to a maximum size, so small outputs don't allocate much while large ones aren't split
+ * into many chunks. Unlike {@code ByteArrayOutputStream}, bytes are never copied after being
+ * written.
+ */
+public final class ChunkedOutputStream extends OutputStream {
+  private static final int INITIAL_CHUNK_SIZE = 512;
+  private static final int MAX_CHUNK_SIZE = 16 * 1024;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private byte[] chunk = new byte[INITIAL_CHUNK_SIZE];
+  private int chunkPosition;
+  private long size;
+
+  public ChunkedOutputStream() {}
+
+  @Override
+  public void write(int b) {
+    if (chunkPosition >= chunk.length) {
+      nextChunk();
+    }
+    chunk[chunkPosition++] = (byte) b;
+    size++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    while (length > 0) {
+      if (chunkPosition >= chunk.length) {
+        nextChunk();
+      }
+      int count = Math.min(length, chunk.length - chunkPosition);
+      System.arraycopy(bytes, offset, chunk, chunkPosition, count);
+      chunkPosition += count;
+      offset += count;
+      length -= count;
+      size += count;
+    }
+  }
+
+  /** Returns the number of bytes written so far. */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns a {@code BodyPublisher} that publishes the bytes written so far with an exact content
+   * length. The returned publisher can be subscribed to multiple times.
+   */
+  public BodyPublisher toBodyPublisher() {
+    var publishedChunks = new ArrayList<>(chunks);
+    if (chunkPosition > 0) {
+      publishedChunks.add(ByteBuffer.wrap(chunk, 0, chunkPosition));
+    }
+    return new ChunksPublisher(List.copyOf(publishedChunks), size);
+  }
+
+  private void nextChunk() {
+    chunks.add(ByteBuffer.wrap(chunk, 0, chunkPosition));
+    chunk = new byte[Math.min(2 * chunk.length, MAX_CHUNK_SIZE)];
+    chunkPosition = 0;
+  }
+
+  private static final class ChunksPublisher implements BodyPublisher {
+    private final List<ByteBuffer> chunks;
+    private final long contentLength;
+
+    ChunksPublisher(List<ByteBuffer> chunks, long contentLength) {
+      this.chunks = chunks;
+      this.contentLength = contentLength;
+    }
+
+    @Override
+    public long contentLength() {
+      return contentLength;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+      requireNonNull(subscriber);
+      new ChunksSubscription(subscriber, chunks).signal(true);
+    }
+  }
+
+  private static final class ChunksSubscription extends AbstractSubscription<ByteBuffer> {
+    private final List<ByteBuffer> chunks;
+    private int index;
+
+    ChunksSubscription(Subscriber<? super ByteBuffer> downstream, List<ByteBuffer> chunks) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      this.chunks = chunks;
+    }
+
+    @Override
+    protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+      for (long c = 0L; ; c++) {
+        if (index >= chunks.size()) {
+          cancelOnComplete(downstream);
+          return c;
+        } else if (c >= emit) {
+          return c;
+        } else if (!submitOnNext(downstream, chunks.get(index++).duplicate())) {
+          return 0;
+        }
+      }
+    }
+  }
+}
@@ -40,8 +40,11 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 public final class JacksonSubscriber<T> implements BodySubscriber<T> {
+  /** Size of the chunks in which buffers not backed by an accessible array are fed. */
+  private static final int COPY_CHUNK_SIZE = 8 * 1024;
 
   private final ObjectMapper mapper;
   private final ObjectReader objReader;
@@ -51,6 +54,7 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
   private final CompletableFuture<T> valueFuture;
   private final Upstream upstream;
   private final Prefetcher prefetcher;
+  private byte @MonotonicNonNull [] copyChunk;
 
   public JacksonSubscriber(ObjectMapper mapper, TypeRef<T> type, JsonParser parser) {
     this.mapper = mapper;
@@ -79,10 +83,10 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
   @Override
   public void onNext(List<ByteBuffer> item) {
     requireNonNull(item);
-    byte[] bytes = JacksonAdapterUtils.collectBytes(item);
     try {
-      feeder.feedInput(bytes, 0, bytes.length);
-      flushParser();
+      for (var buffer : item) {
+        feed(buffer);
+      }
     } catch (Throwable t) {
       valueFuture.completeExceptionally(t);
       upstream.cancel();
@@ -110,6 +114,37 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
     }
   }
 
+  /**
+   * Feeds the buffer's content to the parser, which is given the buffer's backing array directly if
+   * accessible. The parser is drained after each feed, so it's done with the fed array by the time
+   * this method returns.
+   */
+  private void feed(ByteBuffer buffer) throws IOException {
+    if (!buffer.hasRemaining()) {
+      return;
+    }
+
+    if (buffer.hasArray()) {
+      int start = buffer.arrayOffset() + buffer.position();
+      int end = buffer.arrayOffset() + buffer.limit();
+      feeder.feedInput(buffer.array(), start, end);
+      buffer.position(buffer.limit());
+      flushParser();
+    } else {
+      var chunk = copyChunk;
+      if (chunk == null) {
+        chunk = new byte[COPY_CHUNK_SIZE];
+        copyChunk = chunk;
+      }
+      while (buffer.hasRemaining()) {
+        int count = Math.min(buffer.remaining(), chunk.length);
+        buffer.get(chunk, 0, count);
+        feeder.feedInput(chunk, 0, count);
+        flushParser();
+      }
+    }
+  }
+
   private void flushParser() throws IOException {
     JsonToken token;
     while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
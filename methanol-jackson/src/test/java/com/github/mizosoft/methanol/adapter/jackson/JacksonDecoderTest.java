@@ -25,6 +25,9 @@ package com.github.mizosoft.methanol.adapter.jackson;
 import static com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
 import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -33,7 +36,17 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.testutils.TestException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 class JacksonDecoderTest {
@@ -70,6 +83,41 @@ class JacksonDecoderTest {
         .succeedsWith(new Point(1, 2));
   }
 
+  @Test
+  void deserializeFromSlicedBuffer() {
+    // Feed a buffer whose content starts at a non-zero offset of its backing array
+    var bytes = UTF_8.encode("..{\"x\":1, \"y\":2}..");
+    var body = bytes.position(2).limit(bytes.limit() - 2).slice();
+    verifyThat(createDecoder())
+        .converting(Point.class)
+        .withBody(body)
+        .succeedsWith(new Point(1, 2));
+  }
+
+  @Test
+  void deserializeFromReadOnlyBuffer() {
+    verifyThat(createDecoder())
+        .converting(Point.class)
+        .withBody(UTF_8.encode("{\"x\":1, \"y\":2}").asReadOnlyBuffer())
+        .succeedsWith(new Point(1, 2));
+  }
+
+  @Test
+  void deserializeFromLargeDirectBuffer() {
+    var points =
+        IntStream.range(0, 10_000).mapToObj(i -> new Point(i, -i)).collect(Collectors.toList());
+    var json =
+        points.stream()
+            .map(point -> "{\"x\":" + point.x + ", \"y\":" + point.y + "}")
+            .collect(Collectors.joining(", ", "[", "]"));
+    var heapBody = UTF_8.encode(json);
+    var body = ByteBuffer.allocateDirect(heapBody.remaining()).put(heapBody).flip();
+    verifyThat(createDecoder())
+        .converting(new TypeRef<List<Point>>() {})
+        .withBody(body)
+        .succeedsWith(points);
+  }
+
   @Test
   void deserializeWithCustomDeserializer() {
     var mapper = new JsonMapper()
@@ -136,6 +184,84 @@ class JacksonDecoderTest {
         .failsWith(JsonProcessingException.class);
   }
 
+  @Test
+  void deserializeStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("[{\"x\":1, \"y\":2}, {\"x\":3, \"y\":4}]")
+        .completedBody()
+        .satisfies(
+            stream -> assertThat(stream).containsExactly(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void deserializeEmptyStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("[]")
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).isEmpty());
+  }
+
+  @Test
+  void deserializeStreamIncrementally() throws Exception {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // The stream is available before any of the body is received
+      var stream = subscriber.getBody().toCompletableFuture().get(20, TimeUnit.SECONDS);
+      var iterator = stream.iterator();
+
+      // Elements are available as soon as they're received
+      publisher.submit(List.of(UTF_8.encode("[{\"x\":1, \"y\":2},")));
+      assertThat(CompletableFuture.supplyAsync(iterator::next))
+          .succeedsWithin(Duration.ofSeconds(20))
+          .isEqualTo(new Point(1, 2));
+
+      publisher.submit(List.of(UTF_8.encode("{\"x\":3, \"y\":4}]")));
+      publisher.close();
+      assertThat(iterator.next()).isEqualTo(new Point(3, 4));
+      assertThat(iterator.hasNext()).isFalse();
+      stream.close();
+    }
+  }
+
+  @Test
+  void exhaustedStreamReleasesBody() throws Exception {
+    var mapper = new JsonMapper();
+    var source = new CloseRecordingReader("[{\"x\":1, \"y\":2}] \n");
+    var iterator =
+        new ArrayElementIterator<Point>(mapper.createParser(source), mapper.readerFor(Point.class));
+    assertThat(iterator.next()).isEqualTo(new Point(1, 2));
+    assertThat(source.closed).isFalse();
+    assertThat(iterator.hasNext()).isFalse();
+    assertThat(source.closed).isTrue();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  void deserializeStreamWithTrailingContent() throws Exception {
+    var mapper = new JsonMapper();
+    var source = new CloseRecordingReader("[{\"x\":1, \"y\":2}] {}");
+    var iterator =
+        new ArrayElementIterator<Point>(mapper.createParser(source), mapper.readerFor(Point.class));
+    assertThat(iterator.next()).isEqualTo(new Point(1, 2));
+    assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(iterator::hasNext);
+    assertThat(source.closed).isTrue();
+  }
+
+  @Test
+  void deserializeStreamFromNonArray() {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(List.of(UTF_8.encode("{\"x\":1, \"y\":2}")));
+    }
+    var stream = subscriber.getBody().toCompletableFuture().join();
+    assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(stream::count);
+  }
+
   @Test
   void deserializeWithError() {
     verifyThat(createDecoder())
@@ -164,4 +290,18 @@ class JacksonDecoderTest {
         .withMediaType("text/plain")
         .isNotSupported();
   }
+
+  private static final class CloseRecordingReader extends StringReader {
+    volatile boolean closed;
+
+    CloseRecordingReader(String s) {
+      super(s);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      super.close();
+    }
+  }
 }
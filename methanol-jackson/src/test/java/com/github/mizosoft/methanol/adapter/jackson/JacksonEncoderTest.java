@@ -25,10 +25,13 @@ package com.github.mizosoft.methanol.adapter.jackson;
 import static com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.createEncoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
 import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 class JacksonEncoderTest {
@@ -63,6 +66,38 @@ class JacksonEncoderTest {
         .succeedsWith("{\"x\":1,\"y\":2}", UTF_16);
   }
 
+  @Test
+  void serializeWithContentLength() {
+    verifyThat(createEncoder())
+        .converting(new Point(1, 2))
+        .asBodyPublisher()
+        .hasContentLength("{\"x\":1,\"y\":2}".length());
+  }
+
+  @Test
+  void serializeLargeObject() {
+    var points =
+        IntStream.range(0, 10_000).mapToObj(i -> new Point(i, -i)).collect(Collectors.toList());
+    var json =
+        points.stream()
+            .map(point -> "{\"x\":" + point.x + ",\"y\":" + point.y + "}")
+            .collect(Collectors.joining(",", "[", "]"));
+    verifyThat(createEncoder())
+        .converting(points)
+        .asBodyPublisher()
+        .hasContentLength(json.length())
+        .succeedsWith(json);
+  }
+
+  @Test
+  void serializeNonAsciiWithUtf8() {
+    verifyThat(createEncoder())
+        .converting(List.of("€", "ب"))
+        .asBodyPublisher()
+        .hasContentLength("[\"€\",\"ب\"]".getBytes(UTF_8).length)
+        .succeedsWith("[\"€\",\"ب\"]");
+  }
+
   @Test
   void serializeWithCustomSerializer() {
     var mapper = new JsonMapper()
@@ -22,6 +22,10 @@
 
 package com.github.mizosoft.methanol.adapter.jaxb;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import javax.xml.bind.JAXBContext;
@@ -31,20 +35,51 @@ import javax.xml.bind.Unmarshaller;
 
 final class CachingJaxbBindingFactory implements JaxbBindingFactory {
 
+  /**
+   * The maximum number of idle marshallers, and that of idle unmarshallers, kept for each type.
+   * It scales with the number of processors, which bounds how many are typically in use at once.
+   */
+  private static final int MAX_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
   private final ConcurrentMap<Class<?>, JAXBContext> cachedContexts;
+  private final ConcurrentMap<Class<?>, BlockingQueue<Marshaller>> pooledMarshallers;
+  private final ConcurrentMap<Class<?>, BlockingQueue<Unmarshaller>> pooledUnmarshallers;
 
   CachingJaxbBindingFactory() {
     cachedContexts = new ConcurrentHashMap<>();
+    pooledMarshallers = new ConcurrentHashMap<>();
+    pooledUnmarshallers = new ConcurrentHashMap<>();
   }
 
   @Override
   public Marshaller createMarshaller(Class<?> boundClass) throws JAXBException {
-    return getOrCreateContext(boundClass).createMarshaller();
+    var marshaller = getPool(pooledMarshallers, boundClass).poll();
+    return marshaller != null ? marshaller : getOrCreateContext(boundClass).createMarshaller();
   }
 
   @Override
   public Unmarshaller createUnmarshaller(Class<?> boundClass) throws JAXBException {
-    return getOrCreateContext(boundClass).createUnmarshaller();
+    var unmarshaller = getPool(pooledUnmarshallers, boundClass).poll();
+    return unmarshaller != null
+        ? unmarshaller
+        : getOrCreateContext(boundClass).createUnmarshaller();
+  }
+
+  @Override
+  public void releaseMarshaller(Class<?> boundClass, Marshaller marshaller) {
+    requireNonNull(marshaller);
+    getPool(pooledMarshallers, boundClass).offer(marshaller); // Dropped if the pool is full
+  }
+
+  @Override
+  public void releaseUnmarshaller(Class<?> boundClass, Unmarshaller unmarshaller) {
+    requireNonNull(unmarshaller);
+    getPool(pooledUnmarshallers, boundClass).offer(unmarshaller); // Dropped if the pool is full
+  }
+
+  private static <T> BlockingQueue<T> getPool(
+      ConcurrentMap<Class<?>, BlockingQueue<T>> pools, Class<?> boundClass) {
+    return pools.computeIfAbsent(boundClass, __ -> new ArrayBlockingQueue<>(MAX_POOL_SIZE));
   }
 
   // not private for testing
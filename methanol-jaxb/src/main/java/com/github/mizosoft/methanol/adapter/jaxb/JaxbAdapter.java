@@ -22,12 +22,14 @@
 
 package com.github.mizosoft.methanol.adapter.jaxb;
 
+import static com.github.mizosoft.methanol.internal.adapter.ElementStreams.streamElementType;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.github.mizosoft.methanol.internal.adapter.ElementStreams;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -38,12 +40,14 @@ import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
 import java.nio.charset.Charset;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlEnum;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.stream.XMLInputFactory;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 abstract class JaxbAdapter extends AbstractBodyAdapter {
@@ -67,6 +71,8 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
   }
 
   static final class Encoder extends JaxbAdapter implements BodyAdapter.Encoder {
+    /** The encoding marshallers use by default as per the JAXB specification. */
+    private static final String DEFAULT_ENCODING = "UTF-8";
 
     Encoder(JaxbBindingFactory factory) {
       super(factory);
@@ -80,11 +86,12 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
       ByteArrayOutputStream outputBuffer = new ByteArrayOutputStream();
       try {
         Marshaller marshaller = jaxbFactory.createMarshaller(object.getClass());
-        String encoding;
-        if (mediaType != null && (encoding = mediaType.parameters().get("charset")) != null) {
-          marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
-        }
+        String encoding = mediaType != null ? mediaType.parameters().get("charset") : null;
+        // Always set the encoding as the marshaller might've been used with a different one
+        marshaller.setProperty(
+            Marshaller.JAXB_ENCODING, encoding != null ? encoding : DEFAULT_ENCODING);
         marshaller.marshal(object, outputBuffer);
+        jaxbFactory.releaseMarshaller(object.getClass(), marshaller);
       } catch (JAXBException e) {
         throw new UncheckedJaxbException(e);
       }
@@ -92,10 +99,27 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
     }
   }
 
+  /**
+   * Decodes bodies into JAXB-bound objects, or into a {@code Stream} of the JAXB-bound elements
+   * nested directly within the document's root element. Such a {@code Stream} is returned as soon
+   * as the response headers are received, and reads the body with StAX, blocking for input as it's
+   * consumed. The response body is released once the whole document is read, but a stream that
+   * may stop short of that, as with a short-circuiting operation or a failure, must be closed (e.g.
+   * with try-with-resources).
+   */
   static final class Decoder extends JaxbAdapter implements BodyAdapter.Decoder {
+    private final XMLInputFactory xmlInputFactory;
 
     Decoder(JaxbBindingFactory factory) {
       super(factory);
+      xmlInputFactory = XMLInputFactory.newFactory();
+      xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    public boolean supportsType(TypeRef<?> type) {
+      var elementType = streamElementType(type);
+      return super.supportsType(elementType != null ? TypeRef.from(elementType) : type);
     }
 
     @Override
@@ -103,13 +127,23 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
-      Class<T> elementClass = type.exactRawType();
       Charset charset = charsetOrNull(mediaType);
-      Unmarshaller unmarshaller = createUnmarshallerUnchecked(elementClass);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        var elementClass = TypeRef.from(elementType).rawType();
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<T>)
+                BodySubscribers.mapping(
+                    BodySubscribers.ofInputStream(),
+                    in -> streamElements(elementClass, in, charset));
+        return subscriber;
+      }
+
+      Class<T> elementClass = type.exactRawType();
       return BodySubscribers.mapping(
           BodySubscribers.ofByteArray(),
-          bytes ->
-              unmarshalValue(elementClass, unmarshaller, new ByteArrayInputStream(bytes), charset));
+          bytes -> unmarshalValue(elementClass, new ByteArrayInputStream(bytes), charset));
     }
 
     @Override
@@ -118,37 +152,61 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
-      Class<T> elementClass = type.exactRawType();
       Charset charset = charsetOrNull(mediaType);
-      Unmarshaller unmarshaller = createUnmarshallerUnchecked(elementClass);
+      var elementType = streamElementType(type);
+      if (elementType != null) {
+        var elementClass = TypeRef.from(elementType).rawType();
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<Supplier<T>>)
+                (BodySubscriber<?>)
+                    BodySubscribers.<InputStream, Supplier<Stream<?>>>mapping(
+                        BodySubscribers.ofInputStream(),
+                        in -> () -> streamElements(elementClass, in, charset));
+        return subscriber;
+      }
+
+      Class<T> elementClass = type.exactRawType();
       return BodySubscribers.mapping(
           BodySubscribers.ofInputStream(),
-          in -> () -> unmarshalValue(elementClass, unmarshaller, in, charset));
+          in -> () -> unmarshalValue(elementClass, in, charset));
     }
 
-    private <T> T unmarshalValue(
-        Class<T> elementClass,
-        Unmarshaller unmarshaller,
-        InputStream in,
-        @Nullable Charset charset) {
+    private <T> T unmarshalValue(Class<T> elementClass, InputStream in, @Nullable Charset charset) {
       try {
+        Unmarshaller unmarshaller = jaxbFactory.createUnmarshaller(elementClass);
         // If the charset is known from the media type, use it for a Reader
         // to avoid the overhead of having to infer it from the document
-        return elementClass.cast(
-            charset != null
-                ? unmarshaller.unmarshal(new InputStreamReader(in, charset))
-                : unmarshaller.unmarshal(in));
+        var value =
+            elementClass.cast(
+                charset != null
+                    ? unmarshaller.unmarshal(new InputStreamReader(in, charset))
+                    : unmarshaller.unmarshal(in));
+        jaxbFactory.releaseUnmarshaller(elementClass, unmarshaller);
+        return value;
       } catch (JAXBException e) {
         throw new UncheckedJaxbException(e);
       }
     }
 
-    private Unmarshaller createUnmarshallerUnchecked(Class<?> elementClass) {
+    /**
+     * Returns a stream that lazily unmarshals the elements nested directly within the root element
+     * of the document read from the given input stream. Nothing is read till the stream's first
+     * element is requested. The unmarshaller used by the stream is released when it's closed or
+   * exhausted, whichever comes first.
+     */
+    private <T> Stream<T> streamElements(
+        Class<T> elementClass, InputStream in, @Nullable Charset charset) {
+      Unmarshaller unmarshaller;
       try {
-        return jaxbFactory.createUnmarshaller(elementClass);
+        unmarshaller = jaxbFactory.createUnmarshaller(elementClass);
       } catch (JAXBException e) {
         throw new UncheckedJaxbException(e);
       }
+      var iterator =
+          new XmlElementIterator<>(
+              xmlInputFactory, in, charset, jaxbFactory, unmarshaller, elementClass);
+      return ElementStreams.toStream(iterator, iterator);
     }
 
     private static @Nullable Charset charsetOrNull(@Nullable MediaType mediaType) {
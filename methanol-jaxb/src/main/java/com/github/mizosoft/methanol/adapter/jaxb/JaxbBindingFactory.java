@@ -26,18 +26,34 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
-/** Creates new {@link Marshaller} or {@link Unmarshaller} on demand for use by an adapter. */
+/**
+ * Creates new {@link Marshaller} or {@link Unmarshaller} on demand for use by an adapter. Adapters
+ * release each {@code Marshaller} or {@code Unmarshaller} they obtain back to the factory after
+ * they're done using it, so the factory can reuse it for later requests.
+ */
 public interface JaxbBindingFactory {
 
-  /** Returns a new {@code Marshaller} for encoding an object of the given class. */
+  /** Returns a {@code Marshaller} for encoding an object of the given class. */
   Marshaller createMarshaller(Class<?> boundClass) throws JAXBException;
 
-  /** Returns a new {@code Unmarshaller} for decoding to an object of the given class. */
+  /** Returns a {@code Unmarshaller} for decoding to an object of the given class. */
   Unmarshaller createUnmarshaller(Class<?> boundClass) throws JAXBException;
 
+  /**
+   * Releases a {@code Marshaller} that was obtained from this factory for the given class and is
+   * no longer used. The default implementation does nothing.
+   */
+  default void releaseMarshaller(Class<?> boundClass, Marshaller marshaller) {}
+
+  /**
+   * Releases an {@code Unmarshaller} that was obtained from this factory for the given class and
+   * is no longer used. The default implementation does nothing.
+   */
+  default void releaseUnmarshaller(Class<?> boundClass, Unmarshaller unmarshaller) {}
+
   /**
    * Returns a default {@code JaxbBindingFactory} that creates and caches {@code JAXBContexts} for
-   * each requested type.
+   * each requested type, and pools the marshallers and unmarshallers released to it.
    */
   static JaxbBindingFactory create() {
     return new CachingJaxbBindingFactory();
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jaxb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Iterates over the elements nested directly within an XML document's root element, unmarshalling
+ * each element only when it's requested. The StAX reader is created on the first {@link
+ * #hasNext()}, as creating it reads the document's prolog. The iterator closes itself once the
+ * document is read to its end, releasing the stream and the unmarshaller.
+ */
+final class XmlElementIterator<T> implements Iterator<T>, Closeable {
+  private final XMLInputFactory xmlInputFactory;
+  private final InputStream in;
+  private final @Nullable Charset charset;
+  private final JaxbBindingFactory jaxbFactory;
+  private final Unmarshaller unmarshaller;
+  private final Class<T> elementClass;
+  private @MonotonicNonNull XMLStreamReader reader;
+  private boolean finished;
+  private boolean closed;
+
+  XmlElementIterator(
+      XMLInputFactory xmlInputFactory,
+      InputStream in,
+      @Nullable Charset charset,
+      JaxbBindingFactory jaxbFactory,
+      Unmarshaller unmarshaller,
+      Class<T> elementClass) {
+    this.xmlInputFactory = xmlInputFactory;
+    this.in = in;
+    this.charset = charset;
+    this.jaxbFactory = jaxbFactory;
+    this.unmarshaller = unmarshaller;
+    this.elementClass = elementClass;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (finished) {
+      return false;
+    }
+    try {
+      var reader = reader();
+
+      // Skip whitespace, comments & processing instructions till the next element or the root's end
+      while (!finished && !reader.isStartElement()) {
+        if (reader.isEndElement() || !reader.hasNext()) {
+          finished = true;
+        } else {
+          reader.next();
+        }
+      }
+      if (finished) {
+        finish(reader);
+      }
+      return !finished;
+    } catch (XMLStreamException e) {
+      throw new UncheckedJaxbException(new JAXBException(e));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      // This leaves the reader at the event right after the element's end
+      return unmarshaller.unmarshal(reader(), elementClass).getValue();
+    } catch (JAXBException e) {
+      throw new UncheckedJaxbException(e);
+    } catch (XMLStreamException e) {
+      throw new UncheckedJaxbException(new JAXBException(e));
+    }
+  }
+
+  /**
+   * Closes the reader, if created, and the underlying stream, and releases the unmarshaller. Does
+   * nothing if already closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      var reader = this.reader;
+      if (reader != null) {
+        reader.close(); // Doesn't close the underlying stream
+      }
+    } catch (XMLStreamException e) {
+      throw new UncheckedJaxbException(new JAXBException(e));
+    } finally {
+      try {
+        in.close();
+      } finally {
+        jaxbFactory.releaseUnmarshaller(elementClass, unmarshaller);
+      }
+    }
+  }
+
+  /** Reads what's left after the root element (normally only whitespace) and closes. */
+  private void finish(XMLStreamReader reader) throws XMLStreamException, IOException {
+    try {
+      while (reader.hasNext()) {
+        reader.next();
+      }
+    } finally {
+      close();
+    }
+  }
+
+  private XMLStreamReader reader() throws XMLStreamException {
+    var reader = this.reader;
+    if (reader == null) {
+      // If the charset is known from the media type, use it for a Reader
+      // to avoid the overhead of having to infer it from the document
+      reader =
+          charset != null
+              ? xmlInputFactory.createXMLStreamReader(new InputStreamReader(in, charset))
+              : xmlInputFactory.createXMLStreamReader(in);
+      this.reader = reader;
+      moveIntoRootElement(reader);
+    }
+    return reader;
+  }
+
+  private void moveIntoRootElement(XMLStreamReader reader) throws XMLStreamException {
+    while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+      if (!reader.hasNext()) {
+        finished = true;
+        return;
+      }
+      reader.next();
+    }
+    reader.next();
+  }
+}
@@ -24,6 +24,7 @@ package com.github.mizosoft.methanol.adapter.jaxb;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import javax.xml.bind.JAXBException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -39,4 +40,28 @@ class CachingJaxbBindingFactoryTest {
     assertThat(factory.getOrCreateContext(Point.class))
         .isSameAs(factory.getOrCreateContext(Point.class));
   }
+
+  @Test
+  void reusesReleasedMarshallers() throws JAXBException {
+    var factory = new CachingJaxbBindingFactory();
+    var marshaller = factory.createMarshaller(Point.class);
+    assertThat(factory.createMarshaller(Point.class)).isNotSameAs(marshaller);
+
+    factory.releaseMarshaller(Point.class, marshaller);
+    assertThat(factory.createMarshaller(PointList.class)).isNotSameAs(marshaller);
+    assertThat(factory.createMarshaller(Point.class)).isSameAs(marshaller);
+    assertThat(factory.createMarshaller(Point.class)).isNotSameAs(marshaller);
+  }
+
+  @Test
+  void reusesReleasedUnmarshallers() throws JAXBException {
+    var factory = new CachingJaxbBindingFactory();
+    var unmarshaller = factory.createUnmarshaller(Point.class);
+    assertThat(factory.createUnmarshaller(Point.class)).isNotSameAs(unmarshaller);
+
+    factory.releaseUnmarshaller(Point.class, unmarshaller);
+    assertThat(factory.createUnmarshaller(PointList.class)).isNotSameAs(unmarshaller);
+    assertThat(factory.createUnmarshaller(Point.class)).isSameAs(unmarshaller);
+    assertThat(factory.createUnmarshaller(Point.class)).isNotSameAs(unmarshaller);
+  }
 }
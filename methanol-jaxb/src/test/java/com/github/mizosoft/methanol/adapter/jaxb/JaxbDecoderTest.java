@@ -25,8 +25,21 @@ package com.github.mizosoft.methanol.adapter.jaxb;
 import static com.github.mizosoft.methanol.adapter.jaxb.JaxbAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
 import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.testutils.TestException;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -92,6 +105,96 @@ class JaxbDecoderTest {
         .succeedsWith(new PointList(new Point(1, 2), new Point(3, 4)));
   }
 
+  @Test
+  void deserializeStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+          + "<points>\n"
+          + "  <point x=\"1\" y=\"2\"/>\n"
+          + "  <!-- A comment between elements -->\n"
+          + "  <point x=\"3\" y=\"4\"/>\n"
+          + "</points>")
+        .completedBody()
+        .satisfies(
+            stream -> assertThat(stream).containsExactly(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void deserializeStreamWithUtf16() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withMediaType("application/xml; charset=utf-16")
+        .withBody("<?xml version=\"1.0\"?><points><point x=\"1\" y=\"2\"/></points>", UTF_16)
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).containsExactly(new Point(1, 2)));
+  }
+
+  @Test
+  void deserializeEmptyStream() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?><points/>")
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).isEmpty());
+  }
+
+  @Test
+  void deserializeStreamBeforeBodyIsReceived() throws Exception {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // The stream is available before any of the body is received. It's obtained asynchronously
+      // as the body is mapped into a stream on the thread calling getBody().
+      var stream =
+          CompletableFuture.supplyAsync(() -> subscriber.getBody().toCompletableFuture().join())
+              .get(20, TimeUnit.SECONDS);
+
+      publisher.submit(
+          List.of(
+              UTF_8.encode(
+                  "<?xml version=\"1.0\" encoding=\"UTF-8\"?><points><point x=\"1\" y=\"2\"/>")));
+      publisher.submit(List.of(UTF_8.encode("<point x=\"3\" y=\"4\"/></points>")));
+      publisher.close();
+      try (stream) {
+        assertThat(stream).containsExactly(new Point(1, 2), new Point(3, 4));
+      }
+    }
+  }
+
+  @Test
+  void exhaustedStreamReleasesBodyAndUnmarshaller() throws Exception {
+    var factory = new CachingJaxbBindingFactory();
+    var unmarshaller = factory.createUnmarshaller(Point.class);
+    var in = new CloseRecordingInputStream("<points><point x=\"1\" y=\"2\"/></points>\n");
+    var iterator =
+        new XmlElementIterator<>(
+            XMLInputFactory.newInstance(), in, UTF_8, factory, unmarshaller, Point.class);
+    assertThat(iterator.next()).isEqualTo(new Point(1, 2));
+    assertThat(in.closed).isFalse();
+    assertThat(iterator.hasNext()).isFalse();
+    assertThat(in.closed).isTrue();
+
+    // Closing after exhaustion doesn't release the unmarshaller twice
+    iterator.close();
+    assertThat(factory.createUnmarshaller(Point.class)).isSameAs(unmarshaller);
+    assertThat(factory.createUnmarshaller(Point.class)).isNotSameAs(unmarshaller);
+  }
+
+  @Test
+  void deserializeStreamWithBadXml() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody("<?xml version=\"1.0\"?><points><point x=\"1\" y=\"2\"/><point")
+        .completedBody()
+        .satisfies(
+            stream ->
+                assertThatExceptionOfType(UncheckedJaxbException.class)
+                    .isThrownBy(() -> stream.collect(Collectors.toList())));
+  }
+
   @Test
   void deserializeBadXml() {
     verifyThat(createDecoder())
@@ -125,4 +228,17 @@ class JaxbDecoderTest {
         .withMediaType("application/json")
         .isNotSupported();
   }
+
+  private static final class CloseRecordingInputStream extends ByteArrayInputStream {
+    volatile boolean closed;
+
+    CloseRecordingInputStream(String content) {
+      super(content.getBytes(UTF_8));
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
 }
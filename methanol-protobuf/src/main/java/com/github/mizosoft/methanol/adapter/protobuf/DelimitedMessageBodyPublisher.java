@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.protobuf;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+/**
+ * A {@code BodyPublisher} that writes each message published by a {@code Publisher} as a
+ * length-delimited message, in the same format as {@link MessageLite#writeDelimitedTo}. Each
+ * message is serialized into its own buffer only when it's received, which is only when the
+ * downstream requests it.
+ */
+final class DelimitedMessageBodyPublisher implements BodyPublisher {
+  private final Publisher<?> messages;
+
+  DelimitedMessageBodyPublisher(Publisher<?> messages) {
+    this.messages = messages;
+  }
+
+  @Override
+  public long contentLength() {
+    return -1; // Unknown till all messages are serialized
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    messages.subscribe(new SerializingSubscriber(subscriber));
+  }
+
+  private static ByteBuffer serializeDelimited(MessageLite message) throws IOException {
+    int size = message.getSerializedSize();
+    var bytes = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+    var output = CodedOutputStream.newInstance(bytes);
+    output.writeUInt32NoTag(size);
+    message.writeTo(output);
+    output.checkNoSpaceLeft();
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /** Maps each received message to a buffer, passing the downstream's demand as is. */
+  private static final class SerializingSubscriber implements Subscriber<Object>, Subscription {
+    private static final Logger logger = System.getLogger(SerializingSubscriber.class.getName());
+
+    private final Subscriber<? super ByteBuffer> downstream;
+    private final Upstream upstream;
+    private boolean completed;
+
+    SerializingSubscriber(Subscriber<? super ByteBuffer> downstream) {
+      this.downstream = downstream;
+      upstream = new Upstream();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        downstream.onSubscribe(this);
+      }
+    }
+
+    @Override
+    public void onNext(Object item) {
+      requireNonNull(item);
+      if (completed) {
+        return;
+      }
+
+      ByteBuffer buffer;
+      try {
+        buffer = serializeDelimited((MessageLite) item);
+      } catch (Throwable t) {
+        upstream.cancel(); // Flow is interrupted
+        onError(t);
+        return;
+      }
+      downstream.onNext(buffer);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      if (completed) {
+        logger.log(Level.WARNING, "upstream error received after completion", throwable);
+        return;
+      }
+      completed = true;
+      upstream.clear();
+      downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      upstream.clear();
+      downstream.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+      upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+      upstream.cancel();
+    }
+  }
+}
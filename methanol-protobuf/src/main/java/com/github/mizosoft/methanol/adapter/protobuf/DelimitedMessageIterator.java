@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.protobuf;
+
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Iterates over the length-delimited messages read from an {@code InputStream}, parsing each
+ * message only when it's requested.
+ */
+final class DelimitedMessageIterator<T> implements Iterator<T> {
+  private final InputStream in;
+  private final Class<T> messageClass;
+  private final Parser<?> parser;
+  private final ExtensionRegistryLite registry;
+  private @Nullable T nextMessage;
+  private boolean finished;
+
+  DelimitedMessageIterator(
+      InputStream in, Class<T> messageClass, Parser<?> parser, ExtensionRegistryLite registry) {
+    this.in = in;
+    this.messageClass = messageClass;
+    this.parser = parser;
+    this.registry = registry;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextMessage == null && !finished) {
+      try {
+        // parseDelimitedFrom returns null if the stream is at EOF
+        nextMessage = messageClass.cast(parser.parseDelimitedFrom(in, registry));
+      } catch (InvalidProtocolBufferException e) {
+        throw new UncheckedIOException(e.unwrapIOException());
+      }
+      finished = nextMessage == null;
+    }
+    return nextMessage != null;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    var message = nextMessage;
+    nextMessage = null;
+    return message;
+  }
+}
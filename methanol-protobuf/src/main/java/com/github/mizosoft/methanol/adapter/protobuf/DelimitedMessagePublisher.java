@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.protobuf;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+/**
+ * A {@code Publisher} of the length-delimited messages contained in a response body. Each message
+ * is parsed as soon as its last byte is received. The body is requested one batch of buffers at a
+ * time, and only when the downstream has demand that can't be satisfied from the messages already
+ * parsed. This way, buffering is bounded by a single batch and the message being received.
+ */
+final class DelimitedMessagePublisher<T> implements Publisher<T> {
+  private final Publisher<List<ByteBuffer>> upstream;
+  private final Class<T> messageClass;
+  private final Parser<?> parser;
+  private final ExtensionRegistryLite registry;
+
+  DelimitedMessagePublisher(
+      Publisher<List<ByteBuffer>> upstream,
+      Class<T> messageClass,
+      Parser<?> parser,
+      ExtensionRegistryLite registry) {
+    this.upstream = upstream;
+    this.messageClass = messageClass;
+    this.parser = parser;
+    this.registry = registry;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    requireNonNull(subscriber);
+    upstream.subscribe(
+        new DelimitedMessageSubscriber<>(subscriber, messageClass, parser, registry));
+  }
+
+  private static final class DelimitedMessageSubscriber<T> implements Subscriber<List<ByteBuffer>> {
+    private static final Logger logger =
+        System.getLogger(DelimitedMessageSubscriber.class.getName());
+
+    private static final Object COMPLETE = new Object();
+
+    /** Varints encoding 32-bit sizes take at most 5 bytes, the last one starting at shift 28. */
+    private static final int MAX_SIZE_SHIFT = 28;
+
+    private final Subscriber<? super T> downstream;
+    private final Class<T> messageClass;
+    private final Parser<?> parser;
+    private final ExtensionRegistryLite registry;
+    private final Upstream upstream;
+    private final ConcurrentLinkedQueue<Object> messages;
+
+    /** The received parts of the current message. */
+    private final List<ByteBuffer> messageBuffers;
+
+    private volatile @MonotonicNonNull SubscriptionImpl downstreamSubscription;
+    private volatile boolean upstreamRequested;
+    private boolean completed;
+
+    /** The current message's size as decoded so far from its varint prefix. */
+    private int messageSize;
+
+    /** The shift of the next byte of the current message's varint size prefix. */
+    private int sizeShift;
+
+    /** The number of bytes remaining for the current message, or -1 if its size is being read. */
+    private int remaining = -1;
+
+    DelimitedMessageSubscriber(
+        Subscriber<? super T> downstream,
+        Class<T> messageClass,
+        Parser<?> parser,
+        ExtensionRegistryLite registry) {
+      this.downstream = downstream;
+      this.messageClass = messageClass;
+      this.parser = parser;
+      this.registry = registry;
+      upstream = new Upstream();
+      messages = new ConcurrentLinkedQueue<>();
+      messageBuffers = new ArrayList<>();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        var downstreamSubscription = new SubscriptionImpl();
+        this.downstreamSubscription = downstreamSubscription;
+        downstreamSubscription.signal(true); // Apply downstream's onSubscribe
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      requireNonNull(item);
+      if (completed) {
+        return;
+      }
+
+      try {
+        for (var buffer : item) {
+          decode(buffer);
+        }
+      } catch (Throwable t) {
+        upstream.cancel(); // Flow is interrupted
+        onError(t);
+        return;
+      }
+
+      upstreamRequested = false;
+      var subscription = downstreamSubscription;
+      if (subscription != null) {
+        subscription.signal(false); // Submit what's been parsed or request more from upstream
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      if (completed) {
+        logger.log(Level.WARNING, "upstream error received after completion", throwable);
+        return;
+      }
+      completed = true;
+
+      upstream.clear();
+      messageBuffers.clear();
+      var subscription = downstreamSubscription;
+      if (subscription != null) {
+        subscription.signalError(throwable);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      if (completed) {
+        return;
+      }
+      completed = true;
+
+      upstream.clear();
+      messageBuffers.clear();
+      var subscription = downstreamSubscription;
+      if (subscription != null) {
+        if (remaining >= 0 || sizeShift > 0) {
+          subscription.signalError(
+              new InvalidProtocolBufferException("body ended in the middle of a message"));
+        } else {
+          messages.offer(COMPLETE);
+          subscription.signal(true);
+        }
+      }
+    }
+
+    private void decode(ByteBuffer buffer) throws InvalidProtocolBufferException {
+      while (buffer.hasRemaining()) {
+        if (remaining < 0) {
+          readSizeByte(buffer.get());
+        } else {
+          int count = Math.min(remaining, buffer.remaining());
+          messageBuffers.add(buffer.slice().limit(count));
+          buffer.position(buffer.position() + count);
+          remaining -= count;
+        }
+
+        if (remaining == 0) {
+          parseMessage();
+        }
+      }
+    }
+
+    private void readSizeByte(byte b) throws InvalidProtocolBufferException {
+      messageSize |= (b & 0x7f) << sizeShift;
+      if ((b & 0x80) == 0) {
+        if (messageSize < 0) {
+          throw new InvalidProtocolBufferException("negative message size: " + messageSize);
+        }
+        remaining = messageSize;
+        messageSize = 0;
+        sizeShift = 0;
+      } else if (sizeShift == MAX_SIZE_SHIFT) {
+        throw new InvalidProtocolBufferException("malformed message size");
+      } else {
+        sizeShift += 7;
+      }
+    }
+
+    private void parseMessage() throws InvalidProtocolBufferException {
+      var message =
+          messageClass.cast(
+              parser.parseFrom(CodedInputStream.newInstance(messageBuffers), registry));
+      messageBuffers.clear();
+      remaining = -1;
+      messages.offer(message);
+    }
+
+    private final class SubscriptionImpl extends AbstractSubscription<T> {
+      SubscriptionImpl() {
+        super(downstream, FlowSupport.SYNC_EXECUTOR);
+      }
+
+      @Override
+      protected long emit(Subscriber<? super T> downstream, long emit) {
+        long submitted = 0L;
+        while (true) {
+          var message = messages.peek();
+          if (message == COMPLETE) {
+            cancelOnComplete(downstream);
+            return 0;
+          } else if (submitted >= emit) {
+            return submitted;
+          } else if (message == null) {
+            // Only ask upstream for more when there's unsatisfied demand and nothing is in flight
+            if (!upstreamRequested) {
+              upstreamRequested = true;
+              upstream.request(1);
+            }
+            return submitted;
+          } else if (submitOnNext(downstream, messageClass.cast(messages.remove()))) {
+            submitted++;
+          } else {
+            return 0;
+          }
+        }
+      }
+
+      @Override
+      protected void abort(boolean flowInterrupted) {
+        if (flowInterrupted) {
+          upstream.cancel();
+        } else {
+          upstream.clear();
+        }
+        messages.clear();
+      }
+    }
+  }
+}
@@ -22,25 +22,41 @@
 
 package com.github.mizosoft.methanol.adapter.protobuf;
 
+import static com.github.mizosoft.methanol.internal.adapter.ElementStreams.streamElementType;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.github.mizosoft.methanol.internal.adapter.ElementStreams;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
-import java.io.IOException;
+import com.google.protobuf.Parser;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 abstract class ProtobufAdapter extends AbstractBodyAdapter {
@@ -55,38 +71,83 @@ abstract class ProtobufAdapter extends AbstractBodyAdapter {
         && MessageLite.class.isAssignableFrom(type.rawType());
   }
 
+  /**
+   * Encodes messages, or {@code Flow.Publisher}s of messages into bodies of length-delimited
+   * messages.
+   */
   static final class Encoder extends ProtobufAdapter implements BodyAdapter.Encoder {
 
     Encoder() {}
 
+    @Override
+    public boolean supportsType(TypeRef<?> type) {
+      if (super.supportsType(type)) {
+        return true;
+      }
+
+      // A type variable is left if the type is raw, as is an object's runtime class, in which case
+      // messages are checked as they're published.
+      var elementType = publisherElementType(type.type());
+      return elementType instanceof TypeVariable<?> || messageClassOrNull(elementType) != null;
+    }
+
     @Override
     public BodyPublisher toBody(Object object, @Nullable MediaType mediaType) {
       requireNonNull(object);
       requireSupport(object.getClass());
       requireCompatibleOrNull(mediaType);
+      if (object instanceof Flow.Publisher<?>) {
+        return attachMediaType(
+            new DelimitedMessageBodyPublisher((Flow.Publisher<?>) object), mediaType);
+      }
       MessageLite message = (MessageLite) object;
       return attachMediaType(BodyPublishers.ofByteArray(message.toByteArray()), mediaType);
     }
   }
 
+  /**
+   * Decodes bodies into messages, or into {@code Stream}s or {@code Flow.Publisher}s of
+   * length-delimited messages. A {@code Stream} is returned as soon as the response headers are
+   * received, and blocks for input as it's consumed. It should be closed if not consumed entirely.
+   */
   static final class Decoder extends ProtobufAdapter implements BodyAdapter.Decoder {
 
     private final ExtensionRegistryLite registry;
 
+    /** Parsers of the message types this decoder has been asked to decode, by message class. */
+    private final ConcurrentMap<Class<?>, Parser<?>> parsers = new ConcurrentHashMap<>();
+
     Decoder(ExtensionRegistryLite registry) {
       this.registry = requireNonNull(registry);
     }
 
+    @Override
+    public boolean supportsType(TypeRef<?> type) {
+      return super.supportsType(type) || delimitedMessageClass(type) != null;
+    }
+
     @Override
     public <T> BodySubscriber<T> toObject(TypeRef<T> type, @Nullable MediaType mediaType) {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var delimitedMessageClass = delimitedMessageClass(type);
+      if (delimitedMessageClass != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<T>) toDelimitedMessages(type.rawType(), delimitedMessageClass);
+        return subscriber;
+      }
+
       // We know that T is <= MessageLite to the caller, but the compiler doesn't
       Class<T> messageClass = type.exactRawType();
-      MessageLite.Builder builder = getBuilderForMessage(messageClass);
-      return BodySubscribers.mapping(
-          BodySubscribers.ofByteArray(), data -> buildMessage(messageClass, builder, data));
+      Parser<?> parser = getParser(messageClass);
+      var collector = new BufferCollector();
+      return BodySubscribers.fromSubscriber(
+          collector,
+          completedCollector ->
+              parseMessage(
+                  messageClass, parser, CodedInputStream.newInstance(completedCollector.buffers)));
     }
 
     @Override
@@ -95,39 +156,169 @@ abstract class ProtobufAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      var delimitedMessageClass = delimitedMessageClass(type);
+      if (delimitedMessageClass != null) {
+        @SuppressWarnings("unchecked")
+        var subscriber =
+            (BodySubscriber<Supplier<T>>)
+                (BodySubscriber<?>)
+                    BodySubscribers.<Object, Supplier<Object>>mapping(
+                        toDelimitedMessages(type.rawType(), delimitedMessageClass),
+                        messages -> () -> messages);
+        return subscriber;
+      }
+
       Class<T> messageClass = type.exactRawType();
-      MessageLite.Builder builder = getBuilderForMessage(messageClass);
+      Parser<?> parser = getParser(messageClass);
       return BodySubscribers.mapping(
-          BodySubscribers.ofInputStream(), in -> () -> buildMessage(messageClass, builder, in));
+          BodySubscribers.ofInputStream(),
+          in -> () -> parseMessage(messageClass, parser, CodedInputStream.newInstance(in)));
     }
 
-    private <T> T buildMessage(Class<T> messageClass, MessageLite.Builder builder, byte[] data) {
-      try {
-        builder.mergeFrom(data, registry);
-      } catch (InvalidProtocolBufferException e) {
-        throw new UncheckedIOException(e);
+    /**
+     * Returns a {@code BodySubscriber} of either a {@code Stream} or a {@code Flow.Publisher} of
+     * the length-delimited messages in the body, depending on the given container type.
+     */
+    private <M> BodySubscriber<Object> toDelimitedMessages(
+        Class<?> containerType, Class<M> messageClass) {
+      Parser<?> parser = getParser(messageClass);
+      if (containerType == Stream.class) {
+        return BodySubscribers.<InputStream, Object>mapping(
+            BodySubscribers.ofInputStream(),
+            in ->
+                ElementStreams.toStream(
+                    new DelimitedMessageIterator<>(in, messageClass, parser, registry), in));
+      } else {
+        return BodySubscribers.<Flow.Publisher<List<ByteBuffer>>, Object>mapping(
+            BodySubscribers.ofPublisher(),
+            publisher ->
+                new DelimitedMessagePublisher<>(publisher, messageClass, parser, registry));
       }
-      return messageClass.cast(builder.build());
     }
 
-    private <T> T buildMessage(Class<T> messageClass, MessageLite.Builder builder, InputStream in) {
+    private <T> T parseMessage(Class<T> messageClass, Parser<?> parser, CodedInputStream input) {
       try {
-        builder.mergeFrom(in, registry);
-      } catch (IOException ioe) {
-        throw new UncheckedIOException(ioe);
+        return messageClass.cast(parser.parseFrom(input, registry));
+      } catch (InvalidProtocolBufferException e) {
+        // Parsers wrap IOExceptions thrown by the underlying stream, which are rethrown as is
+        throw new UncheckedIOException(e.unwrapIOException());
       }
-      return messageClass.cast(builder.build());
     }
 
-    private static MessageLite.Builder getBuilderForMessage(Class<?> clazz) {
+    private Parser<?> getParser(Class<?> messageClass) {
+      // Parsers are looked up reflectively only once per message class
+      return parsers.computeIfAbsent(messageClass, ProtobufAdapter.Decoder::findParser);
+    }
+
+    private static Parser<?> findParser(Class<?> clazz) {
       try {
-        Method builderFactory = clazz.getMethod("newBuilder");
-        return (MessageLite.Builder) builderFactory.invoke(null);
+        Method defaultInstanceFactory = clazz.getMethod("getDefaultInstance");
+        return ((MessageLite) defaultInstanceFactory.invoke(null)).getParserForType();
       } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
         throw new UnsupportedOperationException(
-            "couldn't create a builder from message of type: " + clazz,
+            "couldn't get a parser for message of type: " + clazz,
             e instanceof InvocationTargetException ? e.getCause() : e);
       }
     }
   }
+
+  /**
+   * Returns {@code M}'s class if the given type is a {@code Stream<M>} or a {@code
+   * Flow.Publisher<M>} where {@code M} is a message type, or {@code null} otherwise.
+   */
+  static @Nullable Class<?> delimitedMessageClass(TypeRef<?> type) {
+    var rawType = type.rawType();
+    if (rawType == Stream.class) {
+      return messageClassOrNull(streamElementType(type));
+    } else if (rawType == Flow.Publisher.class) {
+      return messageClassOrNull(publisherElementType(type.type()));
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the type of elements published by the given type if it's a {@code Flow.Publisher}, or
+   * {@code null} otherwise. The returned type is a type variable if it's not known from the given
+   * type, such as when the given type is raw.
+   */
+  static @Nullable Type publisherElementType(Type type) {
+    Class<?> rawType;
+    @Nullable Type[] typeArguments;
+    if (type instanceof Class<?>) {
+      rawType = (Class<?>) type;
+      typeArguments = null;
+    } else if (type instanceof ParameterizedType) {
+      rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+      typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+    } else {
+      return null;
+    }
+
+    if (!Flow.Publisher.class.isAssignableFrom(rawType)) {
+      return null;
+    }
+    if (rawType == Flow.Publisher.class) {
+      return upperBound(typeArguments != null ? typeArguments[0] : rawType.getTypeParameters()[0]);
+    }
+
+    // Resolve the element type from the supertype through which the type is a Flow.Publisher,
+    // substituting the type's own type variables with the given type arguments if there are any.
+    var supertypes = new ArrayList<Type>(List.of(rawType.getGenericInterfaces()));
+    if (rawType.getGenericSuperclass() != null) {
+      supertypes.add(rawType.getGenericSuperclass());
+    }
+    for (var supertype : supertypes) {
+      var elementType = publisherElementType(supertype);
+      if (elementType != null) {
+        if (typeArguments != null && elementType instanceof TypeVariable<?>) {
+          int index = List.of(rawType.getTypeParameters()).indexOf(elementType);
+          if (index >= 0) {
+            elementType = upperBound(typeArguments[index]);
+          }
+        }
+        return elementType;
+      }
+    }
+    return null;
+  }
+
+  private static Type upperBound(Type type) {
+    return type instanceof WildcardType ? ((WildcardType) type).getUpperBounds()[0] : type;
+  }
+
+  private static @Nullable Class<?> messageClassOrNull(@Nullable Type type) {
+    return type instanceof Class<?> && MessageLite.class.isAssignableFrom((Class<?>) type)
+        ? (Class<?>) type
+        : null;
+  }
+
+  /**
+   * Retains the body's buffers as they're received so that the message is parsed directly from
+   * them without first being copied into a contiguous array. Buffers received from the HTTP client
+   * aren't reused after being published, so holding onto them is safe.
+   */
+  private static final class BufferCollector implements Subscriber<List<ByteBuffer>> {
+    final List<ByteBuffer> buffers = new ArrayList<>();
+
+    BufferCollector() {}
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      buffers.addAll(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      buffers.clear();
+    }
+
+    @Override
+    public void onComplete() {}
+  }
 }
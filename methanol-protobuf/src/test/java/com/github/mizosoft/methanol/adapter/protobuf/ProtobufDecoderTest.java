@@ -24,13 +24,27 @@ package com.github.mizosoft.methanol.adapter.protobuf;
 
 import static com.github.mizosoft.methanol.adapter.protobuf.ProtobufAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.from;
 
+import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.protobuf.PointOuterClass.Point;
 import com.github.mizosoft.methanol.testutils.TestException;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 class ProtobufDecoderTest {
@@ -59,6 +73,130 @@ class ProtobufDecoderTest {
         .succeedsWith(expected);
   }
 
+  @Test
+  void deserializeFromMultipleBuffers() {
+    var expected = Point.newBuilder().setX(1).setY(2).build();
+    var bytes = expected.toByteArray();
+    var subscriber = createDecoder().toObject(TypeRef.from(Point.class), null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // Publish each byte in a separate buffer, alternating between heap & direct buffers
+      for (int i = 0; i < bytes.length; i++) {
+        var buffer = i % 2 == 0 ? ByteBuffer.allocate(1) : ByteBuffer.allocateDirect(1);
+        publisher.submit(List.of(buffer.put(bytes[i]).flip()));
+      }
+    }
+    assertThat(subscriber.getBody()).succeedsWithin(Duration.ofSeconds(20)).isEqualTo(expected);
+  }
+
+  @Test
+  void deserializeMultipleTimes() {
+    var decoder = createDecoder();
+    for (var message : points(10)) {
+      verifyThat(decoder)
+          .converting(Point.class)
+          .withBody(message.toByteString().asReadOnlyByteBuffer())
+          .succeedsWith(message);
+    }
+  }
+
+  @Test
+  void deserializeEmptyBody() {
+    verifyThat(createDecoder())
+        .converting(Point.class)
+        .withBody(ByteBuffer.allocate(0))
+        .succeedsWith(Point.getDefaultInstance());
+  }
+
+  @Test
+  void deserializeStreamOfDelimitedMessages() {
+    var points = points(10);
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody(delimited(points))
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).containsExactlyElementsOf(points));
+  }
+
+  @Test
+  void deserializeEmptyStreamOfDelimitedMessages() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<Point>>() {})
+        .withBody(ByteBuffer.allocate(0))
+        .completedBody()
+        .satisfies(stream -> assertThat(stream).isEmpty());
+  }
+
+  @Test
+  void deserializeStreamOfDelimitedMessagesIncrementally() throws Exception {
+    var points = points(2);
+    var body = delimited(points);
+    int firstMessageLength = points.get(0).getSerializedSize() + 1; // Size fits in one byte
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // The stream is available before any of the body is received
+      var stream = subscriber.getBody().toCompletableFuture().get(20, TimeUnit.SECONDS);
+      var iterator = stream.iterator();
+
+      // Messages are available as soon as they're received
+      publisher.submit(List.of(body.slice().limit(firstMessageLength)));
+      assertThat(CompletableFuture.supplyAsync(iterator::next))
+          .succeedsWithin(Duration.ofSeconds(20))
+          .isEqualTo(points.get(0));
+
+      publisher.submit(List.of(body.position(firstMessageLength).slice()));
+      publisher.close();
+      assertThat(iterator.next()).isEqualTo(points.get(1));
+      assertThat(iterator.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  void deserializePublisherOfDelimitedMessages() {
+    var points = points(10);
+    var subscriber = createDecoder().toObject(new TypeRef<Flow.Publisher<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+
+      // Publish each byte in a separate buffer so messages span multiple buffers
+      var body = delimited(points);
+      while (body.hasRemaining()) {
+        publisher.submit(List.of(ByteBuffer.allocate(1).put(body.get()).flip()));
+      }
+    }
+
+    var pointSubscriber = new TestSubscriber<Point>();
+    assertThat(subscriber.getBody())
+        .succeedsWithin(Duration.ofSeconds(20))
+        .satisfies(publisher -> publisher.subscribe(pointSubscriber));
+    pointSubscriber.awaitComplete();
+    assertThat(pointSubscriber.errors).isZero();
+    assertThat(pointSubscriber.items).containsExactlyElementsOf(points);
+  }
+
+  @Test
+  void deserializePublisherOfTruncatedDelimitedMessages() {
+    var points = points(2);
+    var body = delimited(points);
+    var subscriber = createDecoder().toObject(new TypeRef<Flow.Publisher<Point>>() {}, null);
+    try (var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(List.of(body.limit(body.limit() - 1)));
+    }
+
+    var pointSubscriber = new TestSubscriber<Point>();
+    pointSubscriber.request = Long.MAX_VALUE;
+    assertThat(subscriber.getBody())
+        .succeedsWithin(Duration.ofSeconds(20))
+        .satisfies(publisher -> publisher.subscribe(pointSubscriber));
+    pointSubscriber.awaitError();
+    assertThat(pointSubscriber.items).containsExactly(points.get(0));
+    assertThat(pointSubscriber.lastError).isInstanceOf(InvalidProtocolBufferException.class);
+  }
+
   @Test
   void deserializeWithExtensions() {
     var registry = ExtensionRegistry.newInstance();
@@ -89,6 +227,13 @@ class ProtobufDecoderTest {
         .failsWith(TestException.class);
   }
 
+  @Test
+  void deserializeStreamWithUnsupportedType() {
+    verifyThat(createDecoder())
+        .converting(new TypeRef<Stream<String>>() {})
+        .isNotSupported();
+  }
+
   @Test
   void deserializeWithUnsupportedType() {
     class NotAMessage {}
@@ -105,4 +250,24 @@ class ProtobufDecoderTest {
         .withMediaType("application/json")
         .isNotSupported();
   }
+
+  private static List<Point> points(int count) {
+    var points = new ArrayList<Point>();
+    for (int i = 0; i < count; i++) {
+      points.add(Point.newBuilder().setX(i).setY(-i).build());
+    }
+    return points;
+  }
+
+  private static ByteBuffer delimited(List<Point> points) {
+    var out = new ByteArrayOutputStream();
+    try {
+      for (var point : points) {
+        point.writeDelimitedTo(out);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return ByteBuffer.wrap(out.toByteArray());
+  }
 }
@@ -24,8 +24,19 @@ package com.github.mizosoft.methanol.adapter.protobuf;
 
 import static com.github.mizosoft.methanol.adapter.protobuf.ProtobufAdapterFactory.createEncoder;
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
+import static org.assertj.core.api.Assertions.assertThat;
 
+import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.protobuf.PointOuterClass.Point;
+import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.github.mizosoft.methanol.testutils.TestException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 import org.junit.jupiter.api.Test;
 
 class ProtobufEncoderTest {
@@ -53,6 +64,50 @@ class ProtobufEncoderTest {
         .succeedsWith(point.toByteString().asReadOnlyByteBuffer());
   }
 
+  @Test
+  void serializePublisherOfMessages() throws IOException {
+    var points = new ArrayList<Point>();
+    var expected = new ByteArrayOutputStream();
+    for (int i = 0; i < 10; i++) {
+      var point = Point.newBuilder().setX(i).setY(-i).build();
+      points.add(point);
+      point.writeDelimitedTo(expected);
+    }
+
+    var publisher = new SubmissionPublisher<Point>();
+    var bodyFuture = BodyCollector.collectAsync(createEncoder().toBody(publisher, null));
+    points.forEach(publisher::submit);
+    publisher.close();
+    assertThat(bodyFuture)
+        .succeedsWithin(Duration.ofSeconds(20))
+        .isEqualTo(ByteBuffer.wrap(expected.toByteArray()));
+  }
+
+  @Test
+  void serializeFailingPublisherOfMessages() {
+    var publisher = new SubmissionPublisher<Point>();
+    publisher.closeExceptionally(new TestException());
+    verifyThat(createEncoder())
+        .converting(publisher)
+        .failsWith(TestException.class);
+  }
+
+  @Test
+  void supportsPublishersOfMessagesOnly() {
+    class PointPublisher extends SubmissionPublisher<Point> {}
+    class StringPublisher extends SubmissionPublisher<String> {}
+
+    verifyThat(createEncoder())
+        .supports(new TypeRef<Flow.Publisher<Point>>() {})
+        .supports(new TypeRef<Flow.Publisher<? extends Point>>() {})
+        .supports(new TypeRef<SubmissionPublisher<Point>>() {})
+        .supports(PointPublisher.class)
+        .supports(SubmissionPublisher.class) // Published messages are checked at runtime
+        .doesNotSupport(new TypeRef<Flow.Publisher<String>>() {})
+        .doesNotSupport(new TypeRef<SubmissionPublisher<String>>() {})
+        .doesNotSupport(StringPublisher.class);
+  }
+
   @Test
   void serializeWithUnsupportedType() {
     class NotAMessage {}
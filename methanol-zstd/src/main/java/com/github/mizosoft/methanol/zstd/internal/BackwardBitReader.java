@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Reads a zstd backward bit stream, which is written forwards but read starting from the highest
+ * bit of its last byte (after a marker bit) down to the first bit of its first byte. Bits past the
+ * start of the stream are read as zeros, which is detectable with {@link #overflowed()}.
+ */
+final class BackwardBitReader {
+  private static final VarHandle LONG_LE =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private byte[] source = new byte[0];
+  private int start;
+  private int limit;
+
+  /** The number of unread bits, negative if more bits were read than available. */
+  private long bitPosition;
+
+  BackwardBitReader() {}
+
+  /** Resets this reader to read the stream in {@code source[start, limit)}. */
+  BackwardBitReader reset(byte[] source, int start, int limit) throws IOException {
+    if (start >= limit) {
+      throw new ZstdException("empty bit stream");
+    }
+    int lastByte = source[limit - 1] & 0xFF;
+    if (lastByte == 0) {
+      throw new ZstdException("missing bit stream end marker");
+    }
+    this.source = source;
+    this.start = start;
+    this.limit = limit;
+    // Skip the marker bit & the zeros preceding it
+    this.bitPosition =
+        (long) (limit - start) * Byte.SIZE - Integer.numberOfLeadingZeros(lastByte) + 23;
+    return this;
+  }
+
+  /** Returns the next {@code bitCount} bits without consuming them. {@code bitCount} <= 56. */
+  long peekBits(int bitCount) {
+    if (bitCount == 0) {
+      return 0;
+    }
+    long low = bitPosition - bitCount;
+    if (low >= 0) {
+      return load(low) & ((1L << bitCount) - 1);
+    } else if (bitPosition > 0) {
+      return (load(0) & ((1L << bitPosition) - 1)) << -low;
+    } else {
+      return 0;
+    }
+  }
+
+  void skipBits(int bitCount) {
+    bitPosition -= bitCount;
+  }
+
+  long readBits(int bitCount) {
+    long bits = peekBits(bitCount);
+    bitPosition -= bitCount;
+    return bits;
+  }
+
+  int readInt(int bitCount) {
+    return (int) readBits(bitCount);
+  }
+
+  /** Returns {@code true} if all the stream's bits were read, and no more. */
+  boolean isFullyConsumed() {
+    return bitPosition == 0;
+  }
+
+  /** Returns {@code true} if more bits were read than available in the stream. */
+  boolean overflowed() {
+    return bitPosition < 0;
+  }
+
+  /** Returns at least 57 bits starting from the given bit position, zero-filled past the limit. */
+  private long load(long bitIndex) {
+    int index = start + (int) (bitIndex >>> 3);
+    int shift = (int) (bitIndex & 7);
+    if (index <= limit - Long.BYTES) {
+      return (long) LONG_LE.get(source, index) >>> shift;
+    }
+
+    long word = 0;
+    for (int i = limit - 1; i >= index; i--) {
+      word = (word << Byte.SIZE) | (source[i] & 0xFF);
+    }
+    return word >>> shift;
+  }
+}
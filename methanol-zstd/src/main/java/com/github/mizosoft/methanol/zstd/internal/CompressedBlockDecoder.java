@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Decodes compressed blocks of a zstd frame into an {@link OutputWindow}. Entropy tables and repeat
+ * offsets carry over from one block to the next till the frame ends.
+ */
+final class CompressedBlockDecoder {
+  static final int MAX_BLOCK_SIZE = 128 * 1024;
+
+  private static final int LITERALS_RAW = 0;
+  private static final int LITERALS_RLE = 1;
+  private static final int LITERALS_COMPRESSED = 2;
+
+  private static final int MODE_PREDEFINED = 0;
+  private static final int MODE_RLE = 1;
+  private static final int MODE_COMPRESSED = 2;
+
+  // Indices of sequence tables
+  private static final int LITERAL_LENGTHS = 0;
+  private static final int OFFSETS = 1;
+  private static final int MATCH_LENGTHS = 2;
+
+  private static final int[] MAX_SYMBOLS = {35, 31, 52};
+  private static final int[] MAX_ACCURACY_LOGS = {9, 8, 9};
+
+  private static final int[] LITERAL_LENGTH_BASELINES = {
+    0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+    16, 18, 20, 22, 24, 28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096,
+    8192, 16384, 32768, 65536
+  };
+  private static final int[] LITERAL_LENGTH_BITS = {
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12,
+    13, 14, 15, 16
+  };
+  private static final int[] MATCH_LENGTH_BASELINES = {
+    3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+    19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34,
+    35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+    4099, 8195, 16387, 32771, 65539
+  };
+  private static final int[] MATCH_LENGTH_BITS = {
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11,
+    12, 13, 14, 15, 16
+  };
+
+  private static final FseTable[] PREDEFINED_TABLES = {
+    FseTable.predefined(
+        new short[] {
+          4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1,
+          2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1,
+          -1, -1, -1, -1
+        },
+        6),
+    FseTable.predefined(
+        new short[] {
+          1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+          1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1
+        },
+        5),
+    FseTable.predefined(
+        new short[] {
+          1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+          1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+          1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1,
+          -1, -1, -1, -1, -1
+        },
+        6)
+  };
+
+  private final byte[] literalsBuffer = new byte[MAX_BLOCK_SIZE];
+  private final HuffmanTable huffmanTable = new HuffmanTable();
+  private final FseTable[] ownTables = {
+    new FseTable(MAX_ACCURACY_LOGS[LITERAL_LENGTHS]),
+    new FseTable(MAX_ACCURACY_LOGS[OFFSETS]),
+    new FseTable(MAX_ACCURACY_LOGS[MATCH_LENGTHS])
+  };
+  private final @Nullable FseTable[] tables = new FseTable[3];
+  private final BackwardBitReader reader = new BackwardBitReader();
+  private boolean hasHuffmanTable;
+  private int repeatOffset1;
+  private int repeatOffset2;
+  private int repeatOffset3;
+
+  // Where the current block's literals are
+  private byte[] literals = literalsBuffer;
+  private int literalsOffset;
+  private int literalsLength;
+
+  CompressedBlockDecoder() {
+    reset();
+  }
+
+  /** Prepares for decoding a new frame. */
+  void reset() {
+    hasHuffmanTable = false;
+    Arrays.fill(tables, null);
+    repeatOffset1 = 1;
+    repeatOffset2 = 4;
+    repeatOffset3 = 8;
+  }
+
+  /**
+   * Decodes the block in {@code source[offset, limit)} to the given window, which must have room
+   * for at least {@code maxOutputSize} bytes.
+   */
+  void decode(byte[] source, int offset, int limit, OutputWindow window, int maxOutputSize)
+      throws IOException {
+    int position = decodeLiterals(source, offset, limit);
+    decodeSequences(source, position, limit, window, window.position + maxOutputSize);
+  }
+
+  private int decodeLiterals(byte[] source, int offset, int limit) throws IOException {
+    checkAvailable(1, offset, limit);
+    int header = source[offset] & 0xFF;
+    int type = header & 3;
+    int sizeFormat = (header >>> 2) & 3;
+    if (type == LITERALS_RAW || type == LITERALS_RLE) {
+      int headerSize;
+      int size;
+      switch (sizeFormat) {
+        case 1:
+          headerSize = 2;
+          checkAvailable(headerSize, offset, limit);
+          size = (header >>> 4) + ((source[offset + 1] & 0xFF) << 4);
+          break;
+        case 3:
+          headerSize = 3;
+          checkAvailable(headerSize, offset, limit);
+          size =
+              (header >>> 4)
+                  + ((source[offset + 1] & 0xFF) << 4)
+                  + ((source[offset + 2] & 0xFF) << 12);
+          break;
+        default:
+          headerSize = 1;
+          size = header >>> 3;
+          break;
+      }
+      if (size > MAX_BLOCK_SIZE) {
+        throw new ZstdException("literals size exceeds block maximum");
+      }
+
+      int position = offset + headerSize;
+      literalsLength = size;
+      if (type == LITERALS_RAW) {
+        checkAvailable(size, position, limit);
+        literals = source;
+        literalsOffset = position;
+        return position + size;
+      } else {
+        checkAvailable(1, position, limit);
+        Arrays.fill(literalsBuffer, 0, size, source[position]);
+        literals = literalsBuffer;
+        literalsOffset = 0;
+        return position + 1;
+      }
+    }
+
+    // Huffman-coded literals, either with a new table or with the previous block's (treeless)
+    int headerSize = sizeFormat < 2 ? 3 : sizeFormat + 2;
+    checkAvailable(headerSize, offset, limit);
+    long sizes = 0;
+    for (int i = headerSize - 1; i >= 0; i--) {
+      sizes = (sizes << Byte.SIZE) | (source[offset + i] & 0xFF);
+    }
+    int sizeBits = sizeFormat < 2 ? 10 : (sizeFormat == 2 ? 14 : 18);
+    int sizeMask = (1 << sizeBits) - 1;
+    int regeneratedSize = (int) (sizes >>> 4) & sizeMask;
+    int compressedSize = (int) (sizes >>> (4 + sizeBits)) & sizeMask;
+    if (regeneratedSize > MAX_BLOCK_SIZE) {
+      throw new ZstdException("literals size exceeds block maximum");
+    }
+
+    int position = offset + headerSize;
+    checkAvailable(compressedSize, position, limit);
+    int end = position + compressedSize;
+    if (type == LITERALS_COMPRESSED) {
+      position += huffmanTable.read(source, position, end);
+      hasHuffmanTable = true;
+    } else if (!hasHuffmanTable) {
+      throw new ZstdException("treeless literals without a previous Huffman table");
+    }
+
+    if (sizeFormat == 0) {
+      huffmanTable.decodeStream(source, position, end, literalsBuffer, 0, regeneratedSize);
+    } else {
+      // 4 streams preceded by a jump table of the first 3 streams' sizes
+      checkAvailable(6, position, end);
+      int size1 = readUShort(source, position);
+      int size2 = readUShort(source, position + 2);
+      int size3 = readUShort(source, position + 4);
+      int start1 = position + 6;
+      int start2 = start1 + size1;
+      int start3 = start2 + size2;
+      int start4 = start3 + size3;
+      int segmentSize = (regeneratedSize + 3) / 4;
+      if (start4 >= end || 3 * segmentSize > regeneratedSize) {
+        throw new ZstdException("corrupt Huffman-coded literals");
+      }
+
+      var table = huffmanTable;
+      table.decodeStream(source, start1, start2, literalsBuffer, 0, segmentSize);
+      table.decodeStream(source, start2, start3, literalsBuffer, segmentSize, 2 * segmentSize);
+      table.decodeStream(
+          source, start3, start4, literalsBuffer, 2 * segmentSize, 3 * segmentSize);
+      table.decodeStream(source, start4, end, literalsBuffer, 3 * segmentSize, regeneratedSize);
+    }
+    literals = literalsBuffer;
+    literalsOffset = 0;
+    literalsLength = regeneratedSize;
+    return end;
+  }
+
+  private void decodeSequences(
+      byte[] source, int offset, int limit, OutputWindow window, int outputLimit)
+      throws IOException {
+    checkAvailable(1, offset, limit);
+    int position = offset;
+    int header = source[position++] & 0xFF;
+    int sequenceCount;
+    if (header < 128) {
+      sequenceCount = header;
+    } else if (header < 255) {
+      checkAvailable(1, position, limit);
+      sequenceCount = ((header - 128) << 8) + (source[position++] & 0xFF);
+    } else {
+      checkAvailable(2, position, limit);
+      sequenceCount = readUShort(source, position) + 0x7F00;
+      position += 2;
+    }
+
+    if (sequenceCount == 0) {
+      // The block's content is entirely made of literals
+      if (position != limit) {
+        throw new ZstdException("corrupt sequences section");
+      }
+    } else {
+      checkAvailable(1, position, limit);
+      int modes = source[position++] & 0xFF;
+      if ((modes & 3) != 0) {
+        throw new ZstdException("reserved bits set in symbol compression modes");
+      }
+      position = readTable(LITERAL_LENGTHS, modes >>> 6, source, position, limit);
+      position = readTable(OFFSETS, (modes >>> 4) & 3, source, position, limit);
+      position = readTable(MATCH_LENGTHS, (modes >>> 2) & 3, source, position, limit);
+    }
+
+    byte[] output = window.buffer;
+    int outputPosition = window.position;
+    byte[] literals = this.literals;
+    int literalsPosition = literalsOffset;
+    int literalsLimit = literalsOffset + literalsLength;
+    if (sequenceCount > 0) {
+      var literalLengths = castNonNull(tables[LITERAL_LENGTHS]);
+      var offsets = castNonNull(tables[OFFSETS]);
+      var matchLengths = castNonNull(tables[MATCH_LENGTHS]);
+      var reader = this.reader.reset(source, position, limit);
+      int literalLengthState = reader.readInt(literalLengths.accuracyLog);
+      int offsetState = reader.readInt(offsets.accuracyLog);
+      int matchLengthState = reader.readInt(matchLengths.accuracyLog);
+      int repeatOffset1 = this.repeatOffset1;
+      int repeatOffset2 = this.repeatOffset2;
+      int repeatOffset3 = this.repeatOffset3;
+      for (int i = 0; i < sequenceCount; i++) {
+        int offsetCode = offsets.symbols[offsetState];
+        int matchLengthCode = matchLengths.symbols[matchLengthState];
+        int literalLengthCode = literalLengths.symbols[literalLengthState];
+        long offsetValue = (1L << offsetCode) + reader.readBits(offsetCode);
+        int matchLength =
+            MATCH_LENGTH_BASELINES[matchLengthCode]
+                + reader.readInt(MATCH_LENGTH_BITS[matchLengthCode]);
+        int literalLength =
+            LITERAL_LENGTH_BASELINES[literalLengthCode]
+                + reader.readInt(LITERAL_LENGTH_BITS[literalLengthCode]);
+
+        long matchOffset;
+        if (offsetValue > 3) {
+          matchOffset = offsetValue - 3;
+          repeatOffset3 = repeatOffset2;
+          repeatOffset2 = repeatOffset1;
+        } else {
+          // A zero literal length shifts the repeat offset index by 1
+          int index = (int) offsetValue - (literalLength != 0 ? 1 : 0);
+          if (index == 0) {
+            matchOffset = repeatOffset1;
+          } else if (index == 1) {
+            matchOffset = repeatOffset2;
+            repeatOffset2 = repeatOffset1;
+          } else {
+            matchOffset = index == 2 ? repeatOffset3 : repeatOffset1 - 1;
+            repeatOffset3 = repeatOffset2;
+            repeatOffset2 = repeatOffset1;
+          }
+        }
+
+        if (i < sequenceCount - 1) {
+          literalLengthState =
+              literalLengths.baselines[literalLengthState]
+                  + reader.readInt(literalLengths.bitCounts[literalLengthState]);
+          matchLengthState =
+              matchLengths.baselines[matchLengthState]
+                  + reader.readInt(matchLengths.bitCounts[matchLengthState]);
+          offsetState =
+              offsets.baselines[offsetState] + reader.readInt(offsets.bitCounts[offsetState]);
+        }
+
+        // Execute the sequence
+        if (literalLength > literalsLimit - literalsPosition
+            || literalLength + matchLength > outputLimit - outputPosition) {
+          throw new ZstdException("corrupt sequence lengths");
+        }
+        System.arraycopy(literals, literalsPosition, output, outputPosition, literalLength);
+        literalsPosition += literalLength;
+        outputPosition += literalLength;
+        if (matchOffset <= 0 || matchOffset > outputPosition) {
+          throw new ZstdException("corrupt match offset: " + matchOffset);
+        }
+        repeatOffset1 = (int) matchOffset;
+        copyMatch(output, outputPosition, repeatOffset1, matchLength);
+        outputPosition += matchLength;
+      }
+
+      if (!reader.isFullyConsumed()) {
+        throw new ZstdException("corrupt sequences bit stream");
+      }
+      this.repeatOffset1 = repeatOffset1;
+      this.repeatOffset2 = repeatOffset2;
+      this.repeatOffset3 = repeatOffset3;
+    }
+
+    // Copy remaining literals
+    int remaining = literalsLimit - literalsPosition;
+    if (remaining > outputLimit - outputPosition) {
+      throw new ZstdException("block exceeds maximum size");
+    }
+    System.arraycopy(literals, literalsPosition, output, outputPosition, remaining);
+    window.position = outputPosition + remaining;
+  }
+
+  private int readTable(int index, int mode, byte[] source, int offset, int limit)
+      throws IOException {
+    switch (mode) {
+      case MODE_PREDEFINED:
+        tables[index] = PREDEFINED_TABLES[index];
+        return offset;
+
+      case MODE_RLE:
+        checkAvailable(1, offset, limit);
+        int symbol = source[offset] & 0xFF;
+        if (symbol > MAX_SYMBOLS[index]) {
+          throw new ZstdException("corrupt RLE symbol: " + symbol);
+        }
+        tables[index] = ownTables[index].buildRle(symbol);
+        return offset + 1;
+
+      case MODE_COMPRESSED:
+        var table = ownTables[index];
+        int size =
+            table.read(source, offset, limit, MAX_SYMBOLS[index], MAX_ACCURACY_LOGS[index]);
+        tables[index] = table;
+        return offset + size;
+
+      default: // Repeat mode
+        if (tables[index] == null) {
+          throw new ZstdException("repeat mode without a previous table");
+        }
+        return offset;
+    }
+  }
+
+  /** Copies a match that may overlap with its destination, repeating its bytes in that case. */
+  private static void copyMatch(byte[] buffer, int position, int offset, int length) {
+    int source = position - offset;
+    if (offset >= length) {
+      System.arraycopy(buffer, source, buffer, position, length);
+      return;
+    }
+
+    // The copied region is periodic with the offset, so copies can double in size each time
+    int copied = 0;
+    while (copied < length) {
+      int chunk = Math.min(position + copied - source, length - copied);
+      System.arraycopy(buffer, source, buffer, position + copied, chunk);
+      copied += chunk;
+    }
+  }
+
+  private static int readUShort(byte[] source, int offset) {
+    return (source[offset] & 0xFF) | ((source[offset + 1] & 0xFF) << 8);
+  }
+
+  private static void checkAvailable(int bytes, int offset, int limit) throws ZstdException {
+    if (bytes > limit - offset) {
+      throw new ZstdException("corrupt zstd block");
+    }
+  }
+
+  private static FseTable castNonNull(@Nullable FseTable table) {
+    assert table != null;
+    return table;
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+/**
+ * A decoding table for Finite State Entropy (tANS) coded symbols. A state indexes the table for the
+ * decoded symbol, and the next state is the entry's baseline plus its number of bits read from the
+ * stream.
+ */
+final class FseTable {
+  private static final int MIN_ACCURACY_LOG = 5;
+  private static final int MAX_SYMBOL = 255;
+
+  final byte[] symbols;
+  final byte[] bitCounts;
+  final int[] baselines;
+  int accuracyLog;
+
+  private final short[] counts = new short[MAX_SYMBOL + 1];
+
+  FseTable(int maxAccuracyLog) {
+    int maxTableSize = 1 << maxAccuracyLog;
+    symbols = new byte[maxTableSize];
+    bitCounts = new byte[maxTableSize];
+    baselines = new int[maxTableSize];
+  }
+
+  /**
+   * Initializes this table from the FSE table description starting at {@code source[offset]},
+   * returning the description's size in bytes.
+   */
+  int read(byte[] source, int offset, int limit, int maxSymbol, int maxAccuracyLog)
+      throws ZstdException {
+    var bits = new ForwardBits(source, offset, limit);
+    int accuracyLog = bits.read(4) + MIN_ACCURACY_LOG;
+    if (accuracyLog > maxAccuracyLog) {
+      throw new ZstdException("FSE accuracy log too large: " + accuracyLog);
+    }
+
+    int remaining = (1 << accuracyLog) + 1;
+    int threshold = 1 << accuracyLog;
+    int bitCount = accuracyLog + 1;
+    int symbol = 0;
+    boolean previousZero = false;
+    while (remaining > 1 && symbol <= maxSymbol) {
+      if (previousZero) {
+        // A zero count is followed by 2-bit repeat flags for further zero counts
+        int nextSymbol = symbol;
+        int repeat;
+        while ((repeat = bits.read(2)) == 3) {
+          nextSymbol += 3;
+        }
+        nextSymbol += repeat;
+        if (nextSymbol > maxSymbol) {
+          throw new ZstdException("corrupt FSE table description");
+        }
+        while (symbol < nextSymbol) {
+          counts[symbol++] = 0;
+        }
+      }
+
+      int max = (2 * threshold - 1) - remaining;
+      int value = bits.peek(bitCount);
+      int count;
+      if ((value & (threshold - 1)) < max) {
+        count = value & (threshold - 1);
+        bits.skip(bitCount - 1);
+      } else {
+        count = value & (2 * threshold - 1);
+        if (count >= threshold) {
+          count -= max;
+        }
+        bits.skip(bitCount);
+      }
+      count--; // A count of -1 denotes a "less than 1" probability
+      remaining -= Math.abs(count);
+      if (remaining < 1) {
+        throw new ZstdException("corrupt FSE table description");
+      }
+      counts[symbol++] = (short) count;
+      previousZero = count == 0;
+      while (remaining < threshold) {
+        bitCount--;
+        threshold >>>= 1;
+      }
+    }
+
+    int size = bits.bytesRead();
+    if (remaining != 1 || size > limit - offset) {
+      throw new ZstdException("corrupt FSE table description");
+    }
+    build(counts, symbol, accuracyLog);
+    return size;
+  }
+
+  /** Initializes this table from the given normalized counts, where -1 is a "less than 1" count. */
+  FseTable build(short[] counts, int symbolCount, int accuracyLog) {
+    this.accuracyLog = accuracyLog;
+    int tableSize = 1 << accuracyLog;
+    int[] nextStates = new int[symbolCount];
+
+    // "Less than 1" symbols are placed at the end of the table
+    int highThreshold = tableSize - 1;
+    for (int s = 0; s < symbolCount; s++) {
+      if (counts[s] == -1) {
+        symbols[highThreshold--] = (byte) s;
+        nextStates[s] = 1;
+      } else {
+        nextStates[s] = counts[s];
+      }
+    }
+
+    // Spread remaining symbols
+    int mask = tableSize - 1;
+    int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+    int position = 0;
+    for (int s = 0; s < symbolCount; s++) {
+      for (int i = 0; i < counts[s]; i++) {
+        symbols[position] = (byte) s;
+        do {
+          position = (position + step) & mask;
+        } while (position > highThreshold);
+      }
+    }
+
+    for (int state = 0; state < tableSize; state++) {
+      int symbol = symbols[state] & 0xFF;
+      int nextState = nextStates[symbol]++;
+      int bitCount = accuracyLog - (31 - Integer.numberOfLeadingZeros(nextState));
+      bitCounts[state] = (byte) bitCount;
+      baselines[state] = (nextState << bitCount) - tableSize;
+    }
+    return this;
+  }
+
+  /** Initializes this table to always decode the given symbol without reading any bits. */
+  FseTable buildRle(int symbol) {
+    accuracyLog = 0;
+    symbols[0] = (byte) symbol;
+    bitCounts[0] = 0;
+    baselines[0] = 0;
+    return this;
+  }
+
+  /** Returns a table built from the given predefined distribution. */
+  static FseTable predefined(short[] counts, int accuracyLog) {
+    return new FseTable(accuracyLog).build(counts, counts.length, accuracyLog);
+  }
+
+  /** Reads bits in little-endian order, where bits past the limit are read as zeros. */
+  private static final class ForwardBits {
+    private final byte[] source;
+    private final int offset;
+    private final int limit;
+    private long position;
+
+    ForwardBits(byte[] source, int offset, int limit) {
+      this.source = source;
+      this.offset = offset;
+      this.limit = limit;
+    }
+
+    int peek(int bitCount) {
+      int index = offset + (int) (position >>> 3);
+      long word = 0;
+      for (int i = Math.min(index + Integer.BYTES, limit) - 1; i >= index; i--) {
+        word = (word << Byte.SIZE) | (source[i] & 0xFF);
+      }
+      return (int) ((word >>> (position & 7)) & ((1L << bitCount) - 1));
+    }
+
+    void skip(int bitCount) {
+      position += bitCount;
+    }
+
+    int read(int bitCount) {
+      int bits = peek(bitCount);
+      position += bitCount;
+      return bits;
+    }
+
+    int bytesRead() {
+      return (int) ((position + 7) >>> 3);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import java.io.IOException;
+
+/** A decoding table for Huffman-coded literals, indexed by the next {@code maxBits} of a stream. */
+final class HuffmanTable {
+  private static final int MAX_BITS = 11;
+  private static final int MAX_SYMBOL = 255;
+  private static final int MAX_WEIGHTS_ACCURACY_LOG = 6;
+
+  private final byte[] symbols = new byte[1 << MAX_BITS];
+  private final byte[] bitCounts = new byte[1 << MAX_BITS];
+  private final byte[] weights = new byte[MAX_SYMBOL + 1];
+  private final int[] rankStarts = new int[MAX_BITS + 2];
+  private final FseTable weightsTable = new FseTable(MAX_WEIGHTS_ACCURACY_LOG);
+  private final BackwardBitReader reader = new BackwardBitReader();
+  private int maxBits;
+
+  HuffmanTable() {}
+
+  /**
+   * Initializes this table from the Huffman tree description starting at {@code source[offset]},
+   * returning the description's size in bytes.
+   */
+  int read(byte[] source, int offset, int limit) throws IOException {
+    if (offset >= limit) {
+      throw new ZstdException("missing Huffman tree description");
+    }
+    int header = source[offset] & 0xFF;
+    int weightCount;
+    int size;
+    if (header < 128) {
+      // Weights are FSE-compressed in the following header bytes
+      size = 1 + header;
+      if (size > limit - offset) {
+        throw new ZstdException("corrupt Huffman tree description");
+      }
+      weightCount = readCompressedWeights(source, offset + 1, offset + size);
+      if (weightCount > MAX_SYMBOL) {
+        throw new ZstdException("too many Huffman weights");
+      }
+    } else {
+      // Weights are directly represented as 4-bit values
+      weightCount = header - 127;
+      size = 1 + (weightCount + 1) / 2;
+      if (size > limit - offset) {
+        throw new ZstdException("corrupt Huffman tree description");
+      }
+      for (int i = 0; i < weightCount; i++) {
+        int b = source[offset + 1 + i / 2];
+        weights[i] = (byte) ((i & 1) == 0 ? (b >>> 4) & 0xF : b & 0xF);
+      }
+    }
+    build(weightCount);
+    return size;
+  }
+
+  /** Decodes a single Huffman-coded stream in {@code source[offset, limit)}. */
+  void decodeStream(
+      byte[] source, int offset, int limit, byte[] output, int outputOffset, int outputLimit)
+      throws IOException {
+    var reader = this.reader.reset(source, offset, limit);
+    int maxBits = this.maxBits;
+    byte[] symbols = this.symbols;
+    byte[] bitCounts = this.bitCounts;
+    for (int i = outputOffset; i < outputLimit; i++) {
+      int index = (int) reader.peekBits(maxBits);
+      output[i] = symbols[index];
+      reader.skipBits(bitCounts[index]);
+    }
+    if (!reader.isFullyConsumed()) {
+      throw new ZstdException("corrupt Huffman-coded literals");
+    }
+  }
+
+  private int readCompressedWeights(byte[] source, int offset, int limit) throws IOException {
+    int tableSize = weightsTable.read(source, offset, limit, MAX_BITS, MAX_WEIGHTS_ACCURACY_LOG);
+
+    // Weights are decoded by two interleaved states sharing the same stream
+    var table = weightsTable;
+    var reader = this.reader.reset(source, offset + tableSize, limit);
+    int state1 = reader.readInt(table.accuracyLog);
+    int state2 = reader.readInt(table.accuracyLog);
+    int count = 0;
+    while (true) {
+      if (count > MAX_SYMBOL - 2) { // Leave room for up to 3 weights in this iteration
+        throw new ZstdException("too many Huffman weights");
+      }
+
+      weights[count++] = table.symbols[state1];
+      state1 = table.baselines[state1] + reader.readInt(table.bitCounts[state1]);
+      if (reader.overflowed()) {
+        weights[count++] = table.symbols[state2];
+        break;
+      }
+
+      weights[count++] = table.symbols[state2];
+      state2 = table.baselines[state2] + reader.readInt(table.bitCounts[state2]);
+      if (reader.overflowed()) {
+        weights[count++] = table.symbols[state1];
+        break;
+      }
+    }
+    return count;
+  }
+
+  private void build(int weightCount) throws ZstdException {
+    // The last symbol's weight is implied by the others as they must sum to a power of 2
+    int weightTotal = 0;
+    int[] rankCounts = new int[MAX_BITS + 1];
+    for (int i = 0; i < weightCount; i++) {
+      int weight = weights[i];
+      if (weight > MAX_BITS) {
+        throw new ZstdException("corrupt Huffman tree description");
+      }
+      rankCounts[weight]++;
+      if (weight > 0) {
+        weightTotal += 1 << (weight - 1);
+      }
+    }
+    if (weightTotal == 0) {
+      throw new ZstdException("corrupt Huffman tree description");
+    }
+
+    int maxBits = 32 - Integer.numberOfLeadingZeros(weightTotal);
+    int rest = (1 << maxBits) - weightTotal;
+    if (maxBits > MAX_BITS || Integer.bitCount(rest) != 1) {
+      throw new ZstdException("corrupt Huffman tree description");
+    }
+    int lastWeight = 32 - Integer.numberOfLeadingZeros(rest);
+    weights[weightCount] = (byte) lastWeight;
+    rankCounts[lastWeight]++;
+    this.maxBits = maxBits;
+
+    // Symbols are sorted by weight then by value, with each taking 2^(weight - 1) entries
+    int nextStart = 0;
+    for (int weight = 1; weight <= maxBits; weight++) {
+      rankStarts[weight] = nextStart;
+      nextStart += rankCounts[weight] << (weight - 1);
+    }
+    for (int symbol = 0; symbol <= weightCount; symbol++) {
+      int weight = weights[symbol];
+      if (weight > 0) {
+        int start = rankStarts[weight];
+        int length = 1 << (weight - 1);
+        byte bitCount = (byte) (maxBits + 1 - weight);
+        for (int i = start; i < start + length; i++) {
+          symbols[i] = (byte) symbol;
+          bitCounts[i] = bitCount;
+        }
+        rankStarts[weight] = start + length;
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import java.util.Arrays;
+
+/**
+ * A frame's decompressed output, retaining at least a window's worth of history for matches to
+ * refer to. The buffer grows lazily up to about twice the window size, after which bytes that fall
+ * out of the window are discarded by moving the window's content to the start of the buffer. This
+ * way, each output byte is moved at most once on average.
+ */
+final class OutputWindow {
+  byte[] buffer = new byte[0];
+  int position;
+  private int windowSize;
+
+  OutputWindow() {}
+
+  void reset(int windowSize) {
+    this.windowSize = windowSize;
+    position = 0;
+  }
+
+  /** Makes room for writing at least {@code bytes} bytes after the current position. */
+  void reserve(int bytes) {
+    if (buffer.length - position >= bytes) {
+      return;
+    }
+
+    if (position > windowSize) {
+      System.arraycopy(buffer, position - windowSize, buffer, 0, windowSize);
+      position = windowSize;
+      if (buffer.length - position >= bytes) {
+        return;
+      }
+    }
+
+    int maxCapacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * windowSize + bytes);
+    int newCapacity = Math.max(position + bytes, (int) Math.min(2L * buffer.length, maxCapacity));
+    buffer = Arrays.copyOf(buffer, newCapacity);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/** Streaming XXH64 with a zero seed, which zstd uses for frame checksums. */
+final class XxHash64 {
+  private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME64_3 = 0x165667B19E3779F9L;
+  private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+  private static final int STRIPE_SIZE = 32;
+
+  private static final VarHandle LONG_LE =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT_LE =
+      MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final byte[] stripe = new byte[STRIPE_SIZE];
+  private int stripeLength;
+  private long totalLength;
+  private long v1;
+  private long v2;
+  private long v3;
+  private long v4;
+
+  XxHash64() {
+    reset();
+  }
+
+  void reset() {
+    v1 = PRIME64_1 + PRIME64_2;
+    v2 = PRIME64_2;
+    v3 = 0;
+    v4 = -PRIME64_1;
+    stripeLength = 0;
+    totalLength = 0;
+  }
+
+  void update(byte[] input, int offset, int length) {
+    totalLength += length;
+    int limit = offset + length;
+    if (stripeLength > 0) {
+      int copied = Math.min(length, STRIPE_SIZE - stripeLength);
+      System.arraycopy(input, offset, stripe, stripeLength, copied);
+      stripeLength += copied;
+      offset += copied;
+      if (stripeLength < STRIPE_SIZE) {
+        return;
+      }
+      consumeStripe(stripe, 0);
+      stripeLength = 0;
+    }
+
+    for (; offset <= limit - STRIPE_SIZE; offset += STRIPE_SIZE) {
+      consumeStripe(input, offset);
+    }
+
+    if (offset < limit) {
+      stripeLength = limit - offset;
+      System.arraycopy(input, offset, stripe, 0, stripeLength);
+    }
+  }
+
+  long digest() {
+    long hash;
+    if (totalLength >= STRIPE_SIZE) {
+      hash =
+          Long.rotateLeft(v1, 1)
+              + Long.rotateLeft(v2, 7)
+              + Long.rotateLeft(v3, 12)
+              + Long.rotateLeft(v4, 18);
+      hash = mergeRound(hash, v1);
+      hash = mergeRound(hash, v2);
+      hash = mergeRound(hash, v3);
+      hash = mergeRound(hash, v4);
+    } else {
+      hash = PRIME64_5;
+    }
+    hash += totalLength;
+
+    int offset = 0;
+    for (; offset <= stripeLength - Long.BYTES; offset += Long.BYTES) {
+      hash ^= round(0, (long) LONG_LE.get(stripe, offset));
+      hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+    }
+    if (offset <= stripeLength - Integer.BYTES) {
+      hash ^= (Integer.toUnsignedLong((int) INT_LE.get(stripe, offset))) * PRIME64_1;
+      hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+      offset += Integer.BYTES;
+    }
+    for (; offset < stripeLength; offset++) {
+      hash ^= (stripe[offset] & 0xFF) * PRIME64_5;
+      hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= PRIME64_2;
+    hash ^= hash >>> 29;
+    hash *= PRIME64_3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  private void consumeStripe(byte[] input, int offset) {
+    v1 = round(v1, (long) LONG_LE.get(input, offset));
+    v2 = round(v2, (long) LONG_LE.get(input, offset + 8));
+    v3 = round(v3, (long) LONG_LE.get(input, offset + 16));
+    v4 = round(v4, (long) LONG_LE.get(input, offset + 24));
+  }
+
+  private static long round(long accumulator, long input) {
+    accumulator += input * PRIME64_2;
+    accumulator = Long.rotateLeft(accumulator, 31);
+    return accumulator * PRIME64_1;
+  }
+
+  private static long mergeRound(long accumulator, long value) {
+    accumulator ^= round(0, value);
+    return accumulator * PRIME64_1 + PRIME64_4;
+  }
+}
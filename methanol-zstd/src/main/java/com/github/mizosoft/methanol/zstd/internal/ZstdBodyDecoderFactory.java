@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import com.github.mizosoft.methanol.BodyDecoder;
+import com.github.mizosoft.methanol.decoder.AsyncBodyDecoder;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.util.concurrent.Executor;
+
+/**
+ * {@code BodyDecoder.Factory} provider for zstd encoding. Decoders are pure-Java, and reject frames
+ * with windows larger than {@value #DEFAULT_MAX_WINDOW_SIZE} bytes (the limit that RFC 9659
+ * requires for the {@code zstd} content coding) unless otherwise specified by the system property
+ * {@code com.github.mizosoft.methanol.zstd.maxWindowSize}.
+ */
+public final class ZstdBodyDecoderFactory implements BodyDecoder.Factory {
+  static final String ZSTD_ENCODING = "zstd";
+  static final int DEFAULT_MAX_WINDOW_SIZE = 8 * 1024 * 1024;
+
+  private static final String MAX_WINDOW_SIZE_PROP =
+      "com.github.mizosoft.methanol.zstd.maxWindowSize";
+
+  private final int maxWindowSize;
+
+  /**
+   * Creates a new {@code ZstdBodyDecoderFactory}. Meant to be called by the {@code ServiceLoader}
+   * class.
+   */
+  public ZstdBodyDecoderFactory() {
+    this.maxWindowSize = loadMaxWindowSize();
+  }
+
+  @Override
+  public String encoding() {
+    return ZSTD_ENCODING;
+  }
+
+  @Override
+  public <T> BodyDecoder<T> create(BodySubscriber<T> downstream) {
+    return new AsyncBodyDecoder<>(new ZstdDecoder(maxWindowSize), downstream);
+  }
+
+  @Override
+  public <T> BodyDecoder<T> create(BodySubscriber<T> downstream, Executor executor) {
+    return new AsyncBodyDecoder<>(new ZstdDecoder(maxWindowSize), downstream, executor);
+  }
+
+  private static int loadMaxWindowSize() {
+    int maxWindowSize = Integer.getInteger(MAX_WINDOW_SIZE_PROP, DEFAULT_MAX_WINDOW_SIZE);
+    if (maxWindowSize <= 0) {
+      return DEFAULT_MAX_WINDOW_SIZE;
+    }
+    return maxWindowSize;
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import static java.lang.String.format;
+
+import com.github.mizosoft.methanol.decoder.AsyncDecoder;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+/**
+ * {@code AsyncDecoder} for zstd (RFC 8878). Raw & RLE blocks are decoded as their bytes arrive,
+ * while compressed blocks (which are at most 128 KB) are buffered till they're complete. The
+ * decoder rejects frames that require dictionaries or windows larger than {@value
+ * ZstdBodyDecoderFactory#DEFAULT_MAX_WINDOW_SIZE} bytes unless otherwise specified by the system
+ * property {@code com.github.mizosoft.methanol.zstd.maxWindowSize}.
+ */
+final class ZstdDecoder implements AsyncDecoder {
+  private static final int FRAME_MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_FRAME_MAGIC = 0x184D2A50;
+  private static final int SKIPPABLE_FRAME_MAGIC_MASK = 0xFFFFFFF0;
+  private static final int MAGIC_SIZE = 4;
+  private static final int BLOCK_HEADER_SIZE = 3;
+  private static final int CHECKSUM_SIZE = 4;
+  private static final int MIN_WINDOW_LOG = 10;
+
+  private static final int[] DICTIONARY_ID_SIZES = {0, 1, 2, 4};
+
+  private static final int BLOCK_RAW = 0;
+  private static final int BLOCK_RLE = 1;
+  private static final int BLOCK_COMPRESSED = 2;
+
+  private final int maxWindowSize;
+  private final ByteBuffer tempBuffer = ByteBuffer.allocate(Long.BYTES);
+  private final OutputWindow window = new OutputWindow();
+  private final XxHash64 hash = new XxHash64();
+  private @MonotonicNonNull CompressedBlockDecoder blockDecoder;
+  private byte @MonotonicNonNull [] blockBuffer;
+  private State state = State.MAGIC;
+  private int frameCount;
+
+  // Frame-related stuff
+  private int frameHeaderDescriptor;
+  private int frameHeaderSize;
+  private boolean hasChecksum;
+  private long contentSize;
+  private long decodedSize;
+  private int maxBlockSize;
+
+  // Block-related stuff
+  private boolean lastBlock;
+  private int blockSize;
+  private int blockPosition;
+
+  ZstdDecoder(int maxWindowSize) {
+    this.maxWindowSize = maxWindowSize;
+  }
+
+  @Override
+  public String encoding() {
+    return ZstdBodyDecoderFactory.ZSTD_ENCODING;
+  }
+
+  @Override
+  public void decode(ByteSource source, ByteSink sink) throws IOException {
+    outerLoop:
+    while (state != State.END) {
+      switch (state) {
+        case MAGIC:
+          if (source.remaining() < MAGIC_SIZE) {
+            break outerLoop;
+          }
+          int magic = (int) getUnsigned(source, MAGIC_SIZE);
+          if (magic == FRAME_MAGIC) {
+            state = State.FRAME_HEADER_DESCRIPTOR;
+          } else if ((magic & SKIPPABLE_FRAME_MAGIC_MASK) == SKIPPABLE_FRAME_MAGIC) {
+            state = State.SKIPPABLE_FRAME_SIZE;
+          } else if (frameCount == 0) {
+            throw new ZstdException("not in zstd format");
+          } else {
+            throw new IOException("zstd stream finished prematurely");
+          }
+          break;
+
+        case SKIPPABLE_FRAME_SIZE:
+          if (source.remaining() < Integer.BYTES) {
+            break outerLoop;
+          }
+          blockSize = (int) Math.min(getUnsigned(source, Integer.BYTES), Integer.MAX_VALUE);
+          blockPosition = 0;
+          state = State.SKIPPABLE_FRAME_DATA;
+          // fallthrough
+
+        case SKIPPABLE_FRAME_DATA:
+          if (!trySkipFrame(source)) {
+            break outerLoop;
+          }
+          endFrame();
+          break;
+
+        case FRAME_HEADER_DESCRIPTOR:
+          if (!source.hasRemaining()) {
+            break outerLoop;
+          }
+          readFrameHeaderDescriptor(source);
+          state = State.FRAME_HEADER;
+          // fallthrough
+
+        case FRAME_HEADER:
+          if (source.remaining() < frameHeaderSize) {
+            break outerLoop;
+          }
+          readFrameHeader(source);
+          state = State.BLOCK_HEADER;
+          // fallthrough
+
+        case BLOCK_HEADER:
+          if (source.remaining() < BLOCK_HEADER_SIZE) {
+            break outerLoop;
+          }
+          state = readBlockHeader(source);
+          break;
+
+        case RAW_BLOCK:
+          if (!tryDecodeRawBlock(source, sink)) {
+            break outerLoop;
+          }
+          endBlock();
+          break;
+
+        case RLE_BLOCK:
+          if (!source.hasRemaining()) {
+            break outerLoop;
+          }
+          decodeRleBlock(source, sink);
+          endBlock();
+          break;
+
+        case COMPRESSED_BLOCK:
+          if (!tryDecodeCompressedBlock(source, sink)) {
+            break outerLoop;
+          }
+          endBlock();
+          break;
+
+        case CHECKSUM:
+          if (source.remaining() < CHECKSUM_SIZE) {
+            break outerLoop;
+          }
+          long checksum = hash.digest() & 0xFFFFFFFFL; // Lower 32 bits of XXH64
+          long expectedChecksum = getUnsigned(source, CHECKSUM_SIZE);
+          if (checksum != expectedChecksum) {
+            throw new ZstdException(
+                format(
+                    "corrupt zstd stream (checksum); expected: %#x, found: %#x",
+                    expectedChecksum, checksum));
+          }
+          endFrame();
+          break;
+
+        default:
+          throw new AssertionError("unexpected state: " + state);
+      }
+    }
+
+    if (source.finalSource()) {
+      if (state == State.MAGIC && frameCount > 0) {
+        if (source.hasRemaining()) {
+          throw new IOException("zstd stream finished prematurely");
+        }
+        state = State.END;
+      } else if (state != State.END) {
+        throw new EOFException("unexpected end of zstd stream");
+      }
+    }
+  }
+
+  @Override
+  public void close() {}
+
+  private void readFrameHeaderDescriptor(ByteSource source) throws IOException {
+    // +-------------+------------+--------+----------+----------+---------------+
+    // | FCS_Flag(2) | Single(1)  | Unused | Reserved | Checksum | Dict_ID_Flag  |
+    // +-------------+------------+--------+----------+----------+---------------+
+    int descriptor = (int) getUnsigned(source, 1);
+    if ((descriptor & 0x08) != 0) {
+      throw new ZstdException("reserved bit set in frame header descriptor");
+    }
+    frameHeaderDescriptor = descriptor;
+    boolean singleSegment = isSingleSegment(descriptor);
+    frameHeaderSize =
+        (singleSegment ? 0 : 1)
+            + DICTIONARY_ID_SIZES[descriptor & 3]
+            + contentSizeFieldSize(descriptor >>> 6, singleSegment);
+  }
+
+  private void readFrameHeader(ByteSource source) throws IOException {
+    // +-------------------+-----------+-------------------+
+    // | Window_Descriptor | Dict_ID   | Frame_Content_Size |
+    // +-------------------+-----------+-------------------+
+    int descriptor = frameHeaderDescriptor;
+    boolean singleSegment = isSingleSegment(descriptor);
+    long windowSize = 0;
+    if (!singleSegment) {
+      int windowDescriptor = (int) getUnsigned(source, 1);
+      long windowBase = 1L << (MIN_WINDOW_LOG + (windowDescriptor >>> 3));
+      windowSize = windowBase + (windowBase >>> 3) * (windowDescriptor & 7);
+    }
+
+    int dictionaryIdSize = DICTIONARY_ID_SIZES[descriptor & 3];
+    if (dictionaryIdSize > 0 && getUnsigned(source, dictionaryIdSize) != 0) {
+      throw new ZstdException("zstd dictionaries are not supported");
+    }
+
+    int contentSizeFieldSize = contentSizeFieldSize(descriptor >>> 6, singleSegment);
+    if (contentSizeFieldSize > 0) {
+      contentSize = getUnsigned(source, contentSizeFieldSize);
+      if (contentSizeFieldSize == 2) {
+        contentSize += 256;
+      }
+    } else {
+      contentSize = -1;
+    }
+    if (singleSegment) {
+      windowSize = contentSize;
+    }
+
+    // contentSize is unsigned so it might've overflowed
+    if (windowSize < 0 || windowSize > maxWindowSize) {
+      throw new ZstdException(
+          format(
+              "window size exceeds maximum; %s > %d",
+              Long.toUnsignedString(windowSize), maxWindowSize));
+    }
+
+    hasChecksum = (descriptor & 0x04) != 0;
+    maxBlockSize = (int) Math.min(windowSize, CompressedBlockDecoder.MAX_BLOCK_SIZE);
+    decodedSize = 0;
+    window.reset((int) windowSize);
+    hash.reset();
+    if (blockDecoder != null) {
+      blockDecoder.reset();
+    }
+  }
+
+  private State readBlockHeader(ByteSource source) throws IOException {
+    // +------------+------------+-----------------+
+    // | Last_Block | Block_Type | Block_Size (21) |
+    // +------------+------------+-----------------+
+    int header = (int) getUnsigned(source, BLOCK_HEADER_SIZE);
+    lastBlock = (header & 1) != 0;
+    blockSize = header >>> 3;
+    blockPosition = 0;
+    if (blockSize > maxBlockSize) {
+      throw new ZstdException(
+          format("block size exceeds maximum; %d > %d", blockSize, maxBlockSize));
+    }
+
+    int blockType = (header >>> 1) & 3;
+    switch (blockType) {
+      case BLOCK_RAW:
+        return State.RAW_BLOCK;
+      case BLOCK_RLE:
+        return State.RLE_BLOCK;
+      case BLOCK_COMPRESSED:
+        return State.COMPRESSED_BLOCK;
+      default:
+        throw new ZstdException("reserved block type");
+    }
+  }
+
+  private boolean tryDecodeRawBlock(ByteSource source, ByteSink sink) {
+    while (source.hasRemaining() && blockPosition < blockSize) {
+      var in = source.currentSource();
+      int copied = Math.min(in.remaining(), blockSize - blockPosition);
+      window.reserve(copied);
+      in.get(window.buffer, window.position, copied);
+      window.position += copied;
+      blockPosition += copied;
+      flush(sink, window.position - copied);
+    }
+    return blockPosition >= blockSize;
+  }
+
+  private void decodeRleBlock(ByteSource source, ByteSink sink) {
+    byte value = (byte) getUnsigned(source, 1);
+    window.reserve(blockSize);
+    int start = window.position;
+    Arrays.fill(window.buffer, start, start + blockSize, value);
+    window.position += blockSize;
+    flush(sink, start);
+  }
+
+  private boolean tryDecodeCompressedBlock(ByteSource source, ByteSink sink) throws IOException {
+    var buffer = blockBuffer;
+    if (buffer == null) {
+      buffer = new byte[CompressedBlockDecoder.MAX_BLOCK_SIZE];
+      blockBuffer = buffer;
+    }
+    int pulled = (int) Math.min(source.remaining(), blockSize - blockPosition);
+    source.pullBytes(ByteBuffer.wrap(buffer, blockPosition, pulled));
+    blockPosition += pulled;
+    if (blockPosition < blockSize) {
+      return false;
+    }
+
+    var decoder = blockDecoder;
+    if (decoder == null) {
+      decoder = new CompressedBlockDecoder();
+      blockDecoder = decoder;
+    }
+    window.reserve(maxBlockSize);
+    int start = window.position;
+    decoder.decode(buffer, 0, blockSize, window, maxBlockSize);
+    flush(sink, start);
+    return true;
+  }
+
+  private boolean trySkipFrame(ByteSource source) {
+    while (source.hasRemaining() && blockPosition < blockSize) {
+      var in = source.currentSource();
+      int skipped = Math.min(in.remaining(), blockSize - blockPosition);
+      in.position(in.position() + skipped);
+      blockPosition += skipped;
+    }
+    return blockPosition >= blockSize;
+  }
+
+  /** Pushes the bytes written to the window since the given position. */
+  private void flush(ByteSink sink, int from) {
+    int length = window.position - from;
+    if (length > 0) {
+      if (hasChecksum) {
+        hash.update(window.buffer, from, length);
+      }
+      decodedSize += length;
+      sink.pushBytes(ByteBuffer.wrap(window.buffer, from, length));
+    }
+  }
+
+  private void endBlock() throws IOException {
+    if (!lastBlock) {
+      state = State.BLOCK_HEADER;
+      return;
+    }
+
+    if (contentSize >= 0 && decodedSize != contentSize) {
+      throw new ZstdException(
+          format(
+              "corrupt zstd stream (frame content size); expected: %d, found: %d",
+              contentSize, decodedSize));
+    }
+    if (hasChecksum) {
+      state = State.CHECKSUM;
+    } else {
+      endFrame();
+    }
+  }
+
+  private void endFrame() {
+    frameCount++;
+    state = State.MAGIC;
+  }
+
+  /** Reads an unsigned little-endian value of the given size. */
+  private long getUnsigned(ByteSource source, int bytes) {
+    var in = source.currentSource();
+    if (in.remaining() < bytes) {
+      source.pullBytes(tempBuffer.rewind().limit(bytes));
+      in = tempBuffer.rewind();
+    }
+    long value = 0;
+    for (int i = 0; i < bytes; i++) {
+      value |= (long) (in.get() & 0xFF) << (i * Byte.SIZE);
+    }
+    return value;
+  }
+
+  private static boolean isSingleSegment(int descriptor) {
+    return (descriptor & 0x20) != 0;
+  }
+
+  private static int contentSizeFieldSize(int flag, boolean singleSegment) {
+    return flag == 0 ? (singleSegment ? 1 : 0) : 1 << flag;
+  }
+
+  private enum State {
+    MAGIC,
+    SKIPPABLE_FRAME_SIZE,
+    SKIPPABLE_FRAME_DATA,
+    FRAME_HEADER_DESCRIPTOR,
+    FRAME_HEADER,
+    BLOCK_HEADER,
+    RAW_BLOCK,
+    RLE_BLOCK,
+    COMPRESSED_BLOCK,
+    CHECKSUM,
+    END
+  }
+}
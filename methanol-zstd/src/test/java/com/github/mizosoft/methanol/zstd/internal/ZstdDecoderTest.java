@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.zstd.internal;
+
+import static com.github.mizosoft.methanol.testutils.TestUtils.load;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mizosoft.methanol.testutils.dec.Decode;
+import com.github.mizosoft.methanol.testutils.dec.Decode.BuffSizeOption;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ZstdDecoderTest {
+  private static final int MAX_WINDOW_SIZE = ZstdBodyDecoderFactory.DEFAULT_MAX_WINDOW_SIZE;
+
+  // Generated with the reference zstd implementation from text(300_000) & random(20_000)
+  private static final String TEXT_LEVEL_1 = "/data/text_level1.zst"; // Streamed, with checksum
+  private static final String TEXT_LEVEL_19 = "/data/text_level19.zst"; // With content size
+  private static final String RANDOM = "/data/random.zst"; // Mostly raw blocks
+
+  @Test
+  void correctEncoding() {
+    assertEquals("zstd", new ZstdDecoder(MAX_WINDOW_SIZE).encoding());
+  }
+
+  @Test
+  void decodesCompressedBlocks() throws IOException {
+    byte[] text = text(300_000);
+    for (var location : new String[] {TEXT_LEVEL_1, TEXT_LEVEL_19}) {
+      byte[] compressed = load(ZstdDecoderTest.class, location);
+      for (var so : BuffSizeOption.values()) {
+        assertArrayEquals(text, Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), compressed, so));
+      }
+    }
+  }
+
+  @Test
+  void decodesRawBlocks() throws IOException {
+    byte[] random = random(20_000);
+    byte[] compressed = load(ZstdDecoderTest.class, RANDOM);
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(random, Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), compressed, so));
+    }
+  }
+
+  @Test
+  void decodesRleBlock() throws IOException {
+    byte[] frame = {
+      0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, // Magic
+      0x00, // Frame header descriptor
+      0x00, // Window descriptor (1 KB)
+      0x23, 0x03, 0x00, // Last RLE block of size 100
+      'a'
+    };
+    byte[] expected = new byte[100];
+    Arrays.fill(expected, (byte) 'a');
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(expected, Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), frame, so));
+    }
+  }
+
+  @Test
+  void decodesConcatenatedFrames() throws IOException {
+    byte[] text = text(300_000);
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_1);
+    byte[] concatenated = concat(compressed, compressed);
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(
+          concat(text, text), Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), concatenated, so));
+    }
+  }
+
+  @Test
+  void skipsSkippableFrames() throws IOException {
+    byte[] skippableFrame = {
+      0x5E, 0x2A, 0x4D, 0x18, // Magic
+      0x03, 0x00, 0x00, 0x00, // Frame size
+      1, 2, 3
+    };
+    byte[] text = text(300_000);
+    byte[] compressed =
+        concat(skippableFrame, load(ZstdDecoderTest.class, TEXT_LEVEL_19), skippableFrame);
+    for (var so : BuffSizeOption.values()) {
+      assertArrayEquals(text, Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), compressed, so));
+    }
+  }
+
+  @Test
+  void throwsOnBadChecksum() {
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_1);
+    compressed[compressed.length - 1] ^= 1;
+    for (var so : BuffSizeOption.values()) {
+      var t =
+          assertThrows(
+              ZstdException.class,
+              () -> Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), compressed, so));
+      assertTrue(t.getMessage().startsWith("corrupt zstd stream (checksum)"), t.getMessage());
+    }
+  }
+
+  @Test
+  void handlesCorruptBlocks() {
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_19);
+    var random = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      byte[] corrupt = compressed.clone();
+      corrupt[64 + random.nextInt(corrupt.length - 64)] ^= (byte) (1 + random.nextInt(255));
+      for (var so : BuffSizeOption.values()) {
+        // Corruption might go undetected without a checksum, but mustn't fail with anything
+        // other than an IOException
+        try {
+          Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), corrupt, so);
+        } catch (IOException ignored) {
+          // Expected
+        }
+      }
+    }
+  }
+
+  @Test
+  void throwsOnNonZstdStream() {
+    byte[] notZstd = "Pikachu".getBytes(US_ASCII);
+    for (var so : BuffSizeOption.values()) {
+      var t =
+          assertThrows(
+              ZstdException.class,
+              () -> Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), notZstd, so));
+      assertEquals("not in zstd format", t.getMessage());
+    }
+  }
+
+  @Test
+  void throwsOnOverflow() {
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_1);
+    byte[] overflowed = Arrays.copyOf(compressed, compressed.length + 2);
+    for (var so : BuffSizeOption.values()) {
+      var t =
+          assertThrows(
+              IOException.class,
+              () -> Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), overflowed, so));
+      assertEquals("zstd stream finished prematurely", t.getMessage());
+    }
+  }
+
+  @Test
+  void throwsOnUnderflow() {
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_1);
+    byte[] underflowed = Arrays.copyOf(compressed, compressed.length - 2);
+    for (var so : BuffSizeOption.values()) {
+      assertThrows(
+          EOFException.class,
+          () -> Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), underflowed, so));
+    }
+  }
+
+  @Test
+  void throwsOnWindowExceedingMaximum() {
+    byte[] compressed = load(ZstdDecoderTest.class, TEXT_LEVEL_1);
+    for (var so : BuffSizeOption.values()) {
+      assertThrows(ZstdException.class, () -> Decode.decode(new ZstdDecoder(1024), compressed, so));
+    }
+  }
+
+  @Test
+  void throwsOnDictionary() {
+    byte[] frame = {
+      0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, // Magic
+      0x01, // Frame header descriptor with 1-byte dictionary ID
+      0x00, // Window descriptor
+      0x01, // Dictionary ID
+      0x01, 0x00, 0x00 // Last (empty) raw block
+    };
+    for (var so : BuffSizeOption.values()) {
+      var t =
+          assertThrows(
+              ZstdException.class,
+              () -> Decode.decode(new ZstdDecoder(MAX_WINDOW_SIZE), frame, so));
+      assertEquals("zstd dictionaries are not supported", t.getMessage());
+    }
+  }
+
+  private static byte[] text(int size) {
+    var words =
+        new String[] {
+          "zstd", "frame", "block", "literals", "sequences", "offset", "match", "window",
+          "Huffman", "entropy", "state", "table", "methanol", "decoder", "stream", "bytes"
+        };
+    var random = new Random(42);
+    var sb = new StringBuilder();
+    while (sb.length() < size) {
+      sb.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+    }
+    sb.setLength(size);
+    return sb.toString().getBytes(US_ASCII);
+  }
+
+  private static byte[] random(int size) {
+    byte[] bytes = new byte[size];
+    new Random(42).nextBytes(bytes);
+    return bytes;
+  }
+
+  private static byte[] concat(byte[]... arrays) {
+    byte[] result = new byte[Arrays.stream(arrays).mapToInt(array -> array.length).sum()];
+    int position = 0;
+    for (byte[] array : arrays) {
+      System.arraycopy(array, 0, result, position, array.length);
+      position += array.length;
+    }
+    return result;
+  }
+}
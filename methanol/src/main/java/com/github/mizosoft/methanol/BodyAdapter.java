@@ -60,13 +60,6 @@ public interface BodyAdapter {
    */
   boolean supportsType(TypeRef<?> type);
 
-  private static <A extends BodyAdapter> Optional<A> lookupAdapter(
-      List<A> installed, TypeRef<?> type, @Nullable MediaType mediaType) {
-    return installed.stream()
-        .filter(a -> a.supportsType(type) && (mediaType == null || a.isCompatibleWith(mediaType)))
-        .findFirst();
-  }
-
   /** {@code BodyAdapter} specialization for converting objects into request bodies. */
   interface Encoder extends BodyAdapter {
 
@@ -90,13 +83,14 @@ public interface BodyAdapter {
     /**
      * Returns an {@code Optional} containing an {@code Encoder} that supports the given object type
      * and media type. If {@code mediaType} is {@code null}, any encoder supporting the given type
-     * will be returned.
+     * will be returned. Lookups are memoized, so the installed encoders are only queried the first
+     * time a given type and media type pair is looked up.
      *
      * @param type the object type
      * @param mediaType an optional media type defining the serialization format
      */
     static Optional<Encoder> getEncoder(TypeRef<?> type, @Nullable MediaType mediaType) {
-      return BodyAdapter.lookupAdapter(installed(), type, mediaType);
+      return BodyAdapterFinder.findEncoder(type, mediaType);
     }
   }
 
@@ -150,13 +144,14 @@ public interface BodyAdapter {
     /**
      * Returns an {@code Optional} containing a {@code Decoder} that supports the given object type
      * and media type. If {@code mediaType} is {@code null}, any decoder supporting the given type
-     * will be returned.
+     * will be returned. Lookups are memoized, so the installed decoders are only queried the first
+     * time a given type and media type pair is looked up.
      *
      * @param type the object type
      * @param mediaType an optional media type defining the deserialization format
      */
     static Optional<Decoder> getDecoder(TypeRef<?> type, @Nullable MediaType mediaType) {
-      return BodyAdapter.lookupAdapter(installed(), type, mediaType);
+      return BodyAdapterFinder.findDecoder(type, mediaType);
     }
   }
 }
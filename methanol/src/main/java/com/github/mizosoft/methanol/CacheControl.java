@@ -46,6 +46,7 @@ import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Predicate.not;
 
+import com.github.mizosoft.methanol.internal.BoundedCache;
 import com.github.mizosoft.methanol.internal.text.HeaderValueTokenizer;
 import java.net.http.HttpHeaders;
 import java.time.Duration;
@@ -75,6 +76,17 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 public final class CacheControl {
   private static final CacheControl EMPTY = new CacheControl(Map.of(), Map.of());
 
+  private static final int PARSE_CACHE_MAX_SIZE = 64;
+  private static final int PARSE_CACHE_MAX_VALUE_LENGTH = 128;
+
+  /**
+   * Parsed header values. The same few values are typically re-parsed on each cache lookup, and a
+   * {@code CacheControl} is immutable so it can be shared. Long values are not cached so that the
+   * cache's memory footprint stays bounded.
+   */
+  private static final BoundedCache<String, CacheControl> parseCache =
+      new BoundedCache<>(PARSE_CACHE_MAX_SIZE);
+
   private final Map<String, String> directives;
   private final Optional<Duration> maxAge;
   private final Optional<Duration> minFresh;
@@ -249,6 +261,17 @@ public final class CacheControl {
    */
   public static CacheControl parse(String value) {
     requireNonNull(value);
+    var cached = parseCache.get(value);
+    if (cached != null) {
+      return cached;
+    }
+    var cacheControl = parseUncached(value);
+    return value.length() <= PARSE_CACHE_MAX_VALUE_LENGTH
+        ? parseCache.put(value, cacheControl)
+        : cacheControl;
+  }
+
+  private static CacheControl parseUncached(String value) {
     try {
       var directives = new LinkedHashMap<String, String>();
       parseDirectives(value, directives);
@@ -268,6 +291,9 @@ public final class CacheControl {
     if (values.isEmpty()) {
       return empty();
     }
+    if (values.size() == 1) {
+      return parse(values.get(0)); // Take the common path that's cached
+    }
     try {
       var directives = new LinkedHashMap<String, String>();
       values.forEach(value -> parseDirectives(value, directives));
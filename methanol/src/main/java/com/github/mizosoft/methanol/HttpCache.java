@@ -41,14 +41,17 @@ import com.github.mizosoft.methanol.internal.cache.InternalCache;
 import com.github.mizosoft.methanol.internal.cache.MemoryStore;
 import com.github.mizosoft.methanol.internal.cache.NetworkResponse;
 import com.github.mizosoft.methanol.internal.cache.Store;
+import com.github.mizosoft.methanol.internal.cache.Store.Editor;
+import com.github.mizosoft.methanol.internal.cache.Store.EntryInfo;
 import com.github.mizosoft.methanol.internal.cache.Store.Viewer;
-import com.github.mizosoft.methanol.internal.function.Unchecked;
+import com.github.mizosoft.methanol.internal.cache.StoreArchive;
 import java.io.Flushable;
 import java.io.IOException;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.net.URI;
 import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Clock;
 import java.util.Iterator;
@@ -61,6 +64,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -73,6 +78,11 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * Interceptor} that can short-circuit requests by serving responses from local storage. Responses
  * can be stored either in memory or on disk, all configurable with {@link Builder}.
  *
+ * <p>By default, responses are evicted in LRU order once the cache exceeds its max size. To prevent
+ * a few busy origins from evicting everything else, responses can be assigned to quota partitions
+ * (e.g. {@link Builder#partitionByHost(double) by host}), each bounded by its own max size. In such
+ * case, responses of a partition that overflows are evicted before those of other partitions.
+ *
  * @see <a href="https://mizosoft.github.io/methanol/caching/">Caching with Methanol</a>
  */
 public final class HttpCache implements AutoCloseable, Flushable {
@@ -103,15 +113,28 @@ public final class HttpCache implements AutoCloseable, Flushable {
       userVisibleExecutor = false;
     }
 
+    var partitioner = builder.partitioner;
+    var storePartitioner =
+        partitioner != null
+            ? new UriPartitioner(partitioner, builder.partitionMaxSizeFunction())
+            : Store.Partitioner.NONE;
+    // Stores share the cache's clock as they judge entry expiry set by the cache
+    var clock = requireNonNullElseGet(builder.clock, Utils::systemMillisUtc);
     var storeFactory = builder.storeFactory;
     store =
         requireNonNullElseGet(
             builder.store,
-            () -> storeFactory.create(builder.cacheDirectory, builder.maxSize, executor));
+            () ->
+                storeFactory.create(
+                    builder.cacheDirectory, builder.maxSize, storePartitioner, clock, executor));
 
-    this.statsRecorder =
+    var userStatsRecorder =
         requireNonNullElseGet(builder.statsRecorder, StatsRecorder::createConcurrentRecorder);
-    this.clock = requireNonNullElseGet(builder.clock, Utils::systemMillisUtc);
+    this.statsRecorder =
+        partitioner != null
+            ? new PerPartitionStatsRecorder(userStatsRecorder, partitioner)
+            : userStatsRecorder;
+    this.clock = clock;
   }
 
   Store storeForTesting() {
@@ -150,6 +173,22 @@ public final class HttpCache implements AutoCloseable, Flushable {
     return statsRecorder.snapshot(uri);
   }
 
+  /**
+   * Returns a snapshot of statistics accumulated so far for the given partition, or empty stats if
+   * this cache isn't partitioned.
+   */
+  public Stats stats(String partition) {
+    requireNonNull(partition);
+    return statsRecorder instanceof PerPartitionStatsRecorder
+        ? ((PerPartitionStatsRecorder) statsRecorder).snapshotPartition(partition)
+        : Stats.empty();
+  }
+
+  /** Returns the size the given partition occupies in bytes. */
+  public long size(String partition) throws IOException {
+    return store.size(partition);
+  }
+
   /**
    * Initializes this cache. A cache that operates on disk needs to initialize its in-memory data
    * structures before usage to restore indexing data from previous sessions. Initialization entails
@@ -175,7 +214,7 @@ public final class HttpCache implements AutoCloseable, Flushable {
    */
   public Iterator<URI> uris() throws IOException {
     return new Iterator<>() {
-      private final Iterator<Viewer> storeIterator = store.iterator();
+      private final Iterator<EntryInfo> storeIterator = store.entryInfos();
 
       private @Nullable URI nextUri;
       private boolean canRemove;
@@ -208,12 +247,10 @@ public final class HttpCache implements AutoCloseable, Flushable {
 
       private boolean findNextUri() {
         while (nextUri == null && storeIterator.hasNext()) {
-          try (var viewer = storeIterator.next()) {
-            var metadata = tryRecoverMetadata(viewer);
-            if (metadata != null) {
-              nextUri = metadata.uri();
-              return true;
-            }
+          var metadata = tryRecoverMetadata(storeIterator.next().metadata());
+          if (metadata != null) {
+            nextUri = metadata.uri();
+            return true;
           }
         }
         return false;
@@ -265,6 +302,41 @@ public final class HttpCache implements AutoCloseable, Flushable {
     store.flush();
   }
 
+  /**
+   * Exports a snapshot of this cache's entries to the given file, returning the number of exported
+   * entries. The snapshot can be later imported into a cache with {@link #importFrom(Path)}, which
+   * is useful for starting a new cache with entries known to be frequently used, such as when
+   * baking a snapshot at deploy time.
+   *
+   * @throws IllegalStateException if closed
+   */
+  public long exportTo(Path file) throws IOException {
+    requireNonNull(file);
+    return StoreArchive.exportTo(store, file);
+  }
+
+  /**
+   * Imports the entries of a snapshot previously exported with {@link #exportTo(Path)}, returning
+   * the number of imported entries. Entries are loaded in bulk and persisted at once when done,
+   * which is faster than adding them one by one. Entries that don't fit in the cache are evicted as
+   * usual, with the least recently used ones at the time of export evicted first.
+   *
+   * @throws IllegalStateException if closed
+   */
+  public long importFrom(Path file) throws IOException {
+    requireNonNull(file);
+    return StoreArchive.importFrom(
+        store,
+        file,
+        (editor, metadata) -> {
+          var recoveredMetadata = tryRecoverMetadata(metadata.duplicate());
+          editor.metadata(metadata);
+          if (recoveredMetadata != null) {
+            editor.expiry(recoveredMetadata.expiresAt(), recoveredMetadata.isRevalidatable());
+          }
+        });
+  }
+
   /**
    * Closes this cache. Attempting to operate on a closed cache either directly (e.g. removing an
    * entry) or indirectly (e.g. sending requests over a client that uses this cache) will likely
@@ -290,9 +362,9 @@ public final class HttpCache implements AutoCloseable, Flushable {
     return uri.toString();
   }
 
-  private static @Nullable CacheResponseMetadata tryRecoverMetadata(Viewer viewer) {
+  private static @Nullable CacheResponseMetadata tryRecoverMetadata(ByteBuffer metadata) {
     try {
-      return CacheResponseMetadata.decode(viewer.metadata());
+      return CacheResponseMetadata.decode(metadata);
     } catch (IOException e) {
       logger.log(Level.WARNING, "unrecoverable cache entry", e);
       return null;
@@ -315,12 +387,13 @@ public final class HttpCache implements AutoCloseable, Flushable {
 
     @Override
     public CompletableFuture<@Nullable CacheResponse> getAsync(HttpRequest request) {
-      return Unchecked.supplyAsync(() -> store.view(key(request)), executor)
+      return store
+          .viewAsync(key(request))
           .thenApply(viewer -> viewer != null ? getCacheResponse(request, viewer) : null);
     }
 
     private @Nullable CacheResponse getCacheResponse(HttpRequest request, Viewer viewer) {
-      var metadata = tryRecoverMetadata(viewer);
+      var metadata = tryRecoverMetadata(viewer.metadata());
       if (metadata != null && metadata.matches(request)) {
         return new CacheResponse(metadata, viewer, executor, request, clock.instant());
       }
@@ -334,7 +407,7 @@ public final class HttpCache implements AutoCloseable, Flushable {
       var response = cacheResponse.get();
       try (var editor = cacheResponse.edit()) {
         if (editor != null) {
-          editor.metadata(CacheResponseMetadata.from(response).encode());
+          writeMetadata(editor, CacheResponseMetadata.from(response));
           editor.commitOnClose();
         }
       } catch (IOException e) {
@@ -352,7 +425,7 @@ public final class HttpCache implements AutoCloseable, Flushable {
                 : store.edit(key(networkResponse.get().uri()));
 
         if (editor != null) {
-          editor.metadata(CacheResponseMetadata.from(networkResponse.get()).encode());
+          writeMetadata(editor, CacheResponseMetadata.from(networkResponse.get()));
           return networkResponse.writingWith(
               editor, new RecordingWriteListener(networkResponse.get().uri(), statsRecorder));
         }
@@ -362,6 +435,11 @@ public final class HttpCache implements AutoCloseable, Flushable {
       return null;
     }
 
+    private void writeMetadata(Editor editor, CacheResponseMetadata metadata) throws IOException {
+      editor.metadata(metadata.encode());
+      editor.expiry(metadata.expiresAt(), metadata.isRevalidatable());
+    }
+
     @Override
     public void remove(URI uri) {
       try {
@@ -400,6 +478,31 @@ public final class HttpCache implements AutoCloseable, Flushable {
     }
   }
 
+  /** Adapts a {@code URI} partitioning function to the store's {@code Partitioner}. */
+  private static final class UriPartitioner implements Store.Partitioner {
+    private final Function<URI, String> partitioner;
+    private final ToLongFunction<String> maxSizeFunction;
+
+    UriPartitioner(Function<URI, String> partitioner, ToLongFunction<String> maxSizeFunction) {
+      this.partitioner = partitioner;
+      this.maxSizeFunction = maxSizeFunction;
+    }
+
+    @Override
+    public String partitionOf(String key) {
+      return partitionOf(partitioner, URI.create(key)); // Keys are URI strings
+    }
+
+    @Override
+    public long maxSizeOf(String partition) {
+      return maxSizeFunction.applyAsLong(partition);
+    }
+
+    static String partitionOf(Function<URI, String> partitioner, URI uri) {
+      return requireNonNull(partitioner.apply(uri), "partition");
+    }
+  }
+
   private static final class RecordingWriteListener implements CacheWritingPublisher.Listener {
     private final URI uri;
     private final StatsRecorder recorder;
@@ -659,6 +762,78 @@ public final class HttpCache implements AutoCloseable, Flushable {
     }
   }
 
+  /**
+   * A {@code StatsRecorder} that additionally records stats for each partition besides those
+   * recorded by the user's {@code StatsRecorder}.
+   */
+  private static final class PerPartitionStatsRecorder implements StatsRecorder {
+    private final StatsRecorder delegate;
+    private final Function<URI, String> partitioner;
+    private final ConcurrentMap<String, StatsRecorder> perPartitionRecorders =
+        new ConcurrentHashMap<>();
+
+    PerPartitionStatsRecorder(StatsRecorder delegate, Function<URI, String> partitioner) {
+      this.delegate = delegate;
+      this.partitioner = partitioner;
+    }
+
+    @Override
+    public void recordRequest(URI uri) {
+      delegate.recordRequest(uri);
+      recorderOf(uri).recordRequest(uri);
+    }
+
+    @Override
+    public void recordHit(URI uri) {
+      delegate.recordHit(uri);
+      recorderOf(uri).recordHit(uri);
+    }
+
+    @Override
+    public void recordMiss(URI uri) {
+      delegate.recordMiss(uri);
+      recorderOf(uri).recordMiss(uri);
+    }
+
+    @Override
+    public void recordNetworkUse(URI uri) {
+      delegate.recordNetworkUse(uri);
+      recorderOf(uri).recordNetworkUse(uri);
+    }
+
+    @Override
+    public void recordWriteSuccess(URI uri) {
+      delegate.recordWriteSuccess(uri);
+      recorderOf(uri).recordWriteSuccess(uri);
+    }
+
+    @Override
+    public void recordWriteFailure(URI uri) {
+      delegate.recordWriteFailure(uri);
+      recorderOf(uri).recordWriteFailure(uri);
+    }
+
+    @Override
+    public Stats snapshot() {
+      return delegate.snapshot();
+    }
+
+    @Override
+    public Stats snapshot(URI uri) {
+      return delegate.snapshot(uri);
+    }
+
+    Stats snapshotPartition(String partition) {
+      var recorder = perPartitionRecorders.get(partition);
+      return recorder != null ? recorder.snapshot() : Stats.empty();
+    }
+
+    private StatsRecorder recorderOf(URI uri) {
+      return perPartitionRecorders.computeIfAbsent(
+          UriPartitioner.partitionOf(partitioner, uri), __ -> new ConcurrentStatsRecorder());
+    }
+  }
+
   private enum DisabledStatsRecorder implements StatsRecorder {
     INSTANCE;
 
@@ -782,6 +957,9 @@ public final class HttpCache implements AutoCloseable, Flushable {
     @MonotonicNonNull Path cacheDirectory;
     @MonotonicNonNull Executor executor;
     @MonotonicNonNull StatsRecorder statsRecorder;
+    @MonotonicNonNull Function<URI, String> partitioner;
+    double partitionMaxShare;
+    @Nullable ToLongFunction<String> partitionMaxSizeFunction;
 
     @MonotonicNonNull Clock clock;
     @MonotonicNonNull Store store;
@@ -820,6 +998,45 @@ public final class HttpCache implements AutoCloseable, Flushable {
       return this;
     }
 
+    /**
+     * Specifies that responses are to be assigned to quota partitions by the given function of
+     * their request {@code URIs}, with each partition bounded to the given share of the cache's max
+     * size. Responses of a partition exceeding its bound are evicted before those of other
+     * partitions.
+     *
+     * @throws IllegalArgumentException if {@code maxShare} is not in the range {@code (0.0, 1.0]}
+     */
+    public Builder partitionBy(Function<URI, String> partitioner, double maxShare) {
+      requireArgument(maxShare > 0.0 && maxShare <= 1.0, "maxShare out of range: %s", maxShare);
+      this.partitioner = requireNonNull(partitioner);
+      this.partitionMaxShare = maxShare;
+      this.partitionMaxSizeFunction = null;
+      return this;
+    }
+
+    /**
+     * Specifies that responses are to be assigned to quota partitions by the given function of
+     * their request {@code URIs}, with each partition bounded to the max size in bytes given by
+     * {@code partitionMaxSize}. Responses of a partition exceeding its bound are evicted before
+     * those of other partitions.
+     */
+    public Builder partitionBy(
+        Function<URI, String> partitioner, ToLongFunction<String> partitionMaxSize) {
+      this.partitioner = requireNonNull(partitioner);
+      this.partitionMaxSizeFunction = requireNonNull(partitionMaxSize);
+      return this;
+    }
+
+    /**
+     * Specifies that responses are to be assigned to quota partitions by their request {@code
+     * URI's} host, with each partition bounded to the given share of the cache's max size.
+     *
+     * @throws IllegalArgumentException if {@code maxShare} is not in the range {@code (0.0, 1.0]}
+     */
+    public Builder partitionByHost(double maxShare) {
+      return partitionBy(uri -> requireNonNullElse(uri.getHost(), ""), maxShare);
+    }
+
     Builder clockForTesting(Clock clock) {
       this.clock = requireNonNull(clock);
       return this;
@@ -839,28 +1056,55 @@ public final class HttpCache implements AutoCloseable, Flushable {
     private void checkMaxSize(long maxSize) {
       requireArgument(maxSize > 0, "non-positive maxSize");
     }
+
+    ToLongFunction<String> partitionMaxSizeFunction() {
+      var maxSizeFunction = partitionMaxSizeFunction;
+      if (maxSizeFunction != null) {
+        return maxSizeFunction;
+      }
+      long cacheMaxSize = store != null ? store.maxSize() : maxSize;
+      long partitionMaxSize = Math.max(1L, (long) (cacheMaxSize * partitionMaxShare));
+      return __ -> partitionMaxSize;
+    }
   }
 
   private enum StoreFactory {
     MEMORY {
       @Override
-      Store create(@Nullable Path directory, long maxSize, Executor executor) {
-        return new MemoryStore(maxSize);
+      Store create(
+          @Nullable Path directory,
+          long maxSize,
+          Store.Partitioner partitioner,
+          Clock clock,
+          Executor executor) {
+        return new MemoryStore(maxSize, partitioner, clock);
       }
     },
     DISK {
       @Override
-      Store create(@Nullable Path directory, long maxSize, Executor executor) {
+      Store create(
+          @Nullable Path directory,
+          long maxSize,
+          Store.Partitioner partitioner,
+          Clock clock,
+          Executor executor) {
         requireNonNull(directory, "DiskStore requires a directory");
         return DiskStore.newBuilder()
             .directory(directory)
             .maxSize(maxSize)
+            .partitioner(partitioner)
+            .clock(clock)
             .executor(executor)
             .appVersion(CACHE_VERSION)
             .build();
       }
     };
 
-    abstract Store create(@Nullable Path directory, long maxSize, Executor executor);
+    abstract Store create(
+        @Nullable Path directory,
+        long maxSize,
+        Store.Partitioner partitioner,
+        Clock clock,
+        Executor executor);
   }
 }
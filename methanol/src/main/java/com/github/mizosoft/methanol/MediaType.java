@@ -29,6 +29,7 @@ import static com.github.mizosoft.methanol.internal.text.HttpCharMatchers.QUOTED
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
+import com.github.mizosoft.methanol.internal.BoundedCache;
 import com.github.mizosoft.methanol.internal.text.HeaderValueTokenizer;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
@@ -129,11 +130,50 @@ public final class MediaType {
   /** {@code text/xml} */
   public static final MediaType TEXT_XML = new MediaType(TEXT_TYPE, "xml");
 
+  /*---Parse cache---*/
+
+  private static final int PARSE_CACHE_MAX_SIZE = 256;
+  private static final int PARSE_CACHE_MAX_VALUE_LENGTH = 128;
+
+  /**
+   * Parsed media types keyed by their string values. Long values are not cached as they're mostly
+   * one-off (e.g. with a random multipart boundary). The well-known constants are only cached till
+   * the cache is first cleared.
+   */
+  private static final BoundedCache<String, MediaType> parseCache =
+      new BoundedCache<>(PARSE_CACHE_MAX_SIZE);
+
+  static {
+    for (var mediaType :
+        new MediaType[] {
+          ANY,
+          APPLICATION_ANY,
+          IMAGE_ANY,
+          TEXT_ANY,
+          APPLICATION_FORM_URLENCODED,
+          APPLICATION_JSON,
+          APPLICATION_OCTET_STREAM,
+          APPLICATION_XHTML_XML,
+          APPLICATION_XML,
+          APPLICATION_X_PROTOBUF,
+          IMAGE_GIF,
+          IMAGE_JPEG,
+          IMAGE_PNG,
+          TEXT_HTML,
+          TEXT_MARKDOWN,
+          TEXT_PLAIN,
+          TEXT_XML
+        }) {
+      parseCache.put(mediaType.toString(), mediaType);
+    }
+  }
+
   private final String type;
   private final String subtype;
   private final Map<String, String> parameters;
-  private @MonotonicNonNull Charset charset;
-  private boolean charsetIsParsed;
+
+  /** The lazily parsed charset. Optional is immutable, so instances can be shared among threads. */
+  private @MonotonicNonNull Optional<Charset> charset;
 
   private MediaType(String type, String subtype) {
     this.type = type;
@@ -171,14 +211,14 @@ public final class MediaType {
    *     supported in this JVM
    */
   public Optional<Charset> charset() {
-    if (!charsetIsParsed) {
+    var parsedCharset = charset;
+    if (parsedCharset == null) {
       String charsetName = parameters.get(CHARSET_ATTRIBUTE);
-      if (charsetName != null) {
-        charset = Charset.forName(charsetName);
-      }
-      charsetIsParsed = true;
+      parsedCharset =
+          charsetName != null ? Optional.of(Charset.forName(charsetName)) : Optional.empty();
+      charset = parsedCharset;
     }
-    return Optional.ofNullable(charset);
+    return parsedCharset;
   }
 
   /**
@@ -242,8 +282,7 @@ public final class MediaType {
   public MediaType withCharset(Charset charset) {
     requireNonNull(charset);
     MediaType mediaType = withParameter(CHARSET_ATTRIBUTE, charset.name());
-    mediaType.charset = charset;
-    mediaType.charsetIsParsed = true;
+    mediaType.charset = Optional.of(charset);
     return mediaType;
   }
 
@@ -368,12 +407,24 @@ public final class MediaType {
   }
 
   /**
-   * Parses the given string into a {@code MediaType} instance.
+   * Parses the given string into a {@code MediaType} instance. Recently parsed values are cached,
+   * so the same instance might be returned for equal strings.
    *
    * @param value the media type string
    * @throws IllegalArgumentException if the given string is an invalid media type
    */
   public static MediaType parse(String value) {
+    var cached = parseCache.get(value);
+    if (cached != null) {
+      return cached;
+    }
+    var mediaType = parseUncached(value);
+    return value.length() <= PARSE_CACHE_MAX_VALUE_LENGTH
+        ? parseCache.put(value, mediaType)
+        : mediaType;
+  }
+
+  private static MediaType parseUncached(String value) {
     // media-type     = type "/" subtype *( OWS ";" OWS parameter )
     // type           = token
     // subtype        = token
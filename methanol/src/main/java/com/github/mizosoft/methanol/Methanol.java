@@ -32,6 +32,7 @@ import static java.util.Objects.requireNonNullElse;
 import com.github.mizosoft.methanol.BodyDecoder.Factory;
 import com.github.mizosoft.methanol.Methanol.Interceptor.Chain;
 import com.github.mizosoft.methanol.internal.cache.RedirectingInterceptor;
+import com.github.mizosoft.methanol.internal.extensions.EncodingBodyPublisher;
 import com.github.mizosoft.methanol.internal.extensions.HeadersBuilder;
 import com.github.mizosoft.methanol.internal.extensions.HttpResponsePublisher;
 import com.github.mizosoft.methanol.internal.extensions.ResponseBuilder;
@@ -392,6 +393,41 @@ public final class Methanol extends HttpClient {
       };
     }
 
+    /**
+     * Returns an interceptor that compresses request bodies with the given encoding using {@link
+     * MoreBodyPublishers#encoding}. Only bodies whose content length is unknown or at least {@code
+     * minContentLength} bytes are compressed. Requests that already have a {@code
+     * Content-Encoding} header, or that have an empty body, are forwarded as is.
+     *
+     * @throws UnsupportedOperationException if the given encoding is not supported
+     * @throws IllegalArgumentException if {@code minContentLength} is negative
+     */
+    static Interceptor compressingRequests(String encoding, long minContentLength) {
+      requireNonNull(encoding);
+      requireArgument(minContentLength >= 0, "negative minContentLength: %d", minContentLength);
+      if (!EncodingBodyPublisher.isSupported(encoding)) {
+        throw new UnsupportedOperationException("unsupported encoding: " + encoding);
+      }
+      return create(
+          request -> {
+            var body = request.bodyPublisher().orElse(null);
+            if (body == null
+                || body instanceof EncodingBodyPublisher
+                || request.headers().firstValue("Content-Encoding").isPresent()) {
+              return request;
+            }
+            long contentLength = body.contentLength();
+            if (contentLength == 0 || (contentLength > 0 && contentLength < minContentLength)) {
+              return request;
+            }
+            var encodedBody = EncodingBodyPublisher.create(body, encoding);
+            return MutableRequest.copyOf(request)
+                .method(request.method(), encodedBody)
+                .setHeader("Content-Encoding", encodedBody.encoding())
+                .toImmutableRequest();
+          });
+    }
+
     /**
      * An object that gives interceptors the ability to relay requests to sibling interceptors, till
      * eventually being sent by the client's backend.
@@ -870,6 +906,13 @@ public final class Methanol extends HttpClient {
           .map(body -> ((MimeBodyPublisher) body).mediaType())
           .ifPresent(mediaType -> rewrittenRequest.setHeader("Content-Type", mediaType.toString()));
 
+      // Overwrite Content-Encoding if request body is compressed by MoreBodyPublishers::encoding
+      request
+          .bodyPublisher()
+          .filter(EncodingBodyPublisher.class::isInstance)
+          .map(body -> ((EncodingBodyPublisher) body).encoding())
+          .ifPresent(encoding -> rewrittenRequest.setHeader("Content-Encoding", encoding));
+
       // Add default timeout if not already present
       if (request.timeout().isEmpty()) {
         requestTimeout.ifPresent(rewrittenRequest::timeout);
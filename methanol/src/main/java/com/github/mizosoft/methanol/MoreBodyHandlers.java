@@ -35,6 +35,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
@@ -100,6 +102,30 @@ public class MoreBodyHandlers {
     return info -> MoreBodySubscribers.ofByteChannel();
   }
 
+  /**
+   * Returns a {@code BodyHandler} of {@code Path} as specified by {@link
+   * MoreBodySubscribers#ofFile(Path, OpenOption...)}.
+   *
+   * @throws IllegalArgumentException if the open options contain {@code READ} or {@code APPEND}
+   */
+  public static BodyHandler<Path> ofFile(Path file, OpenOption... openOptions) {
+    return ofFile(file, false, openOptions);
+  }
+
+  /**
+   * Returns a {@code BodyHandler} of {@code Path} as specified by {@link
+   * MoreBodySubscribers#ofFile(Path, boolean, OpenOption...)}.
+   *
+   * @throws IllegalArgumentException if the open options contain {@code READ} or {@code APPEND}
+   */
+  public static BodyHandler<Path> ofFile(
+      Path file, boolean syncOnComplete, OpenOption... openOptions) {
+    requireNonNull(file);
+    var fileOpenOptions =
+        MoreBodySubscribers.toFileOpenOptions(openOptions).toArray(OpenOption[]::new);
+    return info -> MoreBodySubscribers.ofFile(file, syncOnComplete, fileOpenOptions);
+  }
+
   /**
    * Returns a {@code BodyHandler} of {@code Reader} as specified by {@link
    * MoreBodySubscribers#ofReader(Charset)} using the charset specified by the {@code Content-Type}
@@ -228,7 +254,7 @@ public class MoreBodyHandlers {
   // Require that at least an adapter exists for the given type
   // (the media type cannot be known until the headers arrive)
   private static void requireSupport(TypeRef<?> type) {
-    if (Decoder.installed().stream().noneMatch(d -> d.supportsType(type))) {
+    if (Decoder.getDecoder(type, null).isEmpty()) {
       throw new UnsupportedOperationException(
           "unsupported conversion to an object of type <" + type + ">");
     }
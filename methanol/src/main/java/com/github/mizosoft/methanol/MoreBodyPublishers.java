@@ -22,7 +22,10 @@
 
 package com.github.mizosoft.methanol;
 
+import static java.util.Objects.requireNonNull;
+
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.internal.extensions.EncodingBodyPublisher;
 import com.github.mizosoft.methanol.internal.extensions.ForwardingMimeBodyPublisher;
 import java.net.http.HttpRequest.BodyPublisher;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -43,6 +46,32 @@ public class MoreBodyPublishers {
     return new ForwardingMimeBodyPublisher(bodyPublisher, mediaType);
   }
 
+  /**
+   * Returns a {@code BodyPublisher} that compresses the given publisher's content with the given
+   * encoding as it's being sent. Supported encodings are {@code gzip} and {@code deflate}. The
+   * content is compressed incrementally and the given publisher is only requested more bytes when
+   * the compressed ones are consumed, so the body is never buffered as a whole. The returned
+   * publisher's content length is unknown (i.e. {@code -1}). If the given publisher is a {@link
+   * MimeBodyPublisher}, the returned publisher is also a {@code MimeBodyPublisher} with the same
+   * media type.
+   *
+   * <p>{@link Methanol} adds a {@code Content-Encoding} header with the given encoding to requests
+   * with the returned publisher as their body. When using a plain {@code HttpClient}, the header
+   * must be added manually.
+   *
+   * @param bodyPublisher the publisher whose content is compressed
+   * @param encoding the encoding to compress with
+   * @throws UnsupportedOperationException if the given encoding is not supported
+   */
+  public static BodyPublisher encoding(BodyPublisher bodyPublisher, String encoding) {
+    requireNonNull(bodyPublisher);
+    requireNonNull(encoding);
+    if (!EncodingBodyPublisher.isSupported(encoding)) {
+      throw new UnsupportedOperationException("unsupported encoding: " + encoding);
+    }
+    return EncodingBodyPublisher.create(bodyPublisher, encoding);
+  }
+
   /**
    * Returns a {@code BodyPublisher} as specified by {@link Encoder#toBody(Object, MediaType)} using
    * an installed encoder.
@@ -23,9 +23,11 @@
 package com.github.mizosoft.methanol;
 
 import static com.github.mizosoft.methanol.internal.Utils.requirePositiveDuration;
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.internal.extensions.AsyncFileSubscriber;
 import com.github.mizosoft.methanol.internal.extensions.AsyncSubscriberAdapter;
 import com.github.mizosoft.methanol.internal.extensions.ByteChannelSubscriber;
 import com.github.mizosoft.methanol.internal.extensions.TimeoutSubscriber;
@@ -37,8 +39,14 @@ import java.nio.channels.Channels;
 import java.nio.channels.InterruptibleChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.ScheduledExecutorService;
@@ -128,6 +136,35 @@ public class MoreBodySubscribers {
     return BodySubscribers.mapping(ofByteChannel(), ch -> Channels.newReader(ch, charset));
   }
 
+  /**
+   * Returns a {@code BodySubscriber} that writes the response body into the given file using an
+   * {@link java.nio.channels.AsynchronousFileChannel}. Unlike {@link BodySubscribers#ofFile(Path,
+   * OpenOption...)}, the file is written without blocking the thread on which body buffers are
+   * received. Each batch of buffers is requested only after the previous one is completely written,
+   * so the download proceeds at the pace of the file system without buffering more than a batch. If
+   * no open options are given, the file is opened with {@code CREATE}, {@code WRITE} and {@code
+   * TRUNCATE_EXISTING}. Otherwise, {@code WRITE} is added to the given options.
+   *
+   * @param file the file to write the response body into
+   * @param syncOnComplete whether to sync the file's content and metadata with the storage device
+   *     before completing the body, in which case the blocking sync is run on {@code
+   *     CompletableFuture}'s default async executor
+   * @param openOptions the options with which the file is opened
+   * @throws IllegalArgumentException if the open options contain {@code READ} or {@code APPEND}
+   */
+  public static BodySubscriber<Path> ofFile(
+      Path file, boolean syncOnComplete, OpenOption... openOptions) {
+    return new AsyncFileSubscriber(file, toFileOpenOptions(openOptions), syncOnComplete);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that writes the response body into the given file as specified
+   * by {@link #ofFile(Path, boolean, OpenOption...)}, without syncing the file on completion.
+   */
+  public static BodySubscriber<Path> ofFile(Path file, OpenOption... openOptions) {
+    return ofFile(file, false, openOptions);
+  }
+
   /**
    * Returns a {@code BodySubscriber} of {@code T} as specified by {@link Decoder#toObject(TypeRef,
    * MediaType)} using an installed decoder.
@@ -170,4 +207,20 @@ public class MoreBodySubscribers {
     }
     return new UnsupportedOperationException(message);
   }
+
+  static Set<OpenOption> toFileOpenOptions(OpenOption... openOptions) {
+    var optionSet = Set.copyOf(List.of(openOptions));
+    requireArgument(
+        !optionSet.contains(StandardOpenOption.READ)
+            && !optionSet.contains(StandardOpenOption.APPEND),
+        "unsupported open options: %s",
+        optionSet);
+    if (optionSet.isEmpty()) {
+      return Set.of(
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    var writableOptionSet = new HashSet<>(optionSet);
+    writableOptionSet.add(StandardOpenOption.WRITE);
+    return Collections.unmodifiableSet(writableOptionSet);
+  }
 }
@@ -0,0 +1,679 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol;
+
+import static com.github.mizosoft.methanol.internal.Validate.castNonNull;
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.ProgressTracker.Listener;
+import com.github.mizosoft.methanol.internal.Utils;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Subscription;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Downloads resources into files by fetching byte ranges of them concurrently through an {@code
+ * HttpClient}.
+ *
+ * <p>A download starts by requesting the resource's first range. If the server responds with
+ * {@code 206 Partial Content} and tells the resource's length, the rest of the resource is split
+ * into ranges that are requested concurrently, each written at its offset in the file. Range
+ * responses are validated against the requested ranges and the resource's length. If the first
+ * response has an {@code ETag}, it's sent with range requests in an {@code If-Range} header, so the
+ * download fails if the resource changes midway rather than producing a corrupt file. A range
+ * that fails, including the first, is requested again from where it stopped, at most {@link
+ * Builder#maxRetries(int)} times. A range isn't requested again if the resource is found to have
+ * changed, as that's bound to fail again. If the server doesn't support ranges, the whole resource
+ * is written from the first response.
+ *
+ * <p>Aggregate progress of the download can be tracked with a {@link ProgressTracker} as if the
+ * resource was downloaded through a single response.
+ */
+public final class RangedDownloader {
+  private static final Pattern CONTENT_RANGE_PATTERN =
+      Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+  private static final int HTTP_OK = 200;
+  private static final int HTTP_PARTIAL_CONTENT = 206;
+
+  private static final int DEFAULT_PARALLELISM = 4;
+  private static final long DEFAULT_MIN_RANGE_SIZE = 1024 * 1024; // 1Mb
+  private static final int DEFAULT_MAX_RETRIES = 3;
+
+  private final HttpClient client;
+  private final int parallelism;
+  private final long minRangeSize;
+  private final int maxRetries;
+  private final @Nullable Executor executor;
+  private final @Nullable ProgressTracker progressTracker;
+  private final @Nullable Listener progressListener;
+
+  private RangedDownloader(Builder builder) {
+    client = builder.client;
+    parallelism = builder.parallelism;
+    minRangeSize = builder.minRangeSize;
+    maxRetries = builder.maxRetries;
+    executor = builder.executor;
+    progressTracker = builder.progressTracker;
+    progressListener = builder.progressListener;
+  }
+
+  /** Returns the maximum number of ranges fetched concurrently. */
+  public int parallelism() {
+    return parallelism;
+  }
+
+  /** Returns the minimum size of a range, which is also the size of the first requested range. */
+  public long minRangeSize() {
+    return minRangeSize;
+  }
+
+  /** Returns the maximum number of times a failed range is requested again. */
+  public int maxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * Downloads the resource of the given {@code GET} request into the given file, blocking till the
+   * download completes. The file is created if it doesn't exist, and truncated if it does.
+   */
+  public Path download(HttpRequest request, Path file) throws IOException, InterruptedException {
+    return Utils.block(downloadAsync(request, file));
+  }
+
+  /**
+   * Downloads the resource of the given {@code GET} request into the given file, then verifies the
+   * file's digest with the given algorithm against the given expected digest, blocking till the
+   * download completes.
+   */
+  public Path download(
+      HttpRequest request, Path file, String digestAlgorithm, byte[] expectedDigest)
+      throws IOException, InterruptedException {
+    return Utils.block(downloadAsync(request, file, digestAlgorithm, expectedDigest));
+  }
+
+  /**
+   * Asynchronously downloads the resource of the given {@code GET} request into the given file.
+   * The file is created if it doesn't exist, and truncated if it does.
+   */
+  public CompletableFuture<Path> downloadAsync(HttpRequest request, Path file) {
+    requireNonNull(request);
+    requireNonNull(file);
+    return startDownload(request, file);
+  }
+
+  /**
+   * Asynchronously downloads the resource of the given {@code GET} request into the given file,
+   * then verifies the file's digest with the given algorithm against the given expected digest.
+   * The returned future completes with an {@code IOException} if the digests don't match. The file
+   * is read for verification in this downloader's {@link Builder#executor(Executor) executor}.
+   *
+   * @throws IllegalArgumentException if the digest algorithm is not available
+   */
+  public CompletableFuture<Path> downloadAsync(
+      HttpRequest request, Path file, String digestAlgorithm, byte[] expectedDigest) {
+    requireNonNull(request);
+    requireNonNull(file);
+    requireNonNull(expectedDigest);
+    var digest = getMessageDigest(digestAlgorithm);
+    var expectedDigestCopy = expectedDigest.clone();
+    return verifyAsync(
+        startDownload(request, file),
+        path -> {
+          try {
+            verifyDigest(path, digest, expectedDigestCopy);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+          return path;
+        });
+  }
+
+  /** Verifies the downloaded file off the thread completing the download, which is a client's. */
+  private CompletableFuture<Path> verifyAsync(
+      CompletableFuture<Path> download, Function<Path, Path> verifier) {
+    var currentExecutor = executor;
+    return currentExecutor != null
+        ? download.thenApplyAsync(verifier, currentExecutor)
+        : download.thenApplyAsync(verifier);
+  }
+
+  private CompletableFuture<Path> startDownload(HttpRequest request, Path file) {
+    FileChannel channel;
+    try {
+      channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return new Download(request, file, channel).start();
+  }
+
+  /** Returns a new {@code RangedDownloader} with default settings. */
+  public static RangedDownloader create(HttpClient client) {
+    return newBuilder(client).build();
+  }
+
+  /** Returns a new {@code RangedDownloader.Builder}. */
+  public static Builder newBuilder(HttpClient client) {
+    return new Builder(client);
+  }
+
+  private static MessageDigest getMessageDigest(String algorithm) {
+    requireNonNull(algorithm);
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("unavailable digest algorithm: " + algorithm, e);
+    }
+  }
+
+  private static void verifyDigest(Path file, MessageDigest digest, byte[] expectedDigest)
+      throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var buffer = ByteBuffer.allocate(64 * 1024);
+      while (channel.read(buffer.clear()) != -1) {
+        digest.update(buffer.flip());
+      }
+    }
+    if (!MessageDigest.isEqual(digest.digest(), expectedDigest)) {
+      throw new IOException(
+          "downloaded content doesn't match the expected " + digest.getAlgorithm() + " digest");
+    }
+  }
+
+  /** A byte range of the resource being downloaded. */
+  private static final class Range {
+    final long start;
+    final long end; // Inclusive, or -1 if unknown
+    volatile long position;
+
+    Range(long start, long end) {
+      this.start = start;
+      this.end = end;
+      position = start;
+    }
+
+    boolean isComplete() {
+      return end >= 0 && position > end;
+    }
+
+    String remainingSpec() {
+      return "bytes=" + position + "-" + end;
+    }
+  }
+
+  private final class Download {
+    private final HttpRequest request;
+    private final Path file;
+    private final FileChannel channel;
+    private volatile @MonotonicNonNull ProgressFeed progressFeed;
+    private volatile @MonotonicNonNull Range firstRange;
+
+    /** The resource's length as reported by the first response, or -1 if unknown. */
+    private volatile long length = -1;
+
+    private volatile @Nullable String etag;
+    private volatile boolean rangesSupported;
+
+    /** Whether the first response's headers have been received. */
+    private volatile boolean responded;
+
+    Download(HttpRequest request, Path file, FileChannel channel) {
+      this.request = request;
+      this.file = file;
+      this.channel = channel;
+    }
+
+    CompletableFuture<Path> start() {
+      return fetchFirstRange(0)
+          .thenApply(__ -> file)
+          .whenComplete(
+              (__, error) -> {
+                var feed = progressFeed;
+                if (feed != null) {
+                  feed.complete(error);
+                }
+                Utils.closeQuietly(channel);
+              });
+    }
+
+    private CompletableFuture<Void> fetchFirstRange(int retries) {
+      return client
+          .sendAsync(rangeRequest("bytes=0-" + (minRangeSize - 1)), this::onFirstResponse)
+          .<CompletableFuture<Void>>handle(
+              (response, error) -> {
+                if (error == null) {
+                  return onFirstResponseReceived(response);
+                }
+
+                var range = firstRange;
+                if (range != null) {
+                  // Resume the first range like any other while fetching the rest
+                  return CompletableFuture.allOf(
+                      retryOrFail(range, retries, error), fetchRemainingRanges(range));
+                } else if (!responded && retries < maxRetries) {
+                  return fetchFirstRange(retries + 1); // Nothing is written yet
+                } else {
+                  return CompletableFuture.failedFuture(Utils.getDeepCompletionCause(error));
+                }
+              })
+          .thenCompose(future -> future);
+    }
+
+    private BodySubscriber<Void> onFirstResponse(ResponseInfo info) {
+      responded = true;
+      if (info.statusCode() == HTTP_PARTIAL_CONTENT) {
+        var matcher = matchContentRange(info);
+        if (matcher != null
+            && !matcher.group(3).equals("*")
+            && Long.parseLong(matcher.group(1)) == 0) {
+          length = Long.parseLong(matcher.group(3));
+          etag =
+              info.headers()
+                  .firstValue("ETag")
+                  .filter(tag -> !tag.startsWith("W/")) // If-Range requires a strong validator
+                  .orElse(null);
+          rangesSupported = true;
+          preallocate(length);
+          trackProgress(length);
+          var range = new Range(0, Long.parseLong(matcher.group(2)));
+          firstRange = range;
+          return new RangeWriter(range);
+        }
+      } else if (info.statusCode() == HTTP_OK) {
+        // Ranges aren't supported, so the whole resource is in this response
+        length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        trackProgress(length);
+        return new RangeWriter(new Range(0, length >= 0 ? length - 1 : -1));
+      }
+      return BodySubscribers.replacing(null);
+    }
+
+    private CompletableFuture<Void> onFirstResponseReceived(HttpResponse<Void> response) {
+      int statusCode = response.statusCode();
+      if (statusCode != HTTP_OK && statusCode != HTTP_PARTIAL_CONTENT) {
+        return CompletableFuture.failedFuture(
+            new IOException("unexpected response status: " + statusCode));
+      } else if (statusCode == HTTP_PARTIAL_CONTENT && !rangesSupported) {
+        return CompletableFuture.failedFuture(
+            new IOException(
+                "unexpected Content-Range: "
+                    + response.headers().firstValue("Content-Range").orElse("<missing>")));
+      } else if (!rangesSupported) {
+        return CompletableFuture.completedFuture(null);
+      }
+      return fetchRemainingRanges(castNonNull(firstRange));
+    }
+
+    private CompletableFuture<Void> fetchRemainingRanges(Range firstRange) {
+      long nextPosition = firstRange.end + 1;
+      long remaining = length - nextPosition;
+      if (remaining <= 0) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      int rangeCount = (int) Math.max(1, Math.min(parallelism, remaining / minRangeSize));
+      long rangeSize = remaining / rangeCount;
+      var fetches = new ArrayList<CompletableFuture<Void>>();
+      for (int i = 0; i < rangeCount; i++) {
+        long start = nextPosition + i * rangeSize;
+        long end = i == rangeCount - 1 ? length - 1 : start + rangeSize - 1;
+        fetches.add(fetch(new Range(start, end), 0));
+      }
+      return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> fetch(Range range, int retries) {
+      var rangeRequest = rangeRequest(range.remainingSpec());
+      var currentEtag = etag;
+      if (currentEtag != null) {
+        rangeRequest.setHeader("If-Range", currentEtag);
+      }
+      return client
+          .sendAsync(rangeRequest, info -> onRangeResponse(info, range))
+          .<CompletableFuture<Void>>handle(
+              (response, error) ->
+                  error == null
+                      ? CompletableFuture.completedFuture(null)
+                      : retryOrFail(range, retries, error))
+          .thenCompose(future -> future);
+    }
+
+    private CompletableFuture<Void> retryOrFail(Range range, int retries, Throwable error) {
+      var cause = Utils.getDeepCompletionCause(error);
+      return retries < maxRetries
+              && !range.isComplete()
+              && !(cause instanceof ResourceChangedException)
+          ? fetch(range, retries + 1)
+          : CompletableFuture.failedFuture(cause);
+    }
+
+    private MutableRequest rangeRequest(String rangeSpec) {
+      // Ranges refer to the resource's encoded bytes, so don't let it be (automatically) decoded
+      return MutableRequest.copyOf(request)
+          .setHeader("Range", rangeSpec)
+          .setHeader("Accept-Encoding", "identity");
+    }
+
+    private BodySubscriber<Void> onRangeResponse(ResponseInfo info, Range range) {
+      var currentEtag = etag;
+      if (info.statusCode() == HTTP_OK) {
+        // The server sends the whole resource if it doesn't match If-Range
+        return new FailingBodySubscriber(
+            new ResourceChangedException(
+                currentEtag != null
+                    ? "resource changed during download: If-Range " + currentEtag + " not matched"
+                    : "server stopped honoring range requests"));
+      }
+      var rangeEtag = info.headers().firstValue("ETag").orElse(null);
+      if (currentEtag != null && rangeEtag != null && !currentEtag.equals(rangeEtag)) {
+        return new FailingBodySubscriber(
+            new ResourceChangedException(
+                "resource changed during download: ETag " + currentEtag + " -> " + rangeEtag));
+      }
+
+      var matcher = matchContentRange(info);
+      if (info.statusCode() != HTTP_PARTIAL_CONTENT
+          || matcher == null
+          || Long.parseLong(matcher.group(1)) != range.position
+          || Long.parseLong(matcher.group(2)) > range.end // A shorter range is resumed on retry
+          || !matcher.group(3).equals(Long.toString(length))) {
+        var error =
+            new IOException(
+                String.format(
+                    "unexpected response for range %s: status %d, Content-Range: %s",
+                    range.remainingSpec(),
+                    info.statusCode(),
+                    info.headers().firstValue("Content-Range").orElse("<missing>")));
+        return new FailingBodySubscriber(error);
+      }
+      return new RangeWriter(range);
+    }
+
+    private @Nullable Matcher matchContentRange(ResponseInfo info) {
+      var contentRange = info.headers().firstValue("Content-Range").orElse(null);
+      if (contentRange == null) {
+        return null;
+      }
+      var matcher = CONTENT_RANGE_PATTERN.matcher(contentRange);
+      return matcher.matches() ? matcher : null;
+    }
+
+    private void preallocate(long length) {
+      if (length > 0) {
+        try {
+          channel.write(ByteBuffer.allocate(1), length - 1);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    private void trackProgress(long length) {
+      var tracker = progressTracker;
+      var listener = progressListener;
+      if (tracker != null && listener != null) {
+        progressFeed =
+            new ProgressFeed(tracker.tracking(BodySubscribers.discarding(), listener, length));
+      }
+    }
+
+    /** Writes a range's bytes at their offsets in the file. */
+    private final class RangeWriter implements BodySubscriber<Void> {
+      private final Range range;
+      private final Upstream upstream = new Upstream();
+      private final CompletableFuture<Void> body = new CompletableFuture<>();
+
+      RangeWriter(Range range) {
+        this.range = range;
+      }
+
+      @Override
+      public CompletionStage<Void> getBody() {
+        return body;
+      }
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        requireNonNull(subscription);
+        if (upstream.setOrCancel(subscription)) {
+          subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onNext(List<ByteBuffer> item) {
+        requireNonNull(item);
+        var written = new ArrayList<ByteBuffer>(item.size());
+        try {
+          long position = range.position;
+          for (var buffer : item) {
+            if (range.end >= 0 && position + buffer.remaining() - 1 > range.end) {
+              throw new IOException("received more bytes than requested for range " + range.end);
+            }
+            var duplicate = buffer.duplicate();
+            while (buffer.hasRemaining()) {
+              position += channel.write(buffer, position);
+            }
+            range.position = position;
+            written.add(duplicate);
+          }
+        } catch (IOException e) {
+          upstream.cancel();
+          body.completeExceptionally(e);
+          return;
+        } finally {
+          var feed = progressFeed;
+          if (feed != null) {
+            feed.onNext(written);
+          }
+        }
+        upstream.request(1);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        requireNonNull(throwable);
+        upstream.clear();
+        body.completeExceptionally(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        upstream.clear();
+        if (range.end >= 0 && !range.isComplete()) {
+          body.completeExceptionally(
+              new IOException(
+                  "range ended prematurely at " + range.position + " out of " + range.end));
+        } else {
+          body.complete(null);
+        }
+      }
+    }
+  }
+
+  /** Feeds the bytes of all ranges into a single progress tracking subscriber. */
+  private static final class ProgressFeed {
+    private final BodySubscriber<Void> trackingSubscriber;
+
+    ProgressFeed(BodySubscriber<Void> trackingSubscriber) {
+      this.trackingSubscriber = trackingSubscriber;
+      trackingSubscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    }
+
+    synchronized void onNext(List<ByteBuffer> buffers) {
+      if (!buffers.isEmpty()) {
+        trackingSubscriber.onNext(buffers);
+      }
+    }
+
+    synchronized void complete(@Nullable Throwable error) {
+      if (error != null) {
+        trackingSubscriber.onError(Utils.getDeepCompletionCause(error));
+      } else {
+        trackingSubscriber.onComplete();
+      }
+    }
+  }
+
+  /** Signals that a range can't be fetched as the resource is no longer the one downloaded. */
+  private static final class ResourceChangedException extends IOException {
+    ResourceChangedException(String message) {
+      super(message);
+    }
+  }
+
+  /** A {@code BodySubscriber} that fails with a given error, discarding the body. */
+  private static final class FailingBodySubscriber implements BodySubscriber<Void> {
+    private final IOException error;
+
+    FailingBodySubscriber(IOException error) {
+      this.error = error;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+      return CompletableFuture.failedFuture(error);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.cancel();
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {}
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {}
+  }
+
+  /** A builder of {@code RangedDownloader} instances. */
+  public static final class Builder {
+    private final HttpClient client;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private long minRangeSize = DEFAULT_MIN_RANGE_SIZE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private @MonotonicNonNull Executor executor;
+    private @MonotonicNonNull ProgressTracker progressTracker;
+    private @MonotonicNonNull Listener progressListener;
+
+    Builder(HttpClient client) {
+      this.client = requireNonNull(client);
+    }
+
+    /**
+     * Sets the maximum number of ranges fetched concurrently. The default is {@value
+     * DEFAULT_PARALLELISM}.
+     *
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    public Builder parallelism(int parallelism) {
+      requireArgument(parallelism > 0, "non-positive parallelism: %d", parallelism);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets the minimum size of a range, which is also the size of the first requested range. The
+     * default is 1 MB.
+     *
+     * @throws IllegalArgumentException if {@code minRangeSize} is not positive
+     */
+    public Builder minRangeSize(long minRangeSize) {
+      requireArgument(minRangeSize > 0, "non-positive minRangeSize: %d", minRangeSize);
+      this.minRangeSize = minRangeSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of times a failed range is requested again. The default is {@value
+     * DEFAULT_MAX_RETRIES}.
+     *
+     * @throws IllegalArgumentException if {@code maxRetries} is negative
+     */
+    public Builder maxRetries(int maxRetries) {
+      requireArgument(maxRetries >= 0, "negative maxRetries: %d", maxRetries);
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    /**
+     * Sets the executor in which downloaded files are read to verify their digests. By default,
+     * {@code CompletableFuture}'s default asynchronous execution facility is used.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = requireNonNull(executor);
+      return this;
+    }
+
+    /**
+     * Tracks the aggregate download progress of all ranges with the given tracker, signalling
+     * progress events to the given listener.
+     */
+    public Builder progressTracker(ProgressTracker progressTracker, Listener listener) {
+      this.progressTracker = requireNonNull(progressTracker);
+      this.progressListener = requireNonNull(listener);
+      return this;
+    }
+
+    /** Returns a new {@code RangedDownloader} with this builder's settings. */
+    public RangedDownloader build() {
+      return new RangedDownloader(this);
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 package com.github.mizosoft.methanol;
 
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
 import static com.github.mizosoft.methanol.internal.Validate.requireState;
 import static java.util.Objects.requireNonNull;
 
@@ -30,18 +31,23 @@ import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
-import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -56,6 +62,12 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * <p>Note that ({@link #contentLength()} always returns {@code -1}). If the content length is known
  * prior to writing, {@link BodyPublishers#fromPublisher(Publisher, long)} can be used to attach
  * the the known length to this publisher.
+ *
+ * <p>A publisher returned by {@link #create()} buffers any amount of content the consumer hasn't
+ * yet received. A bounded publisher, returned by {@link #create(long)} or {@link
+ * #createNonBlocking(long)}, limits such content to a given number of bytes. When the limit is
+ * reached, writers either block till the consumer receives some of the buffered content, or fail
+ * fast in the case of a non-blocking publisher.
  */
 public final class WritableBodyPublisher implements BodyPublisher, Flushable, AutoCloseable {
 
@@ -66,26 +78,56 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
 
   private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
 
+  private static final long UNBOUNDED = Long.MAX_VALUE;
+
   private final AtomicBoolean subscribed;
   private final ConcurrentLinkedQueue<ByteBuffer> pipe;
   private volatile @Nullable SubscriptionImpl downstreamSubscription;
   private volatile @MonotonicNonNull Throwable closeError; // cache error in case not yet subscribed
   private volatile boolean closed;
 
-  private final Object writeLock;
-  private @MonotonicNonNull WritableByteChannel sinkChannel;
+  /** Whether downstream has cancelled, in which case written content is discarded. */
+  private volatile boolean discardWrites;
+
+  private final long maxBufferedBytes;
+  private final boolean blocking;
+
+  /** Number of written bytes not yet submitted downstream, only maintained if bounded. */
+  private final AtomicLong bufferedBytes;
+
+  /** Lock & condition on which writers wait for buffered content to drain when bounded. */
+  private final Lock drainLock;
+  private final Condition hasRoom;
+
+  // A ReentrantLock rather than a monitor so that virtual threads blocked while writing don't pin
+  // their carrier threads.
+  private final Lock writeLock;
+  private @MonotonicNonNull SinkChannel sinkChannel;
   private @MonotonicNonNull OutputStream sinkOutputStream;
   private @Nullable ByteBuffer sinkBuffer;
 
-  private WritableBodyPublisher() {
+  private WritableBodyPublisher(long maxBufferedBytes, boolean blocking) {
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.blocking = blocking;
     subscribed = new AtomicBoolean();
     pipe = new ConcurrentLinkedQueue<>();
-    writeLock = new Object();
+    bufferedBytes = new AtomicLong();
+    drainLock = new ReentrantLock();
+    hasRoom = drainLock.newCondition();
+    writeLock = new ReentrantLock();
+  }
+
+  long bufferedBytesForTesting() {
+    return bufferedBytes.get();
   }
 
   /** Returns a {@code WritableByteChannel} for writing this body's content. */
   public WritableByteChannel byteChannel() {
-    WritableByteChannel channel = sinkChannel;
+    return sinkChannel();
+  }
+
+  private SinkChannel sinkChannel() {
+    SinkChannel channel = sinkChannel;
     if (channel == null) {
       channel = new SinkChannel();
       sinkChannel = channel;
@@ -97,7 +139,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
   public OutputStream outputStream() {
     OutputStream out = sinkOutputStream;
     if (out == null) {
-      out = new SinkChannelAdapter(byteChannel());
+      out = new SinkChannelAdapter(sinkChannel());
       sinkOutputStream = out;
     }
     return out;
@@ -112,6 +154,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     if (!closed) {
       closed = true;
       closeError = error;
+      wakeUpWriters();
       SubscriptionImpl subscription = downstreamSubscription;
       if (subscription != null) {
         subscription.signalError(error);
@@ -127,6 +170,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
   public void close() {
     if (!closed) {
       closed = true;
+      wakeUpWriters(); // A writer waiting for the pipe to drain holds writeLock
       flushInternal();
       pipe.offer(CLOSED);
       signalDownstream(true);
@@ -186,7 +230,8 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
 
   private boolean flushInternal() {
     boolean signalsAvailable = false;
-    synchronized (writeLock) {
+    writeLock.lock();
+    try {
       ByteBuffer sink = sinkBuffer;
       if (sink != null && sink.position() > 0) {
         sinkBuffer =
@@ -196,10 +241,50 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
         pipe.offer(sink.flip().asReadOnlyBuffer());
         signalsAvailable = true;
       }
+    } finally {
+      writeLock.unlock();
     }
     return signalsAvailable;
   }
 
+  private boolean isBounded() {
+    return maxBufferedBytes != UNBOUNDED;
+  }
+
+  /** Called when the given number of buffered bytes are submitted downstream. */
+  private void drained(int byteCount) {
+    if (isBounded()) {
+      bufferedBytes.addAndGet(-byteCount);
+      wakeUpWriters();
+    }
+  }
+
+  private void wakeUpWriters() {
+    if (isBounded()) {
+      drainLock.lock();
+      try {
+        hasRoom.signalAll();
+      } finally {
+        drainLock.unlock();
+      }
+    }
+  }
+
+  /** Blocks till there's room for more bytes to be buffered or writing can't proceed. */
+  private void awaitDrain() throws InterruptedIOException {
+    drainLock.lock();
+    try {
+      while (bufferedBytes.get() >= maxBufferedBytes && !closed && !discardWrites) {
+        hasRoom.await();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for content to drain");
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
   private static int getSinkBufferSize() {
     int size = Integer.getInteger(SINK_BUFFER_SIZE_PROP, DEFAULT_SINK_BUFFER_SIZE);
     if (size <= 0) {
@@ -210,7 +295,33 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
 
   /** Returns a new {@code WritableBodyPublisher}. */
   public static WritableBodyPublisher create() {
-    return new WritableBodyPublisher();
+    return new WritableBodyPublisher(UNBOUNDED, true);
+  }
+
+  /**
+   * Returns a new {@code WritableBodyPublisher} that buffers at most {@code maxBufferedBytes} of
+   * content not yet received by the consumer. Once the limit is reached, writing to the publisher's
+   * sinks blocks till the consumer receives some of the buffered content.
+   *
+   * @throws IllegalArgumentException if {@code maxBufferedBytes} is not positive
+   */
+  public static WritableBodyPublisher create(long maxBufferedBytes) {
+    requireArgument(maxBufferedBytes > 0, "non-positive maxBufferedBytes: %d", maxBufferedBytes);
+    return new WritableBodyPublisher(maxBufferedBytes, true);
+  }
+
+  /**
+   * Returns a new {@code WritableBodyPublisher} that buffers at most {@code maxBufferedBytes} of
+   * content not yet received by the consumer, and that never blocks writers. Once the limit is
+   * reached, the publisher's {@code WritableByteChannel} writes as many bytes as there's room for,
+   * possibly none, and its {@code OutputStream} throws an {@code IOException} for a write that
+   * doesn't entirely fit, writing nothing.
+   *
+   * @throws IllegalArgumentException if {@code maxBufferedBytes} is not positive
+   */
+  public static WritableBodyPublisher createNonBlocking(long maxBufferedBytes) {
+    requireArgument(maxBufferedBytes > 0, "non-positive maxBufferedBytes: %d", maxBufferedBytes);
+    return new WritableBodyPublisher(maxBufferedBytes, false);
   }
 
   private final class SinkChannel implements WritableByteChannel {
@@ -218,7 +329,15 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     SinkChannel() {}
 
     @Override
-    public int write(ByteBuffer src) throws ClosedChannelException {
+    public int write(ByteBuffer src) throws IOException {
+      return write(src, false);
+    }
+
+    /**
+     * Writes the given buffer's content, either entirely or not at all if {@code allOrNothing} is
+     * {@code true} and the publisher is non-blocking.
+     */
+    int write(ByteBuffer src, boolean allOrNothing) throws IOException {
       requireNonNull(src);
       if (closed) {
         throw new ClosedChannelException();
@@ -226,22 +345,64 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
       if (!src.hasRemaining()) {
         return 0;
       }
+      if (discardWrites) {
+        int remaining = src.remaining();
+        src.position(src.limit());
+        return remaining;
+      }
 
       int written = 0;
       boolean signalsAvailable = false;
-      synchronized (writeLock) {
+      writeLock.lock();
+      try {
         ByteBuffer sink = sinkBuffer;
         do {
+          int writable = src.remaining();
+          if (isBounded()) {
+            long room = maxBufferedBytes - bufferedBytes.get();
+            if (room < (allOrNothing && !blocking ? writable : 1)) {
+              // Make what's buffered so far available for consumption so it can be drained,
+              // including sinks filled earlier in this write, which downstream isn't yet told of
+              if (sink != null && sink.position() > 0) {
+                pipe.offer(sink.flip().asReadOnlyBuffer());
+                sink = null;
+                signalsAvailable = true;
+              }
+              if (signalsAvailable) {
+                signalsAvailable = false;
+                signalDownstream(false);
+              }
+              if (!blocking) {
+                if (allOrNothing) {
+                  sinkBuffer = sink;
+                  throw new IOException(
+                      String.format(
+                          "can't buffer %d more bytes; %d of at most %d bytes are buffered",
+                          writable, bufferedBytes.get(), maxBufferedBytes));
+                }
+                break;
+              }
+              sinkBuffer = sink;
+              awaitDrain();
+              continue; // Recheck if closed or cancelled while waiting
+            }
+            writable = (int) Math.min(writable, room);
+          }
+
           if (sink == null) {
             sink = ByteBuffer.allocate(SINK_BUFFER_SIZE);
           }
-          written += Utils.copyRemaining(src, sink);
+          int copied = copyRemaining(src, sink, writable);
+          written += copied;
+          if (isBounded()) {
+            bufferedBytes.addAndGet(copied);
+          }
           if (!sink.hasRemaining()) {
             pipe.offer(sink.flip().asReadOnlyBuffer());
             signalsAvailable = true;
             sink = null;
           }
-        } while (src.hasRemaining() && isOpen());
+        } while (src.hasRemaining() && isOpen() && !discardWrites);
 
         if (closed) { // asynchronously closed
           sinkBuffer = null;
@@ -251,6 +412,8 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
         } else {
           sinkBuffer = sink;
         }
+      } finally {
+        writeLock.unlock();
       }
 
       if (signalsAvailable) {
@@ -259,6 +422,19 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
       return written;
     }
 
+    private int copyRemaining(ByteBuffer src, ByteBuffer sink, int maxCount) {
+      if (src.remaining() <= maxCount) {
+        return Utils.copyRemaining(src, sink);
+      }
+      int limit = src.limit();
+      src.limit(src.position() + maxCount);
+      try {
+        return Utils.copyRemaining(src, sink);
+      } finally {
+        src.limit(limit);
+      }
+    }
+
     @Override
     public boolean isOpen() {
       return !closed;
@@ -270,24 +446,28 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     }
   }
 
-  // Adapts a channel to OutputStream. Most work is done by Channels#newOutputStream but overridden
-  // to forward flush() and close() to this publisher.
+  // Adapts a channel to OutputStream, forwarding flush() and close() to this publisher. Writes are
+  // all-or-nothing if the publisher is non-blocking as an OutputStream can't report partial writes.
   private final class SinkChannelAdapter extends OutputStream {
 
-    private final OutputStream out;
+    private final SinkChannel channel;
 
-    SinkChannelAdapter(WritableByteChannel channel) {
-      this.out = Channels.newOutputStream(channel);
+    SinkChannelAdapter(SinkChannel channel) {
+      this.channel = channel;
     }
 
     @Override
     public void write(int b) throws IOException {
-      out.write(b);
+      write(new byte[] {(byte) b}, 0, 1);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-      out.write(b, off, len);
+      Objects.checkFromIndexSize(off, len, b.length);
+      var buffer = ByteBuffer.wrap(b, off, len);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, true);
+      }
     }
 
     @Override
@@ -332,6 +512,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
           return submitted;
         } else if (submitOnNext(downstream, batch)) {
           submitted++;
+          drained(batch.limit()); // Downstream might've consumed the buffer by now
           batch = pipe.poll(); // get next batch and continue
         } else {
           return 0;
@@ -342,7 +523,9 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     @Override
     protected void abort(boolean flowInterrupted) {
       WritableBodyPublisher.this.downstreamSubscription = null; // loose reference "this"
+      discardWrites = true;
       pipe.clear();
+      wakeUpWriters();
     }
   }
 }
@@ -43,6 +43,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -53,6 +54,11 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * downstream with an {@code IOException} on such case. The decoder is closed on either normal or
  * exceptional completion or on cancellation from downstream.
  *
+ * <p>Decoded bytes are written into heap buffers unless the system property {@code
+ * com.github.mizosoft.methanol.decoder.AsyncBodyDecoder.directBuffers} is {@code true}, in which
+ * case they're written into direct buffers. The latter lets native decoders (e.g. zlib's {@code
+ * Inflater}) write to the sink without going through the Java heap.
+ *
  * @param <T> the body type
  */
 @SuppressWarnings("ReferenceEquality") // ByteBuffer sentinel values
@@ -63,6 +69,9 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       "com.github.mizosoft.methanol.decoder.AsyncBodyDecoder.bufferSize";
   private static final int DEFAULT_BUFFER_SIZE = 8 * 1024; // 8Kb
   private static final int BUFFER_SIZE = getBufferSize();
+  private static final String DIRECT_BUFFERS_PROP =
+      "com.github.mizosoft.methanol.decoder.AsyncBodyDecoder.directBuffers";
+  private static final boolean DIRECT_BUFFERS = Boolean.getBoolean(DIRECT_BUFFERS_PROP);
 
   private static final List<ByteBuffer> COMPLETE = List.of(ByteBuffer.allocate(0));
 
@@ -75,6 +84,10 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
   private final QueueByteSource source;
   private final StackByteSink sink;
   private final ConcurrentLinkedQueue<List<ByteBuffer>> decodedBuffers;
+
+  /** The number of decoded batches that are yet to be submitted downstream. */
+  private final AtomicInteger pendingBatches = new AtomicInteger();
+
   private volatile @MonotonicNonNull SubscriptionImpl downstreamSubscription;
   private boolean completed;
 
@@ -106,7 +119,9 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
     this.executor = requireNonNull(executor, "executor");
     this.userExecutor = userExecutor;
     upstream = new Upstream();
-    prefetcher = new Prefetcher();
+    // Upstream items are done with as soon as they're decoded, so the prefetch adapts to how many
+    // decoded batches downstream is yet to consume, as each upstream item yields at most one
+    prefetcher = new Prefetcher(pendingBatches::get);
     source = new QueueByteSource();
     sink = new StackByteSink();
     decodedBuffers = new ConcurrentLinkedQueue<>();
@@ -150,6 +165,7 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       return;
     }
 
+    prefetcher.received(buffers);
     source.push(buffers);
     try {
       decoder.decode(source, sink);
@@ -158,11 +174,14 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       onError(t);
       return;
     }
-    prefetcher.update(upstream);
     SubscriptionImpl subscription = downstreamSubscription;
-    if (sink.flush(decodedBuffers, false) && subscription != null) {
-      subscription.signal(false); // Notify downstream there is new data
+    if (sink.flush(decodedBuffers, false)) {
+      pendingBatches.incrementAndGet();
+      if (subscription != null) {
+        subscription.signal(false); // Notify downstream there is new data
+      }
     }
+    prefetcher.update(upstream); // Update after downstream has had the chance to consume
   }
 
   @Override
@@ -290,7 +309,10 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       int size = sinkBuffers.size();
       ByteBuffer last = size > 0 ? sinkBuffers.get(size - 1) : null;
       if (last == null || !last.hasRemaining()) {
-        last = ByteBuffer.allocate(BUFFER_SIZE);
+        last =
+            DIRECT_BUFFERS
+                ? ByteBuffer.allocateDirect(BUFFER_SIZE)
+                : ByteBuffer.allocate(BUFFER_SIZE);
         sinkBuffers.add(last);
       }
       return last;
@@ -353,6 +375,7 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
           return submitted;
         } else if (submitOnNext(downstream, batch)) {
           submitted++;
+          pendingBatches.decrementAndGet();
           batch = decodedBuffers.poll(); // get next batch and continue
         } else {
           return 0;
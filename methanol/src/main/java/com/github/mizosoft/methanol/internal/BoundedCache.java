@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal;
+
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A concurrent cache of at most a given number of entries that is cleared entirely when full.
+ * Starting over is used instead of evicting selectively as it's cheap, needs no bookkeeping on
+ * reads, and lets frequently used entries be quickly cached again. This suits caching parsed
+ * header values and similar lookups, which mostly hit a small set of recurring keys.
+ */
+public final class BoundedCache<K, V> {
+  private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  public BoundedCache(int maxSize) {
+    requireArgument(maxSize > 0, "non-positive maxSize: %d", maxSize);
+    this.maxSize = maxSize;
+  }
+
+  /** Returns the value cached for the given key, or {@code null} if there's none. */
+  public @Nullable V get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Caches the given value unless a value is already cached for the given key, returning whichever
+   * value ends up cached. The cache is cleared first if it's full.
+   */
+  public V put(K key, V value) {
+    requireNonNull(key);
+    requireNonNull(value);
+    if (entries.size() >= maxSize) {
+      entries.clear();
+    }
+    var existing = entries.putIfAbsent(key, value);
+    return existing != null ? existing : value;
+  }
+
+  /** Returns the number of cached entries. */
+  public int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.adapter;
+
+import com.github.mizosoft.methanol.TypeRef;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** Helpers for adapters that decode a body into a lazily read {@code Stream} of elements. */
+public class ElementStreams {
+  private ElementStreams() {} // non-instantiable
+
+  /**
+   * Returns {@code T}'s type if the given type is a {@code Stream<T>} or a {@code Stream<? extends
+   * T>}, or {@code null} otherwise.
+   */
+  public static @Nullable Type streamElementType(TypeRef<?> type) {
+    if (type.rawType() != Stream.class || !(type.type() instanceof ParameterizedType)) {
+      return null;
+    }
+    var typeArgument = ((ParameterizedType) type.type()).getActualTypeArguments()[0];
+    return typeArgument instanceof WildcardType
+        ? ((WildcardType) typeArgument).getUpperBounds()[0]
+        : typeArgument;
+  }
+
+  /**
+   * Returns a sequential stream of the given iterator's elements that closes the given source when
+   * closed.
+   */
+  public static <T> Stream<T> toStream(Iterator<T> iterator, Closeable source) {
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+        .onClose(
+            () -> {
+              try {
+                source.close();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+}
@@ -36,7 +36,7 @@ public final class CacheResponse extends PublisherResponse implements Closeable
       Instant now) {
     super(metadata.toResponseBuilder().buildTracked(), new CacheReadingPublisher(viewer, executor));
     this.viewer = viewer;
-    this.strategy = new CacheStrategy(request, response, now);
+    this.strategy = new CacheStrategy(request, response, metadata.freshnessHeaders(), now);
   }
 
   private CacheResponse(
@@ -99,12 +99,21 @@ public final class CacheResponse extends PublisherResponse implements Closeable
     private final LocalDateTime effectiveLastModified;
     private final Optional<String> etag;
 
-    CacheStrategy(HttpRequest request, TrackedResponse<?> response, Instant now) {
+    CacheStrategy(
+        HttpRequest request,
+        TrackedResponse<?> response,
+        FreshnessHeaders freshnessHeaders,
+        Instant now) {
       this.requestCacheControl = CacheControl.parse(request.headers());
       this.responseCacheControl = CacheControl.parse(response.headers());
 
       var maxAge = requestCacheControl.maxAge().or(responseCacheControl::maxAge);
-      var freshnessPolicy = new FreshnessPolicy(maxAge, response);
+      var freshnessPolicy =
+          new FreshnessPolicy(
+              maxAge,
+              freshnessHeaders,
+              response.timeRequestSent(),
+              response.timeResponseReceived());
       var freshnessLifetime = freshnessPolicy.computeFreshnessLifetime();
       age = freshnessPolicy.computeAge(now);
       freshness = freshnessLifetime.minus(age);
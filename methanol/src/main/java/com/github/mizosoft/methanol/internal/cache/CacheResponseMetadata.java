@@ -1,7 +1,9 @@
 package com.github.mizosoft.methanol.internal.cache;
 
+import static com.github.mizosoft.methanol.internal.cache.DateUtils.max;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.github.mizosoft.methanol.CacheControl;
 import com.github.mizosoft.methanol.MutableRequest;
 import com.github.mizosoft.methanol.TrackedResponse;
 import com.github.mizosoft.methanol.internal.extensions.HeadersBuilder;
@@ -26,11 +28,16 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import javax.net.ssl.SSLPeerUnverifiedException;
@@ -47,6 +54,16 @@ public final class CacheResponseMetadata {
 
   private static final int FLAG_HAS_SSL_INFO = 0x1;
 
+  /**
+   * Indicates that parsed freshness headers follow the rest of the metadata. Metadata written
+   * before these were persisted doesn't have them, so they're parsed from the headers instead.
+   */
+  private static final int FLAG_HAS_FRESHNESS_HEADERS = 0x2;
+
+  private static final int FLAG_HAS_DATE = 0x1;
+  private static final int FLAG_HAS_EXPIRES = 0x2;
+  private static final int FLAG_HAS_LAST_MODIFIED = 0x4;
+
   private final URI uri;
   private final String requestMethod;
   private final HttpHeaders varyHeaders;
@@ -55,6 +72,7 @@ public final class CacheResponseMetadata {
   private final Instant timeRequestSent;
   private final Instant timeResponseReceived;
   private final @Nullable SSLSession sslSession;
+  private final FreshnessHeaders freshnessHeaders;
 
   private CacheResponseMetadata(
       URI uri,
@@ -64,7 +82,8 @@ public final class CacheResponseMetadata {
       HttpHeaders headers,
       Instant timeRequestSent,
       Instant timeResponseReceived,
-      @Nullable SSLSession sslSession) {
+      @Nullable SSLSession sslSession,
+      FreshnessHeaders freshnessHeaders) {
     this.uri = uri;
     this.requestMethod = requestMethod;
     this.varyHeaders = varyHeaders;
@@ -73,12 +92,17 @@ public final class CacheResponseMetadata {
     this.timeRequestSent = timeRequestSent;
     this.timeResponseReceived = timeResponseReceived;
     this.sslSession = sslSession;
+    this.freshnessHeaders = freshnessHeaders;
   }
 
   HttpHeaders varyHeadersForTesting() {
     return varyHeaders;
   }
 
+  FreshnessHeaders freshnessHeaders() {
+    return freshnessHeaders;
+  }
+
   public URI uri() {
     return uri;
   }
@@ -112,9 +136,45 @@ public final class CacheResponseMetadata {
     return true;
   }
 
+  /**
+   * Returns the time after which the response can't be served without revalidation. This includes
+   * the time the response can be served stale for as allowed by its {@code stale-while-revalidate}
+   * or {@code stale-if-error} directives.
+   */
+  public Instant expiresAt() {
+    var cacheControl = CacheControl.parse(headers);
+    if (cacheControl.noCache()) {
+      return timeResponseReceived; // The response must always be revalidated
+    }
+
+    try {
+      var expiration =
+          new FreshnessPolicy(
+                  cacheControl.maxAge(), freshnessHeaders, timeRequestSent, timeResponseReceived)
+              .computeExpiration();
+      if (cacheControl.mustRevalidate()) {
+        return expiration; // The response must not be served stale
+      }
+      var staleness =
+          max(
+              cacheControl.staleWhileRevalidate().orElse(Duration.ZERO),
+              cacheControl.staleIfError().orElse(Duration.ZERO));
+      return expiration.plus(staleness);
+    } catch (ArithmeticException | DateTimeException e) {
+      // The response is given an absurdly long lifetime
+      return Instant.MAX;
+    }
+  }
+
+  /** Returns whether the response has validators to revalidate it with. */
+  public boolean isRevalidatable() {
+    return headers.firstValue("ETag").isPresent()
+        || headers.firstValue("Last-Modified").isPresent();
+  }
+
   public ByteBuffer encode() throws IOException {
     var writer = new MetadataWriter();
-    writer.writeInt(sslSession != null ? FLAG_HAS_SSL_INFO : 0);
+    writer.writeInt((sslSession != null ? FLAG_HAS_SSL_INFO : 0) | FLAG_HAS_FRESHNESS_HEADERS);
     writer.writeUtf8(uri.toString());
     writer.writeUtf8(requestMethod);
     writer.writeHeaders(varyHeaders);
@@ -125,6 +185,7 @@ public final class CacheResponseMetadata {
     if (sslSession != null) {
       writer.writeSSLSession(sslSession);
     }
+    writer.writeFreshnessHeaders(freshnessHeaders);
     return writer.snapshot();
   }
 
@@ -155,6 +216,10 @@ public final class CacheResponseMetadata {
     var timeRequestSent = reader.readInstant();
     var timeResponseReceived = reader.readInstant();
     var sslSession = (flags & FLAG_HAS_SSL_INFO) != 0 ? reader.readSSLSession() : null;
+    var freshnessHeaders =
+        (flags & FLAG_HAS_FRESHNESS_HEADERS) != 0
+            ? reader.readFreshnessHeaders()
+            : FreshnessHeaders.parse(headers);
     return new CacheResponseMetadata(
         uri,
         requestMethod,
@@ -163,7 +228,8 @@ public final class CacheResponseMetadata {
         headers,
         timeRequestSent,
         timeResponseReceived,
-        sslSession);
+        sslSession,
+        freshnessHeaders);
   }
 
   private static URI recoverUri(String uri) throws IOException {
@@ -183,7 +249,8 @@ public final class CacheResponseMetadata {
         response.headers(),
         response.timeRequestSent(),
         response.timeResponseReceived(),
-        response.sslSession().orElse(null));
+        response.sslSession().orElse(null),
+        FreshnessHeaders.parse(response.headers()));
   }
 
   public static Set<String> varyFields(HttpHeaders headers) {
@@ -344,6 +411,25 @@ public final class CacheResponseMetadata {
       return Instant.ofEpochMilli(readLong());
     }
 
+    FreshnessHeaders readFreshnessHeaders() throws IOException {
+      int flags = readInt();
+      var date = readDateIfPresent(flags, FLAG_HAS_DATE);
+      var expires = readDateIfPresent(flags, FLAG_HAS_EXPIRES);
+      var lastModified = readDateIfPresent(flags, FLAG_HAS_LAST_MODIFIED);
+      var age = Duration.ofSeconds(readLong());
+      return new FreshnessHeaders(date, expires, lastModified, age);
+    }
+
+    private Optional<LocalDateTime> readDateIfPresent(int flags, int flag) throws IOException {
+      try {
+        return (flags & flag) != 0
+            ? Optional.of(LocalDateTime.ofEpochSecond(readLong(), 0, ZoneOffset.UTC))
+            : Optional.empty();
+      } catch (DateTimeException e) {
+        throw new IOException("corrupt date", e);
+      }
+    }
+
     private EOFException endOfInput() {
       return new EOFException("unexpected end of input (position = " + buffer.position() + ")");
     }
@@ -383,6 +469,21 @@ public final class CacheResponseMetadata {
       writeLong(instant.toEpochMilli());
     }
 
+    void writeFreshnessHeaders(FreshnessHeaders headers) {
+      writeInt(
+          (headers.date.isPresent() ? FLAG_HAS_DATE : 0)
+              | (headers.expires.isPresent() ? FLAG_HAS_EXPIRES : 0)
+              | (headers.lastModified.isPresent() ? FLAG_HAS_LAST_MODIFIED : 0));
+      headers.date.ifPresent(this::writeDate);
+      headers.expires.ifPresent(this::writeDate);
+      headers.lastModified.ifPresent(this::writeDate);
+      writeLong(headers.age.getSeconds());
+    }
+
+    private void writeDate(LocalDateTime date) {
+      writeLong(date.toEpochSecond(ZoneOffset.UTC));
+    }
+
     void writeHeaders(HttpHeaders headers) {
       var headersMap = headers.map();
       var deepHeaderCount = headersMap.values().stream().mapToInt(Collection::size).sum();
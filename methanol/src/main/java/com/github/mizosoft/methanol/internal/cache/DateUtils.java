@@ -1,8 +1,10 @@
 package com.github.mizosoft.methanol.internal.cache;
 
+import com.github.mizosoft.methanol.internal.BoundedCache;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.time.DateTimeException;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -19,6 +21,23 @@ public class DateUtils {
   private static final DateTimeFormatter PREFERRED_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
   private static final List<DateTimeFormatter> FORMATTERS;
 
+  /** IMF-fixdate (e.g. {@code Sun, 06 Nov 1994 08:49:37 GMT}), which is what servers must send. */
+  private static final int IMF_FIXDATE_LENGTH = 29;
+
+  private static final List<String> DAY_NAMES =
+      List.of("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+  private static final List<String> MONTH_NAMES =
+      List.of("Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec");
+
+  private static final int PARSE_CACHE_MAX_SIZE = 64;
+
+  /**
+   * Recently parsed dates. The same few values (e.g. a resource's Last-Modified) tend to be parsed
+   * repeatedly. Only successfully parsed values are cached.
+   */
+  private static final BoundedCache<String, LocalDateTime> parseCache =
+      new BoundedCache<>(PARSE_CACHE_MAX_SIZE);
+
   // TODO add non-standard formats found in the wild?
   static {
     // Use formats specified by rfc7231 section 7.1.1.1
@@ -44,6 +63,81 @@ public class DateUtils {
   }
 
   static @Nullable LocalDateTime toHttpDate0(String value, boolean logFailure) {
+    var dateTime = parseCache.get(value);
+    if (dateTime == null) {
+      dateTime = parseImfFixdate(value);
+      if (dateTime == null) {
+        dateTime = parseWithFormatters(value, logFailure);
+      }
+      if (dateTime != null) {
+        dateTime = parseCache.put(value, dateTime);
+      }
+    }
+    return dateTime;
+  }
+
+  /**
+   * Parses the given value if it's an exact IMF-fixdate, returning {@code null} otherwise (e.g. if
+   * it's in an obsolete format, is differently cased or is an invalid date) so the value can be
+   * handed to the more lenient formatters.
+   */
+  static @Nullable LocalDateTime parseImfFixdate(String value) {
+    // IMF-fixdate = day-name "," SP date1 SP time-of-day SP GMT
+    if (value.length() != IMF_FIXDATE_LENGTH
+        || value.charAt(3) != ','
+        || value.charAt(4) != ' '
+        || value.charAt(7) != ' '
+        || value.charAt(11) != ' '
+        || value.charAt(16) != ' '
+        || value.charAt(19) != ':'
+        || value.charAt(22) != ':'
+        || !value.startsWith(" GMT", 25)) {
+      return null;
+    }
+
+    int dayOfWeek = indexOfName(DAY_NAMES, value, 0) + 1;
+    int day = parseDigits(value, 5, 7);
+    int month = indexOfName(MONTH_NAMES, value, 8) + 1;
+    int year = parseDigits(value, 12, 16);
+    int hour = parseDigits(value, 17, 19);
+    int minute = parseDigits(value, 20, 22);
+    int second = parseDigits(value, 23, 25);
+    if (dayOfWeek <= 0 || month <= 0 || (day | year | hour | minute | second) < 0) {
+      return null;
+    }
+
+    try {
+      var dateTime = LocalDateTime.of(year, month, day, hour, minute, second);
+      return dateTime.getDayOfWeek() == DayOfWeek.of(dayOfWeek) ? dateTime : null;
+    } catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  /** Returns the index of the name found at the given offset, or -1 if there's no such name. */
+  private static int indexOfName(List<String> names, String value, int offset) {
+    for (int i = 0; i < names.size(); i++) {
+      if (value.startsWith(names.get(i), offset)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the value of the ASCII digits in the given range, or -1 if there's a non-digit. */
+  private static int parseDigits(String value, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = 10 * result + (c - '0');
+    }
+    return result;
+  }
+
+  private static @Nullable LocalDateTime parseWithFormatters(String value, boolean logFailure) {
     DateTimeException parseException = null; // Only recorded if logFailure is true
     for (var formatter : FORMATTERS) {
       try {
@@ -40,6 +40,7 @@ import static java.util.Objects.requireNonNullElse;
 import static java.util.Objects.requireNonNullElseGet;
 
 import com.github.mizosoft.methanol.internal.Utils;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import com.github.mizosoft.methanol.internal.function.ThrowingRunnable;
 import com.github.mizosoft.methanol.internal.function.Unchecked;
 import java.io.EOFException;
@@ -77,6 +78,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -113,11 +115,22 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * durability against crashes as entries that aren't indexed are dropped on initialization. Calling
  * the {@code flush} method forces an index update, regardless of the time limit.
  *
+ * <p>Entries written by editors opened with {@link #bulkEdit(String, Instant)} are neither forced
+ * to disk individually nor trigger index updates. Instead, they're all synced in a single pass
+ * followed by a single index update when the store is next flushed or closed.
+ *
  * <p>To ensure entries are not lost across sessions, a store must be {@link #close() closed} after
  * it has been done with. The {@link #dispose()} method can be called to atomically close the store
  * and clear its directory if persistence isn't needed (e.g. using temp directories for storage). A
  * closed store throws an {@code IllegalStateException} when either of {@code initialize} (if not
  * yet initialized), {@code view}, {@code edit}, {@code remove} or {@code clear} is invoked.
+ *
+ * <p>If the store is configured with a {@link Partitioner}, initialization additionally reads the
+ * key of each entry known to the index so that the entry can be attributed to its partition.
+ *
+ * <p>Dead entries (expired entries that can't be revalidated) are evicted first when the store or
+ * one of its partitions exceeds its bound. They're otherwise kept, as a request that accepts stale
+ * responses (e.g. with {@code max-stale}) might still be served one.
  */
 public final class DiskStore implements Store {
   /*
@@ -139,6 +152,8 @@ public final class DiskStore implements Store {
    *   <entry-descriptor> = 10-bytes-entry-hash
    *                        8-bytes-last-used-millis (maintained for LRU eviction)
    *                        8-bytes-entry-size
+   *                        8-bytes-expires-at-millis (Long.MAX_VALUE if the entry never expires)
+   *                        1-byte-flags (0x1 if the entry can be revalidated after expiry)
    *
    *   <entry> = <data> <entry-footer>
    *   <data> = byte*
@@ -170,9 +185,10 @@ public final class DiskStore implements Store {
   // Visible for testing
   static final long INDEX_MAGIC = 0x6d657468616e6f6cL;
   static final long ENTRY_MAGIC = 0x7b6368332d6f687dL;
-  static final int STORE_VERSION = 1;
+  static final int STORE_VERSION = 2;
   static final int INDEX_HEADER_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES;
-  static final int ENTRY_DESCRIPTOR_SIZE = Hash.BYTES + 2 * Long.BYTES;
+  static final int ENTRY_DESCRIPTOR_SIZE = Hash.BYTES + 3 * Long.BYTES + Byte.BYTES;
+  static final byte DESCRIPTOR_FLAG_REVALIDATABLE = 0x1;
   static final int ENTRY_TRAILER_SIZE = 2 * Long.BYTES + 4 * Integer.BYTES;
 
   static final String LOCK_FILENAME = ".lock";
@@ -209,6 +225,8 @@ public final class DiskStore implements Store {
   private final Executor executor;
   private final int appVersion;
   private final Hasher hasher;
+  private final Partitioner partitioner;
+  private final boolean partitioned;
   private final Clock clock;
   private final SerialExecutor indexExecutor; // Operate on the index sequentially
   private final IndexOperator indexOperator;
@@ -216,6 +234,12 @@ public final class DiskStore implements Store {
   private final EvictionScheduler evictionScheduler;
   private final ConcurrentHashMap<Hash, Entry> entries = new ConcurrentHashMap<>();
   private final AtomicLong size = new AtomicLong();
+  private final ConcurrentHashMap<String, AtomicLong> partitionSizes = new ConcurrentHashMap<>();
+  private final Set<Entry> unsyncedEntries = ConcurrentHashMap.newKeySet();
+
+  /** Whether any entry has been committed that can die, in which case eviction looks for those. */
+  private volatile boolean hasMortalEntries;
+
   private final StampedLock closeLock = new StampedLock();
 
   private @MonotonicNonNull DirectoryLock directoryLock; // Acquired when initializing
@@ -229,6 +253,8 @@ public final class DiskStore implements Store {
     this.executor = requireNonNull(builder.executor);
     this.appVersion = builder.appVersion;
     this.hasher = requireNonNullElse(builder.hasher, Hasher.TRUNCATED_SHA_256);
+    this.partitioner = requireNonNullElse(builder.partitioner, Partitioner.NONE);
+    this.partitioned = partitioner != Partitioner.NONE;
     this.clock = requireNonNullElseGet(builder.clock, Utils::systemMillisUtc);
     indexExecutor = new SerialExecutor(executor);
     indexOperator = new IndexOperator(directory, appVersion);
@@ -276,15 +302,22 @@ public final class DiskStore implements Store {
       directoryLock = DirectoryLock.acquire(directory);
 
       long totalSize = 0L;
+      boolean recoveredMortalEntries = false;
       for (var descriptor : indexOperator.recoverEntrySet()) {
-        entries.put(descriptor.hash, new Entry(descriptor));
+        var entry = new Entry(descriptor);
+        if (partitioned && !entry.tryRecoverPartition()) {
+          continue; // The entry is dropped
+        }
+        entries.put(descriptor.hash, entry);
         totalSize += descriptor.size;
+        recoveredMortalEntries |= descriptor.deathTime() != Instant.MAX;
       }
       size.set(totalSize);
+      hasMortalEntries = recoveredMortalEntries;
       initialized = true;
 
       // Make sure we start within bounds
-      if (totalSize > maxSize) {
+      if (totalSize > maxSize || hasExcessivePartitions()) {
         evictionScheduler.schedule();
       }
     } finally {
@@ -334,16 +367,88 @@ public final class DiskStore implements Store {
     }
   }
 
+  @Override
+  public CompletableFuture<@Nullable Viewer> viewAsync(String key) {
+    requireNonNull(key);
+    return initialized
+        ? openViewerAsync(key)
+        : initializeAsync().thenCompose(__ -> openViewerAsync(key));
+  }
+
+  private CompletableFuture<@Nullable Viewer> openViewerAsync(String key) {
+    long stamp = closeLock.readLock();
+    try {
+      requireNotClosed();
+      var entry = entries.get(hasher.hash(key));
+      if (entry == null) {
+        return CompletableFuture.completedFuture(null);
+      }
+      try {
+        return entry
+            .openViewerAsync(key)
+            .thenApply(
+                viewer -> {
+                  if (viewer != null) {
+                    indexWriteScheduler.trySchedule(); // Update LRU info
+                  }
+                  return viewer;
+                });
+      } catch (NoSuchFileException entryFileIsMissing) {
+        // Handle the entry file disappearing the same way view(String) does
+        logger.log(Level.WARNING, "dropping entry with missing file", entryFileIsMissing);
+        try {
+          removeEntry(entry, true);
+        } catch (IOException ignored) {
+        }
+        return CompletableFuture.completedFuture(null);
+      }
+    } catch (IOException | IllegalStateException e) {
+      return CompletableFuture.failedFuture(e);
+    } finally {
+      closeLock.unlockRead(stamp);
+    }
+  }
+
   @Override
   public @Nullable Editor edit(String key) throws IOException {
+    return edit(key, true, null);
+  }
+
+  @Override
+  public CompletableFuture<@Nullable Editor> editAsync(String key) {
+    requireNonNull(key);
+    // Opening an editor doesn't touch the disk, so only initialization is worth deferring
+    return initialized
+        ? Unchecked.supplyAsync(() -> edit(key), FlowSupport.SYNC_EXECUTOR)
+        : initializeAsync().thenApply(Unchecked.func(__ -> edit(key)));
+  }
+
+  @Override
+  public @Nullable Editor bulkEdit(String key, Instant lastUsed) throws IOException {
+    requireNonNull(lastUsed);
+    return edit(key, false, lastUsed);
+  }
+
+  /**
+   * Opens an editor for the given key. A non-durable editor doesn't force the entry file to disk
+   * nor trigger an index write, leaving both to the next flush or close. The entry is recorded as
+   * last used at the given instant, or now if it's {@code null}.
+   */
+  private @Nullable Editor edit(String key, boolean durable, @Nullable Instant lastUsed)
+      throws IOException {
     requireNonNull(key);
     initialize();
     long stamp = closeLock.readLock();
     try {
       requireNotClosed();
       var entry = entries.computeIfAbsent(hasher.hash(key), Entry::new);
-      var editor = entry.newEditor(key, Entry.ANY_ENTRY_VERSION);
-      if (editor != null && entry.isReadable()) {
+      var editor =
+          entry.newEditor(
+              key,
+              Entry.ANY_ENTRY_VERSION,
+              durable,
+              lastUsed != null ? lastUsed : clock.instant());
+      if (editor != null && durable && entry.isReadable()) {
         indexWriteScheduler.trySchedule(); // Update LRU info
       }
       return editor;
@@ -358,6 +463,12 @@ public final class DiskStore implements Store {
     return new ConcurrentViewerIterator();
   }
 
+  @Override
+  public Iterator<EntryInfo> entryInfos() throws IOException {
+    initialize();
+    return new ConcurrentEntryInfoIterator();
+  }
+
   @Override
   public boolean remove(String key) throws IOException {
     requireNonNull(key);
@@ -399,10 +510,22 @@ public final class DiskStore implements Store {
     return size.get();
   }
 
+  @Override
+  public long size(String partition) throws IOException {
+    requireNonNull(partition);
+    initialize();
+    if (!partitioned) {
+      return partition.isEmpty() ? size.get() : 0L;
+    }
+    var partitionSize = partitionSizes.get(partition);
+    return partitionSize != null ? partitionSize.get() : 0L;
+  }
+
   @Override
   public void dispose() throws IOException {
     doClose(true);
     size.set(0);
+    partitionSizes.clear();
   }
 
   @Override
@@ -429,9 +552,11 @@ public final class DiskStore implements Store {
       // Avoid overlapping an index write with store directory deletion
       indexWriteScheduler.shutdown();
       deleteStoreContent(directory);
+      unsyncedEntries.clear();
     } else {
       // Make sure we close within our size bound
       evictExcessiveEntries();
+      syncEntries();
       Utils.blockOnIO(indexWriteScheduler.scheduleNow());
       indexWriteScheduler.shutdown();
     }
@@ -453,12 +578,22 @@ public final class DiskStore implements Store {
       if (!initialized || closed) {
         return; // There's nothing to flush
       }
+      syncEntries();
       Utils.blockOnIO(indexWriteScheduler.scheduleNow());
     } finally {
       closeLock.unlockRead(stamp);
     }
   }
 
+  /** Forces entries committed by non-durable edits to disk. */
+  private void syncEntries() throws IOException {
+    for (var iter = unsyncedEntries.iterator(); iter.hasNext(); ) {
+      var entry = iter.next();
+      iter.remove();
+      entry.sync();
+    }
+  }
+
   private Set<EntryDescriptor> entrySetSnapshot() {
     var snapshot = new HashSet<EntryDescriptor>();
     for (var entry : entries.values()) {
@@ -479,11 +614,31 @@ public final class DiskStore implements Store {
 
     long evictedSize = entry.evict(targetEntryVersion);
     if (evictedSize >= 0 && entries.remove(entry.hash, entry)) {
+      var partition = entry.partition;
+      if (partition != null) {
+        addToPartitionSize(partition, -evictedSize);
+      }
       return evictedSize;
     }
     return -1L;
   }
 
+  /** Adds the given delta to the given partition's size, returning the partition's new size. */
+  private long addToPartitionSize(String partition, long delta) {
+    return partitionSizes.computeIfAbsent(partition, __ -> new AtomicLong()).addAndGet(delta);
+  }
+
+  private boolean hasExcessivePartitions() {
+    if (partitioned) {
+      for (var partitionSize : partitionSizes.entrySet()) {
+        if (partitionSize.getValue().get() > partitioner.maxSizeOf(partitionSize.getKey())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private boolean removeEntry(Entry entry, boolean scheduleIndexWrite) throws IOException {
     return removeEntry(entry, scheduleIndexWrite, Entry.ANY_ENTRY_VERSION);
   }
@@ -530,15 +685,24 @@ public final class DiskStore implements Store {
   }
 
   /**
-   * Keeps evicting entries in LRU order as long as the size bound is exceeded, returning {@code
-   * true} if at least one entry was evicted.
+   * Keeps evicting entries, dead ones first then in LRU order, as long as the size bound of the
+   * store or any of its partitions is exceeded, returning {@code true} if at least one entry was
+   * evicted.
    */
   private boolean evictExcessiveEntries() throws IOException {
     boolean evictedAtLeastOneEntry = false;
+    if (partitioned) {
+      for (var partitionSize : partitionSizes.entrySet()) {
+        var partition = partitionSize.getKey();
+        if (partitionSize.getValue().get() > partitioner.maxSizeOf(partition)) {
+          evictedAtLeastOneEntry |= evictExcessiveEntries(partition, partitionSize.getValue());
+        }
+      }
+    }
     Iterator<Entry> lruIterator = null;
     for (long currentSize = size.get(); currentSize > maxSize; ) {
       if (lruIterator == null) {
-        lruIterator = entriesSnapshotInLruOrder().iterator();
+        lruIterator = entriesSnapshotInEvictionOrder().iterator();
       }
       if (!lruIterator.hasNext()) {
         break;
@@ -556,15 +720,50 @@ public final class DiskStore implements Store {
     return evictedAtLeastOneEntry;
   }
 
-  private Collection<Entry> entriesSnapshotInLruOrder() {
-    var lruEntries = new TreeMap<EntryDescriptor, Entry>(EntryDescriptor.LRU_ORDER);
+  /**
+   * Keeps evicting entries of the given partition, dead ones first then in LRU order, as long as
+   * the partition's size bound is exceeded, returning {@code true} if at least one entry was
+   * evicted.
+   */
+  private boolean evictExcessiveEntries(String partition, AtomicLong partitionSize)
+      throws IOException {
+    boolean evictedAtLeastOneEntry = false;
+    long partitionMaxSize = partitioner.maxSizeOf(partition);
+    Iterator<Entry> lruIterator = null;
+    while (partitionSize.get() > partitionMaxSize) {
+      if (lruIterator == null) {
+        lruIterator = entriesSnapshotInEvictionOrder().iterator();
+      }
+      if (!lruIterator.hasNext()) {
+        break;
+      }
+
+      var entry = lruIterator.next();
+      if (partition.equals(entry.partition)) {
+        long evictedSize = evict(entry, Entry.ANY_ENTRY_VERSION);
+        if (evictedSize >= 0) {
+          size.addAndGet(-evictedSize);
+          evictedAtLeastOneEntry = true;
+        }
+      }
+    }
+    return evictedAtLeastOneEntry;
+  }
+
+  private Collection<Entry> entriesSnapshotInEvictionOrder() {
+    // Only bother with deadness if there're mortal entries
+    var evictionOrder =
+        hasMortalEntries
+            ? EntryDescriptor.deadFirstLruOrder(clock.instant())
+            : EntryDescriptor.LRU_ORDER;
+    var orderedEntries = new TreeMap<EntryDescriptor, Entry>(evictionOrder);
     for (var entry : entries.values()) {
       var descriptor = entry.descriptor();
       if (descriptor != null) {
-        lruEntries.put(descriptor, entry);
+        orderedEntries.put(descriptor, entry);
       } // Otherwise, the entry isn't readable so it doesn't have an applied size
     }
-    return Collections.unmodifiableCollection(lruEntries.values());
+    return Collections.unmodifiableCollection(orderedEntries.values());
   }
 
   private void requireNotClosed() {
@@ -609,6 +808,15 @@ public final class DiskStore implements Store {
     return value;
   }
 
+  /** Returns the given buffer flipped if it's been completely filled by an async read. */
+  private static ByteBuffer requireFilled(ByteBuffer buffer) throws EOFException {
+    if (buffer.hasRemaining()) {
+      throw new EOFException(
+          format("expected %d bytes, found %d", buffer.capacity(), buffer.position()));
+    }
+    return buffer.flip();
+  }
+
   private static @Nullable Hash entryFileToHash(String filename) {
     assert filename.endsWith(ENTRY_FILE_SUFFIX) || filename.endsWith(TEMP_ENTRY_FILE_SUFFIX);
     int suffixLength =
@@ -690,38 +898,48 @@ public final class DiskStore implements Store {
     }
   }
 
-  private class ConcurrentViewerIterator implements Iterator<Viewer> {
+  /**
+   * A weakly consistent iterator over the store's readable entries. Entries that become unreadable
+   * while iterating are skipped.
+   */
+  private abstract class ConcurrentEntryIterator<T> implements Iterator<T> {
     private final Iterator<Entry> entryIterator = entries.values().iterator();
 
-    private @Nullable Viewer nextViewer;
-    private @Nullable Viewer currentViewer;
+    private @Nullable T nextItem;
+    private @Nullable T currentItem;
 
-    ConcurrentViewerIterator() {}
+    ConcurrentEntryIterator() {}
+
+    /** Reads the given entry, or returns {@code null} if it isn't readable. */
+    abstract @Nullable T read(Entry entry) throws IOException;
+
+    /** Removes the entry the given item is read from if it hasn't changed since. */
+    abstract void removeEntry(T item) throws IOException;
 
     @Override
-    @EnsuresNonNullIf(expression = "nextViewer", result = true)
+    @EnsuresNonNullIf(expression = "nextItem", result = true)
     public boolean hasNext() {
-      return nextViewer != null || findNextViewer();
+      return nextItem != null || findNextItem();
     }
 
     @Override
-    public Viewer next() {
+    public T next() {
       if (!hasNext()) {
         throw new NoSuchElementException();
       }
-      var viewer = castNonNull(nextViewer);
-      nextViewer = null;
-      currentViewer = viewer;
-      return viewer;
+      var item = castNonNull(nextItem);
+      nextItem = null;
+      currentItem = item;
+      return item;
     }
 
     @Override
     public void remove() {
-      var viewer = currentViewer;
-      requireState(viewer != null, "next() must be called before remove()");
-      currentViewer = null;
+      var item = currentItem;
+      requireState(item != null, "next() must be called before remove()");
+      currentItem = null;
       try {
-        viewer.removeEntry();
+        removeEntry(item);
       } catch (IOException e) {
         logger.log(Level.WARNING, "entry removal failure", e);
       } catch (IllegalStateException ignored) {
@@ -729,31 +947,30 @@ public final class DiskStore implements Store {
       }
     }
 
-    @EnsuresNonNullIf(expression = "nextViewer", result = true)
-    private boolean findNextViewer() {
+    @EnsuresNonNullIf(expression = "nextItem", result = true)
+    private boolean findNextItem() {
       long stamp = closeLock.readLock();
       try {
         if (closed) {
           return false; // End iteration
         }
 
-        while (nextViewer == null && entryIterator.hasNext()) {
+        while (nextItem == null && entryIterator.hasNext()) {
           var entry = entryIterator.next();
           try {
-            var viewer = entry.openViewer(null); // Not expecting a specific key
-            if (viewer != null) {
-              nextViewer = viewer;
-              indexWriteScheduler.trySchedule(); // Update LRU info
+            var item = read(entry);
+            if (item != null) {
+              nextItem = item;
               return true;
             }
           } catch (NoSuchFileException e) {
             // See view(String)
             try {
-              removeEntry(entry, true);
+              DiskStore.this.removeEntry(entry, true);
             } catch (IOException ignored) {
             }
           } catch (IOException e) {
-            logger.log(Level.WARNING, "failed to open viewer while iterating", e);
+            logger.log(Level.WARNING, "failed to read entry while iterating", e);
           }
         }
         return false;
@@ -763,6 +980,47 @@ public final class DiskStore implements Store {
     }
   }
 
+  private final class ConcurrentViewerIterator extends ConcurrentEntryIterator<Viewer> {
+    ConcurrentViewerIterator() {}
+
+    @Override
+    @Nullable
+    Viewer read(Entry entry) throws IOException {
+      var viewer = entry.openViewer(null); // Not expecting a specific key
+      if (viewer != null) {
+        indexWriteScheduler.trySchedule(); // Update LRU info
+      }
+      return viewer;
+    }
+
+    @Override
+    void removeEntry(Viewer viewer) throws IOException {
+      viewer.removeEntry();
+    }
+  }
+
+  private final class ConcurrentEntryInfoIterator extends ConcurrentEntryIterator<EntryInfo> {
+    ConcurrentEntryInfoIterator() {}
+
+    @Override
+    @Nullable
+    EntryInfo read(Entry entry) throws IOException {
+      return entry.readInfo();
+    }
+
+    @Override
+    void removeEntry(EntryInfo info) throws IOException {
+      var diskInfo = (DiskEntryInfo) info;
+      long stamp = closeLock.readLock();
+      try {
+        requireNotClosed();
+        DiskStore.this.removeEntry(diskInfo.entry, true, diskInfo.entryVersion);
+      } finally {
+        closeLock.unlockRead(stamp);
+      }
+    }
+  }
+
   private static final class IndexOperator {
     private final Path directory;
     private final Path indexFile;
@@ -1375,17 +1633,31 @@ public final class DiskStore implements Store {
     final Hash hash;
     final Instant lastUsed;
     final long size;
+    final Instant expiresAt;
+    final boolean revalidatable;
 
-    EntryDescriptor(Hash hash, Instant lastUsed, long size) {
+    EntryDescriptor(
+        Hash hash, Instant lastUsed, long size, Instant expiresAt, boolean revalidatable) {
       this.hash = hash;
       this.lastUsed = lastUsed;
       this.size = size;
+      this.expiresAt = expiresAt;
+      this.revalidatable = revalidatable;
     }
 
     EntryDescriptor(ByteBuffer buffer) throws StoreCorruptionException {
       hash = new Hash(buffer);
       lastUsed = Instant.ofEpochMilli(buffer.getLong());
       size = getPositiveLong(buffer);
+      long expiresAtMillis = buffer.getLong();
+      expiresAt =
+          expiresAtMillis != Long.MAX_VALUE ? Instant.ofEpochMilli(expiresAtMillis) : Instant.MAX;
+      revalidatable = (buffer.get() & DESCRIPTOR_FLAG_REVALIDATABLE) != 0;
+    }
+
+    /** Returns the time the entry becomes dead at, or {@code Instant.MAX} if it never dies. */
+    Instant deathTime() {
+      return revalidatable ? Instant.MAX : expiresAt;
     }
 
     void writeTo(ByteBuffer buffer) {
@@ -1393,6 +1665,18 @@ public final class DiskStore implements Store {
       hash.writeTo(buffer);
       buffer.putLong(lastUsed.toEpochMilli());
       buffer.putLong(size);
+      buffer.putLong(expiresAt != Instant.MAX ? expiresAt.toEpochMilli() : Long.MAX_VALUE);
+      buffer.put(revalidatable ? DESCRIPTOR_FLAG_REVALIDATABLE : 0);
+    }
+
+    /**
+     * Returns a comparator that orders entries that are dead at the given instant before live ones,
+     * and each in {@link #LRU_ORDER}.
+     */
+    static Comparator<EntryDescriptor> deadFirstLruOrder(Instant now) {
+      return Comparator.<EntryDescriptor>comparingInt(
+              descriptor -> now.isBefore(descriptor.deathTime()) ? 1 : 0)
+          .thenComparing(LRU_ORDER);
     }
 
     @Override
@@ -1417,11 +1701,19 @@ public final class DiskStore implements Store {
     /** This entry's key as known from the last open/edit. */
     volatile @MonotonicNonNull String cachedKey;
 
+    /**
+     * This entry's partition as known from the last committed edit, or as recovered during
+     * initialization. Always {@code null} if the store isn't partitioned.
+     */
+    volatile @Nullable String partition;
+
     /** The number of viewers with an open channel to the entry file. */
     int viewerCount;
 
     private Instant lastUsed;
     private long entrySize;
+    private Instant expiresAt = Instant.MAX;
+    private boolean revalidatable;
 
     // Lazily initialized in a racy manner
     private @MonotonicNonNull Path entryFile;
@@ -1458,9 +1750,34 @@ public final class DiskStore implements Store {
       this.hash = descriptor.hash;
       lastUsed = descriptor.lastUsed;
       entrySize = descriptor.size;
+      expiresAt = descriptor.expiresAt;
+      revalidatable = descriptor.revalidatable;
       version = 1;
     }
 
+    /**
+     * Reads this entry's key to know its partition, returning {@code false} if the entry is
+     * unreadable, in which case it's deleted.
+     */
+    boolean tryRecoverPartition() throws IOException {
+      lock.lock();
+      try {
+        var result = tryReadEntry(null);
+        if (result != null) {
+          var recoveredPartition = partitioner.partitionOf(result.key);
+          partition = recoveredPartition;
+          addToPartitionSize(recoveredPartition, entrySize);
+          return true;
+        }
+      } catch (StoreCorruptionException | EOFException | NoSuchFileException e) {
+        logger.log(Level.WARNING, "dropping unreadable entry", e);
+        Files.deleteIfExists(entryFile());
+      } finally {
+        lock.unlock();
+      }
+      return false;
+    }
+
     boolean isReadable() {
       lock.lock();
       try {
@@ -1474,7 +1791,9 @@ public final class DiskStore implements Store {
     EntryDescriptor descriptor() {
       lock.lock();
       try {
-        return isReadable() ? new EntryDescriptor(hash, lastUsed, entrySize) : null;
+        return isReadable()
+            ? new EntryDescriptor(hash, lastUsed, entrySize, expiresAt, revalidatable)
+            : null;
       } finally {
         lock.unlock();
       }
@@ -1501,8 +1820,118 @@ public final class DiskStore implements Store {
       }
     }
 
+    /**
+     * Opens a viewer for this entry, reading its key and metadata asynchronously through the
+     * viewer's channel. The entry's file is opened synchronously while holding the lock, after
+     * which the channel sees a constant snapshot of the file even if the entry is edited or removed
+     * before reading completes.
+     *
+     * @throws IOException if the entry file can't be opened
+     */
+    CompletableFuture<@Nullable Viewer> openViewerAsync(String key) throws IOException {
+      AsynchronousFileChannel channel;
+      int openedVersion;
+      long openedEntrySize;
+      lock.lock();
+      try {
+        var knownKey = cachedKey;
+        if (!isReadable() || (knownKey != null && !knownKey.equals(key))) {
+          return CompletableFuture.completedFuture(null);
+        }
+        channel = AsynchronousFileChannel.open(entryFile(), Set.of(READ), asyncChannelExecutor());
+        openedVersion = version;
+        openedEntrySize = entrySize;
+        viewerCount++; // Count the viewer early so eviction knows the file is open
+      } finally {
+        lock.unlock();
+      }
+
+      return readEntryAsync(channel, openedEntrySize)
+          .handle(
+              (result, error) -> {
+                if (result != null && result.key.equals(key)) {
+                  cachedKey = key;
+                  markUsed();
+                  return new DiskViewer(
+                      this, openedVersion, key, result.metadata, channel, result.dataSize);
+                }
+
+                closeQuietly(channel);
+                decrementViewerCount();
+                if (error != null) {
+                  throw error instanceof CompletionException
+                      ? (CompletionException) error
+                      : new CompletionException(error);
+                }
+                return null; // Hash collision
+              });
+    }
+
+    private void markUsed() {
+      lock.lock();
+      try {
+        lastUsed = clock.instant();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Opens a viewer for this entry if it's still at the given version. Unlike {@link
+     * #openViewer(String)}, this doesn't count as using the entry.
+     */
     @Nullable
-    Editor newEditor(String key, int targetVersion) {
+    Viewer viewIfVersionMatches(int targetVersion) throws IOException {
+      long stamp = closeLock.readLock();
+      try {
+        requireNotClosed();
+        lock.lock();
+        try {
+          if (version != targetVersion) {
+            return null;
+          }
+          var result = tryReadEntry(null);
+          if (result == null) {
+            return null;
+          }
+          var channel =
+              AsynchronousFileChannel.open(entryFile(), Set.of(READ), asyncChannelExecutor());
+          var viewer =
+              new DiskViewer(this, version, result.key, result.metadata, channel, result.dataSize);
+          viewerCount++;
+          return viewer;
+        } finally {
+          lock.unlock();
+        }
+      } finally {
+        closeLock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Reads this entry's key and metadata without opening a data channel. Unlike {@link
+     * #openViewer(String)}, this doesn't count as using the entry.
+     */
+    @Nullable
+    EntryInfo readInfo() throws IOException {
+      lock.lock();
+      try {
+        var result = tryReadEntry(null);
+        return result != null
+            ? new DiskEntryInfo(this, version, result.key, result.metadata, entrySize, lastUsed)
+            : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Nullable
+    Editor newEditor(String key, int targetVersion, boolean durable) {
+      return newEditor(key, targetVersion, durable, clock.instant());
+    }
+
+    @Nullable
+    Editor newEditor(String key, int targetVersion, boolean durable, Instant newLastUsed) {
       lock.lock();
       try {
         if (currentEditor != null // An edit is already in progress
@@ -1513,9 +1942,9 @@ public final class DiskStore implements Store {
           return null;
         }
 
-        var editor = new DiskEditor(this, key);
+        var editor = new DiskEditor(this, key, durable);
         currentEditor = editor;
-        lastUsed = clock.instant();
+        lastUsed = newLastUsed;
         return editor;
       } finally {
         lock.unlock();
@@ -1551,11 +1980,17 @@ public final class DiskStore implements Store {
         String key,
         @Nullable ByteBuffer newMetadata, // null if no metadata was set or if the edit is discarded
         @Nullable AsynchronousFileChannel dataChannel, // null if no data was written
-        long dataSize) // >= 0 only if the edit is committed
+        long dataSize, // >= 0 only if the edit is committed
+        @Nullable Instant newExpiresAt, // null if no expiry was set
+        boolean newRevalidatable,
+        boolean durable)
         throws IOException {
       long oldEntrySize;
       long newEntrySize;
+      Instant deathTime;
       boolean firstTimeReadable;
+      String oldPartition;
+      String newPartition;
       lock.lock();
       try {
         boolean ownedEditor = currentEditor == editor;
@@ -1595,14 +2030,28 @@ public final class DiskStore implements Store {
         // file if existed), or if this is the entry's first edit. Otherwise, just update
         // the footer of the old entry file with the new metadata (and possibly new key).
         if (dataChannel != null || readResult == null) {
-          writeEntry(key, metadataToWrite, dataChannel, dataSize);
+          writeEntry(key, metadataToWrite, dataChannel, dataSize, durable);
         } else {
-          updateEntry(key, metadataToWrite, readResult.dataSize);
+          updateEntry(key, metadataToWrite, readResult.dataSize, durable);
         }
 
         oldEntrySize = entrySize;
         entrySize = newEntrySize;
+        if (newExpiresAt != null) {
+          expiresAt = newExpiresAt;
+          revalidatable = newRevalidatable;
+        }
+        deathTime = revalidatable ? Instant.MAX : expiresAt;
+        oldPartition = partition;
+        if (!partitioned) {
+          newPartition = null;
+        } else if (oldPartition != null && key.equals(cachedKey)) {
+          newPartition = oldPartition; // Only compute the partition if the key changes
+        } else {
+          newPartition = partitioner.partitionOf(key);
+        }
         cachedKey = key;
+        partition = newPartition;
         firstTimeReadable = version == 0;
         version++;
       } finally {
@@ -1610,15 +2059,48 @@ public final class DiskStore implements Store {
       }
 
       long netEntrySize = newEntrySize - oldEntrySize; // Might be negative
-      if (size.addAndGet(netEntrySize) > maxSize) {
+      boolean exceedsPartitionMaxSize = false;
+      if (newPartition != null) {
+        long newPartitionSize;
+        if (oldPartition == null || oldPartition.equals(newPartition)) {
+          newPartitionSize = addToPartitionSize(newPartition, netEntrySize);
+        } else {
+          // The entry is rewritten with a colliding key from another partition
+          addToPartitionSize(oldPartition, -oldEntrySize);
+          newPartitionSize = addToPartitionSize(newPartition, newEntrySize);
+        }
+        exceedsPartitionMaxSize = newPartitionSize > partitioner.maxSizeOf(newPartition);
+      }
+      if (deathTime != Instant.MAX) {
+        hasMortalEntries = true;
+      }
+      if (size.addAndGet(netEntrySize) > maxSize || exceedsPartitionMaxSize) {
         evictionScheduler.schedule();
       }
 
-      if (firstTimeReadable) {
+      if (!durable) {
+        unsyncedEntries.add(this);
+      } else if (firstTimeReadable) {
         indexWriteScheduler.trySchedule(); // Update entry set if we've just become readable
       }
     }
 
+    /** Forces this entry's file to disk if the entry is still readable. */
+    void sync() throws IOException {
+      lock.lock();
+      try {
+        if (isReadable()) {
+          try (var channel = FileChannel.open(entryFile(), WRITE)) {
+            channel.force(false);
+          } catch (NoSuchFileException ignored) {
+            // The entry file disappeared, which is taken care of by view(String)
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
     /** Silently refuses committing an edit. */
     private void refuseEdit(@Nullable AsynchronousFileChannel dataChannel) throws IOException {
       assert lock.isHeldByCurrentThread();
@@ -1638,18 +2120,23 @@ public final class DiskStore implements Store {
         String key,
         ByteBuffer metadata,
         @Nullable AsynchronousFileChannel dataChannel, // null if no data was written
-        long dataSize)
+        long dataSize,
+        boolean durable)
         throws IOException {
       var footer = buildEntryFooter(key, metadata, dataSize);
       if (dataChannel != null) {
         try (dataChannel) {
           Utils.blockOnIO(StoreIO.writeBytesAsync(dataChannel, footer, dataSize));
-          dataChannel.force(false);
+          if (durable) {
+            dataChannel.force(false);
+          }
         }
       } else {
         try (var channel = FileChannel.open(tempEntryFile(), CREATE, WRITE)) {
           StoreIO.writeBytes(channel, footer, dataSize);
-          channel.force(false);
+          if (durable) {
+            channel.force(false);
+          }
         }
       }
 
@@ -1662,7 +2149,8 @@ public final class DiskStore implements Store {
       replace(tempEntryFile(), entryFile());
     }
 
-    private void updateEntry(String key, ByteBuffer metadata, long dataSize) throws IOException {
+    private void updateEntry(String key, ByteBuffer metadata, long dataSize, boolean durable)
+        throws IOException {
       // Have the entry's temp file as our work file. This ensures a clean file
       // doesn't end up in a corrupt state in case of crashes.
       replace(entryFile(), tempEntryFile());
@@ -1671,7 +2159,9 @@ public final class DiskStore implements Store {
         // Truncate in case the previous entry had a larger size
         channel.truncate(dataSize + footer.remaining());
         StoreIO.writeBytes(channel, footer, dataSize);
-        channel.force(false);
+        if (durable) {
+          channel.force(false);
+        }
       }
       replace(tempEntryFile(), entryFile());
     }
@@ -1708,28 +2198,67 @@ public final class DiskStore implements Store {
 
     private EntryReadResult readEntry() throws IOException {
       try (var channel = FileChannel.open(entryFile(), READ)) {
-        var trailer =
+        long trailerPosition = channel.size() - ENTRY_TRAILER_SIZE;
+        var trailerBuffer = StoreIO.readNBytes(channel, ENTRY_TRAILER_SIZE, trailerPosition);
+        var trailer = readTrailer(trailerBuffer, entrySize);
+        var keyAndMetadata =
             StoreIO.readNBytes(
-                channel, ENTRY_TRAILER_SIZE, /* position */ channel.size() - ENTRY_TRAILER_SIZE);
-        checkValue(ENTRY_MAGIC, trailer.getLong(), "not in entry file format");
-        checkValue(STORE_VERSION, trailer.getInt(), "unexpected store version");
-        checkValue(appVersion, trailer.getInt(), "unexpected app version");
-
-        int keySize = getNonNegativeInt(trailer);
-        int metadataSize = getNonNegativeInt(trailer);
-        long dataSize = getNonNegativeLong(trailer);
-        checkValue(entrySize, metadataSize + dataSize, "unexpected entry size");
+                channel, trailer.keySize + trailer.metadataSize, /* position */ trailer.dataSize);
+        return toReadResult(keyAndMetadata, trailer);
+      }
+    }
 
-        var keyAndMetadata =
-            StoreIO.readNBytes(channel, keySize + metadataSize, /* position */ dataSize);
-        var key = UTF_8.decode(keyAndMetadata.limit(keySize)).toString();
-        var metadata =
-            keyAndMetadata
-                .limit(keySize + metadataSize)
-                .slice() // Slice to have 0 position & metadataSize capacity
-                .asReadOnlyBuffer();
-        return new EntryReadResult(key, metadata, dataSize);
+    /** Asynchronous counterpart of {@link #readEntry()} that reads from the given channel. */
+    private CompletableFuture<EntryReadResult> readEntryAsync(
+        AsynchronousFileChannel channel, long expectedEntrySize) {
+      long fileSize;
+      try {
+        fileSize = channel.size();
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
       }
+      if (fileSize < ENTRY_TRAILER_SIZE) {
+        return CompletableFuture.failedFuture(
+            new EOFException(
+                format("expected %d bytes, found %d", ENTRY_TRAILER_SIZE, fileSize)));
+      }
+
+      var trailerBuffer = ByteBuffer.allocate(ENTRY_TRAILER_SIZE);
+      return StoreIO.readBytesAsync(channel, trailerBuffer, fileSize - ENTRY_TRAILER_SIZE)
+          .thenCompose(
+              Unchecked.func(
+                  __ -> {
+                    var trailer = readTrailer(requireFilled(trailerBuffer), expectedEntrySize);
+                    var keyAndMetadata =
+                        ByteBuffer.allocate(trailer.keySize + trailer.metadataSize);
+                    return StoreIO.readBytesAsync(channel, keyAndMetadata, trailer.dataSize)
+                        .thenApply(
+                            Unchecked.func(
+                                ___ -> toReadResult(requireFilled(keyAndMetadata), trailer)));
+                  }));
+    }
+
+    private EntryTrailer readTrailer(ByteBuffer trailer, long expectedEntrySize)
+        throws StoreCorruptionException {
+      checkValue(ENTRY_MAGIC, trailer.getLong(), "not in entry file format");
+      checkValue(STORE_VERSION, trailer.getInt(), "unexpected store version");
+      checkValue(appVersion, trailer.getInt(), "unexpected app version");
+
+      int keySize = getNonNegativeInt(trailer);
+      int metadataSize = getNonNegativeInt(trailer);
+      long dataSize = getNonNegativeLong(trailer);
+      checkValue(expectedEntrySize, metadataSize + dataSize, "unexpected entry size");
+      return new EntryTrailer(keySize, metadataSize, dataSize);
+    }
+
+    private EntryReadResult toReadResult(ByteBuffer keyAndMetadata, EntryTrailer trailer) {
+      var key = UTF_8.decode(keyAndMetadata.limit(trailer.keySize)).toString();
+      var metadata =
+          keyAndMetadata
+              .limit(trailer.keySize + trailer.metadataSize)
+              .slice() // Slice to have 0 position & metadataSize capacity
+              .asReadOnlyBuffer();
+      return new EntryReadResult(key, metadata, trailer.dataSize);
     }
 
     /**
@@ -1789,6 +2318,18 @@ public final class DiskStore implements Store {
     }
   }
 
+  private static final class EntryTrailer {
+    final int keySize;
+    final int metadataSize;
+    final long dataSize;
+
+    EntryTrailer(int keySize, int metadataSize, long dataSize) {
+      this.keySize = keySize;
+      this.metadataSize = metadataSize;
+      this.dataSize = dataSize;
+    }
+  }
+
   private static final class EntryReadResult {
     final String key;
     final ByteBuffer metadata;
@@ -1801,6 +2342,58 @@ public final class DiskStore implements Store {
     }
   }
 
+  private static final class DiskEntryInfo implements EntryInfo {
+    final Entry entry;
+
+    /** Entry's version at the time of reading this info. */
+    final int entryVersion;
+
+    private final String key;
+    private final ByteBuffer metadata;
+    private final long entrySize;
+    private final Instant lastUsed;
+
+    DiskEntryInfo(
+        Entry entry,
+        int entryVersion,
+        String key,
+        ByteBuffer metadata,
+        long entrySize,
+        Instant lastUsed) {
+      this.entry = entry;
+      this.entryVersion = entryVersion;
+      this.key = key;
+      this.metadata = metadata;
+      this.entrySize = entrySize;
+      this.lastUsed = lastUsed;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public ByteBuffer metadata() {
+      return metadata.duplicate();
+    }
+
+    @Override
+    public long entrySize() {
+      return entrySize;
+    }
+
+    @Override
+    public Instant lastUsed() {
+      return lastUsed;
+    }
+
+    @Override
+    public @Nullable Viewer view() throws IOException {
+      return entry.viewIfVersionMatches(entryVersion);
+    }
+  }
+
   private final class DiskViewer implements Viewer {
     private final Entry entry;
 
@@ -1869,7 +2462,7 @@ public final class DiskStore implements Store {
 
     @Override
     public @Nullable Editor edit() throws IOException {
-      return entry.newEditor(key(), entryVersion);
+      return entry.newEditor(key(), entryVersion, true);
     }
 
     @Override
@@ -1895,18 +2488,22 @@ public final class DiskStore implements Store {
   private static final class DiskEditor implements Editor {
     private final Entry entry;
     private final String key;
+    private final boolean durable;
     private final Lock lock = new ReentrantLock();
 
     private ByteBuffer metadata = EMPTY_BUFFER;
     private boolean editedMetadata;
+    private @Nullable Instant expiresAt;
+    private boolean revalidatable;
     private @MonotonicNonNull AsynchronousFileChannel lazyChannel;
     private long writtenCount;
     private boolean committed;
     private boolean closed;
 
-    DiskEditor(Entry entry, String key) {
+    DiskEditor(Entry entry, String key, boolean durable) {
       this.entry = entry;
       this.key = key;
+      this.durable = durable;
     }
 
     @Override
@@ -1970,6 +2567,19 @@ public final class DiskStore implements Store {
       }
     }
 
+    @Override
+    public void expiry(Instant expiresAt, boolean revalidatable) {
+      requireNonNull(expiresAt);
+      lock.lock();
+      try {
+        requireNotCommitted();
+        this.expiresAt = expiresAt;
+        this.revalidatable = revalidatable;
+      } finally {
+        lock.unlock();
+      }
+    }
+
     @Override
     public void commitOnClose() {
       lock.lock();
@@ -1985,6 +2595,8 @@ public final class DiskStore implements Store {
       AsynchronousFileChannel channel;
       ByteBuffer newMetadata = null;
       long dataSize = -1;
+      Instant newExpiresAt = null;
+      boolean newRevalidatable = false;
       lock.lock();
       try {
         if (closed) {
@@ -1996,12 +2608,15 @@ public final class DiskStore implements Store {
         if (committed) {
           newMetadata = editedMetadata ? Utils.copy(metadata) : null;
           dataSize = writtenCount;
+          newExpiresAt = expiresAt;
+          newRevalidatable = revalidatable;
         }
       } finally {
         lock.unlock();
       }
 
-      entry.commitEdit(this, key, newMetadata, channel, dataSize);
+      entry.commitEdit(
+          this, key, newMetadata, channel, dataSize, newExpiresAt, newRevalidatable, durable);
     }
 
     /** Discards anything that's written or about to be written (only if not closed). */
@@ -2037,6 +2652,7 @@ public final class DiskStore implements Store {
     private @MonotonicNonNull Executor executor;
     private int appVersion = UNSET;
     public @MonotonicNonNull Hasher hasher;
+    private @MonotonicNonNull Partitioner partitioner;
     private @MonotonicNonNull Clock clock;
     private @MonotonicNonNull Delayer delayer;
     private @MonotonicNonNull Duration indexUpdateDelay;
@@ -2069,6 +2685,11 @@ public final class DiskStore implements Store {
       return this;
     }
 
+    public Builder partitioner(Partitioner partitioner) {
+      this.partitioner = requireNonNull(partitioner);
+      return this;
+    }
+
     public Builder clock(Clock clock) {
       this.clock = requireNonNull(clock);
       return this;
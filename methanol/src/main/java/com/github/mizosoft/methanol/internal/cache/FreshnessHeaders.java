@@ -0,0 +1,67 @@
+package com.github.mizosoft.methanol.internal.cache;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The parsed values of the response headers used in computing freshness. These are parsed once
+ * when a response is stored and persisted with its metadata, so serving a cache hit doesn't
+ * require re-parsing them.
+ */
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+final class FreshnessHeaders {
+  /** The value of the {@code Date} header, if present and valid. */
+  final Optional<LocalDateTime> date;
+
+  /** The value of the {@code Expires} header, if present and valid. */
+  final Optional<LocalDateTime> expires;
+
+  /** The value of the {@code Last-Modified} header, if present and valid. */
+  final Optional<LocalDateTime> lastModified;
+
+  /** The value of the {@code Age} header, or zero if absent or invalid. */
+  final Duration age;
+
+  FreshnessHeaders(
+      Optional<LocalDateTime> date,
+      Optional<LocalDateTime> expires,
+      Optional<LocalDateTime> lastModified,
+      Duration age) {
+    this.date = date;
+    this.expires = expires;
+    this.lastModified = lastModified;
+    this.age = age;
+  }
+
+  static FreshnessHeaders parse(HttpHeaders headers) {
+    return new FreshnessHeaders(
+        headers.firstValue("Date").map(DateUtils::toHttpDate),
+        headers.firstValue("Expires").map(DateUtils::toHttpDate),
+        headers.firstValue("Last-Modified").map(DateUtils::toHttpDate),
+        headers.firstValue("Age").map(DateUtils::toDeltaSecondsOrNull).orElse(Duration.ZERO));
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof FreshnessHeaders)) {
+      return false;
+    }
+    var other = (FreshnessHeaders) obj;
+    return date.equals(other.date)
+        && expires.equals(other.expires)
+        && lastModified.equals(other.lastModified)
+        && age.equals(other.age);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(date, expires, lastModified, age);
+  }
+}
@@ -4,7 +4,6 @@ import static com.github.mizosoft.methanol.internal.cache.DateUtils.max;
 import static com.github.mizosoft.methanol.internal.cache.DateUtils.toUtcDateTime;
 import static java.time.ZoneOffset.UTC;
 
-import com.github.mizosoft.methanol.TrackedResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -37,22 +36,19 @@ final class FreshnessPolicy {
    */
   private final LocalDateTime effectiveLastModified;
 
-  FreshnessPolicy(Optional<Duration> maxAge, TrackedResponse<?> response) {
-    this.timeRequestSent = response.timeRequestSent();
-    this.timeResponseReceived = response.timeResponseReceived();
+  FreshnessPolicy(
+      Optional<Duration> maxAge,
+      FreshnessHeaders headers,
+      Instant timeRequestSent,
+      Instant timeResponseReceived) {
+    this.timeRequestSent = timeRequestSent;
+    this.timeResponseReceived = timeResponseReceived;
     this.maxAge = maxAge;
 
-    var dateServed = response.headers().firstValue("Date").map(DateUtils::toHttpDate);
-    date = dateServed.orElseGet(() -> toUtcDateTime(timeResponseReceived));
-    expires = response.headers().firstValue("Expires").map(DateUtils::toHttpDate);
-    age =
-        response
-            .headers()
-            .firstValue("Age")
-            .map(DateUtils::toDeltaSecondsOrNull)
-            .orElse(Duration.ZERO);
-    effectiveLastModified =
-        response.headers().firstValue("Last-Modified").map(DateUtils::toHttpDate).orElse(date);
+    date = headers.date.orElseGet(() -> toUtcDateTime(timeResponseReceived));
+    expires = headers.expires;
+    age = headers.age;
+    effectiveLastModified = headers.lastModified.orElse(date);
   }
 
   LocalDateTime effectiveLastModified() {
@@ -73,6 +69,16 @@ final class FreshnessPolicy {
     return Duration.between(effectiveLastModified, date).dividedBy(10);
   }
 
+  /**
+   * Computes the time at which the response becomes stale, which is when its age reaches its
+   * freshness lifetime.
+   */
+  Instant computeExpiration() {
+    // Age at the time of receipt is the corrected initial age, which then grows linearly
+    var initialAge = computeAge(timeResponseReceived);
+    return timeResponseReceived.plus(computeFreshnessLifetime()).minus(initialAge);
+  }
+
   boolean usesHeuristics() {
     return maxAge.isEmpty() && expires.isEmpty();
   }
@@ -31,13 +31,16 @@ import com.github.mizosoft.methanol.internal.Utils;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
@@ -50,12 +53,30 @@ public final class MemoryStore implements Store {
   private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
 
   private final long maxSize;
+  private final Partitioner partitioner;
+  private final boolean partitioned;
+  private final Clock clock;
   private final AtomicLong size = new AtomicLong();
   private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ConcurrentHashMap<String, AtomicLong> partitionSizes = new ConcurrentHashMap<>();
+
+  /** Whether any entry has been committed that can die, in which case eviction looks for those. */
+  private volatile boolean hasMortalEntries;
 
   public MemoryStore(long maxSize) {
+    this(maxSize, Partitioner.NONE, Utils.systemMillisUtc());
+  }
+
+  public MemoryStore(long maxSize, Clock clock) {
+    this(maxSize, Partitioner.NONE, clock);
+  }
+
+  public MemoryStore(long maxSize, Partitioner partitioner, Clock clock) {
     requireArgument(maxSize > 0, "non-positive maxSize: %s", maxSize);
     this.maxSize = maxSize;
+    this.partitioner = requireNonNull(partitioner);
+    this.partitioned = partitioner != Partitioner.NONE;
+    this.clock = requireNonNull(clock);
   }
 
   @Override
@@ -81,15 +102,30 @@ public final class MemoryStore implements Store {
     return size.get();
   }
 
+  @Override
+  public long size(String partition) {
+    requireNonNull(partition);
+    if (!partitioned) {
+      return partition.isEmpty() ? size.get() : 0L;
+    }
+    var partitionSize = partitionSizes.get(partition);
+    return partitionSize != null ? partitionSize.get() : 0L;
+  }
+
   @Override
   public @Nullable Viewer view(String key) {
     requireNonNull(key);
     synchronized (entries) {
       var entry = entries.get(key);
-      return entry != null ? entry.view() : null;
+      return entry != null ? entry.openViewer() : null;
     }
   }
 
+  @Override
+  public CompletableFuture<@Nullable Viewer> viewAsync(String key) {
+    return CompletableFuture.completedFuture(view(key)); // Memory-resident, so no need to defer
+  }
+
   @Override
   public @Nullable Editor edit(String key) {
     requireNonNull(key);
@@ -98,10 +134,37 @@ public final class MemoryStore implements Store {
     }
   }
 
+  @Override
+  public CompletableFuture<@Nullable Editor> editAsync(String key) {
+    return CompletableFuture.completedFuture(edit(key));
+  }
+
+  @Override
+  public @Nullable Editor bulkEdit(String key, Instant lastUsed) {
+    requireNonNull(key);
+    requireNonNull(lastUsed);
+    synchronized (entries) { // There's nothing to persist
+      return entries.computeIfAbsent(key, Entry::new).edit(Entry.ANY_VERSION, lastUsed);
+    }
+  }
+
   @Override
   public Iterator<Viewer> iterator() {
+    return new ViewerIterator(entriesSnapshot());
+  }
+
+  @Override
+  public Iterator<EntryInfo> entryInfos() {
+    return new EntryInfoIterator(entriesSnapshot());
+  }
+
+  /**
+   * Returns a snapshot of currently available entries to iterate over without holding the entries
+   * lock. This however will miss entries added after the snapshot is taken, which is OK.
+   */
+  private List<Entry> entriesSnapshot() {
     synchronized (entries) {
-      return new ViewerIterator(Set.copyOf(entries.keySet()));
+      return List.copyOf(entries.values());
     }
   }
 
@@ -153,13 +216,33 @@ public final class MemoryStore implements Store {
     entry.markEvicted(); // Prevent the entry from increasing size if an edit is yet to be committed
     var viewer = entry.view();
     long evictedSize = viewer != null ? viewer.entrySize() : 0L;
+    if (partitioned) {
+      addToPartitionSize(entry.partition, -evictedSize);
+    }
     return size.addAndGet(-evictedSize);
   }
 
-  /** Keeps evicting entries in LRU order till size becomes <= maxSize. */
+  /** Adds the given delta to the given partition's size, returning the partition's new size. */
+  private long addToPartitionSize(String partition, long delta) {
+    return partitionSizes.computeIfAbsent(partition, __ -> new AtomicLong()).addAndGet(delta);
+  }
+
+  /** Keeps evicting entries, dead ones first then in LRU order, till size becomes <= maxSize. */
   private void evictExcessiveEntries() {
     synchronized (entries) {
       long currentSize = size.get();
+      if (currentSize > maxSize && hasMortalEntries) {
+        var now = clock.instant();
+        var iter = entries.values().iterator();
+        while (currentSize > maxSize && iter.hasNext()) {
+          var entry = iter.next();
+          if (entry.isDeadAt(now)) {
+            currentSize = evict(entry);
+            iter.remove();
+          }
+        }
+      }
+
       var iter = entries.values().iterator();
       while (currentSize > maxSize && iter.hasNext()) {
         currentSize = evict(iter.next());
@@ -168,78 +251,154 @@ public final class MemoryStore implements Store {
     }
   }
 
-  private final class ViewerIterator implements Iterator<Viewer> {
-    /**
-     * Iterator over a snapshot of currently available keys to avoid CMEs. This however will miss
-     * keys added after this iterator is returned, which is OK.
-     */
-    private final Iterator<String> keysIterator;
+  /**
+   * Keeps evicting entries of the given partition, dead ones first then in LRU order, till its size
+   * becomes <= its max size.
+   */
+  private void evictExcessiveEntries(String partition) {
+    synchronized (entries) {
+      long partitionMaxSize = partitioner.maxSizeOf(partition);
+      long partitionSize = size(partition);
+      if (partitionSize > partitionMaxSize && hasMortalEntries) {
+        var now = clock.instant();
+        var iter = entries.values().iterator();
+        while (partitionSize > partitionMaxSize && iter.hasNext()) {
+          var entry = iter.next();
+          if (entry.partition.equals(partition) && entry.isDeadAt(now)) {
+            evict(entry);
+            iter.remove();
+            partitionSize = size(partition);
+          }
+        }
+      }
+
+      var iter = entries.values().iterator();
+      while (partitionSize > partitionMaxSize && iter.hasNext()) {
+        var entry = iter.next();
+        if (entry.partition.equals(partition)) {
+          evict(entry);
+          iter.remove();
+          partitionSize = size(partition);
+        }
+      }
+    }
+  }
+
+  /**
+   * An iterator over a snapshot of entries. Each entry is read under its own lock, skipping entries
+   * that are evicted or aren't yet readable.
+   */
+  private abstract static class SnapshotIterator<T> implements Iterator<T> {
+    private final Iterator<Entry> entryIterator;
 
-    private @Nullable MemoryViewer nextViewer;
-    private @Nullable MemoryViewer currentViewer;
+    private @Nullable T nextItem;
+    private @Nullable T currentItem;
 
-    ViewerIterator(Set<String> keysSnapshot) {
-      keysIterator = keysSnapshot.iterator();
+    SnapshotIterator(List<Entry> entriesSnapshot) {
+      entryIterator = entriesSnapshot.iterator();
     }
 
+    /** Reads the given entry, or returns {@code null} if it isn't readable. */
+    abstract @Nullable T read(Entry entry);
+
+    /** Removes the entry the given item is read from if it hasn't changed since. */
+    abstract void removeEntry(T item);
+
     @Override
-    @EnsuresNonNullIf(expression = "nextViewer", result = true)
+    @EnsuresNonNullIf(expression = "nextItem", result = true)
     public boolean hasNext() {
-      return nextViewer != null || findNextViewer();
+      return nextItem != null || findNextItem();
     }
 
     @Override
-    public Viewer next() {
+    public T next() {
       if (!hasNext()) {
         throw new NoSuchElementException();
       }
-      var viewer = castNonNull(nextViewer);
-      nextViewer = null;
-      currentViewer = viewer;
-      return viewer;
+      var item = castNonNull(nextItem);
+      nextItem = null;
+      currentItem = item;
+      return item;
     }
 
     @Override
     public void remove() {
-      var viewer = currentViewer;
-      requireState(viewer != null, "next() must be called before remove()");
-      currentViewer = null;
-      viewer.removeEntry();
-    }
-
-    @EnsuresNonNullIf(expression = "nextViewer", result = true)
-    private boolean findNextViewer() {
-      assert nextViewer == null;
-      synchronized (entries) {
-        while (keysIterator.hasNext()) {
-          var entry = entries.get(keysIterator.next());
-          var viewer = entry != null ? entry.view() : null;
-          if (viewer != null) {
-            nextViewer = viewer;
-            return true;
-          }
+      var item = currentItem;
+      requireState(item != null, "next() must be called before remove()");
+      currentItem = null;
+      removeEntry(item);
+    }
+
+    @EnsuresNonNullIf(expression = "nextItem", result = true)
+    private boolean findNextItem() {
+      assert nextItem == null;
+      while (entryIterator.hasNext()) {
+        var item = read(entryIterator.next());
+        if (item != null) {
+          nextItem = item;
+          return true;
         }
       }
       return false;
     }
   }
 
+  private static final class ViewerIterator extends SnapshotIterator<Viewer> {
+    ViewerIterator(List<Entry> entriesSnapshot) {
+      super(entriesSnapshot);
+    }
+
+    @Override
+    @Nullable
+    Viewer read(Entry entry) {
+      return entry.openViewerIfNotEvicted();
+    }
+
+    @Override
+    void removeEntry(Viewer viewer) {
+      ((MemoryViewer) viewer).removeEntry();
+    }
+  }
+
+  private static final class EntryInfoIterator extends SnapshotIterator<EntryInfo> {
+    EntryInfoIterator(List<Entry> entriesSnapshot) {
+      super(entriesSnapshot);
+    }
+
+    @Override
+    @Nullable
+    EntryInfo read(Entry entry) {
+      return entry.readInfo();
+    }
+
+    @Override
+    void removeEntry(EntryInfo info) {
+      var memoryInfo = (MemoryEntryInfo) info;
+      memoryInfo.entry.removeIfVersionMatches(memoryInfo.entryVersion);
+    }
+  }
+
   private final class Entry {
     private static final int ANY_VERSION = -1;
 
     private final Lock lock = new ReentrantLock();
 
     final String key;
+    final String partition;
     private ByteBuffer metadata = EMPTY_BUFFER;
     private ByteBuffer data = EMPTY_BUFFER;
     private @Nullable MemoryEditor currentEditor;
     private boolean evicted;
+    private Instant lastUsed = Instant.MIN;
+    private Instant expiresAt = Instant.MAX;
+    private boolean revalidatable;
 
     /** The number of committed edits. 0 means the entry can't be viewed. */
     private int version;
 
     Entry(String key) {
       this.key = key;
+      this.partition = partitioner.partitionOf(key);
     }
 
     @Nullable
@@ -254,6 +413,71 @@ public final class MemoryStore implements Store {
       }
     }
 
+    /** Opens a viewer for the entry's last committed value and records the entry as used. */
+    @Nullable
+    MemoryViewer openViewer() {
+      lock.lock();
+      try {
+        var viewer = view();
+        if (viewer != null) {
+          lastUsed = clock.instant();
+        }
+        return viewer;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Opens a viewer if the entry is still at the given version, without recording it as used. */
+    @Nullable
+    MemoryViewer viewIfVersionMatches(int targetVersion) {
+      lock.lock();
+      try {
+        return version == targetVersion && !evicted ? view() : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Nullable
+    MemoryViewer openViewerIfNotEvicted() {
+      lock.lock();
+      try {
+        return !evicted ? openViewer() : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Reads this entry's info without recording it as used. */
+    @Nullable
+    MemoryEntryInfo readInfo() {
+      lock.lock();
+      try {
+        return version > 0 && !evicted
+            ? new MemoryEntryInfo(
+                this,
+                version,
+                metadata.duplicate(),
+                (long) metadata.remaining() + data.remaining(),
+                lastUsed)
+            : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Removes this entry from the store if it's still at the given version. */
+    boolean removeIfVersionMatches(int targetVersion) {
+      synchronized (entries) {
+        if (versionMatches(targetVersion) && entries.remove(key, this)) {
+          evict(this);
+          return true;
+        }
+      }
+      return false;
+    }
+
     @Nullable
     MemoryEditor edit() {
       return edit(ANY_VERSION);
@@ -261,6 +485,11 @@ public final class MemoryStore implements Store {
 
     @Nullable
     MemoryEditor edit(int targetVersion) {
+      return edit(targetVersion, clock.instant());
+    }
+
+    @Nullable
+    MemoryEditor edit(int targetVersion, Instant newLastUsed) {
       lock.lock();
       try {
         if (currentEditor == null
@@ -268,6 +497,7 @@ public final class MemoryStore implements Store {
             && !evicted) {
           var editor = new MemoryEditor(this);
           currentEditor = editor;
+          lastUsed = newLastUsed;
           return editor;
         }
         return null; // Ongoing edit or entry is modified
@@ -276,6 +506,16 @@ public final class MemoryStore implements Store {
       }
     }
 
+    /** Returns whether this entry has expired by the given instant and can't be revalidated. */
+    boolean isDeadAt(Instant now) {
+      lock.lock();
+      try {
+        return version > 0 && !revalidatable && !now.isBefore(expiresAt);
+      } finally {
+        lock.unlock();
+      }
+    }
+
     /** Prevents any ongoing edit from committing its data. */
     void markEvicted() {
       lock.lock();
@@ -296,9 +536,14 @@ public final class MemoryStore implements Store {
     }
 
     void commitEdit(
-        MemoryEditor editor, @Nullable ByteBuffer newMetadata, @Nullable ByteBuffer newData) {
+        MemoryEditor editor,
+        @Nullable ByteBuffer newMetadata,
+        @Nullable ByteBuffer newData,
+        @Nullable Instant newExpiresAt, // null if no expiry was set
+        boolean newRevalidatable) {
       long oldEntrySize;
       long newEntrySize;
+      boolean mortal;
       boolean evictAfterDiscardedFirstEdit = false;
       lock.lock();
       try {
@@ -316,8 +561,13 @@ public final class MemoryStore implements Store {
         if (newData != null) {
           data = newData.asReadOnlyBuffer();
         }
+        if (newExpiresAt != null) {
+          expiresAt = newExpiresAt;
+          revalidatable = newRevalidatable;
+        }
         newEntrySize = (long) metadata.remaining() + data.remaining();
         version++;
+        mortal = !revalidatable && expiresAt != Instant.MAX;
       } finally {
         lock.unlock();
 
@@ -338,13 +588,63 @@ public final class MemoryStore implements Store {
         }
       }
 
+      if (mortal) {
+        hasMortalEntries = true;
+      }
+
       long netEntrySize = newEntrySize - oldEntrySize; // Might be negative
+      if (partitioned
+          && addToPartitionSize(partition, netEntrySize) > partitioner.maxSizeOf(partition)) {
+        evictExcessiveEntries(partition);
+      }
       if (size.addAndGet(netEntrySize) > maxSize) {
         evictExcessiveEntries();
       }
     }
   }
 
+  private static final class MemoryEntryInfo implements EntryInfo {
+    final Entry entry;
+    final int entryVersion;
+    private final ByteBuffer metadata;
+    private final long entrySize;
+    private final Instant lastUsed;
+
+    MemoryEntryInfo(
+        Entry entry, int entryVersion, ByteBuffer metadata, long entrySize, Instant lastUsed) {
+      this.entry = entry;
+      this.entryVersion = entryVersion;
+      this.metadata = metadata;
+      this.entrySize = entrySize;
+      this.lastUsed = lastUsed;
+    }
+
+    @Override
+    public String key() {
+      return entry.key;
+    }
+
+    @Override
+    public ByteBuffer metadata() {
+      return metadata.duplicate(); // Duplicate for independent position/limit
+    }
+
+    @Override
+    public long entrySize() {
+      return entrySize;
+    }
+
+    @Override
+    public Instant lastUsed() {
+      return lastUsed;
+    }
+
+    @Override
+    public @Nullable Viewer view() {
+      return entry.viewIfVersionMatches(entryVersion);
+    }
+  }
+
   private final class MemoryViewer implements Viewer {
     final Entry entry;
     private final int entryVersion;
@@ -399,13 +699,7 @@ public final class MemoryStore implements Store {
 
     @Override
     public boolean removeEntry() {
-      synchronized (entries) {
-        if (entry.versionMatches(entryVersion) && entries.remove(entry.key, entry)) {
-          evict(entry);
-          return true;
-        }
-      }
-      return false;
+      return entry.removeIfVersionMatches(entryVersion);
     }
 
     @Override
@@ -420,6 +714,8 @@ public final class MemoryStore implements Store {
     private ByteBuffer metadata = EMPTY_BUFFER;
     private boolean editedMetadata;
     private boolean editedData;
+    private @Nullable Instant expiresAt;
+    private boolean revalidatable;
     private boolean committed;
 
     MemoryEditor(Entry entry) {
@@ -457,6 +753,19 @@ public final class MemoryStore implements Store {
       }
     }
 
+    @Override
+    public void expiry(Instant expiresAt, boolean revalidatable) {
+      requireNonNull(expiresAt);
+      lock.lock();
+      try {
+        requireNotCommitted();
+        this.expiresAt = expiresAt;
+        this.revalidatable = revalidatable;
+      } finally {
+        lock.unlock();
+      }
+    }
+
     @Override
     public void commitOnClose() {
       lock.lock();
@@ -471,16 +780,20 @@ public final class MemoryStore implements Store {
     public void close() {
       ByteBuffer newMetadata = null;
       ByteBuffer newData = null;
+      Instant newExpiresAt = null;
+      boolean newRevalidatable = false;
       lock.lock();
       try {
         if (committed) {
           newMetadata = editedMetadata ? Utils.copy(metadata) : null;
           newData = editedData ? data.snapshot() : null;
+          newExpiresAt = expiresAt;
+          newRevalidatable = revalidatable;
         }
       } finally {
         lock.unlock();
       }
-      entry.commitEdit(this, newMetadata, newData);
+      entry.commitEdit(this, newMetadata, newData, newExpiresAt, newRevalidatable);
     }
 
     private void requireNotCommitted() {
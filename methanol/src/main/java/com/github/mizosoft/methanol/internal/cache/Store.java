@@ -26,6 +26,7 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -46,6 +47,15 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * uses for indexing purposes. Thus, a store's {@code maxSize()} is not exact and might be slightly
  * exceeded as necessary.
  *
+ * <p>A store can optionally assign its entries to partitions with a {@link Partitioner}. Each
+ * partition is bounded by its own max size, such that entries of a partition that exceeds its bound
+ * are evicted before entries of other partitions.
+ *
+ * <p>An entry can be given an expiry by its {@code Editor}. An entry that has expired and can't be
+ * revalidated is considered dead. Dead entries are preferred for eviction over live ones regardless
+ * of when they were last used. They're not removed otherwise, as a dead entry might still be served
+ * to a request that accepts stale responses (e.g. with {@code max-stale}).
+ *
  * <p>{@code Store} is thread-safe and is suitable for concurrent use.
  */
 public interface Store extends AutoCloseable, Flushable {
@@ -71,6 +81,13 @@ public interface Store extends AutoCloseable, Flushable {
   @Nullable
   Viewer view(String key) throws IOException;
 
+  /**
+   * Asynchronously returns a {@code Viewer} for the entry associated with the given key, or {@code
+   * null} if there's no such entry. The returned future completes exceptionally with an {@code
+   * IllegalStateException} if the store is closed.
+   */
+  CompletableFuture<@Nullable Viewer> viewAsync(String key);
+
   /**
    * Returns an {@code Editor} for the entry associated with the given key (atomically creating a
    * new one if necessary), or {@code null} if such entry is currently being edited.
@@ -80,6 +97,25 @@ public interface Store extends AutoCloseable, Flushable {
   @Nullable
   Editor edit(String key) throws IOException;
 
+  /**
+   * Asynchronously returns an {@code Editor} for the entry associated with the given key, or {@code
+   * null} if such entry is currently being edited. The returned future completes exceptionally with
+   * an {@code IllegalStateException} if the store is closed.
+   */
+  CompletableFuture<@Nullable Editor> editAsync(String key);
+
+  /**
+   * Returns an {@code Editor} like {@link #edit(String)}, but that is meant for loading many
+   * entries in bulk (e.g. when importing a snapshot). Changes committed by such editors are not
+   * necessarily forced to the underlying storage device, and are only guaranteed to be tracked
+   * persistently by the store after it's {@link #flush() flushed}. The entry is recorded as last
+   * used at the given instant rather than when the editor is opened.
+   *
+   * @throws IllegalStateException if the store is closed
+   */
+  @Nullable
+  Editor bulkEdit(String key, Instant lastUsed) throws IOException;
+
   /**
    * Returns a iterator of {@code Viewers} over the entries in this store. The iterator doesn't
    * throw {@code ConcurrentModificationException} when the store is changed but might or might not
@@ -87,6 +123,15 @@ public interface Store extends AutoCloseable, Flushable {
    */
   Iterator<Viewer> iterator() throws IOException;
 
+  /**
+   * Returns an iterator of {@code EntryInfos} over the entries in this store. Unlike {@link
+   * #iterator()}, the returned iterator doesn't open the entries for reading their data, and
+   * iterating over an entry doesn't count as using it. The iterator doesn't throw {@code
+   * ConcurrentModificationException} when the store is changed but might or might not reflect these
+   * changes.
+   */
+  Iterator<EntryInfo> entryInfos() throws IOException;
+
   /**
    * Removes the entry associated with the given key.
    *
@@ -104,6 +149,9 @@ public interface Store extends AutoCloseable, Flushable {
   /** Returns the size in bytes of all entries in this store. */
   long size() throws IOException;
 
+  /** Returns the size in bytes of all entries in the given partition. */
+  long size(String partition) throws IOException;
+
   /** Atomically clears and closes this store. */
   void dispose() throws IOException;
 
@@ -122,6 +170,56 @@ public interface Store extends AutoCloseable, Flushable {
   @Override
   void flush() throws IOException;
 
+  /** Assigns entries to partitions that are each bounded by their own max size. */
+  interface Partitioner {
+
+    /** A {@code Partitioner} that puts all entries in a single partition bounded by the store. */
+    Partitioner NONE =
+        new Partitioner() {
+          @Override
+          public String partitionOf(String key) {
+            return "";
+          }
+
+          @Override
+          public long maxSizeOf(String partition) {
+            return Long.MAX_VALUE;
+          }
+        };
+
+    /** Returns the partition of the entry associated with the given key. */
+    String partitionOf(String key);
+
+    /** Returns the max size in bytes of the given partition. */
+    long maxSizeOf(String partition);
+  }
+
+  /** A readonly snapshot of an entry's key, metadata block and indexing information. */
+  interface EntryInfo {
+
+    /** Returns the entry's key. */
+    String key();
+
+    /** Returns a readonly buffer containing the entry's metadata. */
+    ByteBuffer metadata();
+
+    /** Returns the size in bytes of the metadata block and data stream. */
+    long entrySize();
+
+    /** Returns the time the entry was last viewed or edited. */
+    Instant lastUsed();
+
+    /**
+     * Returns a {@code Viewer} for the entry this info was read from, or {@code null} if the entry
+     * has been modified or removed since. Unlike {@link Store#view(String)}, viewing the entry this
+     * way doesn't count as using it.
+     *
+     * @throws IllegalStateException if the store is closed
+     */
+    @Nullable
+    Viewer view() throws IOException;
+  }
+
   /** Reads an entry's metadata block and data stream. */
   interface Viewer extends Closeable {
 
@@ -190,6 +288,16 @@ public interface Store extends AutoCloseable, Flushable {
      */
     CompletableFuture<Integer> writeAsync(long position, ByteBuffer src);
 
+    /**
+     * Sets the instant at which the entry expires and whether it can be revalidated after expiry,
+     * which are to be applied along with the edit's other changes when the editor is closed. The
+     * entry is considered dead once it expires if it can't be revalidated. If not set, the entry
+     * retains its previous expiry, or never expires if it's new.
+     *
+     * @throws IllegalStateException if the edit is committed
+     */
+    void expiry(Instant expiresAt, boolean revalidatable);
+
     /**
      * Marks the edit as committed so that modifications made so far are applied when the editor is
      * closed.
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.github.mizosoft.methanol.internal.Utils;
+import com.github.mizosoft.methanol.internal.cache.Store.EntryInfo;
+import com.github.mizosoft.methanol.internal.cache.Store.Viewer;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.BiConsumer;
+
+/**
+ * Exports a {@link Store}'s entries into a single archive file that can be later imported into
+ * another store. Entries are written to the archive in LRU order along with the time each was last
+ * used, such that importing them into a store of a smaller size retains the most recently used
+ * ones. Exporting doesn't count as using the exported entries.
+ */
+public final class StoreArchive {
+  /*
+   * The archive is formatted as follows (in slang BNF):
+   *
+   *   <archive> = <archive-header> <entry>* <archive-trailer>
+   *   <archive-header> = 8-bytes-archive-magic
+   *                      4-bytes-archive-version
+   *   <entry> = <entry-header> <key> <metadata> <data>
+   *   <entry-header> = 4-bytes-key-size
+   *                    4-bytes-metadata-size
+   *                    8-bytes-data-size
+   *                    8-bytes-last-used-epoch-millis
+   *   <key> = utf8-byte*
+   *   <metadata> = byte*
+   *   <data> = byte*
+   *   <archive-trailer> = 4-bytes-end-marker (-1)
+   *                       8-bytes-entry-count
+   *
+   * The archive is written to a temp file that atomically replaces the target file when done.
+   */
+
+  // Visible for testing
+  static final long ARCHIVE_MAGIC = 0x6d657468617263L;
+  static final int ARCHIVE_VERSION = 2;
+  static final int ARCHIVE_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+  static final int ENTRY_HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+  static final int END_MARKER = -1;
+
+  /**
+   * The max size of an entry's key or metadata, which are read whole into memory. Entries
+   * exceeding this are skipped on import.
+   */
+  static final int MAX_IN_MEMORY_BLOCK_SIZE = 16 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private StoreArchive() {}
+
+  /**
+   * Writes the entries of the given store to the given file, returning the number of written
+   * entries. Each entry is written from a consistent snapshot of its metadata and data.
+   */
+  public static long exportTo(Store store, Path file) throws IOException {
+    // Order entries from least to most recently used. Entries are viewed through their infos, which
+    // leaves the store's LRU state untouched.
+    var infos = new ArrayList<EntryInfo>();
+    for (var iter = store.entryInfos(); iter.hasNext(); ) {
+      infos.add(iter.next());
+    }
+    infos.sort(Comparator.comparing(EntryInfo::lastUsed));
+
+    var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    long entryCount = 0;
+    try (var channel = FileChannel.open(tempFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      var writer = new ArchiveWriter(channel);
+      writer.buffer(ARCHIVE_HEADER_SIZE).putLong(ARCHIVE_MAGIC).putInt(ARCHIVE_VERSION);
+      for (var info : infos) {
+        try (var viewer = info.view()) {
+          if (viewer != null) {
+            writeEntry(writer, viewer, info.lastUsed());
+            entryCount++;
+          }
+        }
+      }
+      writer.buffer(Integer.BYTES + Long.BYTES).putInt(END_MARKER).putLong(entryCount);
+      writer.flush();
+      channel.force(false);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+    return entryCount;
+  }
+
+  private static void writeEntry(ArchiveWriter writer, Viewer viewer, Instant lastUsed)
+      throws IOException {
+    var key = UTF_8.encode(viewer.key());
+    var metadata = viewer.metadata();
+    long dataSize = viewer.dataSize();
+    writer
+        .buffer(ENTRY_HEADER_SIZE)
+        .putInt(key.remaining())
+        .putInt(metadata.remaining())
+        .putLong(dataSize)
+        .putLong(lastUsed.toEpochMilli());
+    writer.write(key);
+    writer.write(metadata);
+
+    long position = 0;
+    while (position < dataSize) {
+      var buffer = writer.buffer(1);
+      int limit = buffer.limit();
+      buffer.limit((int) Math.min(limit, buffer.position() + dataSize - position));
+      int read = Utils.blockOnIO(viewer.readAsync(position, buffer));
+      buffer.limit(limit);
+      if (read < 0) {
+        throw new EOFException(
+            "expected " + dataSize + " bytes of entry data, found " + position);
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Imports the entries in the given archive into the given store, returning the number of imported
+   * entries. Entries are loaded with {@link Store#bulkEdit(String, Instant)} such that each retains
+   * the time it was last used, and the store is flushed once all entries are loaded. Entries that
+   * are currently being edited are skipped, as are those with a key or metadata larger than {@link
+   * #MAX_IN_MEMORY_BLOCK_SIZE}. {@code
+   * metadataWriter} is called with each entry's editor to set the entry's metadata, along with its
+   * expiry if known.
+   */
+  public static long importFrom(
+      Store store, Path file, BiConsumer<Store.Editor, ByteBuffer> metadataWriter)
+      throws IOException {
+    long importedCount = 0;
+    try (var channel = FileChannel.open(file, READ)) {
+      var reader = new ArchiveReader(channel);
+      var header = reader.read(ARCHIVE_HEADER_SIZE);
+      long magic = header.getLong();
+      int version = header.getInt();
+      if (magic != ARCHIVE_MAGIC) {
+        throw new StoreCorruptionException("not a store archive: " + Long.toHexString(magic));
+      }
+      if (version != ARCHIVE_VERSION) {
+        throw new StoreCorruptionException("unsupported archive version: " + version);
+      }
+
+      long readCount = 0;
+      while (true) {
+        int keySize = reader.read(Integer.BYTES).getInt();
+        if (keySize == END_MARKER) {
+          break;
+        }
+
+        var entryHeader = reader.read(ENTRY_HEADER_SIZE - Integer.BYTES);
+        int metadataSize = entryHeader.getInt();
+        long dataSize = entryHeader.getLong();
+        var lastUsed = Instant.ofEpochMilli(entryHeader.getLong());
+        // Make sure the sizes are sane before allocating anything for the entry
+        if (keySize < 0
+            || metadataSize < 0
+            || dataSize < 0
+            || dataSize > reader.remaining() - keySize - metadataSize) {
+          throw new StoreCorruptionException("corrupt entry header in archive");
+        }
+        if (keySize > MAX_IN_MEMORY_BLOCK_SIZE || metadataSize > MAX_IN_MEMORY_BLOCK_SIZE) {
+          reader.skip((long) keySize + metadataSize + dataSize);
+        } else {
+          var key = UTF_8.decode(reader.read(keySize)).toString();
+          var metadata = Utils.copy(reader.read(metadataSize));
+          if (importEntry(store, reader, key, metadata, dataSize, lastUsed, metadataWriter)) {
+            importedCount++;
+          }
+        }
+        readCount++;
+      }
+
+      long entryCount = reader.read(Long.BYTES).getLong();
+      if (entryCount != readCount) {
+        throw new StoreCorruptionException(
+            "expected " + entryCount + " entries in archive, found " + readCount);
+      }
+    } finally {
+      // Persist whatever is imported so far in one go
+      store.flush();
+    }
+    return importedCount;
+  }
+
+  private static boolean importEntry(
+      Store store,
+      ArchiveReader reader,
+      String key,
+      ByteBuffer metadata,
+      long dataSize,
+      Instant lastUsed,
+      BiConsumer<Store.Editor, ByteBuffer> metadataWriter)
+      throws IOException {
+    try (var editor = store.bulkEdit(key, lastUsed)) {
+      if (editor == null) {
+        reader.skip(dataSize);
+        return false;
+      }
+
+      metadataWriter.accept(editor, metadata);
+      long position = 0;
+      while (position < dataSize) {
+        var chunk = reader.readAvailable(dataSize - position);
+        position += Utils.blockOnIO(editor.writeAsync(position, chunk));
+      }
+      editor.commitOnClose();
+      return true;
+    }
+  }
+
+  /** Sequentially writes to a file channel through a fixed-size buffer. */
+  private static final class ArchiveWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    ArchiveWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /** Returns the buffer after making sure it has at least the given number of free bytes. */
+    ByteBuffer buffer(int minFree) throws IOException {
+      if (buffer.remaining() < minFree) {
+        flush();
+      }
+      return buffer;
+    }
+
+    void write(ByteBuffer src) throws IOException {
+      while (src.hasRemaining()) {
+        Utils.copyRemaining(src, buffer(1));
+      }
+    }
+
+    void flush() throws IOException {
+      StoreIO.writeBytes(channel, buffer.flip());
+      buffer.clear();
+    }
+  }
+
+  /** Sequentially reads from a file channel through a fixed-size buffer. */
+  private static final class ArchiveReader {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+    ArchiveReader(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /** Returns the number of bytes left to read from the archive. */
+    long remaining() throws IOException {
+      return buffer.remaining() + Math.max(0, channel.size() - channel.position());
+    }
+
+    /** Reads exactly the given number of bytes into a buffer that's valid till the next read. */
+    ByteBuffer read(int byteCount) throws IOException {
+      if (byteCount > buffer.capacity()) {
+        if (byteCount > remaining()) { // Don't allocate for bytes that aren't there
+          throw new EOFException("unexpected end of archive");
+        }
+        var result = ByteBuffer.allocate(byteCount);
+        Utils.copyRemaining(buffer, result);
+        readFully(result);
+        return result.flip();
+      }
+
+      if (buffer.remaining() < byteCount) {
+        buffer.compact();
+        while (buffer.position() < byteCount) {
+          if (channel.read(buffer) < 0) {
+            throw new EOFException("unexpected end of archive");
+          }
+        }
+        buffer.flip();
+      }
+      int limit = buffer.limit();
+      var result = buffer.slice().limit(byteCount);
+      buffer.position(buffer.position() + byteCount).limit(limit);
+      return result;
+    }
+
+    /**
+     * Reads at least one and at most the given number of bytes into a buffer that's valid till the
+     * next read.
+     */
+    ByteBuffer readAvailable(long maxByteCount) throws IOException {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        if (channel.read(buffer) < 0) {
+          buffer.flip();
+          throw new EOFException("unexpected end of archive");
+        }
+        buffer.flip();
+      }
+      return read((int) Math.min(buffer.remaining(), maxByteCount));
+    }
+
+    void skip(long byteCount) throws IOException {
+      while (byteCount > 0) {
+        byteCount -= readAvailable(byteCount).remaining();
+      }
+    }
+
+    private void readFully(ByteBuffer dst) throws IOException {
+      while (dst.hasRemaining()) {
+        if (channel.read(dst) < 0) {
+          throw new EOFException("unexpected end of archive");
+        }
+      }
+    }
+  }
+}
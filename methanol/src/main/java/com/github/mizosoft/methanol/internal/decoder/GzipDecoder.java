@@ -28,7 +28,6 @@ import com.github.mizosoft.methanol.decoder.AsyncDecoder;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.zip.CRC32;
 import java.util.zip.Inflater;
 import java.util.zip.ZipException;
@@ -60,9 +59,7 @@ final class GzipDecoder implements AsyncDecoder {
   private int fieldPosition;
 
   GzipDecoder() {
-    tempBuffer =
-        ByteBuffer.allocate(TEMP_BUFFER_SIZE)
-            .order(ByteOrder.LITTLE_ENDIAN); // Multi-byte gzip values are little-endian/unsigned
+    tempBuffer = ByteBuffer.allocate(TEMP_BUFFER_SIZE);
     crc = new CRC32();
     state = State.BEGIN;
   }
@@ -190,25 +187,52 @@ final class GzipDecoder implements AsyncDecoder {
     inflater.end();
   }
 
-  private ByteBuffer fillTempBuffer(ByteSource source, int bytes) {
-    source.pullBytes(tempBuffer.rewind().limit(bytes));
-    assert !tempBuffer.hasRemaining();
+  /**
+   * Returns a buffer positioned at the next {@code bytes} bytes of the source, updating the CRC
+   * with them if needed. Fields are read in place unless they're split across source buffers, in
+   * which case they're pulled into the temp buffer.
+   */
+  private ByteBuffer fieldBuffer(ByteSource source, int bytes) {
+    var in = source.currentSource();
+    if (in.remaining() < bytes) {
+      source.pullBytes(tempBuffer.rewind().limit(bytes));
+      assert !tempBuffer.hasRemaining();
+      in = tempBuffer.rewind();
+    }
     if (computeCrc) {
-      crc.update(tempBuffer.rewind());
+      int position = in.position();
+      int originalLimit = in.limit();
+      crc.update(in.limit(position + bytes)); // Consumes to position + bytes
+      in.limit(originalLimit).position(position);
+    }
+    return in;
+  }
+
+  /** Reads an unsigned little-endian value of the given size. */
+  private long getUnsigned(ByteSource source, int bytes) {
+    var in = fieldBuffer(source, bytes);
+    long value = 0;
+    for (int i = 0; i < bytes; i++) {
+      value |= (long) (in.get() & BYTE_MASK) << (i * Byte.SIZE);
     }
-    return tempBuffer.rewind();
+    return value;
   }
 
   private int getUByte(ByteSource source) {
-    return fillTempBuffer(source, Byte.BYTES).get() & BYTE_MASK;
+    return (int) getUnsigned(source, Byte.BYTES);
   }
 
   private int getUShort(ByteSource source) {
-    return fillTempBuffer(source, Short.BYTES).getShort() & SHORT_MASK;
+    return (int) getUnsigned(source, Short.BYTES);
   }
 
   private long getUInt(ByteSource source) {
-    return fillTempBuffer(source, Integer.BYTES).getInt() & INT_MASK;
+    return getUnsigned(source, Integer.BYTES);
+  }
+
+  private void skipBytes(ByteSource source, int bytes) {
+    var in = fieldBuffer(source, bytes);
+    in.position(in.position() + bytes);
   }
 
   private void readHeader(ByteSource source) throws IOException {
@@ -226,7 +250,7 @@ final class GzipDecoder implements AsyncDecoder {
     }
     this.flags = flags; // Save for subsequent states
     // Other header fields are ignore
-    fillTempBuffer(source, HEADER_SKIPPED_SIZE);
+    skipBytes(source, HEADER_SKIPPED_SIZE);
   }
 
   private void readTrailer(ByteSource source) throws IOException {
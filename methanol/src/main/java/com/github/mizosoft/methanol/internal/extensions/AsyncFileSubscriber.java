@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static com.github.mizosoft.methanol.internal.Validate.castNonNull;
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.Utils;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+/**
+ * A {@code BodySubscriber} that writes the response body into a file with an {@link
+ * AsynchronousFileChannel}. Each batch of buffers is written without blocking, and the next batch
+ * is only requested after the previous one is fully written. Thus, no thread is occupied while the
+ * file is being written, and no more than one batch is held in memory.
+ */
+public final class AsyncFileSubscriber implements BodySubscriber<Path> {
+  /** Set while a batch is being written. */
+  private static final int WRITING = 0x1;
+
+  /** Set when upstream completes normally. */
+  private static final int UPSTREAM_COMPLETE = 0x2;
+
+  private final Path file;
+  private final Set<? extends OpenOption> openOptions;
+  private final boolean syncOnComplete;
+  private final CompletableFuture<Path> body = new CompletableFuture<>();
+  private final Upstream upstream = new Upstream();
+  private final AtomicInteger state = new AtomicInteger();
+  private @MonotonicNonNull AsynchronousFileChannel channel;
+
+  /** The position at which the next buffer is written. Only accessed by the writing party. */
+  private long position;
+
+  public AsyncFileSubscriber(
+      Path file, Set<? extends OpenOption> openOptions, boolean syncOnComplete) {
+    this.file = requireNonNull(file);
+    this.openOptions = Set.copyOf(openOptions);
+    this.syncOnComplete = syncOnComplete;
+  }
+
+  @Override
+  public CompletionStage<Path> getBody() {
+    return body;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription)) {
+      try {
+        channel = AsynchronousFileChannel.open(file, openOptions, null);
+      } catch (IOException | RuntimeException e) {
+        upstream.cancel();
+        body.completeExceptionally(e);
+        return;
+      }
+      upstream.request(1);
+    }
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    state.getAndUpdate(s -> s | WRITING);
+    new BatchWriter(item.toArray(ByteBuffer[]::new)).writeNext();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    closeChannel();
+    body.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    if ((state.getAndUpdate(s -> s | UPSTREAM_COMPLETE) & WRITING) == 0) {
+      finish();
+    }
+  }
+
+  private void onBatchWritten() {
+    if ((state.updateAndGet(s -> s & ~WRITING) & UPSTREAM_COMPLETE) != 0) {
+      finish();
+    } else {
+      upstream.request(1);
+    }
+  }
+
+  private void onWriteFailed(Throwable exception) {
+    upstream.cancel();
+    closeChannel();
+    body.completeExceptionally(exception);
+  }
+
+  private void finish() {
+    var channel = this.channel;
+    if (channel == null) { // The body is already completed if opening the file failed
+      return;
+    }
+
+    if (syncOnComplete) {
+      // AsynchronousFileChannel has no asynchronous force, so the blocking sync is run on the
+      // default async executor instead of the thread completing the last write or upstream.
+      CompletableFuture.runAsync(() -> closeAndComplete(channel));
+    } else {
+      closeAndComplete(channel);
+    }
+  }
+
+  private void closeAndComplete(AsynchronousFileChannel channel) {
+    try (channel) {
+      if (syncOnComplete) {
+        channel.force(true);
+      }
+    } catch (IOException | RuntimeException e) {
+      body.completeExceptionally(e);
+      return;
+    }
+    body.complete(file);
+  }
+
+  private void closeChannel() {
+    var channel = this.channel;
+    if (channel != null) {
+      Utils.closeQuietly(channel);
+    }
+  }
+
+  /**
+   * Writes a batch's buffers in order, issuing each write from the completion of the previous one.
+   * {@code AsynchronousFileChannel} has no gathering writes, but consecutive buffers are written
+   * back to back without waiting for more data.
+   */
+  private final class BatchWriter implements CompletionHandler<Integer, Void> {
+    private final ByteBuffer[] buffers;
+    private int index;
+
+    BatchWriter(ByteBuffer[] buffers) {
+      this.buffers = buffers;
+    }
+
+    void writeNext() {
+      while (index < buffers.length && !buffers[index].hasRemaining()) {
+        index++;
+      }
+      if (index >= buffers.length) {
+        onBatchWritten();
+        return;
+      }
+
+      try {
+        castNonNull(channel).write(buffers[index], position, null, this);
+      } catch (RuntimeException e) {
+        onWriteFailed(e);
+      }
+    }
+
+    @Override
+    public void completed(Integer result, Void attachment) {
+      position += result;
+      writeNext();
+    }
+
+    @Override
+    public void failed(Throwable exc, Void attachment) {
+      onWriteFailed(exc);
+    }
+  }
+}
@@ -42,6 +42,8 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -49,7 +51,8 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * {@link InterruptibleChannel} and either closing it asynchronously or interrupting the reader
  * thread causes blocks on {@code read()} to throw the appropriate exception and the upstream to be
  * cancelled. Any errors received from upstream are immediately thrown when reading if detected,
- * even if some bytes were available.
+ * even if some bytes were available. Blocking reads don't hold any monitors, so virtual threads
+ * reading from the channel don't pin their carrier threads.
  */
 public final class ByteChannelSubscriber implements BodySubscriber<ReadableByteChannel> {
 
@@ -67,7 +70,7 @@ public final class ByteChannelSubscriber implements BodySubscriber<ReadableByteC
     upstream = new Upstream();
     prefetcher = new Prefetcher();
     upstreamBuffers =
-        new ArrayBlockingQueue<>(FlowSupport.prefetch() + 1); // Consider TOMBSTONE_LIST
+        new ArrayBlockingQueue<>(FlowSupport.maxPrefetch() + 1); // Consider TOMBSTONE_LIST
   }
 
   @Override
@@ -90,6 +93,7 @@ public final class ByteChannelSubscriber implements BodySubscriber<ReadableByteC
     requireNonNull(item);
     // Should at least have space for `TOMBSTONE` after submitting item
     if (upstreamBuffers.remainingCapacity() > 1) {
+      prefetcher.received(item);
       upstreamBuffers.offer(item);
     } else {
       // Upstream is trying to overflow us and somebody should know that
@@ -135,9 +139,11 @@ public final class ByteChannelSubscriber implements BodySubscriber<ReadableByteC
       implements ReadableByteChannel {
 
     private final List<ByteBuffer> cached;
+    private final Lock readLock;
 
     ChannelView() {
       cached = new ArrayList<>();
+      readLock = new ReentrantLock();
     }
 
     private @Nullable ByteBuffer pollNext() {
@@ -222,10 +228,15 @@ public final class ByteChannelSubscriber implements BodySubscriber<ReadableByteC
     }
 
     @Override
-    public synchronized int read(ByteBuffer dst) throws IOException {
-      checkOpen();
-      throwIfPending();
-      return readBytes(dst);
+    public int read(ByteBuffer dst) throws IOException {
+      readLock.lock();
+      try {
+        checkOpen();
+        throwIfPending();
+        return readBytes(dst);
+      } finally {
+        readLock.unlock();
+      }
     }
 
     @Override
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.MimeBodyPublisher;
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodyPublisher} that compresses its upstream's content as it's being published. The
+ * upstream is requested one buffer at a time, and only when the downstream has demand that can't be
+ * satisfied from what's already been encoded. This way, the encoded bytes held at any moment are
+ * bounded by what a single upstream buffer compresses to.
+ */
+public class EncodingBodyPublisher implements BodyPublisher {
+  private static final String BUFFER_SIZE_PROP =
+      "com.github.mizosoft.methanol.internal.extensions.EncodingBodyPublisher.bufferSize";
+  private static final int DEFAULT_BUFFER_SIZE = 8 * 1024; // 8Kb
+  private static final int BUFFER_SIZE = getBufferSize();
+
+  private static final String GZIP = "gzip";
+  private static final String DEFLATE = "deflate";
+  private static final Set<String> SUPPORTED_ENCODINGS = Set.of(GZIP, DEFLATE);
+
+  private final BodyPublisher upstream;
+  private final String encoding;
+
+  EncodingBodyPublisher(BodyPublisher upstream, String encoding) {
+    this.upstream = requireNonNull(upstream);
+    this.encoding = requireNonNull(encoding);
+  }
+
+  /** Returns the encoding applied to the upstream's content. */
+  public String encoding() {
+    return encoding;
+  }
+
+  @Override
+  public long contentLength() {
+    return -1; // Unknown till the whole body is encoded
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    upstream.subscribe(new EncodingSubscriber(subscriber, encoding));
+  }
+
+  /** Returns whether the given encoding is supported. */
+  public static boolean isSupported(String encoding) {
+    return SUPPORTED_ENCODINGS.contains(encoding.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Returns a publisher that encodes the given upstream with the given encoding. The returned
+   * publisher is a {@link MimeBodyPublisher} with the same media type if the upstream is one.
+   *
+   * @throws IllegalArgumentException if the encoding is not supported
+   */
+  public static EncodingBodyPublisher create(BodyPublisher upstream, String encoding) {
+    requireNonNull(upstream);
+    if (!isSupported(encoding)) {
+      throw new IllegalArgumentException("unsupported encoding: " + encoding);
+    }
+    String normalizedEncoding = encoding.toLowerCase(Locale.ROOT);
+    return upstream instanceof MimeBodyPublisher
+        ? new EncodingMimeBodyPublisher(
+            upstream, normalizedEncoding, ((MimeBodyPublisher) upstream).mediaType())
+        : new EncodingBodyPublisher(upstream, normalizedEncoding);
+  }
+
+  private static int getBufferSize() {
+    int bufferSize = Integer.getInteger(BUFFER_SIZE_PROP, DEFAULT_BUFFER_SIZE);
+    if (bufferSize <= 0) {
+      bufferSize = DEFAULT_BUFFER_SIZE;
+    }
+    return bufferSize;
+  }
+
+  private static final class EncodingMimeBodyPublisher extends EncodingBodyPublisher
+      implements MimeBodyPublisher {
+    private final MediaType mediaType;
+
+    EncodingMimeBodyPublisher(BodyPublisher upstream, String encoding, MediaType mediaType) {
+      super(upstream, encoding);
+      this.mediaType = mediaType;
+    }
+
+    @Override
+    public MediaType mediaType() {
+      return mediaType;
+    }
+  }
+
+  /**
+   * Compresses upstream buffers with a {@code Deflater}, adding the gzip header and trailer for the
+   * gzip encoding or using the zlib format for the deflate encoding.
+   */
+  @SuppressWarnings("ReferenceEquality") // ByteBuffer sentinel value
+  private static final class EncodingSubscriber implements Subscriber<ByteBuffer> {
+    private static final Logger logger = System.getLogger(EncodingSubscriber.class.getName());
+
+    private static final ByteBuffer COMPLETE = ByteBuffer.allocate(0);
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int CM_DEFLATE = 8;
+    private static final int OS_UNKNOWN = 255;
+
+    private final Subscriber<? super ByteBuffer> downstream;
+    private final Deflater deflater;
+
+    /**
+     * Guards the deflater, which can be ended by a downstream cancellation while upstream is
+     * deflating on another thread.
+     */
+    private final ReentrantLock deflaterLock = new ReentrantLock();
+
+    private boolean deflaterEnded; // Guarded by deflaterLock
+
+    private final @Nullable CRC32 crc;
+    private final Upstream upstream;
+    private final ConcurrentLinkedQueue<ByteBuffer> encodedBuffers;
+    private @Nullable ByteBuffer sink;
+    private volatile @MonotonicNonNull SubscriptionImpl downstreamSubscription;
+    private volatile boolean upstreamRequested;
+    private boolean completed;
+
+    EncodingSubscriber(Subscriber<? super ByteBuffer> downstream, String encoding) {
+      this.downstream = downstream;
+      boolean gzip = encoding.equals(GZIP);
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+      crc = gzip ? new CRC32() : null;
+      upstream = new Upstream();
+      encodedBuffers = new ConcurrentLinkedQueue<>();
+      if (gzip) {
+        writeGzipHeader();
+      }
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        var downstreamSubscription = new SubscriptionImpl();
+        this.downstreamSubscription = downstreamSubscription;
+        downstreamSubscription.signal(true); // Apply downstream's onSubscribe
+      }
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      requireNonNull(item);
+      if (completed) {
+        return;
+      }
+
+      Throwable failure = null;
+      deflaterLock.lock();
+      try {
+        if (deflaterEnded) {
+          return; // Downstream has cancelled
+        }
+        if (crc != null) {
+          crc.update(item.duplicate());
+        }
+        deflater.setInput(item);
+        while (!deflater.needsInput()) {
+          deflater.deflate(currentSink());
+        }
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        deflaterLock.unlock();
+      }
+
+      if (failure != null) {
+        upstream.cancel(); // Flow is interrupted
+        onError(failure);
+        return;
+      }
+
+      upstreamRequested = false;
+      var subscription = downstreamSubscription;
+      if (subscription != null) {
+        subscription.signal(false); // Submit what's been encoded or request more from upstream
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      if (completed) {
+        logger.log(Level.WARNING, "upstream error received after completion", throwable);
+        return;
+      }
+      completed = true;
+
+      upstream.clear();
+      endDeflater();
+      var subscription = downstreamSubscription;
+      if (subscription != null) {
+        subscription.signalError(throwable);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      if (completed) {
+        return;
+      }
+      completed = true;
+
+      upstream.clear();
+      var subscription = downstreamSubscription;
+      Throwable failure = null;
+      deflaterLock.lock();
+      try {
+        if (deflaterEnded) {
+          return; // Downstream has cancelled
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+          deflater.deflate(currentSink());
+        }
+        if (crc != null) {
+          writeIntLe((int) crc.getValue());
+          writeIntLe((int) deflater.getBytesRead()); // Modulo 2^32 as per RFC 1952
+        }
+
+        var lastSink = sink;
+        if (lastSink != null && lastSink.position() > 0) {
+          encodedBuffers.offer(lastSink.flip());
+        }
+        sink = null;
+        encodedBuffers.offer(COMPLETE);
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        endDeflaterLocked();
+        deflaterLock.unlock();
+      }
+
+      if (subscription != null) {
+        if (failure != null) {
+          subscription.signalError(failure);
+        } else {
+          subscription.signal(true);
+        }
+      }
+    }
+
+    private void endDeflater() {
+      deflaterLock.lock();
+      try {
+        endDeflaterLocked();
+      } finally {
+        deflaterLock.unlock();
+      }
+    }
+
+    private void endDeflaterLocked() {
+      if (!deflaterEnded) {
+        deflaterEnded = true;
+        deflater.end();
+      }
+    }
+
+    /**
+     * Returns a buffer with free space for the deflater to write to, submitting the current one to
+     * the encoded buffers queue if it's full.
+     */
+    private ByteBuffer currentSink() {
+      var currentSink = sink;
+      if (currentSink == null || !currentSink.hasRemaining()) {
+        if (currentSink != null) {
+          encodedBuffers.offer(currentSink.flip());
+        }
+        currentSink = ByteBuffer.allocate(BUFFER_SIZE);
+        sink = currentSink;
+      }
+      return currentSink;
+    }
+
+    private void writeGzipHeader() {
+      writeShortLe(GZIP_MAGIC);
+      writeByte(CM_DEFLATE);
+      writeByte(0); // FLG
+      writeIntLe(0); // MTIME
+      writeByte(0); // XFL
+      writeByte(OS_UNKNOWN);
+    }
+
+    private void writeIntLe(int value) {
+      writeShortLe(value);
+      writeShortLe(value >>> 16);
+    }
+
+    private void writeShortLe(int value) {
+      writeByte(value);
+      writeByte(value >>> 8);
+    }
+
+    private void writeByte(int value) {
+      currentSink().put((byte) value);
+    }
+
+    private final class SubscriptionImpl extends AbstractSubscription<ByteBuffer> {
+      SubscriptionImpl() {
+        super(downstream, FlowSupport.SYNC_EXECUTOR);
+      }
+
+      @Override
+      protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+        long submitted = 0L;
+        while (true) {
+          var buffer = encodedBuffers.peek();
+          if (buffer == COMPLETE) {
+            cancelOnComplete(downstream);
+            return 0;
+          } else if (submitted >= emit) {
+            return submitted;
+          } else if (buffer == null) {
+            // Only ask upstream for more when there's unsatisfied demand and nothing is in flight
+            if (!upstreamRequested) {
+              upstreamRequested = true;
+              upstream.request(1);
+            }
+            return submitted;
+          } else if (submitOnNext(downstream, encodedBuffers.remove())) {
+            submitted++;
+          } else {
+            return 0;
+          }
+        }
+      }
+
+      @Override
+      protected void abort(boolean flowInterrupted) {
+        if (flowInterrupted) {
+          upstream.cancel();
+        } else {
+          upstream.clear();
+        }
+        endDeflater();
+        encodedBuffers.clear();
+      }
+    }
+  }
+}
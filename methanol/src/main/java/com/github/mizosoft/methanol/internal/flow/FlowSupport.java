@@ -36,6 +36,9 @@ public class FlowSupport {
   private static final String PREFETCH_PROP = "com.github.mizosoft.methanol.flow.prefetch";
   private static final String PREFETCH_FACTOR_PROP =
       "com.github.mizosoft.methanol.flow.prefetchFactor";
+  private static final String MAX_PREFETCH_PROP = "com.github.mizosoft.methanol.flow.maxPrefetch";
+  private static final String MAX_PREFETCH_BYTES_PROP =
+      "com.github.mizosoft.methanol.flow.maxPrefetchBytes";
 
   // The value is small because usage is normally with ByteBuffer items, which already
   // take non-trivial space (the HTTP-client allocates 16Kb sizes). So using
@@ -43,9 +46,16 @@ public class FlowSupport {
   private static final int DEFAULT_PREFETCH = 16;
   // Request more when half consumed
   private static final int DEFAULT_PREFETCH_FACTOR = 50;
+  // Bound how far an adaptive prefetch can grow when the consumer keeps up
+  private static final int DEFAULT_MAX_PREFETCH_MULTIPLIER = 4;
+  // Don't let a grown window hold more than the default one does with the HTTP-client's buffers
+  private static final long DEFAULT_MAX_PREFETCH_BYTES = DEFAULT_PREFETCH * 16 * 1024; // 256Kb
 
   private static final int PREFETCH = loadPrefetch();
-  private static final int PREFETCH_THRESHOLD = (int) (PREFETCH * (loadPrefetchFactor() / 100f));
+  private static final int PREFETCH_FACTOR = loadPrefetchFactor();
+  private static final int PREFETCH_THRESHOLD = (int) (PREFETCH * (PREFETCH_FACTOR / 100f));
+  private static final int MAX_PREFETCH = loadMaxPrefetch();
+  private static final long MAX_PREFETCH_BYTES = loadMaxPrefetchBytes();
 
   // A subscription that does nothing
   public static final Flow.Subscription NOOP_SUBSCRIPTION =
@@ -91,6 +101,23 @@ public class FlowSupport {
     return prefetchFactor;
   }
 
+  static int loadMaxPrefetch() {
+    int defaultMaxPrefetch = DEFAULT_MAX_PREFETCH_MULTIPLIER * PREFETCH;
+    int maxPrefetch = Integer.getInteger(MAX_PREFETCH_PROP, defaultMaxPrefetch);
+    if (maxPrefetch < PREFETCH) {
+      maxPrefetch = defaultMaxPrefetch;
+    }
+    return maxPrefetch;
+  }
+
+  static long loadMaxPrefetchBytes() {
+    long maxPrefetchBytes = Long.getLong(MAX_PREFETCH_BYTES_PROP, DEFAULT_MAX_PREFETCH_BYTES);
+    if (maxPrefetchBytes <= 0) {
+      maxPrefetchBytes = DEFAULT_MAX_PREFETCH_BYTES;
+    }
+    return maxPrefetchBytes;
+  }
+
   /**
    * Returns an {@code IllegalArgumentException} to signal if the subscriber requests a non-positive
    * number of items.
@@ -112,6 +139,30 @@ public class FlowSupport {
     return PREFETCH_THRESHOLD;
   }
 
+  /**
+   * Returns the prefetch factor property (as a percentage of the prefetch) or a default of {@value
+   * DEFAULT_PREFETCH_FACTOR}.
+   */
+  public static int prefetchFactor() {
+    return PREFETCH_FACTOR;
+  }
+
+  /**
+   * Returns the maximum number of items an adaptive prefetch can grow to, which is given by the max
+   * prefetch property or defaults to {@value DEFAULT_MAX_PREFETCH_MULTIPLIER} times the prefetch.
+   */
+  public static int maxPrefetch() {
+    return MAX_PREFETCH;
+  }
+
+  /**
+   * Returns the maximum number of bytes an adaptive prefetch can keep requested, which is given by
+   * the max prefetch bytes property or defaults to {@value DEFAULT_MAX_PREFETCH_BYTES}.
+   */
+  public static long maxPrefetchBytes() {
+    return MAX_PREFETCH_BYTES;
+  }
+
   /** Adds given count to demand not exceeding {@code Long.MAX_VALUE}. */
   public static long getAndAddDemand(Object owner, VarHandle demand, long n) {
     while (true) {
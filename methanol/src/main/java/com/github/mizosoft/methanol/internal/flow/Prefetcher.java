@@ -22,37 +22,139 @@
 
 package com.github.mizosoft.methanol.internal.flow;
 
-/** Simple class for encapsulating prefetch logic used across subscribers. */
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.LongSupplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Simple class for encapsulating prefetch logic used across subscribers. Upstream is initially
+ * requested {@link FlowSupport#prefetch()} items, and is requested more to bring the window back to
+ * the prefetch when it falls below the prefetch threshold.
+ *
+ * <p>If the subscriber records received items with {@link #received(List)}, the prefetch adapts
+ * per stream at each refill. It's doubled if the consumer has consumed all received items (i.e.
+ * the consumer is waiting on upstream), and halved if all requested items have been received but
+ * not yet consumed (i.e. upstream is waiting on the consumer). The prefetch never exceeds {@link
+ * FlowSupport#maxPrefetch()} items, nor {@link FlowSupport#maxPrefetchBytes()} bytes as estimated
+ * from the average size of received items.
+ *
+ * <p>Items are considered consumed when {@link #update(Upstream)} is called for them, unless the
+ * prefetcher is created with a backlog function, which is then used to tell how many received
+ * items the consumer has yet to process. The latter is for subscribers that update the window as
+ * soon as they hand items off to a consumer that processes them later. Subscribers that process
+ * items in place, on the other hand, never lag behind and shouldn't bother recording items.
+ */
 public final class Prefetcher {
+  private static final int MIN_PREFETCH = 2;
 
-  private final int prefetch;
-  private final int prefetchThreshold;
+  private final int maxPrefetch;
+  private final long maxPrefetchBytes;
+  private final int prefetchFactor;
+  private final @Nullable LongSupplier backlog;
+  private volatile int prefetch;
+  private volatile int prefetchThreshold;
   private volatile int upstreamWindow;
 
+  private volatile boolean adaptive;
+  private volatile long receivedCount;
+  private volatile long averageItemSize;
+  private long consumedCount; // Only accessed by the consumer
+
   public Prefetcher() {
+    this(null);
+  }
+
+  /**
+   * Creates a prefetcher that measures how far the consumer lags behind by the given function,
+   * which returns the number of received items that are yet to be processed.
+   */
+  public Prefetcher(@Nullable LongSupplier backlog) {
+    this.backlog = backlog;
     prefetch = FlowSupport.prefetch();
     prefetchThreshold = FlowSupport.prefetchThreshold();
+    prefetchFactor = FlowSupport.prefetchFactor();
+    maxPrefetch = FlowSupport.maxPrefetch();
+    maxPrefetchBytes = FlowSupport.maxPrefetchBytes();
   }
 
   public void initialize(Upstream upstream) {
-    upstreamWindow = prefetch;
-    upstream.request(prefetch);
+    int currentPrefetch = prefetch;
+    upstreamWindow = currentPrefetch;
+    upstream.request(currentPrefetch);
+  }
+
+  /**
+   * Records that the given item has been received from upstream, to be later consumed and {@link
+   * #update(Upstream) updated}. This is called at most by one thread at a time as upstream signals
+   * are serialized.
+   */
+  public void received(List<ByteBuffer> item) {
+    long itemSize = 0;
+    for (var buffer : item) {
+      itemSize += buffer.remaining();
+    }
+    // Maintain an exponentially weighted moving average with a 1/8 weight for the new sample
+    long currentAverage = averageItemSize;
+    averageItemSize =
+        receivedCount == 0 ? itemSize : currentAverage + (itemSize - currentAverage) / 8;
+    receivedCount++;
+    adaptive = true;
   }
 
   public void update(Upstream upstream) {
+    consumedCount++;
+
     // Decrement current window and bring it back to
     // prefetch if became <= prefetchThreshold
     int update = upstreamWindow - 1;
     if (update <= prefetchThreshold) {
-      upstreamWindow = prefetch;
-      upstream.request(prefetch - update);
+      if (adaptive) {
+        adapt(update);
+      }
+
+      // The window might've shrunk below what's currently requested
+      int currentPrefetch = prefetch;
+      if (update < currentPrefetch) {
+        upstreamWindow = currentPrefetch;
+        upstream.request(currentPrefetch - update);
+      } else {
+        upstreamWindow = update;
+      }
     } else {
       upstreamWindow = update;
     }
   }
 
-  // for testing
-  int currentWindow() {
+  private void adapt(int requested) {
+    var backlog = this.backlog;
+    long buffered = backlog != null ? backlog.getAsLong() : receivedCount - consumedCount;
+    int currentPrefetch = prefetch;
+    int newPrefetch;
+    if (buffered <= 0) {
+      newPrefetch = currentPrefetch * 2; // Consumer is keeping up
+    } else if (buffered >= requested) {
+      newPrefetch = currentPrefetch / 2; // Consumer is lagging behind
+    } else {
+      newPrefetch = currentPrefetch;
+    }
+
+    long maxPrefetchByBytes = maxPrefetchBytes / Math.max(1, averageItemSize);
+    newPrefetch = (int) Math.min(newPrefetch, Math.min(maxPrefetch, maxPrefetchByBytes));
+    newPrefetch = Math.max(newPrefetch, MIN_PREFETCH);
+    if (newPrefetch != currentPrefetch) {
+      prefetch = newPrefetch;
+      prefetchThreshold = (int) (newPrefetch * (prefetchFactor / 100f));
+    }
+  }
+
+  /** Returns the number of items upstream is currently kept requested. */
+  public int prefetch() {
+    return prefetch;
+  }
+
+  /** Returns the number of items requested from upstream but not yet consumed. */
+  public int currentWindow() {
     return upstreamWindow;
   }
 }
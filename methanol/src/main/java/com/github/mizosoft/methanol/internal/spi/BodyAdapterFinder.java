@@ -24,13 +24,21 @@ package com.github.mizosoft.methanol.internal.spi;
 
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
 import java.util.List;
+import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Utility class for loading/caching {@code Encoder/Decoder} providers. */
 public class BodyAdapterFinder {
 
   private static final ServiceCache<Encoder> encodersServiceCache = new ServiceCache<>(Encoder.class);
   private static final ServiceCache<Decoder> decodersServiceCache = new ServiceCache<>(Decoder.class);
+  private static final BodyAdapterResolver<Encoder> encoderResolver =
+      new BodyAdapterResolver<>(encodersServiceCache::getProviders);
+  private static final BodyAdapterResolver<Decoder> decoderResolver =
+      new BodyAdapterResolver<>(decodersServiceCache::getProviders);
 
   private BodyAdapterFinder() {} // non-instantiable
 
@@ -41,4 +49,12 @@ public class BodyAdapterFinder {
   public static List<Decoder> findInstalledDecoders() {
     return decodersServiceCache.getProviders();
   }
+
+  public static Optional<Encoder> findEncoder(TypeRef<?> type, @Nullable MediaType mediaType) {
+    return encoderResolver.resolve(type, mediaType);
+  }
+
+  public static Optional<Decoder> findDecoder(TypeRef<?> type, @Nullable MediaType mediaType) {
+    return decoderResolver.resolve(type, mediaType);
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.spi;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.BodyAdapter;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.internal.BoundedCache;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Resolves the first adapter that supports a given type and is compatible with a given media type,
+ * memoizing the result (including the absence of such adapter) for subsequent lookups in a {@link
+ * BoundedCache}. The adapters are assumed to answer {@code supportsType} and {@code
+ * isCompatibleWith} consistently.
+ */
+public final class BodyAdapterResolver<A extends BodyAdapter> {
+  private static final int DEFAULT_MAX_SIZE = 512;
+
+  private final Supplier<List<A>> adapters;
+  private final BoundedCache<Key, Optional<A>> resolutions;
+
+  public BodyAdapterResolver(Supplier<List<A>> adapters) {
+    this(adapters, DEFAULT_MAX_SIZE);
+  }
+
+  public BodyAdapterResolver(Supplier<List<A>> adapters, int maxSize) {
+    this.adapters = requireNonNull(adapters);
+    this.resolutions = new BoundedCache<>(maxSize);
+  }
+
+  /**
+   * Returns the first adapter supporting the given type and compatible with the given media type,
+   * or any adapter supporting the given type if the media type is {@code null}.
+   */
+  public Optional<A> resolve(TypeRef<?> type, @Nullable MediaType mediaType) {
+    requireNonNull(type);
+    var key = new Key(type, mediaType);
+    var resolution = resolutions.get(key);
+    if (resolution == null) {
+      // Don't compute under a lock as adapters might recursively resolve other adapters
+      resolution = resolutions.put(key, lookup(type, mediaType));
+    }
+    return resolution;
+  }
+
+  /** Returns the number of currently memoized resolutions. */
+  int size() {
+    return resolutions.size();
+  }
+
+  private Optional<A> lookup(TypeRef<?> type, @Nullable MediaType mediaType) {
+    for (var adapter : adapters.get()) {
+      if (adapter.supportsType(type)
+          && (mediaType == null || adapter.isCompatibleWith(mediaType))) {
+        return Optional.of(adapter);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * A resolution key. Media types are normalized on creation (case-insensitive attributes are
+   * lower-cased), so equal media types from differently-cased headers map to the same key.
+   */
+  private static final class Key {
+    private final TypeRef<?> type;
+    private final @Nullable MediaType mediaType;
+
+    Key(TypeRef<?> type, @Nullable MediaType mediaType) {
+      this.type = type;
+      this.mediaType = mediaType;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      var other = (Key) obj;
+      return type.equals(other.type) && Objects.equals(mediaType, other.mediaType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + Objects.hashCode(mediaType);
+    }
+  }
+}
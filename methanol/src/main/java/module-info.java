@@ -36,9 +36,15 @@ module methanol {
   exports com.github.mizosoft.methanol;
   exports com.github.mizosoft.methanol.decoder;
   exports com.github.mizosoft.methanol.adapter;
+  exports com.github.mizosoft.methanol.internal.adapter to
+      methanol.adapter.gson,
+      methanol.adapter.jackson,
+      methanol.adapter.jaxb,
+      methanol.adapter.protobuf;
   exports com.github.mizosoft.methanol.internal.flow to
       methanol.adapter.jackson,
-      methanol.adapter.jackson.flux;
+      methanol.adapter.jackson.flux,
+      methanol.adapter.protobuf;
 
   uses com.github.mizosoft.methanol.BodyDecoder.Factory;
 
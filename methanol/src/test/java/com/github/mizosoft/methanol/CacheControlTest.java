@@ -233,6 +233,25 @@ class CacheControlTest {
         isThrownBy(() -> builder.staleIfError(Duration.ofSeconds(-1)));
   }
 
+  @Test
+  void parseRepeatedValue() {
+    var value = "max-age=60, stale-while-revalidate=30";
+    var cacheControl = CacheControl.parse(value);
+    assertThat(CacheControl.parse(value)).isSameAs(cacheControl);
+    assertThat(CacheControl.parse(List.of(value))).isSameAs(cacheControl);
+    assertThat(cacheControl.maxAge()).hasValue(Duration.ofSeconds(60));
+    assertThat(cacheControl.staleWhileRevalidate()).hasValue(Duration.ofSeconds(30));
+  }
+
+  @Test
+  void parseLongValue() {
+    var value = "max-age=60, " + "x".repeat(200);
+    var cacheControl = CacheControl.parse(value);
+    assertThat(cacheControl.maxAge()).hasValue(Duration.ofSeconds(60));
+    assertThat(cacheControl.directives()).containsKey("x".repeat(200));
+    assertThat(CacheControl.parse(value)).isNotSameAs(cacheControl).isEqualTo(cacheControl);
+  }
+
   private static void assertHasNoKnownDirectives(CacheControl cacheControl) {
     assertThat(cacheControl.maxAge()).isEmpty();
     assertThat(cacheControl.minFresh()).isEmpty();
@@ -39,6 +39,7 @@ import static java.util.function.Predicate.isEqual;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
@@ -52,6 +53,7 @@ import com.github.mizosoft.methanol.internal.cache.DiskStore;
 import com.github.mizosoft.methanol.internal.cache.MemoryStore;
 import com.github.mizosoft.methanol.internal.cache.Store;
 import com.github.mizosoft.methanol.internal.cache.Store.Editor;
+import com.github.mizosoft.methanol.internal.cache.Store.EntryInfo;
 import com.github.mizosoft.methanol.internal.cache.Store.Viewer;
 import com.github.mizosoft.methanol.testing.ExecutorExtension;
 import com.github.mizosoft.methanol.testing.ExecutorExtension.ExecutorConfig;
@@ -115,6 +117,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.function.ThrowingConsumer;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
@@ -2885,6 +2888,97 @@ class HttpCacheTest {
     assertThat(untrackedUriStats.networkUseCount()).isZero();
   }
 
+  @StoreParameterizedTest
+  void perPartitionStats(Store store) throws Exception {
+    editAwaiter = new EditAwaiter();
+    cache = HttpCache.newBuilder()
+        .clockForTesting(clock)
+        .storeForTesting(new EditAwaiterStore(store, editAwaiter))
+        .executor(threadPool)
+        .partitionBy(uri -> uri.getPath().startsWith("/a") ? "a" : "b", 0.5)
+        .build();
+    client = clientBuilder.cache(cache).build();
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest recordedRequest) {
+        return new MockResponse().setHeader("Cache-Control", "max-age=2");
+      }
+    });
+
+    // a.requestCount = 2, a.hitCount = 1, a.missCount = 1, a.networkUseCount = 1
+    verifyThat(get(serverUri.resolve("/a1"))).isCacheMiss();
+    verifyThat(get(serverUri.resolve("/a1"))).isCacheHit();
+
+    // a.requestCount = 3, a.missCount = 2, a.networkUseCount = 2
+    verifyThat(get(serverUri.resolve("/a2"))).isCacheMiss();
+
+    // b.requestCount = 1, b.missCount = 1, b.networkUseCount = 1
+    verifyThat(get(serverUri.resolve("/b1"))).isCacheMiss();
+
+    var aStats = cache.stats("a");
+    assertThat(aStats.requestCount()).isEqualTo(3);
+    assertThat(aStats.hitCount()).isEqualTo(1);
+    assertThat(aStats.missCount()).isEqualTo(2);
+    assertThat(aStats.networkUseCount()).isEqualTo(2);
+    assertThat(aStats.hitRate()).isEqualTo(1 / 3.0);
+
+    var bStats = cache.stats("b");
+    assertThat(bStats.requestCount()).isEqualTo(1);
+    assertThat(bStats.hitCount()).isZero();
+    assertThat(bStats.missCount()).isEqualTo(1);
+    assertThat(bStats.networkUseCount()).isEqualTo(1);
+
+    // Overall stats are still recorded
+    assertThat(cache.stats().requestCount()).isEqualTo(4);
+    assertThat(cache.stats("c")).isEqualTo(Stats.empty());
+  }
+
+  @Test
+  void partitionStatsAreEmptyIfNotPartitioned() {
+    var cache = HttpCache.newBuilder().cacheOnMemory(12).build();
+    assertThat(cache.stats("")).isEqualTo(Stats.empty());
+  }
+
+  @Test
+  void partitionMaxShareOutOfRange() {
+    var builder = HttpCache.newBuilder();
+    assertThatIllegalArgumentException().isThrownBy(() -> builder.partitionByHost(0.0));
+    assertThatIllegalArgumentException().isThrownBy(() -> builder.partitionByHost(1.5));
+  }
+
+  @StoreParameterizedTest
+  void exportThenImportIntoNewCache(Store store, @TempDir Path tempDir) throws Exception {
+    setUpCache(store);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest recordedRequest) {
+        return new MockResponse()
+            .setHeader("Cache-Control", "max-age=2")
+            .setBody("Pikachu");
+      }
+    });
+    verifyThat(get(serverUri.resolve("/a"))).isCacheMiss();
+    verifyThat(get(serverUri.resolve("/b"))).isCacheMiss();
+
+    var snapshot = tempDir.resolve("snapshot");
+    assertThat(cache.exportTo(snapshot)).isEqualTo(2);
+
+    var newCache = HttpCache.newBuilder()
+        .clockForTesting(clock)
+        .cacheOnMemory(Long.MAX_VALUE)
+        .executor(threadPool)
+        .build();
+    assertThat(newCache.importFrom(snapshot)).isEqualTo(2);
+    assertThat(newCache.size()).isEqualTo(cache.size());
+
+    client = clientBuilder.cache(newCache).build();
+    verifyThat(get(serverUri.resolve("/a")))
+        .isCacheHit()
+        .hasBody("Pikachu");
+    verifyThat(get(serverUri.resolve("/b")))
+        .isCacheHit()
+        .hasBody("Pikachu");
+  }
+
   @StoreParameterizedTest
   void writeStats(Store store) throws Exception {
     var failingStore = new FailingStore(store);
@@ -3083,17 +3177,48 @@ class HttpCacheTest {
       return delegate.view(key);
     }
 
+    @Override
+    public CompletableFuture<@Nullable Viewer> viewAsync(String key) {
+      // Go through view(String) so that subclasses only need to override that
+      try {
+        return CompletableFuture.completedFuture(view(key));
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
     @Override
     @Nullable
     public Editor edit(String key) throws IOException {
       return delegate.edit(key);
     }
 
+    @Override
+    public CompletableFuture<@Nullable Editor> editAsync(String key) {
+      // Go through edit(String) so that subclasses only need to override that
+      try {
+        return CompletableFuture.completedFuture(edit(key));
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    @Override
+    @Nullable
+    public Editor bulkEdit(String key, Instant lastUsed) throws IOException {
+      return delegate.bulkEdit(key, lastUsed);
+    }
+
     @Override
     public Iterator<Viewer> iterator() throws IOException {
       return delegate.iterator();
     }
 
+    @Override
+    public Iterator<EntryInfo> entryInfos() throws IOException {
+      return delegate.entryInfos();
+    }
+
     @Override
     public boolean remove(String key) throws IOException {
       return delegate.remove(key);
@@ -3109,6 +3234,11 @@ class HttpCacheTest {
       return delegate.size();
     }
 
+    @Override
+    public long size(String partition) throws IOException {
+      return delegate.size(partition);
+    }
+
     @Override
     public void dispose() throws IOException {
       delegate.dispose();
@@ -3147,6 +3277,12 @@ class HttpCacheTest {
       return delegate.writeAsync(position, src);
     }
 
+    @Override
+    public void expiry(Instant expiresAt, boolean revalidatable) {
+      // Expiry is computed with the cache's MockClock, which isn't shared by stores created
+      // for testing. Don't pass it on so that stores don't deem entries dead too early.
+    }
+
     @Override
     public void commitOnClose() {
       delegate.commitOnClose();
@@ -28,6 +28,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -374,6 +376,40 @@ class MediaTypeTest {
     assertIllegalArg(() -> MediaType.of("*", "plain", Map.of()));
   }
 
+  @Test
+  void parse_repeatedValuesAreCached() {
+    var value = "text/html; Charset=UTF-8";
+    var type = MediaType.parse(value);
+    assertSame(type, MediaType.parse(value));
+    assertHasCharset(type, UTF_8);
+  }
+
+  @Test
+  void parse_manyDistinctValues() {
+    for (int i = 0; i < 1000; i++) {
+      var type = MediaType.parse("text/plain; i=" + i);
+      assertEquals(Map.of("i", Integer.toString(i)), type.parameters());
+      assertEquals(type, MediaType.parse("text/plain; i=" + i));
+    }
+  }
+
+  @Test
+  void parse_longValue() {
+    var boundary = "a".repeat(200);
+    var value = "multipart/form-data; boundary=" + boundary;
+    var type = MediaType.parse(value);
+    assertEquals(Map.of("boundary", boundary), type.parameters());
+    var reparsed = MediaType.parse(value);
+    assertNotSame(type, reparsed);
+    assertEquals(type, reparsed);
+  }
+
+  @Test
+  void parse_invalidValueIsNotCached() {
+    assertInvalidParse("text/plain; charset");
+    assertInvalidParse("text/plain; charset"); // Still fails on a second parse
+  }
+
   private static void assertHasCharset(MediaType type, Charset charset) {
     assertEquals(Optional.of(charset), type.charset());
     assertEquals(charset.name().toLowerCase(),
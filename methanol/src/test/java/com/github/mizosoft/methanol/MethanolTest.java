@@ -231,6 +231,35 @@ class MethanolTest {
     verifyThat(backend.request).containsHeader("Content-Type", "text/plain");
   }
 
+  @Test
+  void requestWithEncodedBody() throws Exception {
+    var backend = new RecordingClient();
+    var client = Methanol.newBuilder(backend).build();
+    var encodedBody = MoreBodyPublishers.encoding(BodyPublishers.ofString("something"), "gzip");
+    client.send(POST("https://example.com", encodedBody), BodyHandlers.discarding());
+    verifyThat(backend.request).containsHeader("Content-Encoding", "gzip");
+  }
+
+  @Test
+  void compressingRequestsInterceptor() throws Exception {
+    var backend = new RecordingClient();
+    var client =
+        Methanol.newBuilder(backend)
+            .interceptor(Interceptor.compressingRequests("gzip", 10))
+            .build();
+
+    client.send(
+        POST("https://example.com", BodyPublishers.ofString("small")), BodyHandlers.discarding());
+    assertThat(backend.request.headers().firstValue("Content-Encoding")).isEmpty();
+    assertThat(backend.request.bodyPublisher().orElseThrow().contentLength()).isEqualTo(5);
+
+    client.send(
+        POST("https://example.com", BodyPublishers.ofString("large enough")),
+        BodyHandlers.discarding());
+    verifyThat(backend.request).containsHeader("Content-Encoding", "gzip");
+    assertThat(backend.request.bodyPublisher().orElseThrow().contentLength()).isEqualTo(-1);
+  }
+
   @Test
   void defaultRequestTimeoutIsApplied() throws Exception {
     var timeout = Duration.ofSeconds(1);
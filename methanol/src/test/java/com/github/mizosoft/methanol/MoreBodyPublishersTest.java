@@ -23,10 +23,19 @@
 package com.github.mizosoft.methanol;
 
 import static com.github.mizosoft.methanol.testutils.Verification.verifyThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
+import com.github.mizosoft.methanol.testutils.TestUtils;
+import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 
 class MoreBodyPublishersTest {
@@ -54,4 +63,76 @@ class MoreBodyPublishersTest {
         .isThrownBy(
             () -> MoreBodyPublishers.ofObject("something", MediaType.parse("application/*")));
   }
+
+  @Test
+  void encoding_gzip() {
+    var content = "Pikachu is the best pokemon! ".repeat(10_000);
+    var publisher = MoreBodyPublishers.encoding(BodyPublishers.ofString(content), "gzip");
+    verifyThat(publisher).hasContentLength(-1);
+    var encoded = TestUtils.toByteArray(BodyCollector.collect(publisher));
+    assertThat(encoded.length).isLessThan(content.length());
+    assertThat(new String(TestUtils.gunzip(encoded), UTF_8)).isEqualTo(content);
+  }
+
+  @Test
+  void encoding_deflate() {
+    var content = "Pikachu is the best pokemon! ".repeat(10_000);
+    var publisher = MoreBodyPublishers.encoding(BodyPublishers.ofString(content), "deflate");
+    var encoded = TestUtils.toByteArray(BodyCollector.collect(publisher));
+    assertThat(new String(TestUtils.inflate(encoded), UTF_8)).isEqualTo(content);
+  }
+
+  @Test
+  void encoding_emptyBody() {
+    var publisher = MoreBodyPublishers.encoding(BodyPublishers.noBody(), "gzip");
+    var encoded = TestUtils.toByteArray(BodyCollector.collect(publisher));
+    assertThat(TestUtils.gunzip(encoded)).isEmpty();
+  }
+
+  @Test
+  void encoding_retainsMediaType() {
+    var publisher =
+        MoreBodyPublishers.encoding(
+            MoreBodyPublishers.ofMediaType(
+                BodyPublishers.ofString("Pikachu"), MediaType.parse("text/plain")),
+            "GZIP");
+    verifyThat(publisher).hasMediaType("text/plain");
+  }
+
+  @Test
+  void encoding_requestsUpstreamOnDemand() {
+    var upstreamDemand = new AtomicLong();
+    BodyPublisher upstream =
+        BodyPublishers.fromPublisher(
+            subscriber ->
+                subscriber.onSubscribe(
+                    new Subscription() {
+                      @Override
+                      public void request(long n) {
+                        upstreamDemand.addAndGet(n);
+                      }
+
+                      @Override
+                      public void cancel() {}
+                    }));
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0L;
+    MoreBodyPublishers.encoding(upstream, "gzip").subscribe(subscriber);
+    subscriber.awaitSubscribe();
+    assertThat(upstreamDemand).hasValue(0);
+
+    // Nothing is encoded yet, so upstream is asked for a single buffer
+    subscriber.subscription.request(1);
+    assertThat(upstreamDemand).hasValue(1);
+
+    // Upstream isn't asked for more until the requested buffer arrives
+    subscriber.subscription.request(5);
+    assertThat(upstreamDemand).hasValue(1);
+  }
+
+  @Test
+  void encoding_unsupported() {
+    assertThatExceptionOfType(UnsupportedOperationException.class)
+        .isThrownBy(() -> MoreBodyPublishers.encoding(BodyPublishers.noBody(), "br"));
+  }
 }
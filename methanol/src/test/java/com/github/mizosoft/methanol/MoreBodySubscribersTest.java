@@ -25,6 +25,7 @@ package com.github.mizosoft.methanol;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.fromAsyncSubscriber;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofByteChannel;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofDeferredObject;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.ofFile;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofObject;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofReader;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.withReadTimeout;
@@ -41,6 +42,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIOException;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.awaitility.Awaitility.await;
 
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import com.github.mizosoft.methanol.testing.ExecutorExtension;
@@ -56,6 +58,10 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.InterruptibleChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -76,6 +82,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.reactivestreams.FlowAdapters;
 import org.reactivestreams.example.unicast.AsyncIterablePublisher;
 
@@ -252,6 +259,120 @@ class MoreBodySubscribersTest {
     assertThat(reader.readLine()).isNull();
   }
 
+  @Test
+  @ExecutorConfig(FIXED_POOL)
+  void ofFile_writesBody(Executor executor, @TempDir Path tempDir) throws IOException {
+    var str = randomString(64 * 1024);
+    var file = tempDir.resolve("body");
+    var subscriber = ofFile(file);
+    publisherOf(str, 1024, 5, executor).subscribe(subscriber);
+    assertThat(getBody(subscriber)).isEqualTo(file);
+    assertThat(Files.readString(file)).isEqualTo(str);
+  }
+
+  @Test
+  @ExecutorConfig(FIXED_POOL)
+  void ofFile_syncOnComplete(Executor executor, @TempDir Path tempDir) throws IOException {
+    var str = randomString(8 * 1024);
+    var file = tempDir.resolve("body");
+    var subscriber = ofFile(file, true);
+    publisherOf(str, 1024, 3, executor).subscribe(subscriber);
+    assertThat(getBody(subscriber)).isEqualTo(file);
+    assertThat(Files.readString(file)).isEqualTo(str);
+  }
+
+  @Test
+  void ofFile_truncatesExistingFile(@TempDir Path tempDir) throws IOException {
+    var file = Files.writeString(tempDir.resolve("body"), "Pikachu Pikachu");
+    var subscriber = ofFile(file);
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode("Pika"), UTF_8.encode("chu")));
+    subscriber.onComplete();
+    assertThat(getBody(subscriber)).isEqualTo(file);
+    assertThat(Files.readString(file)).isEqualTo("Pikachu");
+  }
+
+  @Test
+  void ofFile_alwaysOpensForWriting(@TempDir Path tempDir) throws IOException {
+    var file = tempDir.resolve("body");
+    var subscriber = ofFile(file, StandardOpenOption.CREATE);
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode("Pikachu")));
+    subscriber.onComplete();
+    assertThat(getBody(subscriber)).isEqualTo(file);
+    assertThat(Files.readString(file)).isEqualTo("Pikachu");
+  }
+
+  @Test
+  void ofFile_requestsNextBatchAfterWrite(@TempDir Path tempDir) throws IOException {
+    var requests = new AtomicInteger();
+    var subscriber = ofFile(tempDir.resolve("body"));
+    subscriber.onSubscribe(
+        new Subscription() {
+          @Override
+          public void request(long n) {
+            requests.addAndGet((int) n);
+          }
+
+          @Override
+          public void cancel() {}
+        });
+    assertThat(requests).hasValue(1);
+
+    subscriber.onNext(List.of(UTF_8.encode("Pikachu")));
+    await().atMost(Duration.ofSeconds(20)).until(() -> requests.get() == 2);
+    subscriber.onNext(List.of(UTF_8.encode("Ditto")));
+    await().atMost(Duration.ofSeconds(20)).until(() -> requests.get() == 3);
+    subscriber.onComplete();
+    assertThat(Files.readString(getBody(subscriber))).isEqualTo("PikachuDitto");
+  }
+
+  @Test
+  void ofFile_completesBeforeWriteFinishes(@TempDir Path tempDir) throws IOException {
+    // Upstream may complete while a batch is being written, which is only then completed
+    var str = randomString(1024 * 1024);
+    var subscriber = ofFile(tempDir.resolve("body"));
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode(str)));
+    subscriber.onComplete();
+    assertThat(Files.readString(getBody(subscriber))).isEqualTo(str);
+  }
+
+  @Test
+  void ofFile_completesExceptionallyIfFileCannotBeOpened(@TempDir Path tempDir) {
+    var subscription = new ToBeCancelledSubscription();
+    var subscriber = ofFile(tempDir.resolve("nonexistent").resolve("body"));
+    subscriber.onSubscribe(subscription);
+    subscription.assertCancelled();
+    assertThat(toFuture(subscriber))
+        .isCompletedExceptionally()
+        .failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(NoSuchFileException.class);
+  }
+
+  @Test
+  void ofFile_completesExceptionallyOnUpstreamError(@TempDir Path tempDir) {
+    var subscriber = ofFile(tempDir.resolve("body"));
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode("Pikachu")));
+    subscriber.onError(new TestException());
+    assertThat(toFuture(subscriber))
+        .failsWithin(Duration.ofSeconds(20))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(TestException.class);
+  }
+
+  @Test
+  void ofFile_illegalOpenOptions(@TempDir Path tempDir) {
+    var file = tempDir.resolve("body");
+    assertThatIllegalArgumentException().isThrownBy(() -> ofFile(file, StandardOpenOption.READ));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> ofFile(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> MoreBodyHandlers.ofFile(file, StandardOpenOption.APPEND));
+  }
+
   @Test
   void fromAsyncSubscriber_completedToUncompleted() {
     var completedSubscriber = ofByteChannel();
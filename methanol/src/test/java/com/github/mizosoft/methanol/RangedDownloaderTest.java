@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol;
+
+import static com.github.mizosoft.methanol.MutableRequest.GET;
+import static java.net.HttpURLConnection.HTTP_PARTIAL_CONTENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import com.github.mizosoft.methanol.ProgressTracker.Progress;
+import com.github.mizosoft.methanol.testing.MockWebServerExtension;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.SocketPolicy;
+import okio.Buffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@Timeout(value = 1, unit = TimeUnit.MINUTES)
+@ExtendWith(MockWebServerExtension.class)
+class RangedDownloaderTest {
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+  private static final int RANGE_SIZE = 64 * 1024;
+
+  private final byte[] content = new byte[10 * RANGE_SIZE + 123];
+
+  private Methanol client;
+  private MockWebServer server;
+  private URI serverUri;
+  private Path file;
+
+  @BeforeEach
+  void setUp(Methanol.Builder builder, MockWebServer server, @TempDir Path tempDir) {
+    this.client = builder.build();
+    this.server = server;
+    serverUri = server.url("/").uri();
+    file = tempDir.resolve("download");
+    ThreadLocalRandom.current().nextBytes(content);
+  }
+
+  @Test
+  void downloadInRanges() throws Exception {
+    server.setDispatcher(new RangeDispatcher("\"v1\""));
+    var downloader =
+        RangedDownloader.newBuilder(client).parallelism(4).minRangeSize(RANGE_SIZE).build();
+    assertThat(downloader.download(GET(serverUri), file)).isEqualTo(file);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+
+    // The first request probes the resource, then the rest is fetched in 4 ranges
+    assertThat(server.getRequestCount()).isEqualTo(5);
+    var probe = server.takeRequest();
+    assertThat(probe.getHeader("Range")).isEqualTo("bytes=0-" + (RANGE_SIZE - 1));
+    assertThat(probe.getHeader("Accept-Encoding")).isEqualTo("identity");
+    for (int i = 0; i < 4; i++) {
+      var rangeRequest = server.takeRequest();
+      assertThat(rangeRequest.getHeader("Range")).matches(RANGE_PATTERN);
+      assertThat(rangeRequest.getHeader("If-Range")).isEqualTo("\"v1\"");
+    }
+  }
+
+  @Test
+  void downloadSmallResource() throws Exception {
+    var smallContent = new byte[100];
+    System.arraycopy(content, 0, smallContent, 0, smallContent.length);
+    server.enqueue(
+        new MockResponse()
+            .setResponseCode(HTTP_PARTIAL_CONTENT)
+            .setHeader("Content-Range", "bytes 0-99/100")
+            .setBody(new Buffer().write(smallContent)));
+    RangedDownloader.newBuilder(client)
+        .minRangeSize(RANGE_SIZE)
+        .build()
+        .download(GET(serverUri), file);
+    assertThat(Files.readAllBytes(file)).isEqualTo(smallContent);
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void downloadWithoutRangeSupport() throws Exception {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(content)));
+    RangedDownloader.newBuilder(client)
+        .minRangeSize(RANGE_SIZE)
+        .build()
+        .download(GET(serverUri), file);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    assertThat(server.getRequestCount()).isOne();
+  }
+
+  @Test
+  void retryInterruptedRanges() throws Exception {
+    var dispatcher = new RangeDispatcher("\"v1\"");
+    dispatcher.interruptFirstAttempts = true;
+    server.setDispatcher(dispatcher);
+    var downloader =
+        RangedDownloader.newBuilder(client).parallelism(4).minRangeSize(RANGE_SIZE).build();
+    downloader.download(GET(serverUri), file);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+
+    // Each of the 4 ranges is retried once
+    assertThat(server.getRequestCount()).isEqualTo(9);
+  }
+
+  @Test
+  void retryInterruptedFirstRange() throws Exception {
+    var dispatcher = new RangeDispatcher("\"v1\"");
+    dispatcher.interruptFirstAttempts = true;
+    dispatcher.interruptFirstRange = true;
+    server.setDispatcher(dispatcher);
+    var downloader =
+        RangedDownloader.newBuilder(client).parallelism(4).minRangeSize(RANGE_SIZE).build();
+    downloader.download(GET(serverUri), file);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+
+    // The first range and each of the 4 others are retried once
+    assertThat(server.getRequestCount()).isEqualTo(10);
+  }
+
+  @Test
+  void failAfterMaxRetries() {
+    var dispatcher = new RangeDispatcher("\"v1\"");
+    dispatcher.alwaysInterrupt = true;
+    server.setDispatcher(dispatcher);
+    var downloader =
+        RangedDownloader.newBuilder(client)
+            .parallelism(1)
+            .minRangeSize(RANGE_SIZE)
+            .maxRetries(2)
+            .build();
+    assertThatIOException().isThrownBy(() -> downloader.download(GET(serverUri), file));
+
+    // 1 probe + 1 attempt + 2 retries
+    assertThat(server.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test
+  void failWhenResourceChanges() {
+    var dispatcher = new RangeDispatcher("\"v1\"");
+    dispatcher.currentEtag = "\"v2\"";
+    server.setDispatcher(dispatcher);
+    var downloader =
+        RangedDownloader.newBuilder(client).parallelism(4).minRangeSize(RANGE_SIZE).build();
+    assertThatIOException()
+        .isThrownBy(() -> downloader.download(GET(serverUri), file))
+        .withMessageContaining("resource changed during download");
+
+    // Ranges aren't retried as the resource isn't going to change back
+    assertThat(server.getRequestCount()).isEqualTo(5);
+  }
+
+  @Test
+  void failOnUnexpectedStatus() {
+    server.enqueue(new MockResponse().setResponseCode(404));
+    assertThatIOException()
+        .isThrownBy(() -> RangedDownloader.create(client).download(GET(serverUri), file))
+        .withMessageContaining("unexpected response status: 404");
+  }
+
+  @Test
+  void verifyDigest() throws Exception {
+    server.setDispatcher(new RangeDispatcher("\"v1\""));
+    var downloader = RangedDownloader.newBuilder(client).minRangeSize(RANGE_SIZE).build();
+    var digest = MessageDigest.getInstance("SHA-256").digest(content);
+    downloader.download(GET(serverUri), file, "SHA-256", digest);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+
+    digest[0]++;
+    assertThatIOException()
+        .isThrownBy(() -> downloader.download(GET(serverUri), file, "SHA-256", digest))
+        .withMessageContaining("downloaded content doesn't match the expected SHA-256 digest");
+  }
+
+  @Test
+  void verifyDigestInGivenExecutor() throws Exception {
+    server.setDispatcher(new RangeDispatcher("\"v1\""));
+    var executions = new AtomicInteger();
+    var downloader =
+        RangedDownloader.newBuilder(client)
+            .minRangeSize(RANGE_SIZE)
+            .executor(
+                runnable -> {
+                  executions.incrementAndGet();
+                  runnable.run();
+                })
+            .build();
+    var digest = MessageDigest.getInstance("SHA-256").digest(content);
+    downloader.download(GET(serverUri), file, "SHA-256", digest);
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void trackAggregateProgress() throws Exception {
+    server.setDispatcher(new RangeDispatcher("\"v1\""));
+    var progressEvents = new CopyOnWriteArrayList<Progress>();
+    var downloader =
+        RangedDownloader.newBuilder(client)
+            .parallelism(4)
+            .minRangeSize(RANGE_SIZE)
+            .progressTracker(ProgressTracker.create(), progressEvents::add)
+            .build();
+    downloader.download(GET(serverUri), file);
+    assertThat(progressEvents).isNotEmpty();
+    assertThat(progressEvents)
+        .allSatisfy(progress -> assertThat(progress.contentLength()).isEqualTo(content.length));
+
+    var lastProgress = progressEvents.get(progressEvents.size() - 1);
+    assertThat(lastProgress.done()).isTrue();
+    assertThat(lastProgress.totalBytesTransferred()).isEqualTo(content.length);
+  }
+
+  @Test
+  void illegalBuilderArguments() {
+    var builder = RangedDownloader.newBuilder(client);
+    assertThatIllegalArgumentException().isThrownBy(() -> builder.parallelism(0));
+    assertThatIllegalArgumentException().isThrownBy(() -> builder.minRangeSize(0));
+    assertThatIllegalArgumentException().isThrownBy(() -> builder.maxRetries(-1));
+    assertThatIllegalArgumentException()
+        .isThrownBy(
+            () ->
+                RangedDownloader.create(client)
+                    .downloadAsync(GET(serverUri), file, "SHA-007", new byte[0]));
+  }
+
+  /** Serves {@code content} in the ranges requested by the client. */
+  private final class RangeDispatcher extends Dispatcher {
+    private final String etag;
+    private final Set<String> interruptedRanges = ConcurrentHashMap.newKeySet();
+    volatile String currentEtag;
+    volatile boolean interruptFirstAttempts;
+    volatile boolean interruptFirstRange;
+    volatile boolean alwaysInterrupt;
+
+    RangeDispatcher(String etag) {
+      this.etag = etag;
+      this.currentEtag = etag;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+      var rangeHeader = request.getHeader("Range");
+      var ifRange = request.getHeader("If-Range");
+      var matcher = rangeHeader != null ? RANGE_PATTERN.matcher(rangeHeader) : null;
+      if (matcher == null
+          || !matcher.matches()
+          || (ifRange != null && !ifRange.equals(currentEtag))) {
+        return new MockResponse()
+            .setHeader("ETag", currentEtag)
+            .setBody(new Buffer().write(content));
+      }
+
+      int start = Integer.parseInt(matcher.group(1));
+      int end = (int) Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+      var response =
+          new MockResponse()
+              .setResponseCode(HTTP_PARTIAL_CONTENT)
+              .setHeader("ETag", etag)
+              .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length)
+              .setBody(new Buffer().write(content, start, end - start + 1));
+      // Interrupt ranges other than the first unless told otherwise, keying by the range's end as
+      // its start changes when it's resumed
+      if ((start > 0 || interruptFirstRange)
+          && (alwaysInterrupt
+              || (interruptFirstAttempts && interruptedRanges.add(matcher.group(2))))) {
+        response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+      }
+      return response;
+    }
+  }
+}
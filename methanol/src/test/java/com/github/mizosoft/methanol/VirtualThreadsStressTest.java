@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Streams many bodies through {@link WritableBodyPublisher} & {@link
+ * MoreBodySubscribers#ofByteChannel()} with a virtual thread for each writer and each reader, and
+ * checks that none of them pins its carrier thread while blocked, nor buffers more than it's
+ * bounded to. The overall throughput of each run is reported. Only runs on Java 21 or later.
+ */
+@Timeout(value = 5, unit = TimeUnit.MINUTES)
+class VirtualThreadsStressTest {
+  private static final int READ_BUFFER_SIZE = 1000;
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+  /** The most bytes any of the publishers has been seen buffering. */
+  private final AtomicLong maxBufferedBytesSeen = new AtomicLong();
+
+  @Test
+  void streamBodiesWithVirtualThreads() throws Exception {
+    streamBodies(10_000, 16 * 1024, 4 * 1024, 1000);
+  }
+
+  /**
+   * Writes are larger than the bound, which is no smaller than the publisher's sink buffers, so
+   * each write fills multiple sink buffers before waiting for room.
+   */
+  @Test
+  void streamBodiesWithWritesLargerThanBound() throws Exception {
+    streamBodies(1_000, 256 * 1024, 16 * 1024, 40 * 1024);
+  }
+
+  private void streamBodies(int streamCount, int bodySize, int maxBufferedBytes, int writeSize)
+      throws Exception {
+    assumeTrue(Runtime.version().feature() >= 21, "virtual threads require Java 21");
+
+    var executor = newVirtualThreadPerTaskExecutor();
+    var recordingFile = Files.createTempFile(VirtualThreadsStressTest.class.getName(), ".jfr");
+    try (var recording = new Recording()) {
+      recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+
+      long startNanos = System.nanoTime();
+      var readFutures = new ArrayList<CompletableFuture<Long>>();
+      for (int i = 0; i < streamCount; i++) {
+        var body = WritableBodyPublisher.create(maxBufferedBytes);
+        var subscriber = MoreBodySubscribers.ofByteChannel();
+        body.subscribe(new ListWrappingSubscriber(subscriber, body));
+        CompletableFuture.runAsync(() -> write(body, bodySize, writeSize), executor);
+        readFutures.add(
+            subscriber
+                .getBody()
+                .toCompletableFuture()
+                .thenApplyAsync(VirtualThreadsStressTest::read, executor));
+      }
+      assertThat(CompletableFuture.allOf(readFutures.toArray(CompletableFuture[]::new)))
+          .succeedsWithin(Duration.ofMinutes(2));
+      long elapsedNanos = System.nanoTime() - startNanos;
+      long totalBytes = (long) streamCount * bodySize;
+      assertThat(readFutures.stream().mapToLong(CompletableFuture::join).sum())
+          .isEqualTo(totalBytes);
+      assertThat(maxBufferedBytesSeen).hasValueLessThanOrEqualTo(maxBufferedBytes);
+      System.out.printf(
+          "streamed %d bodies of %d bytes (bound: %d, writes: %d) at %.1f MB/s%n",
+          streamCount,
+          bodySize,
+          maxBufferedBytes,
+          writeSize,
+          totalBytes / (elapsedNanos / 1e9) / (1024 * 1024));
+
+      recording.stop();
+      recording.dump(recordingFile);
+      List<RecordedEvent> pinnedEvents =
+          RecordingFile.readAllEvents(recordingFile).stream()
+              .filter(event -> event.getEventType().getName().equals(PINNED_EVENT))
+              .collect(Collectors.toUnmodifiableList());
+      assertThat(pinnedEvents).isEmpty();
+    } finally {
+      executor.shutdown();
+      Files.deleteIfExists(recordingFile);
+    }
+  }
+
+  private void write(WritableBodyPublisher body, int bodySize, int writeSize) {
+    try (var out = body.outputStream()) {
+      var chunk = new byte[writeSize];
+      for (int written = 0; written < bodySize; ) {
+        int count = Math.min(writeSize, bodySize - written);
+        for (int i = 0; i < count; i++) {
+          chunk[i] = valueAt(written + i);
+        }
+        out.write(chunk, 0, count);
+        written += count;
+        recordBufferedBytes(body);
+      }
+    } catch (IOException e) {
+      body.closeExceptionally(e);
+    }
+  }
+
+  private static long read(ReadableByteChannel channel) {
+    try (channel) {
+      var buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+      long read = 0;
+      while (channel.read(buffer.clear()) != -1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          if (buffer.get() != valueAt(read++)) {
+            throw new AssertionError("unexpected byte at position " + (read - 1));
+          }
+        }
+      }
+      return read;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void recordBufferedBytes(WritableBodyPublisher body) {
+    maxBufferedBytesSeen.accumulateAndGet(body.bufferedBytesForTesting(), Math::max);
+  }
+
+  private static byte valueAt(long position) {
+    return (byte) (position % 251);
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() throws Exception {
+    // Reflectively invoked as the project is compiled against Java 11
+    return (ExecutorService)
+        Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+
+  /** Adapts a {@code BodySubscriber} to receive the items of a {@code BodyPublisher}. */
+  private final class ListWrappingSubscriber implements Subscriber<ByteBuffer> {
+    private final BodySubscriber<?> downstream;
+    private final WritableBodyPublisher body;
+
+    ListWrappingSubscriber(BodySubscriber<?> downstream, WritableBodyPublisher body) {
+      this.downstream = downstream;
+      this.body = body;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      recordBufferedBytes(body); // Still counts the item
+      downstream.onNext(List.of(item));
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      downstream.onComplete();
+    }
+  }
+}
@@ -27,6 +27,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.assertj.core.api.Assertions.from;
 
@@ -35,6 +36,9 @@ import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 
 class WritableBodyPublisherTest {
@@ -177,4 +181,233 @@ class WritableBodyPublisherTest {
     }
     verifyThat(body).succeedsWith("abcABC");
   }
+
+  @Test
+  void nonPositiveMaxBufferedBytes() {
+    assertThatIllegalArgumentException().isThrownBy(() -> WritableBodyPublisher.create(0));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> WritableBodyPublisher.createNonBlocking(-1));
+  }
+
+  @Test
+  void boundedWriteBlocksTillDrained() throws Exception {
+    var body = WritableBodyPublisher.create(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var writerThread = new CompletableFuture<Thread>();
+      var writeFuture =
+          CompletableFuture.runAsync(
+              () -> {
+                writerThread.complete(Thread.currentThread());
+                try (var out = body.outputStream()) {
+                  out.write("abcdefgh".getBytes(UTF_8));
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              },
+              executor);
+
+      // Only the first 4 bytes can be buffered till some are drained
+      awaitWaiting(writerThread.get());
+      assertThat(writeFuture).isNotDone();
+      subscriber.subscription.request(1);
+      assertThat(subscriber.awaitNextItem()).isEqualTo(UTF_8.encode("abcd"));
+
+      subscriber.subscription.request(Long.MAX_VALUE);
+      assertThat(writeFuture).succeedsWithin(Duration.ofSeconds(20));
+      subscriber.awaitComplete();
+      assertThat(subscriber.items).last().isEqualTo(UTF_8.encode("efgh"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** A write spanning multiple sink buffers mustn't wait on content downstream isn't told of. */
+  @Test
+  void boundedWriteLargerThanBound() throws Exception {
+    int bound = 8 * 1024; // The default sink buffer size
+    var body = WritableBodyPublisher.create(bound);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = Long.MAX_VALUE;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var writeFuture =
+          CompletableFuture.runAsync(
+              () -> {
+                try (var channel = body.byteChannel()) {
+                  channel.write(ByteBuffer.allocate(4 * bound));
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              },
+              executor);
+      assertThat(writeFuture).succeedsWithin(Duration.ofSeconds(20));
+      subscriber.awaitComplete();
+      assertThat(subscriber.items.stream().mapToInt(ByteBuffer::remaining).sum())
+          .isEqualTo(4 * bound);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void boundedWriteIsUnblockedOnCancellation() throws Exception {
+    var body = WritableBodyPublisher.create(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var writeFuture =
+          CompletableFuture.runAsync(
+              () -> {
+                try {
+                  body.byteChannel().write(UTF_8.encode("abcdefgh"));
+                  body.byteChannel().write(UTF_8.encode("ijkl")); // Discarded
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              },
+              executor);
+      subscriber.subscription.cancel();
+      assertThat(writeFuture).succeedsWithin(Duration.ofSeconds(20));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void boundedWriteIsUnblockedOnClose() throws Exception {
+    var body = WritableBodyPublisher.create(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var writerThread = new CompletableFuture<Thread>();
+      var writeFuture =
+          CompletableFuture.supplyAsync(
+              () -> {
+                writerThread.complete(Thread.currentThread());
+                try {
+                  return body.byteChannel().write(UTF_8.encode("abcdefgh"));
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              },
+              executor);
+
+      // Close while the writer waits for a full buffer to drain with no demand
+      awaitWaiting(writerThread.get());
+      body.close();
+      assertThat(writeFuture).succeedsWithin(Duration.ofSeconds(20)).isEqualTo(4);
+
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.awaitComplete();
+      assertThat(subscriber.items).containsExactly(UTF_8.encode("abcd"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void boundedWriteIsUnblockedOnCloseExceptionally() throws Exception {
+    var body = WritableBodyPublisher.create(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var writerThread = new CompletableFuture<Thread>();
+      var writeFuture =
+          CompletableFuture.supplyAsync(
+              () -> {
+                writerThread.complete(Thread.currentThread());
+                try {
+                  return body.byteChannel().write(UTF_8.encode("abcdefgh"));
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              },
+              executor);
+
+      // Fail while the writer waits for a full buffer to drain with no demand
+      awaitWaiting(writerThread.get());
+      body.closeExceptionally(new TestException());
+      assertThat(writeFuture).succeedsWithin(Duration.ofSeconds(20)).isEqualTo(4);
+
+      subscriber.awaitError();
+      assertThat(subscriber.lastError).isInstanceOf(TestException.class);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void nonBlockingWriteWithByteChannel() throws IOException {
+    var body = WritableBodyPublisher.createNonBlocking(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var channel = body.byteChannel();
+    var src = UTF_8.encode("abcdefgh");
+    assertThat(channel.write(src)).isEqualTo(4);
+    assertThat(channel.write(src)).isZero();
+
+    subscriber.subscription.request(1);
+    assertThat(subscriber.awaitNextItem()).isEqualTo(UTF_8.encode("abcd"));
+    assertThat(channel.write(src)).isEqualTo(4);
+    body.close();
+
+    subscriber.subscription.request(1);
+    subscriber.awaitComplete();
+    assertThat(subscriber.items).last().isEqualTo(UTF_8.encode("efgh"));
+  }
+
+  @Test
+  void nonBlockingWriteWithOutputStream() throws IOException {
+    var body = WritableBodyPublisher.createNonBlocking(4);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+
+    var out = body.outputStream();
+    assertThatIOException().isThrownBy(() -> out.write("abcdefgh".getBytes(UTF_8)));
+    out.write("abc".getBytes(UTF_8));
+    out.write('d');
+    assertThatIOException().isThrownBy(() -> out.write('e'));
+
+    subscriber.subscription.request(1);
+    assertThat(subscriber.awaitNextItem()).isEqualTo(UTF_8.encode("abcd"));
+    out.write('e');
+    out.close();
+
+    subscriber.subscription.request(1);
+    subscriber.awaitComplete();
+    assertThat(subscriber.items).last().isEqualTo(UTF_8.encode("e"));
+  }
+
+  /** Waits till the given thread is parked, which a writer is when waiting for room. */
+  private static void awaitWaiting(Thread thread) throws InterruptedException {
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.sleep(10);
+    }
+  }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.decoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.junit.jupiter.api.Test;
+
+class AsyncBodyDecoderTest {
+  /** Fills a whole sink buffer per upstream item so that each item yields a decoded batch. */
+  private static final int ITEM_SIZE = 8 * 1024;
+
+  @Test
+  void upstreamWindowShrinksWhenDownstreamLags() {
+    var downstream = new RequestingSubscriber(1); // Never requests more
+    var upstream = new RecordingSubscription();
+    var decoder = new AsyncBodyDecoder<>(new IdentityDecoder(), downstream);
+    decoder.onSubscribe(upstream);
+    feed(decoder, upstream, 20 * FlowSupport.prefetch());
+    assertEquals(1, downstream.received);
+    assertTrue(upstream.window() <= 2, "unexpected window: " + upstream.window());
+  }
+
+  @Test
+  void upstreamWindowGrowsWhileDownstreamKeepsUp() {
+    var downstream = new RequestingSubscriber(Long.MAX_VALUE);
+    var upstream = new RecordingSubscription();
+    var decoder = new AsyncBodyDecoder<>(new IdentityDecoder(), downstream);
+    decoder.onSubscribe(upstream);
+    feed(decoder, upstream, 20 * FlowSupport.prefetch());
+    assertEquals(20 * FlowSupport.prefetch(), downstream.received);
+    assertTrue(
+        upstream.maxWindow > FlowSupport.prefetch(), "unexpected window: " + upstream.maxWindow);
+  }
+
+  /** Delivers the given number of items one by one, each only when upstream has been requested. */
+  private static void feed(
+      AsyncBodyDecoder<?> decoder, RecordingSubscription upstream, int itemCount) {
+    for (int i = 0; i < itemCount; i++) {
+      assertTrue(upstream.window() > 0, "no outstanding demand");
+      upstream.delivered++;
+      decoder.onNext(List.of(ByteBuffer.allocate(ITEM_SIZE)));
+    }
+  }
+
+  private static final class IdentityDecoder implements AsyncDecoder {
+    IdentityDecoder() {}
+
+    @Override
+    public String encoding() {
+      return "identity";
+    }
+
+    @Override
+    public void decode(ByteSource source, ByteSink sink) {
+      while (source.hasRemaining()) {
+        sink.pushBytes(source.currentSource());
+      }
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static final class RecordingSubscription implements Subscription {
+    long requested;
+    long delivered;
+    long maxWindow;
+
+    RecordingSubscription() {}
+
+    long window() {
+      return requested - delivered;
+    }
+
+    @Override
+    public void request(long n) {
+      requested += n;
+      maxWindow = Math.max(maxWindow, window());
+    }
+
+    @Override
+    public void cancel() {}
+  }
+
+  private static final class RequestingSubscriber implements BodySubscriber<Void> {
+    private final long request;
+    int received;
+
+    RequestingSubscriber(long request) {
+      this.request = request;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+      return new CompletableFuture<>();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.request(request);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      received++;
+    }
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {}
+  }
+}
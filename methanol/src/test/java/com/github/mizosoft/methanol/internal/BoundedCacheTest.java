@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+  @Test
+  void getCachedValue() {
+    var cache = new BoundedCache<String, String>(4);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.put("a", "1")).isEqualTo("1");
+    assertThat(cache.get("a")).isEqualTo("1");
+    assertThat(cache.size()).isOne();
+  }
+
+  @Test
+  void putKeepsExistingValue() {
+    var cache = new BoundedCache<String, String>(4);
+    cache.put("a", "1");
+    assertThat(cache.put("a", "2")).isEqualTo("1");
+    assertThat(cache.get("a")).isEqualTo("1");
+  }
+
+  @Test
+  void clearsWhenFull() {
+    var cache = new BoundedCache<String, String>(4);
+    for (int i = 0; i < 4; i++) {
+      cache.put("k" + i, "v" + i);
+      assertThat(cache.size()).isEqualTo(i + 1);
+    }
+
+    // Crossing the bound discards all entries but the new one
+    cache.put("k4", "v4");
+    assertThat(cache.size()).isOne();
+    assertThat(cache.get("k0")).isNull();
+    assertThat(cache.get("k4")).isEqualTo("v4");
+  }
+
+  @Test
+  void nonPositiveMaxSize() {
+    assertThatIllegalArgumentException().isThrownBy(() -> new BoundedCache<String, String>(0));
+  }
+}
@@ -25,7 +25,9 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSessionContext;
@@ -125,6 +127,43 @@ class CacheResponseMetadataTest {
     assertMetadataPersisted(response);
   }
 
+  @Test
+  void persistedFreshnessHeaders() throws IOException {
+    var response =
+        response(
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Expires", "Sun, 06 Nov 1994 09:49:37 GMT",
+                "Last-Modified", "Sat, 05 Nov 1994 08:49:37 GMT",
+                "Age", "30")
+            .request(request())
+            .buildTracked();
+    var metadata = metadata(response);
+    var freshnessHeaders = metadata.freshnessHeaders();
+    assertEquals(
+        Optional.of(LocalDateTime.of(1994, 11, 6, 8, 49, 37)), freshnessHeaders.date);
+    assertEquals(
+        Optional.of(LocalDateTime.of(1994, 11, 6, 9, 49, 37)), freshnessHeaders.expires);
+    assertEquals(
+        Optional.of(LocalDateTime.of(1994, 11, 5, 8, 49, 37)), freshnessHeaders.lastModified);
+    assertEquals(Duration.ofSeconds(30), freshnessHeaders.age);
+    assertEquals(freshnessHeaders, metadata(metadata.encode()).freshnessHeaders());
+  }
+
+  @Test
+  void freshnessHeadersOfMetadataWithoutThem() throws IOException {
+    // Metadata written before freshness headers were persisted has them parsed from the headers
+    var response =
+        response("Date", "Sun, 06 Nov 1994 08:49:37 GMT", "Age", "30")
+            .request(request())
+            .buildTracked();
+    var metadata = metadata(response);
+    var buffer = metadata.encode();
+    buffer.put(0, (byte) (buffer.get(0) & ~0x2)); // Clear FLAG_HAS_FRESHNESS_HEADERS
+    var recovered = metadata(buffer);
+    assertEquals(metadata.freshnessHeaders(), recovered.freshnessHeaders());
+    assertEquals(metadata.expiresAt(), recovered.expiresAt());
+  }
+
   private static CacheResponseMetadata metadata(TrackedResponse<?> response) {
     return CacheResponseMetadata.from(response);
   }
@@ -19,6 +19,7 @@ import com.github.mizosoft.methanol.testutils.Logging;
 import com.github.mizosoft.methanol.testutils.TestException;
 import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -339,6 +340,9 @@ class CacheWritingPublisherTest {
       return CompletableFuture.completedFuture(written);
     }
 
+    @Override
+    public void expiry(Instant expiresAt, boolean revalidatable) {}
+
     @Override
     public void commitOnClose() {
       committed = true;
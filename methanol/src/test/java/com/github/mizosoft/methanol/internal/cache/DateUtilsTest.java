@@ -0,0 +1,64 @@
+package com.github.mizosoft.methanol.internal.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+class DateUtilsTest {
+  @Test
+  void parseImfFixdate() {
+    assertEquals(
+        LocalDateTime.of(1994, 11, 6, 8, 49, 37),
+        DateUtils.parseImfFixdate("Sun, 06 Nov 1994 08:49:37 GMT"));
+    assertEquals(
+        LocalDateTime.of(2020, 2, 29, 0, 0, 0),
+        DateUtils.parseImfFixdate("Sat, 29 Feb 2020 00:00:00 GMT"));
+  }
+
+  @Test
+  void parseImfFixdateMatchesFormatter() {
+    var formatter = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    var start = LocalDateTime.of(1970, 1, 1, 0, 0);
+    for (int i = 0; i < 1000; i++) {
+      var dateTime = start.plusSeconds(1_234_567L * i);
+      assertEquals(dateTime, DateUtils.parseImfFixdate(formatter.format(dateTime)));
+    }
+  }
+
+  @Test
+  void parseImfFixdateRejectsOtherValues() {
+    assertNull(DateUtils.parseImfFixdate("Mon, 06 Nov 1994 08:49:37 GMT")); // Wrong day name
+    assertNull(DateUtils.parseImfFixdate("Sun, 31 Nov 1994 08:49:37 GMT")); // Invalid day
+    assertNull(DateUtils.parseImfFixdate("Sun, 06 Nov 1994 24:49:37 GMT")); // Invalid hour
+    assertNull(DateUtils.parseImfFixdate("Sun, 06 Nov 1994 08:49:3x GMT"));
+    assertNull(DateUtils.parseImfFixdate("Sun, 06 Nov 1994 08:49:37 UTC"));
+    assertNull(DateUtils.parseImfFixdate("sun, 06 nov 1994 08:49:37 GMT"));
+    assertNull(DateUtils.parseImfFixdate("Sunday, 06-Nov-94 08:49:37 GMT"));
+    assertNull(DateUtils.parseImfFixdate("Sun Nov  6 08:49:37 1994"));
+    assertNull(DateUtils.parseImfFixdate(""));
+  }
+
+  @Test
+  void toHttpDateFallsBackToFormatters() {
+    var expected = LocalDateTime.of(1994, 11, 6, 8, 49, 37);
+    assertEquals(expected, DateUtils.toHttpDate("sun, 06 nov 1994 08:49:37 GMT"));
+    assertEquals(expected, DateUtils.toHttpDate("Sun, 6 Nov 1994 08:49:37 GMT"));
+    assertEquals(expected, DateUtils.toHttpDate("Sun, 06 Nov 1994 10:49:37 +0200"));
+    assertNull(DateUtils.toHttpDate("Mon, 06 Nov 1994 08:49:37 GMT"));
+  }
+
+  @Test
+  void toHttpDateRepeatedly() {
+    var value =
+        DateUtils.formatHttpDate(LocalDateTime.ofEpochSecond(1605276170, 0, ZoneOffset.UTC));
+    var dateTime = DateUtils.toHttpDate(value);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(dateTime, DateUtils.toHttpDate(value));
+    }
+  }
+}
@@ -46,6 +46,7 @@ import com.github.mizosoft.methanol.internal.cache.MockDiskStore.DiskEntry;
 import com.github.mizosoft.methanol.internal.cache.MockDiskStore.EntryCorruptionMode;
 import com.github.mizosoft.methanol.internal.cache.MockDiskStore.Index;
 import com.github.mizosoft.methanol.internal.cache.MockDiskStore.IndexCorruptionMode;
+import com.github.mizosoft.methanol.internal.cache.MockDiskStore.IndexEntry;
 import com.github.mizosoft.methanol.internal.function.Unchecked;
 import com.github.mizosoft.methanol.testing.ExecutorExtension;
 import com.github.mizosoft.methanol.testing.ExecutorExtension.ExecutorConfig;
@@ -56,9 +57,11 @@ import com.github.mizosoft.methanol.testing.StoreExtension.StoreParameterizedTes
 import com.github.mizosoft.methanol.testutils.Logging;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -216,6 +219,64 @@ class DiskStoreTest {
     assertThat(store.size()).isZero();
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK, maxSize = 20, autoInit = false, execution = SAME_THREAD)
+  void deadEntriesAreRecoveredOnInitialization(Store store, StoreContext context)
+      throws IOException {
+    setUp(context);
+
+    int appVersion = context.config().appVersion();
+    var e1 = new DiskEntry("e1", "Eevee", "Mew", appVersion);
+    var e2 = new DiskEntry("e2", "Jynx", "Psyduck", appVersion);
+    var now = context.clock().instant();
+    mockStore.write(e1, now);
+    mockStore.write(e2, now);
+
+    var index = new Index(appVersion);
+    index.put(
+        new IndexEntry(
+            context.hasher().hash("e1"),
+            now.plusSeconds(1),
+            sizeOf("Eevee", "Mew"),
+            Instant.EPOCH,
+            false));
+    index.put(e2.toIndexEntry(context.hasher(), now));
+    mockStore.writeIndex(index);
+
+    // The dead entry is kept as the store is within bounds
+    store.initialize();
+    assertThat(store.size()).isEqualTo(sizeOf("Eevee", "Mew", "Jynx", "Psyduck"));
+
+    // Exceed the max size, causing e1 to be evicted as it's dead even if e2 is less recently used
+    writeEntry(store, "e3", "Ditto", "Mew");
+    assertAbsent(store, context, "e1");
+    assertEntryEquals(store, "e2", "Jynx", "Psyduck");
+    assertEntryEquals(store, "e3", "Ditto", "Mew");
+    assertThat(store.size()).isEqualTo(sizeOf("Jynx", "Psyduck", "Ditto", "Mew"));
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK, execution = SAME_THREAD, indexUpdateDelaySeconds = 0)
+  void expiryIsPersistedInIndex(Store store, StoreContext context) throws IOException {
+    setUp(context);
+
+    var expiresAt = Instant.parse("3000-01-01T00:00:00Z");
+    writeEntry(store, "e1", "Eevee", "Mew", expiresAt, false);
+    writeEntry(store, "e2", "Jynx", "Psyduck", Instant.EPOCH, true);
+    writeEntry(store, "e3", "Ditto", "Pikachu");
+    store.flush();
+
+    var index = mockStore.readIndex();
+    var e1 = index.get(context.hasher().hash("e1"));
+    assertThat(e1.expiresAt).isEqualTo(expiresAt);
+    assertThat(e1.revalidatable).isFalse();
+    var e2 = index.get(context.hasher().hash("e2"));
+    assertThat(e2.expiresAt).isEqualTo(Instant.EPOCH);
+    assertThat(e2.revalidatable).isTrue();
+    var e3 = index.get(context.hasher().hash("e3"));
+    assertThat(e3.expiresAt).isEqualTo(Instant.MAX);
+  }
+
   @StoreParameterizedTest
   @StoreConfig(store = DISK, autoInit = false)
   void untrackedEntriesFoundOnDiskAreDeleted(Store store, StoreContext context)
@@ -316,6 +377,9 @@ class DiskStoreTest {
     store.initialize();
     assertThatExceptionOfType(StoreCorruptionException.class)
         .isThrownBy(() -> view(store, "e1"));
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(() -> store.viewAsync("e1").join())
+        .withCauseInstanceOf(StoreCorruptionException.class);
 
     // The current implementation doesn't automatically remove the entry
     mockStore.assertEntryFileExists("e1");
@@ -627,6 +691,28 @@ class DiskStoreTest {
     assertThat(store2.size()).isEqualTo(10);
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK, maxSize = 100, partitionMaxSize = 10, execution = SAME_THREAD)
+  void partitionSizesAreRecoveredOnInitialization(StoreContext context) throws IOException {
+    var store1 = context.newStore();
+    writeEntry(store1, "b-e1", "12", "abc"); // Grow partition b to 5 bytes
+    writeEntry(store1, "a-e1", "34", "def"); // Grow partition a to 5 bytes
+    writeEntry(store1, "a-e2", "56", "ghi"); // Grow partition a to 10 bytes
+    context.drainQueuedTasks();
+    store1.close();
+
+    var store2 = context.newStore();
+    assertThat(store2.size("a")).isEqualTo(10);
+    assertThat(store2.size("b")).isEqualTo(5);
+
+    // Grow partition a to 15 bytes, causing a-e1 to be evicted
+    writeEntry(store2, "a-e3", "78", "jkl");
+    assertAbsent(store2, context, "a-e1");
+    assertEntryEquals(store2, "b-e1", "12", "abc");
+    assertThat(store2.size("a")).isEqualTo(10);
+    assertThat(store2.size()).isEqualTo(15);
+  }
+
   @StoreParameterizedTest
   @StoreConfig(store = DISK)
   void externallyDeletedEntryFile(Store store, StoreContext context) throws IOException {
@@ -636,6 +722,17 @@ class DiskStoreTest {
     assertAbsent(store, context, "e1");
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK)
+  void externallyDeletedEntryFileWithAsyncView(Store store, StoreContext context)
+      throws IOException {
+    setUp(context);
+    writeEntry(store, "e1", "Ditto", "Jynx");
+    mockStore.delete("e1");
+    assertThat(store.viewAsync("e1").join()).isNull();
+    assertThat(store.size()).isZero();
+  }
+
   @StoreParameterizedTest
   @StoreConfig(store = DISK)
   void externallyDeletedEntryFileWhileIterating(Store store, StoreContext context)
@@ -647,6 +744,44 @@ class DiskStoreTest {
     assertThat(iter.hasNext()).isFalse();
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK)
+  void externallyDeletedEntryFileWhileIteratingEntryInfos(Store store, StoreContext context)
+      throws IOException {
+    setUp(context);
+    writeEntry(store, "e1", "Ditto", "Jynx");
+    var iter = store.entryInfos();
+    mockStore.delete("e1");
+    assertThat(iter.hasNext()).isFalse();
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(store = DISK, execution = QUEUED, indexUpdateDelaySeconds = 0)
+  void iteratingEntryInfosDoesNotCountAsUse(Store store, StoreContext context)
+      throws IOException {
+    setUp(context);
+
+    var executor = context.mockExecutor();
+    setMetadata(store, "e1", "Jynx");
+    executor.runAll();
+
+    view(store, "e1").close();
+    executor.runAll();
+
+    // Reading infos neither issues an index write nor updates LRU info
+    var iter1 = store.entryInfos();
+    assertThat(iter1.hasNext()).isTrue();
+    var info1 = iter1.next();
+    assertThat(info1.key()).isEqualTo("e1");
+    assertThat(info1.entrySize()).isEqualTo(sizeOf("Jynx"));
+
+    context.clock().advanceSeconds(1);
+    var iter2 = store.entryInfos();
+    assertThat(iter2.hasNext()).isTrue();
+    assertThat(iter2.next().lastUsed()).isEqualTo(info1.lastUsed());
+    assertThat(executor.taskCount()).isZero();
+  }
+
   @StoreParameterizedTest
   @StoreConfig(store = DISK, maxSize = 5, execution = QUEUED, indexUpdateDelaySeconds = 0)
   void indexUpdateEvents(Store store, StoreContext context) throws IOException {
@@ -847,6 +982,37 @@ class DiskStoreTest {
         "e3", start.plusSeconds(2), sizeOf("Jynx", "Snorlax"));
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(
+      store = DISK,
+      execution = SAME_THREAD,
+      autoAdvanceClock = false,
+      indexUpdateDelaySeconds = 0)
+  void bulkEditsAreIndexedOnFlush(Store store, StoreContext context) throws IOException {
+    setUp(context);
+    store.flush();
+    var start = context.clock().inception();
+    try (var editor = store.bulkEdit("e1", start.minusSeconds(2))) {
+      assertThat(editor).isNotNull();
+      writeEntry(editor, "Ditto", "Eevee");
+      editor.commitOnClose();
+    }
+    try (var editor = store.bulkEdit("e2", start.minusSeconds(1))) {
+      assertThat(editor).isNotNull();
+      writeEntry(editor, "Mew", "Mewtwo");
+      editor.commitOnClose();
+    }
+    mockStore.assertEmptyIndex();
+
+    // Entries are indexed with the given last-used times
+    store.flush();
+    mockStore.assertIndexEquals(
+        "e1", start.minusSeconds(2), sizeOf("Ditto", "Eevee"),
+        "e2", start.minusSeconds(1), sizeOf("Mew", "Mewtwo"));
+    assertEntryEquals(store, "e1", "Ditto", "Eevee");
+    assertEntryEquals(store, "e2", "Mew", "Mewtwo");
+  }
+
   @StoreParameterizedTest
   @StoreConfig(store = DISK, autoInit = false)
   void queryingSizeInitializesTheStore(Store store, StoreContext context) throws IOException {
@@ -23,6 +23,7 @@
 package com.github.mizosoft.methanol.internal.cache;
 
 import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
+import static com.github.mizosoft.methanol.internal.cache.DiskStore.DESCRIPTOR_FLAG_REVALIDATABLE;
 import static com.github.mizosoft.methanol.internal.cache.DiskStore.ENTRY_DESCRIPTOR_SIZE;
 import static com.github.mizosoft.methanol.internal.cache.DiskStore.ENTRY_FILE_SUFFIX;
 import static com.github.mizosoft.methanol.internal.cache.DiskStore.ENTRY_MAGIC;
@@ -298,24 +299,37 @@ final class MockDiskStore {
     final Hash hash;
     final Instant lastUsed;
     final long size;
+    final Instant expiresAt;
+    final boolean revalidatable;
 
     IndexEntry(Hash hash, Instant lastUsed, long size) {
-      this.hash = hash;
+      this(hash, lastUsed, size, Instant.MAX, false);
+    }
 
+    IndexEntry(Hash hash, Instant lastUsed, long size, Instant expiresAt, boolean revalidatable) {
+      this.hash = hash;
       this.lastUsed = lastUsed;
       this.size = size;
+      this.expiresAt = expiresAt;
+      this.revalidatable = revalidatable;
     }
 
     IndexEntry(ByteBuffer buffer) {
       hash = new Hash(buffer);
       lastUsed = Instant.ofEpochMilli(buffer.getLong());
       size = buffer.getLong();
+      long expiresAtMillis = buffer.getLong();
+      expiresAt =
+          expiresAtMillis != Long.MAX_VALUE ? Instant.ofEpochMilli(expiresAtMillis) : Instant.MAX;
+      revalidatable = (buffer.get() & DESCRIPTOR_FLAG_REVALIDATABLE) != 0;
     }
 
     void writeTo(ByteBuffer buffer) {
       hash.writeTo(buffer);
       buffer.putLong(lastUsed.toEpochMilli());
       buffer.putLong(size);
+      buffer.putLong(expiresAt != Instant.MAX ? expiresAt.toEpochMilli() : Long.MAX_VALUE);
+      buffer.put(revalidatable ? DESCRIPTOR_FLAG_REVALIDATABLE : 0);
     }
   }
 
@@ -0,0 +1,212 @@
+package com.github.mizosoft.methanol.internal.cache;
+
+import static com.github.mizosoft.methanol.internal.cache.StoreTesting.assertEntryEquals;
+import static com.github.mizosoft.methanol.internal.cache.StoreTesting.assertUnreadable;
+import static com.github.mizosoft.methanol.internal.cache.StoreTesting.sizeOf;
+import static com.github.mizosoft.methanol.internal.cache.StoreTesting.view;
+import static com.github.mizosoft.methanol.internal.cache.StoreTesting.writeEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.github.mizosoft.methanol.internal.cache.Store.Editor;
+import com.github.mizosoft.methanol.internal.cache.Store.Partitioner;
+import com.github.mizosoft.methanol.testing.StoreExtension;
+import com.github.mizosoft.methanol.testing.StoreExtension.StoreParameterizedTest;
+import com.github.mizosoft.methanol.testutils.Logging;
+import com.github.mizosoft.methanol.testutils.MockClock;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@Timeout(60)
+@ExtendWith(StoreExtension.class)
+class StoreArchiveTest {
+  private static final BiConsumer<Editor, ByteBuffer> METADATA_ONLY = Editor::metadata;
+
+  static {
+    Logging.disable(DiskStore.class);
+  }
+
+  @StoreParameterizedTest
+  void exportThenImport(Store store, @TempDir Path tempDir) throws IOException {
+    writeEntry(store, "e1", "Mew", "Mewtwo");
+    writeEntry(store, "e2", "Ditto", "Eevee");
+    writeEntry(store, "e3", "Jynx", "");
+
+    var archive = tempDir.resolve("archive");
+    assertThat(StoreArchive.exportTo(store, archive)).isEqualTo(3);
+
+    var target = new MemoryStore(Long.MAX_VALUE);
+    assertThat(StoreArchive.importFrom(target, archive, METADATA_ONLY)).isEqualTo(3);
+    assertEntryEquals(target, "e1", "Mew", "Mewtwo");
+    assertEntryEquals(target, "e2", "Ditto", "Eevee");
+    assertEntryEquals(target, "e3", "Jynx", "");
+    assertThat(target.size()).isEqualTo(store.size());
+  }
+
+  @StoreParameterizedTest
+  void importIntoStore(Store store, @TempDir Path tempDir) throws IOException {
+    var source = new MemoryStore(Long.MAX_VALUE);
+    writeEntry(source, "e1", "Mew", "Mewtwo");
+    writeEntry(source, "e2", "Ditto", "Eevee");
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+    assertThat(StoreArchive.importFrom(store, archive, METADATA_ONLY)).isEqualTo(2);
+    assertEntryEquals(store, "e1", "Mew", "Mewtwo");
+    assertEntryEquals(store, "e2", "Ditto", "Eevee");
+    assertThat(store.size()).isEqualTo(sizeOf("Mew", "Mewtwo", "Ditto", "Eevee"));
+  }
+
+  @StoreParameterizedTest
+  void importLargeEntry(Store store, @TempDir Path tempDir) throws IOException {
+    var source = new MemoryStore(Long.MAX_VALUE);
+    var data = "Pikachu".repeat(20_000); // Spans multiple archive buffers
+    writeEntry(source, "e1", "Mew", data);
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+    StoreArchive.importFrom(store, archive, METADATA_ONLY);
+    assertEntryEquals(store, "e1", "Mew", data);
+  }
+
+  @StoreParameterizedTest
+  void importSkipsEntriesBeingEdited(Store store, @TempDir Path tempDir) throws IOException {
+    var source = new MemoryStore(Long.MAX_VALUE);
+    writeEntry(source, "e1", "Mew", "Mewtwo");
+    writeEntry(source, "e2", "Ditto", "Eevee");
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+    try (var ignored = store.edit("e1")) {
+      assertThat(StoreArchive.importFrom(store, archive, METADATA_ONLY)).isEqualTo(1);
+    }
+    assertUnreadable(store, "e1");
+    assertEntryEquals(store, "e2", "Ditto", "Eevee");
+  }
+
+  @Test
+  void importRetainsLruOrder(@TempDir Path tempDir) throws IOException {
+    var clock = new MockClock();
+    var source = new MemoryStore(Long.MAX_VALUE, Partitioner.NONE, clock);
+    writeEntry(source, "e1", "Mew", "Mewtwo");
+    clock.advanceSeconds(1);
+    writeEntry(source, "e2", "Ditto", "Eevee");
+    clock.advanceSeconds(1);
+    writeEntry(source, "e3", "Jynx", "Snorlax");
+    clock.advanceSeconds(1);
+    view(source, "e1").close(); // e1 becomes the most recently used
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+
+    // Target can only fit 2 entries, so e2 is evicted as the least recently used
+    var target = new MemoryStore(sizeOf("Mew", "Mewtwo", "Jynx", "Snorlax"));
+    StoreArchive.importFrom(target, archive, METADATA_ONLY);
+    assertUnreadable(target, "e2");
+    assertEntryEquals(target, "e1", "Mew", "Mewtwo");
+    assertEntryEquals(target, "e3", "Jynx", "Snorlax");
+  }
+
+  @Test
+  void exportDoesNotCountAsUse(@TempDir Path tempDir) throws IOException {
+    var clock = new MockClock();
+    var store = new MemoryStore(Long.MAX_VALUE, Partitioner.NONE, clock);
+    writeEntry(store, "e1", "Mew", "Mewtwo");
+    clock.advanceSeconds(1);
+    writeEntry(store, "e2", "Ditto", "Eevee");
+    var lastUsedBeforeExport = lastUsedTimes(store);
+
+    clock.advanceSeconds(1);
+    StoreArchive.exportTo(store, tempDir.resolve("archive"));
+    assertThat(lastUsedTimes(store)).isEqualTo(lastUsedBeforeExport);
+  }
+
+  @StoreParameterizedTest
+  void importRetainsLastUsedTimes(Store store, @TempDir Path tempDir) throws IOException {
+    var clock = new MockClock(Instant.parse("2021-01-01T00:00:00Z"));
+    var source = new MemoryStore(Long.MAX_VALUE, Partitioner.NONE, clock);
+    writeEntry(source, "e1", "Mew", "Mewtwo");
+    clock.advanceSeconds(1);
+    writeEntry(source, "e2", "Ditto", "Eevee");
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+    StoreArchive.importFrom(store, archive, METADATA_ONLY);
+    assertThat(lastUsedTimes(store)).isEqualTo(lastUsedTimes(source));
+  }
+
+  @Test
+  void importNonArchive(@TempDir Path tempDir) throws IOException {
+    var file = Files.writeString(tempDir.resolve("archive"), "Not an archive!");
+    assertThatExceptionOfType(StoreCorruptionException.class)
+        .isThrownBy(
+            () -> StoreArchive.importFrom(new MemoryStore(Long.MAX_VALUE), file, METADATA_ONLY));
+  }
+
+  @Test
+  void importTruncatedArchive(@TempDir Path tempDir) throws IOException {
+    var source = new MemoryStore(Long.MAX_VALUE);
+    writeEntry(source, "e1", "Mew", "Mewtwo");
+    writeEntry(source, "e2", "Ditto", "Eevee");
+
+    var archive = tempDir.resolve("archive");
+    StoreArchive.exportTo(source, archive);
+    try (var channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 4);
+    }
+
+    var target = new MemoryStore(Long.MAX_VALUE);
+    assertThatExceptionOfType(EOFException.class)
+        .isThrownBy(() -> StoreArchive.importFrom(target, archive, METADATA_ONLY));
+
+    // Entries read before the archive is found truncated are retained
+    assertEntryEquals(target, "e1", "Mew", "Mewtwo");
+    assertEntryEquals(target, "e2", "Ditto", "Eevee");
+  }
+
+  @Test
+  void importArchiveWithCorruptEntrySizes(@TempDir Path tempDir) throws IOException {
+    var archive = tempDir.resolve("archive");
+    for (var sizes :
+        new long[][] {{Integer.MAX_VALUE, 0, 0}, {0, Integer.MAX_VALUE, 0}, {3, 0, 1L << 40}}) {
+      var buffer =
+          ByteBuffer.allocate(StoreArchive.ARCHIVE_HEADER_SIZE + StoreArchive.ENTRY_HEADER_SIZE + 3)
+              .putLong(StoreArchive.ARCHIVE_MAGIC)
+              .putInt(StoreArchive.ARCHIVE_VERSION)
+              .putInt((int) sizes[0])
+              .putInt((int) sizes[1])
+              .putLong(sizes[2])
+              .putLong(0)
+              .put(new byte[] {'e', '1', '!'});
+      Files.write(archive, buffer.array());
+
+      // Sizes exceeding what's left of the archive are rejected without allocating for them
+      assertThatExceptionOfType(StoreCorruptionException.class)
+          .isThrownBy(
+              () ->
+                  StoreArchive.importFrom(new MemoryStore(Long.MAX_VALUE), archive, METADATA_ONLY));
+    }
+  }
+
+  private static Map<String, Instant> lastUsedTimes(Store store) throws IOException {
+    var lastUsedTimes = new HashMap<String, Instant>();
+    for (var iter = store.entryInfos(); iter.hasNext(); ) {
+      var info = iter.next();
+      lastUsedTimes.put(info.key(), info.lastUsed());
+    }
+    return lastUsedTimes;
+  }
+}
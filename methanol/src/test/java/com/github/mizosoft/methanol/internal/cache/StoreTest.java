@@ -29,6 +29,7 @@ import com.github.mizosoft.methanol.testing.StoreExtension.StoreParameterizedTes
 import com.github.mizosoft.methanol.testutils.Logging;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -657,6 +658,82 @@ class StoreTest {
     }
   }
 
+  @StoreParameterizedTest
+  void iterateEntryInfos(Store store) throws IOException {
+    var entries = Map.of(
+        "e1", List.of("Pickachu", "Raichu"),
+        "e2", List.of("Mew", "Mewtwo"),
+        "e3", List.of("Jigglypuff", "Charmander"));
+    for (var entry : entries.entrySet()) {
+      writeEntry(store, entry.getKey(), entry.getValue().get(0), entry.getValue().get(1));
+    }
+
+    var iter = store.entryInfos();
+    for (int i = 0; i < entries.size(); i++) {
+      assertThat(iter.hasNext()).isTrue();
+
+      var info = iter.next();
+      var entry = entries.get(info.key());
+      assertThat(entry)
+          .withFailMessage("entry came from nowhere: %s", info.key())
+          .isNotNull();
+      assertThat(UTF_8.decode(info.metadata()).toString()).isEqualTo(entry.get(0));
+      assertThat(info.metadata().isReadOnly()).isTrue();
+      assertThat(info.entrySize()).isEqualTo(sizeOf(entry.get(0), entry.get(1)));
+    }
+    assertThat(iter.hasNext()).isFalse();
+  }
+
+  @StoreParameterizedTest
+  void removeFromEntryInfoIterator(Store store, StoreContext context) throws IOException {
+    writeEntry(store, "e1", "Mew", "Mewtwo");
+    writeEntry(store, "e2", "Charmander", "Pickachu");
+
+    // Remove e2 with Iterator::remove
+    var iter = store.entryInfos();
+    assertThatIllegalStateException().isThrownBy(iter::remove);
+    for (int i = 0; i < 2; i++) {
+      assertThat(iter.hasNext()).isTrue();
+
+      var info = iter.next();
+      if (info.key().equals("e2")) {
+        iter.remove();
+      } else {
+        assertThat(info.key()).isEqualTo("e1");
+      }
+    }
+    assertThat(iter.hasNext()).isFalse();
+
+    assertAbsent(store, context, "e2");
+    assertEntryEquals(store, "e1", "Mew", "Mewtwo");
+    assertThat(store.size()).isEqualTo(sizeOf("Mew", "Mewtwo"));
+  }
+
+  @StoreParameterizedTest
+  void removeFromEntryInfoIteratorPointingAtStaleEntry(Store store) throws IOException {
+    writeEntry(store, "e1", "Ditto", "Jynx");
+
+    var iter = store.entryInfos();
+    assertThat(iter.hasNext()).isTrue();
+    iter.next();
+
+    // Rewrite the entry, making the info stale
+    writeEntry(store, "e1", "Pikachu", "Psyduck");
+
+    // Nothing is removed as the iterator is pointing at a stale entry
+    iter.remove();
+    assertEntryEquals(store, "e1", "Pikachu", "Psyduck");
+  }
+
+  @StoreParameterizedTest
+  void entryInfoIteratorSkipsRemovedEntries(Store store) throws IOException {
+    writeEntry(store, "e1", "Ditto", "Jynx");
+
+    var iter = store.entryInfos();
+    assertThat(store.remove("e1")).isTrue();
+    assertThat(iter.hasNext()).isFalse();
+  }
+
   @StoreParameterizedTest
   @StoreConfig(maxSize = 10, execution = SAME_THREAD)
   void writeExactlyMaxSizeBytesByOneEntry(Store store) throws IOException {
@@ -703,6 +780,106 @@ class StoreTest {
     assertThat(store.size()).isEqualTo(14);
   }
 
+  @StoreParameterizedTest
+  @StoreConfig(maxSize = 100, partitionMaxSize = 10, execution = SAME_THREAD)
+  void writeBeyondPartitionMaxSize(Store store, StoreContext context) throws IOException {
+    writeEntry(store, "b-e1", "12", "abc"); // Grow partition b to 5 bytes
+    writeEntry(store, "a-e1", "34", "def"); // Grow partition a to 5 bytes
+    writeEntry(store, "a-e2", "56", "ghi"); // Grow partition a to 10 bytes
+    assertThat(store.size("a")).isEqualTo(10);
+    assertThat(store.size("b")).isEqualTo(5);
+    assertThat(store.size()).isEqualTo(15);
+
+    // Grow partition a to 15 bytes, causing a-e1 to be evicted. b-e1 is retained despite being
+    // least recently used as its partition doesn't exceed its max size.
+    writeEntry(store, "a-e3", "78", "jkl");
+    assertAbsent(store, context, "a-e1");
+    assertEntryEquals(store, "b-e1", "12", "abc");
+    assertEntryEquals(store, "a-e2", "56", "ghi");
+    assertEntryEquals(store, "a-e3", "78", "jkl");
+    assertThat(store.size("a")).isEqualTo(10);
+    assertThat(store.size("b")).isEqualTo(5);
+    assertThat(store.size()).isEqualTo(15);
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(maxSize = 100, partitionMaxSize = 100, execution = SAME_THREAD)
+  void partitionSizeTracksRemovals(Store store) throws IOException {
+    writeEntry(store, "a-e1", "12", "abc");
+    writeEntry(store, "a-e2", "34", "def");
+    writeEntry(store, "b-e1", "56", "ghi");
+    assertThat(store.size("a")).isEqualTo(10);
+    assertThat(store.size("c")).isZero();
+
+    assertThat(store.remove("a-e1")).isTrue();
+    assertThat(store.size("a")).isEqualTo(5);
+    assertThat(store.size("b")).isEqualTo(5);
+
+    store.clear();
+    assertThat(store.size("a")).isZero();
+    assertThat(store.size("b")).isZero();
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(execution = SAME_THREAD)
+  void deadEntriesAreKeptWithinBounds(Store store, StoreContext context) throws IOException {
+    // A dead entry can still be served to a request that accepts stale responses (e.g. with
+    // max-stale), so it's only evicted when space is needed.
+    writeEntry(store, "e1", "Ditto", "Jynx");
+    writeEntry(store, "e2", "Eevee", "Mew", Instant.EPOCH, false);
+    assertEntryEquals(store, "e1", "Ditto", "Jynx");
+    assertEntryEquals(store, "e2", "Eevee", "Mew");
+    assertThat(store.size()).isEqualTo(sizeOf("Ditto", "Jynx", "Eevee", "Mew"));
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(maxSize = 20, execution = SAME_THREAD)
+  void deadEntriesAreEvictedFirst(Store store, StoreContext context) throws IOException {
+    writeEntry(store, "e1", "12", "abc", Instant.EPOCH, true); // Expired but revalidatable
+    writeEntry(store, "e2", "34", "def", Instant.parse("3000-01-01T00:00:00Z"), false);
+    writeEntry(store, "e3", "56", "ghi", Instant.EPOCH, false); // Dead
+    writeEntry(store, "e4", "78", "jkl"); // Grow size to 20 bytes
+
+    // Grow size to 25 bytes, causing e3 to be evicted as it's dead even if e1 is less recently used
+    writeEntry(store, "e5", "90", "mno");
+    assertAbsent(store, context, "e3");
+    assertEntryEquals(store, "e1", "12", "abc");
+    assertEntryEquals(store, "e2", "34", "def");
+    assertEntryEquals(store, "e4", "78", "jkl");
+    assertEntryEquals(store, "e5", "90", "mno");
+    assertThat(store.size()).isEqualTo(20);
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(maxSize = 10, execution = SAME_THREAD)
+  void onlyNeededDeadEntriesAreEvicted(Store store, StoreContext context) throws IOException {
+    writeEntry(store, "e1", "12", "abc", Instant.EPOCH, false); // Grow size to 5 bytes
+    writeEntry(store, "e2", "34", "def", Instant.EPOCH, false); // Grow size to 10 bytes
+
+    // Grow size to 15 bytes, causing e1 to be evicted as it's the least recently used dead entry
+    writeEntry(store, "e3", "56", "ghi");
+    assertAbsent(store, context, "e1");
+    assertEntryEquals(store, "e2", "34", "def");
+    assertEntryEquals(store, "e3", "56", "ghi");
+    assertThat(store.size()).isEqualTo(10);
+  }
+
+  @StoreParameterizedTest
+  @StoreConfig(maxSize = 10, execution = SAME_THREAD)
+  void entryRetainsExpiryWhenEditedWithoutOne(Store store, StoreContext context)
+      throws IOException {
+    writeEntry(store, "e1", "12", "abc", Instant.EPOCH, false);
+    setMetadata(store, "e1", "34");
+    writeEntry(store, "e2", "56", "def"); // Grow size to 10 bytes
+    assertEntryEquals(store, "e1", "34", "abc"); // Make e1 the most recently used
+
+    // Grow size to 15 bytes, causing e1 to be evicted as it's still dead
+    writeEntry(store, "e3", "78", "ghi");
+    assertAbsent(store, context, "e1");
+    assertEntryEquals(store, "e2", "56", "def");
+    assertEntryEquals(store, "e3", "78", "ghi");
+  }
+
   @StoreParameterizedTest
   @StoreConfig(maxSize = 15, execution = SAME_THREAD)
   void discardedWriteBeyondMaxSize(Store store, StoreContext context) throws IOException {
@@ -935,6 +1112,41 @@ class StoreTest {
     assertAbsent(store, context, "e1");
   }
 
+  @StoreParameterizedTest
+  void viewAsync(Store store) throws IOException {
+    writeEntry(store, "e1", "Mew", "Mewtwo");
+    try (var viewer = store.viewAsync("e1").join()) {
+      assertThat(viewer).isNotNull();
+      assertEntryEquals(viewer, "Mew", "Mewtwo");
+    }
+    assertThat(store.viewAsync("e2").join()).isNull();
+  }
+
+  @StoreParameterizedTest
+  void viewAsyncSeesSnapshotOfEntry(Store store) throws IOException {
+    writeEntry(store, "e1", "Mew", "Mewtwo");
+    try (var viewer = store.viewAsync("e1").join()) {
+      assertThat(viewer).isNotNull();
+      writeEntry(store, "e1", "Ditto", "Eevee");
+      assertEntryEquals(viewer, "Mew", "Mewtwo");
+    }
+    assertEntryEquals(store, "e1", "Ditto", "Eevee");
+  }
+
+  @StoreParameterizedTest
+  void editAsync(Store store) throws IOException {
+    try (var editor = store.editAsync("e1").join()) {
+      assertThat(editor).isNotNull();
+      writeEntry(editor, "Mew", "Mewtwo");
+      editor.commitOnClose();
+    }
+    assertEntryEquals(store, "e1", "Mew", "Mewtwo");
+
+    try (var ignored = edit(store, "e1")) {
+      assertThat(store.editAsync("e1").join()).isNull();
+    }
+  }
+
   @StoreParameterizedTest
   void randomAccess(Store store) throws IOException {
     writeEntry(store, "e1", "", "1234");
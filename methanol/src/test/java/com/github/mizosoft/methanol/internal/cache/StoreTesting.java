@@ -29,6 +29,7 @@ import com.github.mizosoft.methanol.internal.cache.Store.Viewer;
 import com.github.mizosoft.methanol.testing.StoreContext;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.stream.Stream;
 
 class StoreTesting {
@@ -107,6 +108,21 @@ class StoreTesting {
     }
   }
 
+  static void writeEntry(
+      Store store,
+      String key,
+      String metadata,
+      String data,
+      Instant expiresAt,
+      boolean revalidatable)
+      throws IOException {
+    try (var editor = edit(store, key)) {
+      writeEntry(editor, metadata, data);
+      editor.expiry(expiresAt, revalidatable);
+      editor.commitOnClose();
+    }
+  }
+
   static void writeEntry(Editor editor, String metadata, String data) throws IOException {
     setMetadata(editor, metadata);
     writeData(editor, data);
@@ -25,7 +25,9 @@ package com.github.mizosoft.methanol.internal.flow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Flow.Subscription;
 import org.junit.jupiter.api.Test;
@@ -77,14 +79,69 @@ class PrefetcherTest {
     }
   }
 
+  @Test
+  void prefetchGrowsWhileConsumerKeepsUp() {
+    var s = new RecordingSubscription();
+    var ups = new Upstream();
+    ups.setOrCancel(s);
+    var pref = new Prefetcher();
+    pref.initialize(ups);
+    for (int i = 0; i < 100 * FlowSupport.maxPrefetch(); i++) {
+      pref.received(List.of(ByteBuffer.allocate(1024)));
+      pref.update(ups); // Consumed as soon as received
+    }
+    assertEquals(FlowSupport.maxPrefetch(), pref.prefetch());
+    assertTrue(pref.currentWindow() <= FlowSupport.maxPrefetch());
+  }
+
+  @Test
+  void prefetchShrinksWhenConsumerLags() {
+    var s = new RecordingSubscription();
+    var ups = new Upstream();
+    ups.setOrCancel(s);
+    var pref = new Prefetcher();
+    pref.initialize(ups);
+    long delivered = 0;
+    for (int i = 0; i < 100 * FlowSupport.prefetch(); i++) {
+      // Upstream delivers everything requested before the consumer consumes an item
+      for (long requested = s.totalDemand(); delivered < requested; delivered++) {
+        pref.received(List.of(ByteBuffer.allocate(1024)));
+      }
+      pref.update(ups);
+    }
+    assertEquals(2, pref.prefetch());
+    assertTrue(pref.currentWindow() <= 2);
+  }
+
+  @Test
+  void prefetchIsCappedByBytes() {
+    var s = new RecordingSubscription();
+    var ups = new Upstream();
+    ups.setOrCancel(s);
+    var pref = new Prefetcher();
+    pref.initialize(ups);
+    int itemSize = (int) Math.max(1, FlowSupport.maxPrefetchBytes() / 4);
+    for (int i = 0; i < 100 * FlowSupport.prefetch(); i++) {
+      pref.received(List.of(ByteBuffer.allocate(itemSize)));
+      pref.update(ups);
+    }
+    assertEquals(4, pref.prefetch());
+  }
+
   private static class RecordingSubscription implements Subscription {
 
     private final Queue<Long> demands = new LinkedList<>();
+    private long totalDemand;
 
     RecordingSubscription() {}
 
     @Override public synchronized void request(long n) {
       demands.offer(n);
+      totalDemand += n;
+    }
+
+    synchronized long totalDemand() {
+      return totalDemand;
     }
 
     @Override public void cancel() {
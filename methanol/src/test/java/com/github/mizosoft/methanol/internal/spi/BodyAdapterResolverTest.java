@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.spi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+
+class BodyAdapterResolverTest {
+  @Test
+  void resolvesFirstMatchingAdapter() {
+    var textDecoder = new CountingDecoder(Set.of(String.class), MediaType.TEXT_PLAIN);
+    var jsonDecoder = new CountingDecoder(Set.of(String.class), MediaType.APPLICATION_JSON);
+    var resolver = new BodyAdapterResolver<Decoder>(() -> List.of(textDecoder, jsonDecoder));
+    assertThat(resolver.resolve(TypeRef.from(String.class), MediaType.TEXT_PLAIN))
+        .containsSame(textDecoder);
+    assertThat(resolver.resolve(TypeRef.from(String.class), MediaType.APPLICATION_JSON))
+        .containsSame(jsonDecoder);
+    assertThat(resolver.resolve(TypeRef.from(String.class), null)).containsSame(textDecoder);
+  }
+
+  @Test
+  void memoizesResolutions() {
+    var decoder = new CountingDecoder(Set.of(String.class), MediaType.TEXT_PLAIN);
+    var resolver = new BodyAdapterResolver<Decoder>(() -> List.of(decoder));
+    for (int i = 0; i < 3; i++) {
+      assertThat(resolver.resolve(TypeRef.from(String.class), MediaType.parse("TEXT/plain")))
+          .containsSame(decoder);
+    }
+    assertThat(decoder.supportsTypeCalls).hasValue(1);
+    assertThat(resolver.size()).isOne();
+  }
+
+  @Test
+  void memoizesNegativeResolutions() {
+    var decoder = new CountingDecoder(Set.of(String.class), MediaType.TEXT_PLAIN);
+    var resolver = new BodyAdapterResolver<Decoder>(() -> List.of(decoder));
+    for (int i = 0; i < 3; i++) {
+      assertThat(resolver.resolve(TypeRef.from(Integer.class), MediaType.TEXT_PLAIN)).isEmpty();
+      assertThat(resolver.resolve(TypeRef.from(String.class), MediaType.APPLICATION_JSON))
+          .isEmpty();
+    }
+    assertThat(decoder.supportsTypeCalls).hasValue(2);
+  }
+
+  @Test
+  void boundsMemoizedResolutions() {
+    var decoder = new CountingDecoder(Set.of(String.class), MediaType.TEXT_PLAIN);
+    var resolver = new BodyAdapterResolver<Decoder>(() -> List.of(decoder), 4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(
+              resolver.resolve(
+                  TypeRef.from(String.class), MediaType.parse("text/plain; i=" + i)))
+          .containsSame(decoder);
+      assertThat(resolver.size()).isEqualTo(i + 1);
+    }
+
+    // Crossing the bound discards all memoized resolutions but the new one
+    assertThat(resolver.resolve(TypeRef.from(String.class), MediaType.parse("text/plain; i=4")))
+        .containsSame(decoder);
+    assertThat(resolver.size()).isOne();
+  }
+
+  @Test
+  void resolvesAgainAfterBoundIsCrossed() {
+    var decoder = new CountingDecoder(Set.of(String.class), MediaType.TEXT_PLAIN);
+    var resolver = new BodyAdapterResolver<Decoder>(() -> List.of(decoder), 4);
+    var hotType = TypeRef.from(String.class);
+    assertThat(resolver.resolve(hotType, MediaType.TEXT_PLAIN)).containsSame(decoder);
+    for (int i = 0; i < 4; i++) {
+      resolver.resolve(TypeRef.from(String.class), MediaType.parse("text/plain; i=" + i));
+    }
+    assertThat(resolver.size()).isOne();
+    assertThat(decoder.supportsTypeCalls).hasValue(5);
+
+    // The hot pair is looked up again, then memoized again
+    for (int i = 0; i < 3; i++) {
+      assertThat(resolver.resolve(hotType, MediaType.TEXT_PLAIN)).containsSame(decoder);
+    }
+    assertThat(decoder.supportsTypeCalls).hasValue(6);
+    assertThat(resolver.size()).isEqualTo(2);
+  }
+
+  @Test
+  void nonPositiveMaxSize() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new BodyAdapterResolver<Decoder>(List::of, 0));
+  }
+
+  private static final class CountingDecoder extends AbstractBodyAdapter implements Decoder {
+    private final Set<Class<?>> supportedTypes;
+    final AtomicInteger supportsTypeCalls = new AtomicInteger();
+
+    CountingDecoder(Set<Class<?>> supportedTypes, MediaType... compatibleMediaTypes) {
+      super(compatibleMediaTypes);
+      this.supportedTypes = supportedTypes;
+    }
+
+    @Override
+    public boolean supportsType(TypeRef<?> type) {
+      supportsTypeCalls.incrementAndGet();
+      return supportedTypes.contains(type.rawType());
+    }
+
+    @Override
+    public <T> BodySubscriber<T> toObject(TypeRef<T> type, @Nullable MediaType mediaType) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
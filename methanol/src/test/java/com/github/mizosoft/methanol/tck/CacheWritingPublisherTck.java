@@ -19,6 +19,7 @@ import com.github.mizosoft.methanol.testutils.TestUtils;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -141,6 +142,9 @@ public class CacheWritingPublisherTck extends FlowPublisherVerification<List<Byt
       return CompletableFuture.completedFuture(remaining);
     }
 
+    @Override
+    public void expiry(Instant expiresAt, boolean revalidatable) {}
+
     @Override
     public void commitOnClose() {}
 
@@ -53,6 +53,7 @@ public final class ResolvedStoreConfig {
       requireNonNull(System.getProperty("java.io.tmpdir"));
 
   private final long maxSize;
+  private final long partitionMaxSize;
   private final StoreType storeType;
 
   // DiskStore-only config
@@ -66,6 +67,7 @@ public final class ResolvedStoreConfig {
 
   ResolvedStoreConfig(
       long maxSize,
+      long partitionMaxSize,
       StoreType storeType,
       FileSystemType fileSystemType,
       Execution execution,
@@ -74,6 +76,7 @@ public final class ResolvedStoreConfig {
       boolean autoInit,
       boolean autoAdvanceClock) {
     this.maxSize = maxSize;
+    this.partitionMaxSize = partitionMaxSize;
     this.storeType = storeType;
     this.fileSystemType = fileSystemType;
     this.execution = execution;
@@ -87,6 +90,10 @@ public final class ResolvedStoreConfig {
     return maxSize;
   }
 
+  public long partitionMaxSize() {
+    return partitionMaxSize;
+  }
+
   public StoreType storeType() {
     return storeType;
   }
@@ -173,6 +180,7 @@ public final class ResolvedStoreConfig {
   static ResolvedStoreConfig create(List<?> tuple) {
     int i = 0;
     long maxSize = (long) tuple.get(i++);
+    long partitionMaxSize = (long) tuple.get(i++);
     var storeType = (StoreType) tuple.get(i++);
     var fileSystemType = (FileSystemType) tuple.get(i++);
     var execution = (Execution) tuple.get(i++);
@@ -186,6 +194,7 @@ public final class ResolvedStoreConfig {
     boolean autoAdvanceClock = (boolean) tuple.get(i);
     return new ResolvedStoreConfig(
         maxSize,
+        partitionMaxSize,
         storeType,
         fileSystemType,
         execution,
@@ -198,6 +207,14 @@ public final class ResolvedStoreConfig {
   public static ResolvedStoreConfig createDefault(StoreType storeType) {
     var fileSystemType = storeType == DISK ? SYSTEM : JIMFS;
     return new ResolvedStoreConfig(
-        Long.MAX_VALUE, storeType, fileSystemType, Execution.ASYNC, 1, null, true, true);
+        Long.MAX_VALUE,
+        Long.MAX_VALUE,
+        storeType,
+        fileSystemType,
+        Execution.ASYNC,
+        1,
+        null,
+        true,
+        true);
   }
 }
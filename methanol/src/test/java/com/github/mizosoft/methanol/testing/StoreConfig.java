@@ -41,6 +41,12 @@ public @interface StoreConfig {
 
   long maxSize() default Long.MAX_VALUE;
 
+  /**
+   * Max size of each partition, where an entry's partition is the part of its key preceding the
+   * first {@code '-'}, or the whole key if it has none. Entries aren't partitioned by default.
+   */
+  long partitionMaxSize() default Long.MAX_VALUE;
+
   StoreType[] store() default {StoreType.MEMORY, StoreType.DISK};
 
   FileSystemType[] fileSystem() default {
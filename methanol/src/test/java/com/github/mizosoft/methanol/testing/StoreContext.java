@@ -25,6 +25,7 @@ package com.github.mizosoft.methanol.testing;
 import static com.github.mizosoft.methanol.internal.Validate.castNonNull;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import com.github.mizosoft.methanol.internal.Utils;
 import com.github.mizosoft.methanol.internal.cache.DiskStore;
 import com.github.mizosoft.methanol.internal.cache.MemoryStore;
 import com.github.mizosoft.methanol.internal.cache.Store;
@@ -140,11 +141,12 @@ public final class StoreContext implements AutoCloseable {
   private Store createStore() {
     switch (config.storeType()) {
       case MEMORY:
-        return new MemoryStore(config.maxSize());
+        return new MemoryStore(config.maxSize(), partitioner(), Utils.systemMillisUtc());
       case DISK:
         var builder =
             DiskStore.newBuilder()
                 .maxSize(config.maxSize())
+                .partitioner(partitioner())
                 .directory(directory)
                 .executor(executor)
                 .hasher(hasher)
@@ -159,6 +161,25 @@ public final class StoreContext implements AutoCloseable {
     }
   }
 
+  private Store.Partitioner partitioner() {
+    long partitionMaxSize = config.partitionMaxSize();
+    if (partitionMaxSize == Long.MAX_VALUE) {
+      return Store.Partitioner.NONE;
+    }
+    return new Store.Partitioner() {
+      @Override
+      public String partitionOf(String key) {
+        int separator = key.indexOf('-');
+        return separator >= 0 ? key.substring(0, separator) : key;
+      }
+
+      @Override
+      public long maxSizeOf(String partition) {
+        return partitionMaxSize;
+      }
+    };
+  }
+
   void initializeAll() throws IOException {
     executeOnSameThreadIfExecutionIsQueued();
     for (var store : createdStores) {
@@ -161,6 +161,7 @@ public final class StoreExtension
   private static Stream<ResolvedStoreConfig> resolveConfigs(StoreConfig config) {
     return cartesianProduct(
             Set.of(config.maxSize()),
+            Set.of(config.partitionMaxSize()),
             Set.of(config.store()),
             Set.of(config.fileSystem()),
             Set.of(config.execution()),